@@ -27,6 +27,7 @@ import org.apache.maven.shared.filtering.MavenReaderFilter;
 import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 
@@ -135,6 +136,80 @@ public interface AssemblerConfigurationSource
      */
     boolean isDryRun();
 
+    /**
+     * @return Whether to log the time and volume of each step of the assembly, and to write them as JSON below the
+     *         build directory.
+     * @since 3.1.1
+     */
+    boolean isReport();
+
+    /**
+     * @return Whether to run the phases without writing the archives, and to log the entries they would contain and
+     *         their estimated size instead.
+     * @since 3.1.1
+     */
+    boolean isPlan();
+
+    /**
+     * @return The policy for entries with the same path in an archive (<code>first</code>, <code>last</code> or
+     *         <code>fail</code>), applied before their contents are read; or <code>null</code> to leave duplicates to
+     *         the archiver.
+     * @since 3.1.1
+     */
+    String getDuplicatePolicy();
+
+    /**
+     * @return Whether tar archives store files with the contents of a file already written as hard links, and zip
+     *         archives report the contents they store more than once.
+     * @since 3.1.1
+     */
+    boolean isHardLinkDuplicates();
+
+    /**
+     * @return The extensions of the entries which zip and jar archives store instead of deflating, or
+     *         <code>null</code>.
+     * @since 3.1.1
+     */
+    List<String> getStoredExtensions();
+
+    /**
+     * @return Whether zip and jar archives store the entries whose first kilobyte has a high entropy instead of
+     *         deflating them.
+     * @since 3.1.1
+     */
+    boolean isProbeEntropy();
+
+    /**
+     * @return The digest algorithms, e.g. <code>SHA-256</code>, whose checksums of each archive are written next to
+     *         it, or <code>null</code>.
+     * @since 3.1.1
+     */
+    List<String> getArchiveDigests();
+
+    /**
+     * @return Whether a SHA-256 checksum of each entry of an archive is written next to it.
+     * @since 3.1.1
+     */
+    boolean isEntryDigests();
+
+    /**
+     * @return The megabytes of file contents which tar archives may read ahead of their writer, or 0.
+     * @since 3.1.1
+     */
+    int getPipelineBuffer();
+
+    /**
+     * @return Whether file-sets hand their entries to the archiver as their directories are walked.
+     * @since 3.1.1
+     */
+    boolean isStreamEntries();
+
+    /**
+     * @return Whether tar archives are also written as one reproducible tar per layer.
+     * @since 3.1.1
+     */
+    boolean isTarLayers();
+
     /**
      * @return Ignore directory format extensions.
      */
@@ -150,6 +225,13 @@ public interface AssemblerConfigurationSource
      */
     MavenSession getMavenSession();
 
+    /**
+     * @return The dependency resolution scope Maven applied to the project before the plugin was executed, as
+     *         declared by the mojo (for instance <code>compile</code>), or <code>null</code> if unknown.
+     */
+    @Nullable
+    String getDependencyResolutionScope();
+
     /**
      * @return The archiver configu.
      */
@@ -0,0 +1,241 @@
+package org.apache.maven.plugins.assembly.archive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.maven.plugins.assembly.archive.archiver.EntryDigests;
+import org.codehaus.plexus.util.IOUtil;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The checksums of an archive, and optionally the SHA-256 checksum of each of its file entries, written next to the
+ * archive. The checksums of the archive are computed in a single sequential read of the archive once it is written:
+ * every configured digest is updated with the same bytes. Right after the archive has been written, that read is
+ * mostly served by the page cache, and it replaces a separate checksum step which would read the archive once per
+ * algorithm.
+ * <p>
+ * The checksums of the entries are not read back from the archive: the archiver records them in
+ * {@link #getEntryDigests()} from the bytes it streams into the archive. The archivers of plexus-archiver open the
+ * output stream of the archive themselves, so the archive itself cannot be digested while it is written.
+ * </p>
+ *
+ * @since 3.1.1
+ */
+public final class ArchiveDigests
+{
+
+    /**
+     * The suffix of the file listing the checksums of the entries.
+     */
+    public static final String ENTRIES_SUFFIX = ".entries.sha256";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, MessageDigest> digests = new LinkedHashMap<String, MessageDigest>();
+
+    private final Map<String, String> checksums = new LinkedHashMap<String, String>();
+
+    private final EntryDigests entryDigests;
+
+    /**
+     * @param algorithms the algorithms of the checksums of the archive, e.g. <code>SHA-256</code>.
+     * @param entryDigests whether to record the checksum of each file entry.
+     * @throws NoSuchAlgorithmException if an algorithm is not supported.
+     */
+    public ArchiveDigests( @Nullable Collection<String> algorithms, boolean entryDigests )
+        throws NoSuchAlgorithmException
+    {
+        if ( algorithms != null )
+        {
+            for ( final String algorithm : algorithms )
+            {
+                final String name = algorithm.trim().toUpperCase( Locale.ENGLISH );
+                if ( name.length() > 0 && !digests.containsKey( name ) )
+                {
+                    digests.put( name, MessageDigest.getInstance( name ) );
+                }
+            }
+        }
+        this.entryDigests = entryDigests ? new EntryDigests() : null;
+    }
+
+    /**
+     * @return <code>true</code> if there is nothing to compute.
+     */
+    public boolean isEmpty()
+    {
+        return digests.isEmpty() && entryDigests == null;
+    }
+
+    /**
+     * @return The checksums the archiver records the file entries in while it writes them, or <code>null</code> if
+     *         they are not wanted.
+     */
+    @Nullable
+    public EntryDigests getEntryDigests()
+    {
+        return entryDigests;
+    }
+
+    /**
+     * Reads the archive once, and computes its checksums.
+     *
+     * @param archive the archive.
+     * @throws IOException if the archive cannot be read.
+     */
+    public void compute( @Nonnull File archive )
+        throws IOException
+    {
+        if ( digests.isEmpty() )
+        {
+            return;
+        }
+
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( archive );
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ( ( read = in.read( buffer ) ) >= 0 )
+            {
+                for ( final MessageDigest digest : digests.values() )
+                {
+                    digest.update( buffer, 0, read );
+                }
+            }
+            in.close();
+            in = null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+
+        for ( final Map.Entry<String, MessageDigest> digest : digests.entrySet() )
+        {
+            checksums.put( digest.getKey(), Hex.encodeHexString( digest.getValue().digest() ) );
+        }
+    }
+
+    /**
+     * @return The checksums of the archive, hex encoded, by algorithm.
+     */
+    @Nonnull
+    public Map<String, String> getChecksums()
+    {
+        return Collections.unmodifiableMap( checksums );
+    }
+
+    /**
+     * @return The path and the checksum of each file entry the archiver recorded, sorted by path.
+     */
+    @Nonnull
+    public Map<String, String> getEntryChecksums()
+    {
+        return entryDigests != null ? entryDigests.getChecksums() : Collections.<String, String>emptyMap();
+    }
+
+    /**
+     * Writes the checksums next to the archive, in the format of <code>sha256sum</code> and its siblings: one file per
+     * algorithm, such as <code>bin.zip.sha256</code>, and the checksums of the entries in
+     * <code>bin.zip.entries.sha256</code> if the archiver recorded any.
+     *
+     * @param archive the archive.
+     * @return the files written.
+     * @throws IOException if a file cannot be written.
+     */
+    @Nonnull
+    public List<File> write( @Nonnull File archive )
+        throws IOException
+    {
+        final List<File> files = new ArrayList<File>();
+        for ( final Map.Entry<String, String> checksum : checksums.entrySet() )
+        {
+            final File file = new File( archive.getPath() + "." + extension( checksum.getKey() ) );
+            write( file, Collections.singletonList( new String[] { checksum.getValue(), archive.getName() } ) );
+            files.add( file );
+        }
+        if ( entryDigests != null && !entryDigests.isEmpty() )
+        {
+            final List<String[]> lines = new ArrayList<String[]>();
+            for ( final Map.Entry<String, String> entry : entryDigests.getChecksums().entrySet() )
+            {
+                lines.add( new String[] { entry.getValue(), entry.getKey() } );
+            }
+            final File file = new File( archive.getPath() + ENTRIES_SUFFIX );
+            write( file, lines );
+            files.add( file );
+        }
+        return files;
+    }
+
+    /**
+     * @param algorithm the algorithm, e.g. <code>SHA-256</code>.
+     * @return the extension of its checksum files, e.g. <code>sha256</code>.
+     */
+    static String extension( final String algorithm )
+    {
+        return algorithm.toLowerCase( Locale.ENGLISH ).replace( "-", "" );
+    }
+
+    private static void write( final File file, final List<String[]> lines )
+        throws IOException
+    {
+        Writer writer = null;
+        try
+        {
+            writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" ) );
+            for ( final String[] line : lines )
+            {
+                writer.write( line[0] );
+                writer.write( "  " );
+                writer.write( line[1] );
+                writer.write( '\n' );
+            }
+            writer.close();
+            writer = null;
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+}
@@ -19,26 +19,59 @@ package org.apache.maven.plugins.assembly.archive;
  * under the License.
  */
 
+import org.apache.maven.archiver.MavenArchiveConfiguration;
 import org.apache.maven.plugin.DebugConfigurationListener;
 import org.apache.maven.plugins.assembly.AssemblerConfigurationSource;
 import org.apache.maven.plugins.assembly.InvalidAssemblerConfigurationException;
 import org.apache.maven.plugins.assembly.archive.archiver.AssemblyProxyArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.ChannelCopyingDirectoryArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.DuplicatePolicy;
+import org.apache.maven.plugins.assembly.archive.archiver.EntryDigests;
+import org.apache.maven.plugins.assembly.archive.archiver.HardLinkingTarArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.LayeredTarArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.PipelinedTarArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.StoredEntryPolicy;
+import org.apache.maven.plugins.assembly.archive.archiver.StoringJarArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.StoringZipArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.TarLayer;
+import org.apache.maven.plugins.assembly.archive.archiver.TarLayers;
 import org.apache.maven.plugins.assembly.archive.phase.AssemblyArchiverPhase;
 import org.apache.maven.plugins.assembly.archive.phase.AssemblyArchiverPhaseComparator;
+import org.apache.maven.plugins.assembly.archive.phase.DependencySetAssemblyPhase;
+import org.apache.maven.plugins.assembly.archive.phase.FileItemAssemblyPhase;
+import org.apache.maven.plugins.assembly.archive.phase.FileSetAssemblyPhase;
+import org.apache.maven.plugins.assembly.archive.phase.ModuleSetAssemblyPhase;
+import org.apache.maven.plugins.assembly.archive.phase.RepositoryAssemblyPhase;
 import org.apache.maven.plugins.assembly.artifact.DependencyResolutionException;
 import org.apache.maven.plugins.assembly.filter.ComponentsXmlArchiverFileFilter;
 import org.apache.maven.plugins.assembly.filter.ContainerDescriptorHandler;
 import org.apache.maven.plugins.assembly.format.AssemblyFormattingException;
 import org.apache.maven.plugins.assembly.interpolation.AssemblyExpressionEvaluator;
+import org.apache.maven.plugins.assembly.metrics.AssemblyEventListener;
+import org.apache.maven.plugins.assembly.metrics.AssemblyEvents;
+import org.apache.maven.plugins.assembly.metrics.AssemblyMetrics;
+import org.apache.maven.plugins.assembly.metrics.AssemblyPlan;
+import org.apache.maven.plugins.assembly.metrics.AssemblyReport;
+import org.apache.maven.plugins.assembly.metrics.AssemblyTrace;
+import org.apache.maven.plugins.assembly.metrics.DuplicateContents;
 import org.apache.maven.plugins.assembly.model.Assembly;
 import org.apache.maven.plugins.assembly.model.ContainerDescriptorHandlerConfig;
+import org.apache.maven.plugins.assembly.model.DependencySet;
+import org.apache.maven.plugins.assembly.model.FileSet;
+import org.apache.maven.plugins.assembly.model.ModuleBinaries;
+import org.apache.maven.plugins.assembly.model.ModuleSet;
+import org.apache.maven.plugins.assembly.model.ModuleSources;
+import org.apache.maven.plugins.assembly.model.Repository;
 import org.apache.maven.plugins.assembly.utils.AssemblyFileUtils;
 import org.apache.maven.plugins.assembly.utils.AssemblyFormatUtils;
+import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.PlexusConstants;
 import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.archiver.ArchiveEntry;
 import org.codehaus.plexus.archiver.ArchiveFinalizer;
 import org.codehaus.plexus.archiver.Archiver;
 import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.ResourceIterator;
 import org.codehaus.plexus.archiver.diags.DryRunArchiver;
 import org.codehaus.plexus.archiver.filters.JarSecurityFileSelector;
 import org.codehaus.plexus.archiver.jar.JarArchiver;
@@ -66,15 +99,16 @@ import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Controller component designed to organize the many activities involved in creating an assembly archive. This includes
@@ -97,9 +131,8 @@ public class DefaultAssemblyArchiver
     @Requirement( role = AssemblyArchiverPhase.class )
     private List<AssemblyArchiverPhase> assemblyPhases;
 
-    @SuppressWarnings( "MismatchedQueryAndUpdateOfCollection" )
-    @Requirement( role = ContainerDescriptorHandler.class )
-    private Map<String, ContainerDescriptorHandler> containerDescriptorHandlers;
+    @Requirement( role = AssemblyEventListener.class, optional = true )
+    private List<AssemblyEventListener> eventListeners;
 
     private PlexusContainer container;
 
@@ -138,6 +171,7 @@ public class DefaultAssemblyArchiver
         throws ArchiveCreationException, AssemblyFormattingException, InvalidAssemblerConfigurationException
     {
         validate( assembly );
+        validateDuplicatePolicy( configSource );
 
         String filename = fullName;
         if ( !configSource.isIgnoreDirFormatExtensions() || !format.startsWith( "dir" ) )
@@ -151,6 +185,9 @@ public class DefaultAssemblyArchiver
 
         final File destFile = new File( outputDirectory, filename );
 
+        final AssemblyReport report =
+            configSource.isReport() ? new AssemblyReport( assembly.getId(), format, AssemblyMetrics.start() ) : null;
+        List<ContainerDescriptorHandler> containerHandlers = null;
         try
         {
             final String finalName = configSource.getFinalName();
@@ -167,21 +204,81 @@ public class DefaultAssemblyArchiver
                                                                       null ) );
             }
 
-            final List<ContainerDescriptorHandler> containerHandlers =
+            containerHandlers =
                 selectContainerDescriptorHandlers( assembly.getContainerDescriptorHandlers(), configSource );
 
+            // before the archive is written, so that an unknown algorithm fails the build early
+            final ArchiveDigests digests = createDigests( configSource );
+
             final Archiver archiver =
                 createArchiver( format, assembly.isIncludeBaseDirectory(), basedir, configSource, containerHandlers,
-                                recompressZippedFiles, mergeManifestMode );
+                                recompressZippedFiles, mergeManifestMode, configuresCompression( assembly ),
+                                digests != null ? digests.getEntryDigests() : null );
 
             archiver.setDestFile( destFile );
 
+            final AssemblyTrace trace = AssemblyTrace.current();
+            final AssemblyEvents events = AssemblyEvents.of( eventListeners );
             for ( AssemblyArchiverPhase phase : sortedPhases() )
             {
-                phase.execute( assembly, archiver, configSource );
+                final AssemblyReport.Step step = report != null ? report.begin( phaseName( phase ) ) : null;
+                final AssemblyTrace.Span span =
+                    trace.begin( "phase", phaseName( phase ), "assembly", assembly.getId() );
+                final long start = System.nanoTime();
+                events.phaseStarted( assembly.getId(), format, phaseName( phase ) );
+                final TarLayer oldLayer = AssemblyProxyArchiver.applyTarLayer( archiver, tarLayerOf( phase ) );
+                try
+                {
+                    phase.execute( assembly, archiver, configSource );
+                }
+                finally
+                {
+                    AssemblyProxyArchiver.restoreTarLayer( archiver, oldLayer );
+                    span.end();
+                }
+                events.phaseFinished( assembly.getId(), format, phaseName( phase ), System.nanoTime() - start );
+                if ( step != null )
+                {
+                    report.end( step );
+                }
             }
 
-            archiver.createArchive();
+            if ( configSource.isPlan() )
+            {
+                // the report of a plan covers the phases and the listing; no archive is written
+                final AssemblyReport.Step step = report != null ? report.begin( "plan" ) : null;
+                plan( archiver, assembly, format, configSource.getDuplicatePolicy() );
+                if ( step != null )
+                {
+                    report.end( step );
+                }
+            }
+            else
+            {
+                final AssemblyReport.Step step = report != null ? report.begin( "createArchive" ) : null;
+                final long start = System.nanoTime();
+                archiver.createArchive();
+                if ( !configSource.isDryRun() )
+                {
+                    events.archiveWritten( assembly.getId(), format, destFile, System.nanoTime() - start );
+                    if ( configSource.isHardLinkDuplicates() && !isTarFormat( format ) && destFile.isFile() )
+                    {
+                        reportDuplicateContents( destFile );
+                    }
+                    if ( digests != null && destFile.isFile() )
+                    {
+                        writeDigests( digests, destFile );
+                    }
+                }
+                if ( step != null )
+                {
+                    if ( destFile.isFile() )
+                    {
+                        AssemblyMetrics.current().bytesWritten( destFile.length() );
+                    }
+                    report.end( step );
+                }
+            }
         }
         catch ( final ArchiverException e )
         {
@@ -204,10 +301,156 @@ public class DefaultAssemblyArchiver
             throw new ArchiveCreationException(
                 "Unable to resolve dependencies for assembly '" + assembly.getId() + "'", e );
         }
+        finally
+        {
+            closeContainerHandlers( containerHandlers );
+            if ( report != null )
+            {
+                AssemblyMetrics.stop();
+            }
+        }
+
+        if ( report != null )
+        {
+            writeReport( report, assembly, format, configSource );
+        }
 
         return destFile;
     }
 
+    /**
+     * @return The digests to compute once the archive is written, or <code>null</code> if none is configured.
+     */
+    private static ArchiveDigests createDigests( final AssemblerConfigurationSource configSource )
+        throws ArchiveCreationException
+    {
+        try
+        {
+            final ArchiveDigests digests =
+                new ArchiveDigests( configSource.getArchiveDigests(), configSource.isEntryDigests() );
+            return digests.isEmpty() ? null : digests;
+        }
+        catch ( final NoSuchAlgorithmException e )
+        {
+            throw new ArchiveCreationException( "Unsupported archive digest: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Computes the checksums of the archive in a single read, and writes them next to it with the checksums of the
+     * entries the archiver recorded.
+     */
+    private void writeDigests( final ArchiveDigests digests, final File destFile )
+        throws IOException
+    {
+        final AssemblyTrace.Span span = AssemblyTrace.current().begin( "archive", "digests", "file", destFile );
+        final long start = System.nanoTime();
+        try
+        {
+            digests.compute( destFile );
+            final List<File> files = digests.write( destFile );
+            getLogger().info( "Wrote " + files.size() + " checksum files for " + destFile.getName() + " in "
+                                  + ( System.nanoTime() - start ) / 1000000 + " ms." );
+        }
+        finally
+        {
+            span.end();
+        }
+    }
+
+    /**
+     * Reports the entries of a zip archive which store the contents of another entry again, as zip cannot link them.
+     */
+    private void reportDuplicateContents( final File destFile )
+    {
+        try
+        {
+            DuplicateContents.ofZip( destFile ).log( getLogger(), destFile.getName() );
+        }
+        catch ( final IOException e )
+        {
+            getLogger().debug( "Not reporting duplicate contents of " + destFile + ", not a zip archive: "
+                                   + e.getMessage() );
+        }
+    }
+
+    /**
+     * Lists the entries the archive would contain, without reading their contents, and logs the plan. The archiver
+     * is switched to add duplicates, so that the plan sees them; it was created without container descriptor handlers
+     * and without the duplicate policy.
+     */
+    private void plan( final Archiver archiver, final Assembly assembly, final String format,
+                       final String duplicatePolicy )
+    {
+        archiver.setDuplicateBehavior( Archiver.DUPLICATES_ADD );
+
+        final AssemblyPlan plan = new AssemblyPlan();
+        final ResourceIterator resources = archiver.getResources();
+        while ( resources.hasNext() )
+        {
+            final ArchiveEntry entry = resources.next();
+            if ( entry.getType() == ArchiveEntry.FILE )
+            {
+                plan.add( entry.getName(), entry.getResource().getSize() );
+            }
+        }
+        plan.log( getLogger(), assembly.getId(), format );
+        if ( duplicatePolicy != null && !plan.getDuplicates().isEmpty() )
+        {
+            getLogger().info( "  The duplicate policy '" + duplicatePolicy + "' applies to these paths." );
+        }
+    }
+
+    /**
+     * @return The layer of the entries a phase adds to a layered tar archive.
+     */
+    private static TarLayer tarLayerOf( final AssemblyArchiverPhase phase )
+    {
+        if ( phase instanceof DependencySetAssemblyPhase || phase instanceof RepositoryAssemblyPhase )
+        {
+            return TarLayer.dependencies;
+        }
+        if ( phase instanceof ModuleSetAssemblyPhase )
+        {
+            return TarLayer.modules;
+        }
+        if ( phase instanceof FileSetAssemblyPhase || phase instanceof FileItemAssemblyPhase )
+        {
+            return TarLayer.files;
+        }
+        return TarLayer.generated;
+    }
+
+    private static String phaseName( final AssemblyArchiverPhase phase )
+    {
+        final String name = phase.getClass().getSimpleName();
+        return name.length() > 0 ? name : phase.getClass().getName();
+    }
+
+    private void writeReport( final AssemblyReport report, final Assembly assembly, final String format,
+                              final AssemblerConfigurationSource configSource )
+    {
+        report.log( getLogger() );
+
+        final MavenProject project = configSource.getProject();
+        if ( project == null || project.getBuild() == null || project.getBuild().getDirectory() == null )
+        {
+            return;
+        }
+
+        final File file = new File( project.getBuild().getDirectory(),
+                                    "assembly/report/" + assembly.getId() + "-" + format + ".json" );
+        try
+        {
+            report.write( file );
+            getLogger().info( "Assembly report written to " + file );
+        }
+        catch ( final IOException e )
+        {
+            getLogger().warn( "Failed to write the assembly report " + file + ": " + e.getMessage() );
+        }
+    }
+
     private void validate( final Assembly assembly )
         throws InvalidAssemblerConfigurationException
     {
@@ -217,6 +460,57 @@ public class DefaultAssemblyArchiver
         }
     }
 
+    private static void validateDuplicatePolicy( final AssemblerConfigurationSource configSource )
+        throws InvalidAssemblerConfigurationException
+    {
+        final String duplicatePolicy = configSource.getDuplicatePolicy();
+        if ( duplicatePolicy == null )
+        {
+            return;
+        }
+        try
+        {
+            DuplicatePolicy.valueOf( duplicatePolicy );
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            final StringBuilder values = new StringBuilder();
+            for ( final DuplicatePolicy policy : DuplicatePolicy.values() )
+            {
+                values.append( values.length() > 0 ? ", " : "" ).append( policy.name() );
+            }
+            throw new InvalidAssemblerConfigurationException(
+                "Unknown duplicatePolicy: '" + duplicatePolicy + "'. Use one of: " + values + "." );
+        }
+    }
+
+    /**
+     * Lets the handlers which buffer the files they aggregate delete their temporary files, once the archive is
+     * written or given up.
+     */
+    private void closeContainerHandlers( final List<ContainerDescriptorHandler> containerHandlers )
+    {
+        if ( containerHandlers == null )
+        {
+            return;
+        }
+        for ( final ContainerDescriptorHandler handler : containerHandlers )
+        {
+            if ( handler instanceof Closeable )
+            {
+                try
+                {
+                    ( (Closeable) handler ).close();
+                }
+                catch ( final IOException e )
+                {
+                    getLogger().warn( "Cannot clean up container descriptor handler " + handler + ": "
+                                          + e.getMessage() );
+                }
+            }
+        }
+    }
+
     // CHECKSTYLE_OFF: LineLength
     private List<ContainerDescriptorHandler> selectContainerDescriptorHandlers(
         List<ContainerDescriptorHandlerConfig> requestedContainerDescriptorHandlers,
@@ -224,10 +518,6 @@ public class DefaultAssemblyArchiver
         throws InvalidAssemblerConfigurationException
     // CHECKSTYLE_ON: LineLength
     {
-        getLogger().debug( "All known ContainerDescriptorHandler components: " + ( containerDescriptorHandlers == null
-            ? "none; map is null."
-            : "" + containerDescriptorHandlers.keySet() ) );
-
         if ( requestedContainerDescriptorHandlers == null )
         {
             requestedContainerDescriptorHandlers = new ArrayList<ContainerDescriptorHandlerConfig>();
@@ -241,13 +531,7 @@ public class DefaultAssemblyArchiver
             for ( final ContainerDescriptorHandlerConfig config : requestedContainerDescriptorHandlers )
             {
                 final String hint = config.getHandlerName();
-                final ContainerDescriptorHandler handler = containerDescriptorHandlers.get( hint );
-
-                if ( handler == null )
-                {
-                    throw new InvalidAssemblerConfigurationException(
-                        "Cannot find ContainerDescriptorHandler with hint: " + hint );
-                }
+                final ContainerDescriptorHandler handler = lookupContainerDescriptorHandler( hint );
 
                 getLogger().debug(
                     "Found container descriptor handler with hint: " + hint + " (component: " + handler + ")" );
@@ -291,21 +575,80 @@ public class DefaultAssemblyArchiver
                                        final List<ContainerDescriptorHandler> containerHandlers,
                                        boolean recompressZippedFiles, String mergeManifestMode )
         throws NoSuchArchiverException
+    {
+        return createArchiver( format, includeBaseDir, finalName, configSource, containerHandlers,
+                               recompressZippedFiles, mergeManifestMode, false );
+    }
+
+    /**
+     * Creates the necessary archiver to build the distribution file.
+     *
+     * @param configuredCompression whether the sets of the assembly configure the compression of their entries.
+     * @since 3.1.1
+     */
+    protected Archiver createArchiver( final String format, final boolean includeBaseDir, final String finalName,
+                                       final AssemblerConfigurationSource configSource,
+                                       final List<ContainerDescriptorHandler> containerHandlers,
+                                       boolean recompressZippedFiles, String mergeManifestMode,
+                                       boolean configuredCompression )
+        throws NoSuchArchiverException
+    {
+        return createArchiver( format, includeBaseDir, finalName, configSource, containerHandlers,
+                               recompressZippedFiles, mergeManifestMode, configuredCompression, null );
+    }
+
+    /**
+     * Creates the necessary archiver to build the distribution file.
+     *
+     * @param configuredCompression whether the sets of the assembly configure the compression of their entries.
+     * @param entryDigests the checksums to record the file entries in as they are written, or <code>null</code>.
+     * @since 3.1.1
+     */
+    protected Archiver createArchiver( final String format, final boolean includeBaseDir, final String finalName,
+                                       final AssemblerConfigurationSource configSource,
+                                       final List<ContainerDescriptorHandler> containerHandlers,
+                                       boolean recompressZippedFiles, String mergeManifestMode,
+                                       boolean configuredCompression, final EntryDigests entryDigests )
+        throws NoSuchArchiverException
     {
         Archiver archiver;
-        if ( "txz".equals( format ) || "tgz".equals( format ) || "tbz2".equals( format ) || format.startsWith( "tar" ) )
+        StoredEntryPolicy storedEntryPolicy = null;
+        TarLayers tarLayers = null;
+        if ( isTarFormat( format ) )
         {
-            archiver = createTarArchiver( format, TarLongFileMode.valueOf( configSource.getTarLongFileMode() ) );
+            tarLayers = configSource.isTarLayers() ? new TarLayers() : null;
+            archiver = createTarArchiver( format, TarLongFileMode.valueOf( configSource.getTarLongFileMode() ),
+                                          configSource.isHardLinkDuplicates(),
+                                          configSource.getPipelineBuffer() * 1024L * 1024L, tarLayers,
+                                          entryDigests );
         }
         else if ( "war".equals( format ) )
         {
             archiver = createWarArchiver();
         }
+        else if ( ( "zip".equals( format ) || "jar".equals( format ) )
+            && ( configuredCompression || storesEntries( configSource ) || entryDigests != null ) )
+        {
+            // the storing archivers record the checksums of the entries as they write them
+            storedEntryPolicy =
+                new StoredEntryPolicy( configSource.getStoredExtensions(), configSource.isProbeEntropy() );
+            archiver = createStoringArchiver( format, storedEntryPolicy, entryDigests );
+        }
+        else if ( "dir".equals( format ) )
+        {
+            archiver = archiverManager.getArchiver( ChannelCopyingDirectoryArchiver.HINT );
+        }
         else
         {
             archiver = archiverManager.getArchiver( format );
         }
 
+        if ( entryDigests != null && !isTarFormat( format ) && !"zip".equals( format ) && !"jar".equals( format ) )
+        {
+            getLogger().warn( "entryDigests only applies to tar, zip and jar archives: no checksums of the entries of "
+                                  + format + " archives are written." );
+        }
+
         if ( archiver instanceof AbstractZipArchiver )
         {
             ( (AbstractZipArchiver) archiver ).setRecompressAddedZips( recompressZippedFiles );
@@ -323,6 +666,13 @@ public class DefaultAssemblyArchiver
 
             extraSelectors.add( new JarSecurityFileSelector() );
 
+            final MavenArchiveConfiguration jarArchiveConfiguration = configSource.getJarArchiveConfiguration();
+            if ( "jar".equals( format ) && jarArchiveConfiguration != null && jarArchiveConfiguration.isIndex() )
+            {
+                // META-INF/INDEX.LIST, built from the entries actually written
+                ( (JarArchiver) archiver ).setIndex( true );
+            }
+
             extraFinalizers.add(
                 new ManifestCreationFinalizer( configSource.getMavenSession(), configSource.getProject(),
                                                configSource.getJarArchiveConfiguration() ) );
@@ -340,9 +690,21 @@ public class DefaultAssemblyArchiver
             prefix = finalName;
         }
 
-        archiver = new AssemblyProxyArchiver( prefix, archiver, containerHandlers, extraSelectors, extraFinalizers,
-                                              configSource.getWorkingDirectory(), getLogger() );
-        if ( configSource.isDryRun() )
+        // a plan lists the entries as they are added: the container descriptor handlers would read the descriptors
+        // they collect, and the duplicate policy would drop the duplicates the plan reports
+        final AssemblyProxyArchiver proxy =
+            new AssemblyProxyArchiver( prefix, archiver, configSource.isPlan() ? null : containerHandlers,
+                                       extraSelectors, extraFinalizers, configSource.getWorkingDirectory(),
+                                       getLogger(), AssemblyEvents.of( eventListeners ) );
+        if ( configSource.getDuplicatePolicy() != null && !configSource.isPlan() )
+        {
+            proxy.setDuplicatePolicy( DuplicatePolicy.valueOf( configSource.getDuplicatePolicy() ) );
+        }
+        proxy.setStoredEntryPolicy( storedEntryPolicy );
+        proxy.setTarLayers( tarLayers );
+        proxy.setStreamEntries( configSource.isStreamEntries() );
+        archiver = proxy;
+        if ( configSource.isDryRun() && !configSource.isPlan() )
         {
             archiver = new DryRunArchiver( archiver, getLogger() );
         }
@@ -354,6 +716,31 @@ public class DefaultAssemblyArchiver
         return archiver;
     }
 
+    /**
+     * Looks up a new instance of a handler for each assembly. The handlers collect the descriptors of the archive being
+     * built, so the assemblies of a module, and those of the modules built concurrently by a parallel build, must not
+     * share them.
+     */
+    private ContainerDescriptorHandler lookupContainerDescriptorHandler( final String hint )
+        throws InvalidAssemblerConfigurationException
+    {
+        if ( !container.hasComponent( ContainerDescriptorHandler.class, hint ) )
+        {
+            throw new InvalidAssemblerConfigurationException(
+                "Cannot find ContainerDescriptorHandler with hint: " + hint );
+        }
+
+        try
+        {
+            return container.lookup( ContainerDescriptorHandler.class, hint );
+        }
+        catch ( final ComponentLookupException e )
+        {
+            throw new InvalidAssemblerConfigurationException(
+                "Cannot look up ContainerDescriptorHandler with hint: " + hint, e );
+        }
+    }
+
     private void configureContainerDescriptorHandler( final ContainerDescriptorHandler handler, final Xpp3Dom config,
                                                       final AssemblerConfigurationSource configSource )
         throws InvalidAssemblerConfigurationException
@@ -495,10 +882,182 @@ public class DefaultAssemblyArchiver
         return warArchiver;
     }
 
+    private static boolean storesEntries( final AssemblerConfigurationSource configSource )
+    {
+        return ( configSource.getStoredExtensions() != null && !configSource.getStoredExtensions().isEmpty() )
+            || configSource.isProbeEntropy();
+    }
+
+    /**
+     * @return <code>true</code> if a set of the assembly configures the compression of its entries.
+     */
+    private static boolean configuresCompression( final Assembly assembly )
+    {
+        for ( final FileSet fileSet : assembly.getFileSets() )
+        {
+            if ( fileSet.getCompression() != null )
+            {
+                return true;
+            }
+        }
+        if ( configuresCompression( assembly.getDependencySets() ) )
+        {
+            return true;
+        }
+        for ( final ModuleSet moduleSet : assembly.getModuleSets() )
+        {
+            final ModuleSources sources = moduleSet.getSources();
+            if ( sources != null )
+            {
+                for ( final FileSet fileSet : sources.getFileSets() )
+                {
+                    if ( fileSet.getCompression() != null )
+                    {
+                        return true;
+                    }
+                }
+            }
+            final ModuleBinaries binaries = moduleSet.getBinaries();
+            if ( binaries != null
+                && ( binaries.getCompression() != null || configuresCompression( binaries.getDependencySets() ) ) )
+            {
+                return true;
+            }
+        }
+        for ( final Repository repository : assembly.getRepositories() )
+        {
+            if ( repository.getCompression() != null )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean configuresCompression( final List<DependencySet> dependencySets )
+    {
+        for ( final DependencySet dependencySet : dependencySets )
+        {
+            if ( dependencySet.getCompression() != null )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Archiver createStoringArchiver( final String format, final StoredEntryPolicy policy,
+                                           final EntryDigests entryDigests )
+        throws NoSuchArchiverException
+    {
+        if ( "jar".equals( format ) )
+        {
+            final StoringJarArchiver archiver =
+                (StoringJarArchiver) archiverManager.getArchiver( StoringJarArchiver.HINT );
+            archiver.setStoredEntryPolicy( policy );
+            archiver.setEntryDigests( entryDigests );
+            return archiver;
+        }
+        final StoringZipArchiver archiver = (StoringZipArchiver) archiverManager.getArchiver( StoringZipArchiver.HINT );
+        archiver.setStoredEntryPolicy( policy );
+        archiver.setEntryDigests( entryDigests );
+        return archiver;
+    }
+
+    private static boolean isTarFormat( final String format )
+    {
+        return "txz".equals( format ) || "tgz".equals( format ) || "tbz2".equals( format )
+            || format.startsWith( "tar" );
+    }
+
     protected Archiver createTarArchiver( final String format, final TarLongFileMode tarLongFileMode )
         throws NoSuchArchiverException
     {
-        final TarArchiver tarArchiver = (TarArchiver) archiverManager.getArchiver( "tar" );
+        return createTarArchiver( format, tarLongFileMode, false );
+    }
+
+    /**
+     * @param hardLinkDuplicates whether to store files with the contents of a file already written as hard links.
+     * @since 3.1.1
+     */
+    protected Archiver createTarArchiver( final String format, final TarLongFileMode tarLongFileMode,
+                                          final boolean hardLinkDuplicates )
+        throws NoSuchArchiverException
+    {
+        return createTarArchiver( format, tarLongFileMode, hardLinkDuplicates, 0 );
+    }
+
+    /**
+     * @param hardLinkDuplicates whether to store files with the contents of a file already written as hard links.
+     * @param pipelineBuffer the number of bytes of file contents which may be read ahead of the writer, or 0.
+     * @since 3.1.1
+     */
+    protected Archiver createTarArchiver( final String format, final TarLongFileMode tarLongFileMode,
+                                          final boolean hardLinkDuplicates, final long pipelineBuffer )
+        throws NoSuchArchiverException
+    {
+        return createTarArchiver( format, tarLongFileMode, hardLinkDuplicates, pipelineBuffer, null );
+    }
+
+    /**
+     * @param hardLinkDuplicates whether to store files with the contents of a file already written as hard links.
+     * @param pipelineBuffer the number of bytes of file contents which may be read ahead of the writer, or 0.
+     * @param tarLayers the layers of the entries, to also write one tar per layer; or <code>null</code>. Hard links
+     *            and the pipeline do not apply to layered archives; a warning says so if they are asked for.
+     * @since 3.1.1
+     */
+    protected Archiver createTarArchiver( final String format, final TarLongFileMode tarLongFileMode,
+                                          final boolean hardLinkDuplicates, final long pipelineBuffer,
+                                          final TarLayers tarLayers )
+        throws NoSuchArchiverException
+    {
+        return createTarArchiver( format, tarLongFileMode, hardLinkDuplicates, pipelineBuffer, tarLayers, null );
+    }
+
+    /**
+     * @param entryDigests the checksums to record the file entries in as they are written, or <code>null</code>.
+     * @since 3.1.1
+     */
+    protected Archiver createTarArchiver( final String format, final TarLongFileMode tarLongFileMode,
+                                          final boolean hardLinkDuplicates, final long pipelineBuffer,
+                                          final TarLayers tarLayers, final EntryDigests entryDigests )
+        throws NoSuchArchiverException
+    {
+        final String hint;
+        if ( tarLayers != null )
+        {
+            if ( hardLinkDuplicates )
+            {
+                getLogger().warn( "hardLinkDuplicates does not apply to tar archives written with tarLayers: "
+                                      + "duplicate files are written in full." );
+            }
+            if ( pipelineBuffer > 0 )
+            {
+                getLogger().warn( "pipelineBuffer does not apply to tar archives written with tarLayers: "
+                                      + "the files are read as they are written." );
+            }
+            hint = LayeredTarArchiver.HINT;
+        }
+        else if ( hardLinkDuplicates )
+        {
+            hint = HardLinkingTarArchiver.HINT;
+        }
+        else
+        {
+            // without a budget, the pipelined archiver writes like the plain one, and records the checksums
+            hint = pipelineBuffer > 0 || entryDigests != null ? PipelinedTarArchiver.HINT : "tar";
+        }
+        final TarArchiver tarArchiver = (TarArchiver) archiverManager.getArchiver( hint );
+        if ( tarArchiver instanceof PipelinedTarArchiver )
+        {
+            ( (PipelinedTarArchiver) tarArchiver ).setPipelineBuffer( pipelineBuffer );
+            ( (PipelinedTarArchiver) tarArchiver ).setEntryDigests( entryDigests );
+        }
+        if ( tarArchiver instanceof LayeredTarArchiver )
+        {
+            ( (LayeredTarArchiver) tarArchiver ).setTarLayers( tarLayers );
+            ( (LayeredTarArchiver) tarArchiver ).setEntryDigests( entryDigests );
+        }
         final int index = format.indexOf( '.' );
         if ( index >= 0 )
         {
@@ -61,6 +61,8 @@ public class ManifestCreationFinalizer
     // (the first is preferable).
     private final MavenArchiver mavenArchiver = new MavenArchiver();
 
+    private Manifest manifest;
+
     public ManifestCreationFinalizer( final MavenSession session, final MavenProject project,
                                       final MavenArchiveConfiguration archiveConfiguration )
     {
@@ -74,53 +76,19 @@ public class ManifestCreationFinalizer
     {
         if ( archiveConfiguration != null )
         {
-            try
+            final Manifest manifest = getManifest();
+            if ( ( manifest != null ) && ( archiver instanceof JarArchiver ) )
             {
-                Manifest manifest;
-                final File manifestFile = archiveConfiguration.getManifestFile();
-
-                if ( manifestFile != null )
+                final JarArchiver jarArchiver = (JarArchiver) archiver;
+                try
                 {
-                    Reader manifestFileReader = null;
-                    try
-                    {
-                        manifestFileReader = new InputStreamReader( new FileInputStream( manifestFile ), "UTF-8" );
-                        manifest = new Manifest( manifestFileReader );
-                        manifestFileReader.close();
-                        manifestFileReader = null;
-                    }
-                    catch ( final FileNotFoundException e )
-                    {
-                        throw new ArchiverException( "Manifest not found: " + e.getMessage(), e );
-                    }
-                    catch ( final IOException e )
-                    {
-                        throw new ArchiverException( "Error processing manifest: " + e.getMessage(), e );
-                    }
-                    finally
-                    {
-                        IOUtil.close( manifestFileReader );
-                    }
-                }
-                else
-                {
-                    manifest = mavenArchiver.getManifest( session, project, archiveConfiguration );
+                    jarArchiver.addConfiguredManifest( manifest );
                 }
-
-                if ( ( manifest != null ) && ( archiver instanceof JarArchiver ) )
+                catch ( final ManifestException e )
                 {
-                    final JarArchiver jarArchiver = (JarArchiver) archiver;
-                    jarArchiver.addConfiguredManifest( manifest );
+                    throw new ArchiverException( "Error creating manifest: " + e.getMessage(), e );
                 }
             }
-            catch ( final ManifestException e )
-            {
-                throw new ArchiverException( "Error creating manifest: " + e.getMessage(), e );
-            }
-            catch ( final DependencyResolutionRequiredException e )
-            {
-                throw new ArchiverException( "Dependencies were not resolved: " + e.getMessage(), e );
-            }
         }
     }
 
@@ -131,22 +99,82 @@ public class ManifestCreationFinalizer
         {
             try
             {
-                if ( mavenArchiver.getManifest( project, archiveConfiguration.getManifest() ) != null )
+                if ( getManifest() != null )
                 {
                     return Collections.singletonList( "META-INF/MANIFEST.MF" );
                 }
             }
-            catch ( final ManifestException ignore )
+            catch ( final ArchiverException ignore )
+            {
+                // reported again when the archive is finalized
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads or builds the manifest the first time it is needed. Building it computes the class path over all the
+     * artifacts of the project, and both the virtual files of the archive and its finalization need it.
+     *
+     * @return The manifest.
+     * @since 3.1.1
+     */
+    Manifest getManifest()
+    {
+        if ( manifest == null )
+        {
+            final File manifestFile = archiveConfiguration.getManifestFile();
+            if ( manifestFile != null )
             {
-                // noop
+                manifest = readManifest( manifestFile );
             }
-            catch ( final DependencyResolutionRequiredException ignore )
+            else
             {
-                // noop
+                try
+                {
+                    manifest = mavenArchiver.getManifest( session, project, archiveConfiguration );
+                }
+                catch ( final ManifestException e )
+                {
+                    throw new ArchiverException( "Error creating manifest: " + e.getMessage(), e );
+                }
+                catch ( final DependencyResolutionRequiredException e )
+                {
+                    throw new ArchiverException( "Dependencies were not resolved: " + e.getMessage(), e );
+                }
             }
         }
+        return manifest;
+    }
 
-        return null;
+    private static Manifest readManifest( final File manifestFile )
+    {
+        Reader manifestFileReader = null;
+        try
+        {
+            manifestFileReader = new InputStreamReader( new FileInputStream( manifestFile ), "UTF-8" );
+            final Manifest manifest = new Manifest( manifestFileReader );
+            manifestFileReader.close();
+            manifestFileReader = null;
+            return manifest;
+        }
+        catch ( final FileNotFoundException e )
+        {
+            throw new ArchiverException( "Manifest not found: " + e.getMessage(), e );
+        }
+        catch ( final ManifestException e )
+        {
+            throw new ArchiverException( "Error creating manifest: " + e.getMessage(), e );
+        }
+        catch ( final IOException e )
+        {
+            throw new ArchiverException( "Error processing manifest: " + e.getMessage(), e );
+        }
+        finally
+        {
+            IOUtil.close( manifestFileReader );
+        }
     }
 
 }
@@ -20,6 +20,11 @@ package org.apache.maven.plugins.assembly.archive.archiver;
  */
 
 import org.apache.maven.plugins.assembly.filter.ContainerDescriptorHandler;
+import org.apache.maven.plugins.assembly.metrics.AssemblyEvents;
+import org.apache.maven.plugins.assembly.metrics.AssemblyMetrics;
+import org.apache.maven.plugins.assembly.metrics.AssemblyTrace;
+import org.apache.maven.plugins.assembly.utils.GitIndex;
+import org.apache.maven.plugins.assembly.utils.HashedPathIndex;
 import org.codehaus.plexus.archiver.ArchiveEntry;
 import org.codehaus.plexus.archiver.ArchiveFinalizer;
 import org.codehaus.plexus.archiver.ArchivedFileSet;
@@ -28,12 +33,16 @@ import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.FileSet;
 import org.codehaus.plexus.archiver.FinalizerEnabled;
 import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.archiver.UnArchiver;
 import org.codehaus.plexus.archiver.util.DefaultArchivedFileSet;
 import org.codehaus.plexus.archiver.util.DefaultFileSet;
 import org.codehaus.plexus.components.io.fileselectors.FileInfo;
 import org.codehaus.plexus.components.io.fileselectors.FileSelector;
+import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
 import org.codehaus.plexus.components.io.resources.PlexusIoResource;
 import org.codehaus.plexus.components.io.resources.PlexusIoResourceCollection;
+import org.codehaus.plexus.components.io.resources.ResourceFactory;
 import org.codehaus.plexus.logging.Logger;
 
 import javax.annotation.Nonnull;
@@ -62,9 +71,19 @@ public class AssemblyProxyArchiver
     implements Archiver
 {
 
+    /**
+     * Marks single files added without permissions.
+     */
+    private static final int UNSET_PERMISSIONS = Integer.MIN_VALUE;
+
     private final Archiver delegate;
 
-    private final ThreadLocal<Boolean> inPublicApi = new ThreadLocal<Boolean>();
+    /**
+     * The number of public calls in progress. A proxy belongs to a single assembly and is called by the thread which
+     * builds it, so this is plain state of the instance: files added on behalf of a public call are not selected
+     * again, and a call made from within another one leaves the outer call marked.
+     */
+    private int publicApiDepth;
 
     private final Logger logger;
 
@@ -74,6 +93,69 @@ public class AssemblyProxyArchiver
 
     private FileSelector[] selectors;
 
+    /**
+     * The selectors of file-sets and archived file-sets: {@link #selectors}, plus the entry counter of the report.
+     */
+    private FileSelector[] setSelectors;
+
+    private final AssemblyMetrics metrics = AssemblyMetrics.current();
+
+    private final AssemblyTrace trace = AssemblyTrace.current();
+
+    private final AssemblyEvents events;
+
+    /**
+     * The paths of the entries reported to the {@link #events}, to report the duplicates.
+     */
+    private final HashedPathIndex reportedTargets = new HashedPathIndex();
+
+    /**
+     * The policy for entries with the same path, applied before the contents of the entries are read; or
+     * <code>null</code> to leave duplicates to the delegate.
+     */
+    private DuplicatePolicy duplicatePolicy;
+
+    private final TargetPathIndex targetIndex = new TargetPathIndex();
+
+    /**
+     * The number of additions of entries or file-sets so far, which orders them for the {@link #duplicatePolicy}.
+     */
+    private int additions;
+
+    /**
+     * The single entries held back until the duplicates are resolved.
+     */
+    private final List<DirectEntry> deferredEntries = new ArrayList<DirectEntry>();
+
+    private boolean duplicatesResolved;
+
+    /**
+     * The policy of the delegate for stored entries, which receives the {@link #entryCompression}; or
+     * <code>null</code> if the delegate cannot store entries.
+     */
+    private StoredEntryPolicy storedEntryPolicy;
+
+    /**
+     * The compression of the entries added from now on, or <code>null</code> to leave it to the delegate.
+     */
+    private EntryCompression entryCompression;
+
+    /**
+     * Whether the file-sets hand their entries to the delegate as their directories are walked.
+     */
+    private boolean streamEntries;
+
+    /**
+     * The layers of the delegate, which receive the {@link #tarLayer} of the entries; or <code>null</code> if the
+     * delegate does not write layers.
+     */
+    private TarLayers tarLayers;
+
+    /**
+     * The layer of the entries added from now on, or <code>null</code> to leave them {@link TarLayer#generated}.
+     */
+    private TarLayer tarLayer;
+
     private boolean forced;
 
     /**
@@ -85,9 +167,22 @@ public class AssemblyProxyArchiver
                                   final List<ContainerDescriptorHandler> containerDescriptorHandlers,
                                   final List<FileSelector> extraSelectors, final List<ArchiveFinalizer> extraFinalizers,
                                   final File assemblyWorkDir, final Logger logger )
+    {
+        this( rootPrefix, delegate, containerDescriptorHandlers, extraSelectors, extraFinalizers, assemblyWorkDir,
+              logger, AssemblyEvents.NONE );
+    }
+
+    /**
+     * @since 3.1.1
+     */
+    public AssemblyProxyArchiver( final String rootPrefix, final Archiver delegate,
+                                  final List<ContainerDescriptorHandler> containerDescriptorHandlers,
+                                  final List<FileSelector> extraSelectors, final List<ArchiveFinalizer> extraFinalizers,
+                                  final File assemblyWorkDir, final Logger logger, final AssemblyEvents events )
     {
         this.rootPrefix = rootPrefix;
         this.delegate = delegate;
+        this.events = events;
 
         assemblyWorkPath = assemblyWorkDir.getAbsolutePath().replace( '\\', '/' );
 
@@ -110,7 +205,7 @@ public class AssemblyProxyArchiver
 
                 if ( finalizer != null )
                 {
-                    finalizer.addArchiveFinalizer( handler );
+                    finalizer.addArchiveFinalizer( traced( handler ) );
                 }
             }
         }
@@ -127,7 +222,7 @@ public class AssemblyProxyArchiver
         {
             for ( ArchiveFinalizer extraFinalizer : extraFinalizers )
             {
-                finalizer.addArchiveFinalizer( extraFinalizer );
+                finalizer.addArchiveFinalizer( traced( extraFinalizer ) );
             }
         }
 
@@ -135,6 +230,16 @@ public class AssemblyProxyArchiver
         {
             this.selectors = selectors.toArray( new FileSelector[selectors.size()] );
         }
+
+        if ( metrics.isEnabled() )
+        {
+            selectors.add( new EntryCounter( metrics ) );
+            this.setSelectors = selectors.toArray( new FileSelector[selectors.size()] );
+        }
+        else
+        {
+            this.setSelectors = this.selectors;
+        }
     }
 
     /**
@@ -144,7 +249,7 @@ public class AssemblyProxyArchiver
     public void addArchivedFileSet( @Nonnull final File archiveFile, final String prefix, final String[] includes,
                                     final String[] excludes )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             final DefaultArchivedFileSet fs = new DefaultArchivedFileSet( archiveFile );
@@ -152,7 +257,7 @@ public class AssemblyProxyArchiver
             fs.setIncludes( includes );
             fs.setExcludes( excludes );
             fs.setPrefix( rootPrefix + prefix );
-            fs.setFileSelectors( selectors );
+            fs.setFileSelectors( selectorsFor( fs.getPrefix(), archiveFile, "!/", null ) );
 
             debug( "Adding archived file-set in: " + archiveFile + " to archive location: " + fs.getPrefix() );
 
@@ -160,7 +265,7 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -178,13 +283,13 @@ public class AssemblyProxyArchiver
     @Override
     public void addArchivedFileSet( @Nonnull final File archiveFile, final String prefix )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             final DefaultArchivedFileSet fs = new DefaultArchivedFileSet( archiveFile );
 
             fs.setPrefix( rootPrefix + prefix );
-            fs.setFileSelectors( selectors );
+            fs.setFileSelectors( selectorsFor( fs.getPrefix(), archiveFile, "!/", null ) );
 
             debug( "Adding archived file-set in: " + archiveFile + " to archive location: " + fs.getPrefix() );
 
@@ -192,7 +297,7 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -202,7 +307,7 @@ public class AssemblyProxyArchiver
     @Override
     public void addArchivedFileSet( final File archiveFile, final String[] includes, final String[] excludes )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             final DefaultArchivedFileSet fs = new DefaultArchivedFileSet( archiveFile );
@@ -210,7 +315,7 @@ public class AssemblyProxyArchiver
             fs.setIncludes( includes );
             fs.setExcludes( excludes );
             fs.setPrefix( rootPrefix );
-            fs.setFileSelectors( selectors );
+            fs.setFileSelectors( selectorsFor( fs.getPrefix(), archiveFile, "!/", null ) );
 
             debug( "Adding archived file-set in: " + archiveFile + " to archive location: " + fs.getPrefix() );
 
@@ -218,7 +323,7 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -228,13 +333,13 @@ public class AssemblyProxyArchiver
     @Override
     public void addArchivedFileSet( @Nonnull final File archiveFile )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             final DefaultArchivedFileSet fs = new DefaultArchivedFileSet( archiveFile );
 
             fs.setPrefix( rootPrefix );
-            fs.setFileSelectors( selectors );
+            fs.setFileSelectors( selectorsFor( fs.getPrefix(), archiveFile, "!/", null ) );
 
             debug( "Adding archived file-set in: " + archiveFile + " to archive location: " + fs.getPrefix() );
 
@@ -242,7 +347,7 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -253,7 +358,7 @@ public class AssemblyProxyArchiver
     public void addDirectory( @Nonnull final File directory, final String prefix, final String[] includes,
                               final String[] excludes )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             final DefaultFileSet fs = new DefaultFileSet();
@@ -262,7 +367,7 @@ public class AssemblyProxyArchiver
             fs.setIncludes( includes );
             fs.setExcludes( excludes );
             fs.setPrefix( rootPrefix + prefix );
-            fs.setFileSelectors( selectors );
+            fs.setFileSelectors( selectorsFor( fs.getPrefix(), directory, File.separator, null ) );
 
             debug( "Adding directory file-set in: " + directory + " to archive location: " + fs.getPrefix() );
 
@@ -270,7 +375,7 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -280,14 +385,15 @@ public class AssemblyProxyArchiver
     @Override
     public void addSymlink( String symlinkName, String symlinkDestination )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
+            assignTarLayer( symlinkName );
             delegate.addSymlink( symlinkName, symlinkDestination );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
 
     }
@@ -298,14 +404,15 @@ public class AssemblyProxyArchiver
     @Override
     public void addSymlink( String symlinkName, int permissions, String symlinkDestination )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
+            assignTarLayer( symlinkName );
             delegate.addSymlink( symlinkName, permissions, symlinkDestination );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
 
     }
@@ -316,14 +423,14 @@ public class AssemblyProxyArchiver
     @Override
     public void addDirectory( @Nonnull final File directory, final String prefix )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             final DefaultFileSet fs = new DefaultFileSet();
 
             fs.setDirectory( directory );
             fs.setPrefix( rootPrefix + prefix );
-            fs.setFileSelectors( selectors );
+            fs.setFileSelectors( selectorsFor( fs.getPrefix(), directory, File.separator, null ) );
 
             debug( "Adding directory file-set in: " + directory + " to archive location: " + fs.getPrefix() );
 
@@ -331,7 +438,7 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -341,7 +448,7 @@ public class AssemblyProxyArchiver
     @Override
     public void addDirectory( @Nonnull final File directory, final String[] includes, final String[] excludes )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             final DefaultFileSet fs = new DefaultFileSet();
@@ -350,7 +457,7 @@ public class AssemblyProxyArchiver
             fs.setIncludes( includes );
             fs.setExcludes( excludes );
             fs.setPrefix( rootPrefix );
-            fs.setFileSelectors( selectors );
+            fs.setFileSelectors( selectorsFor( fs.getPrefix(), directory, File.separator, null ) );
 
             debug( "Adding directory file-set in: " + directory + " to archive location: " + fs.getPrefix() );
 
@@ -358,7 +465,7 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -368,14 +475,14 @@ public class AssemblyProxyArchiver
     @Override
     public void addDirectory( @Nonnull final File directory )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             final DefaultFileSet fs = new DefaultFileSet();
 
             fs.setDirectory( directory );
             fs.setPrefix( rootPrefix );
-            fs.setFileSelectors( selectors );
+            fs.setFileSelectors( selectorsFor( fs.getPrefix(), directory, File.separator, null ) );
 
             debug( "Adding directory file-set in: " + directory + " to archive location: " + fs.getPrefix() );
 
@@ -383,7 +490,7 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -395,16 +502,16 @@ public class AssemblyProxyArchiver
     {
         if ( acceptFile( inputFile ) )
         {
-            inPublicApi.set( Boolean.TRUE );
+            publicApiDepth++;
             try
             {
                 debug( "Adding file: " + inputFile + " to archive location: " + rootPrefix + destFileName );
 
-                delegate.addFile( inputFile, rootPrefix + destFileName, permissions );
+                addEntry( inputFile, null, rootPrefix + destFileName, permissions );
             }
             finally
             {
-                inPublicApi.set( null );
+                publicApiDepth--;
             }
         }
     }
@@ -417,16 +524,16 @@ public class AssemblyProxyArchiver
     {
         if ( acceptFile( inputFile ) )
         {
-            inPublicApi.set( Boolean.TRUE );
+            publicApiDepth++;
             try
             {
                 debug( "Adding file: " + inputFile + " to archive location: " + rootPrefix + destFileName );
 
-                delegate.addFile( inputFile, rootPrefix + destFileName );
+                addEntry( inputFile, null, rootPrefix + destFileName, UNSET_PERMISSIONS );
             }
             finally
             {
-                inPublicApi.set( null );
+                publicApiDepth--;
             }
         }
     }
@@ -438,15 +545,18 @@ public class AssemblyProxyArchiver
     public void createArchive()
         throws IOException
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
+        final AssemblyTrace.Span span = trace.begin( "archive", "compress", "file", delegate.getDestFile() );
         try
         {
+            resolveDuplicates();
             delegate.setForced( forced );
             delegate.createArchive();
         }
         finally
         {
-            inPublicApi.set( null );
+            span.end();
+            publicApiDepth--;
         }
     }
 
@@ -456,14 +566,14 @@ public class AssemblyProxyArchiver
     @Override
     public int getDefaultDirectoryMode()
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             return delegate.getDefaultDirectoryMode();
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -473,14 +583,14 @@ public class AssemblyProxyArchiver
     @Override
     public void setDefaultDirectoryMode( final int mode )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             delegate.setDefaultDirectoryMode( mode );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -490,14 +600,14 @@ public class AssemblyProxyArchiver
     @Override
     public int getDefaultFileMode()
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             return delegate.getDefaultFileMode();
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -507,14 +617,14 @@ public class AssemblyProxyArchiver
     @Override
     public void setDefaultFileMode( final int mode )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             delegate.setDefaultFileMode( mode );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -524,14 +634,14 @@ public class AssemblyProxyArchiver
     @Override
     public File getDestFile()
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             return delegate.getDestFile();
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -541,14 +651,14 @@ public class AssemblyProxyArchiver
     @Override
     public void setDestFile( final File destFile )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             delegate.setDestFile( destFile );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -556,14 +666,14 @@ public class AssemblyProxyArchiver
     @SuppressWarnings( { "deprecation" } )
     public Map<String, ArchiveEntry> getFiles()
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             return delegate.getFiles();
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -573,14 +683,14 @@ public class AssemblyProxyArchiver
     @Override
     public boolean getIncludeEmptyDirs()
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             return delegate.getIncludeEmptyDirs();
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -590,14 +700,14 @@ public class AssemblyProxyArchiver
     @Override
     public void setIncludeEmptyDirs( final boolean includeEmptyDirs )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             delegate.setIncludeEmptyDirs( includeEmptyDirs );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -607,14 +717,14 @@ public class AssemblyProxyArchiver
     @Override
     public boolean isForced()
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             return delegate.isForced();
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -624,7 +734,7 @@ public class AssemblyProxyArchiver
     @Override
     public void setForced( final boolean forced )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             this.forced = forced;
@@ -632,7 +742,7 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -642,14 +752,14 @@ public class AssemblyProxyArchiver
     @Override
     public boolean isSupportingForced()
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             return delegate.isSupportingForced();
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -669,10 +779,16 @@ public class AssemblyProxyArchiver
     @Override
     public void addArchivedFileSet( final ArchivedFileSet fileSet )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
-            final PrefixedArchivedFileSet fs = new PrefixedArchivedFileSet( fileSet, rootPrefix, selectors );
+            PrefixedArchivedFileSet fs = new PrefixedArchivedFileSet( fileSet, rootPrefix, setSelectors );
+            if ( isSelectingEntries() )
+            {
+                fs = new PrefixedArchivedFileSet( fileSet, rootPrefix,
+                                                  selectorsFor( fs.getPrefix(), fileSet.getArchive(), "!/",
+                                                                fileSet.getStreamTransformer() ) );
+            }
 
             debug( "Adding archived file-set in: " + fileSet.getArchive() + " to archive location: " + fs.getPrefix() );
 
@@ -680,17 +796,23 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
     @Override
     public void addArchivedFileSet( ArchivedFileSet archivedFileSet, Charset charset )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
-            final PrefixedArchivedFileSet fs = new PrefixedArchivedFileSet( archivedFileSet, rootPrefix, selectors );
+            PrefixedArchivedFileSet fs = new PrefixedArchivedFileSet( archivedFileSet, rootPrefix, setSelectors );
+            if ( isSelectingEntries() )
+            {
+                fs = new PrefixedArchivedFileSet( archivedFileSet, rootPrefix,
+                                                  selectorsFor( fs.getPrefix(), archivedFileSet.getArchive(), "!/",
+                                                                archivedFileSet.getStreamTransformer() ) );
+            }
 
             debug( "Adding archived file-set in: " + archivedFileSet.getArchive() + " to archive location: "
                        + fs.getPrefix() );
@@ -699,7 +821,7 @@ public class AssemblyProxyArchiver
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -709,22 +831,36 @@ public class AssemblyProxyArchiver
     @Override
     public void addFileSet( @Nonnull final FileSet fileSet )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
-            final PrefixedFileSet fs = new PrefixedFileSet( fileSet, rootPrefix, selectors );
+            PrefixedFileSet fs = new PrefixedFileSet( fileSet, rootPrefix, setSelectors );
+            if ( isSelectingEntries() )
+            {
+                fs = new PrefixedFileSet( fileSet, rootPrefix,
+                                          selectorsFor( fs.getPrefix(), fileSet.getDirectory(), File.separator,
+                                                        fileSet.getStreamTransformer() ) );
+            }
 
             debug( "Adding file-set in: " + fileSet.getDirectory() + " to archive location: " + fs.getPrefix() );
 
-            doAddFileSet( fs );
+            final GitIndex gitIndex =
+                fileSet instanceof GitIndexFileSet ? ( (GitIndexFileSet) fileSet ).getGitIndex() : null;
+
+            doAddFileSet( fs, gitIndex );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
     private void doAddFileSet( final FileSet fs )
+    {
+        doAddFileSet( fs, null );
+    }
+
+    private void doAddFileSet( final FileSet fs, final GitIndex gitIndex )
     {
         final String fsPath = fs.getDirectory().getAbsolutePath().replace( '\\', '/' );
 
@@ -771,17 +907,482 @@ public class AssemblyProxyArchiver
             dfs.setPrefix( fs.getPrefix() );
             dfs.setUsingDefaultExcludes( fs.isUsingDefaultExcludes() );
 
-            delegate.addFileSet( dfs );
+            addToDelegate( dfs, gitIndex );
+        }
+        else
+        {
+            addToDelegate( fs, gitIndex );
+        }
+    }
+
+    /**
+     * Hands a file-set to the delegate. When the file-set is backed by a git index, the delegate receives a resource
+     * collection listing only the tracked files instead, so the directory tree is never scanned; when
+     * {@link #setStreamEntries(boolean) streaming entries}, it receives a collection which walks the directory tree
+     * as the entries are written. With metrics, the resources of the file-set count the bytes read from them.
+     */
+    private void addToDelegate( final FileSet fs, final GitIndex gitIndex )
+    {
+        final PlexusIoFileResourceCollection collection;
+        if ( gitIndex != null )
+        {
+            collection = new GitIndexResourceCollection( gitIndex );
+        }
+        else if ( streamEntries || metrics.isEnabled() )
+        {
+            final File directory = fs.getDirectory();
+            if ( directory == null )
+            {
+                throw new ArchiverException( "The file sets base directory is null." );
+            }
+            if ( !directory.isDirectory() )
+            {
+                throw new ArchiverException( directory.getAbsolutePath() + " isn't a directory." );
+            }
+            // without streaming, the collection the delegate would create for the file-set
+            collection = streamEntries ? new StreamingFileResourceCollection() : new PlexusIoFileResourceCollection();
         }
         else
         {
             delegate.addFileSet( fs );
+            return;
+        }
+
+        collection.setFollowingSymLinks( false );
+        collection.setIncludes( fs.getIncludes() );
+        collection.setExcludes( fs.getExcludes() );
+        collection.setBaseDir( fs.getDirectory() );
+        collection.setFileSelectors( fs.getFileSelectors() );
+        collection.setIncludingEmptyDirectories( fs.isIncludingEmptyDirectories() );
+        collection.setPrefix( fs.getPrefix() );
+        collection.setCaseSensitive( fs.isCaseSensitive() );
+        collection.setUsingDefaultExcludes( fs.isUsingDefaultExcludes() );
+        collection.setStreamTransformer( fs.getStreamTransformer() );
+
+        if ( delegate.getOverrideDirectoryMode() > -1 || delegate.getOverrideFileMode() > -1 )
+        {
+            collection.setOverrideAttributes( -1, null, -1, null, delegate.getOverrideFileMode(),
+                                              delegate.getOverrideDirectoryMode() );
+        }
+
+        if ( delegate.getDefaultDirectoryMode() > -1 || delegate.getDefaultFileMode() > -1 )
+        {
+            collection.setDefaultAttributes( -1, null, -1, null, delegate.getDefaultFileMode(),
+                                             delegate.getDefaultDirectoryMode() );
+        }
+
+        delegate.addResources( metrics.isEnabled() ? new ReadCountingResourceCollection( collection, metrics )
+                                   : collection );
+    }
+
+    /**
+     * The selectors of a file-set: {@link #setSelectors}, plus a reporter of its entries when there are listeners.
+     *
+     * @param prefix the prefix of the entries in the archive.
+     * @param source the directory or archive of the file-set.
+     * @param separator the separator between the source and the names of its entries.
+     * @param transformer the transformer of the file-set, if any.
+     */
+    private FileSelector[] selectorsFor( final String prefix, final File source, final String separator,
+                                         final InputStreamTransformer transformer )
+    {
+        if ( !isSelectingEntries() )
+        {
+            return setSelectors;
+        }
+        FileSelector[] selectors = setSelectors;
+        if ( duplicatePolicy != null && !duplicatesResolved )
+        {
+            final FileSelector gate = new DuplicateGate( ++additions, prefix, source, separator );
+            selectors = PrefixedFileSet.combineSelectors( new FileSelector[] { gate }, selectors );
+        }
+        if ( entryCompression != null && storedEntryPolicy != null )
+        {
+            final FileSelector marker = new CompressionMarker( storedEntryPolicy, entryCompression );
+            selectors = PrefixedFileSet.combineSelectors( selectors, new FileSelector[] { marker } );
+        }
+        if ( tarLayer != null && tarLayers != null )
+        {
+            final FileSelector marker = new LayerMarker( tarLayers, tarLayer );
+            selectors = PrefixedFileSet.combineSelectors( selectors, new FileSelector[] { marker } );
+        }
+        if ( events.isEnabled() )
+        {
+            final FileSelector reporter =
+                new EntryReporter( prefix, source.getPath() + separator, transformer != null );
+            selectors = PrefixedFileSet.combineSelectors( selectors, new FileSelector[] { reporter } );
+        }
+        return selectors;
+    }
+
+    private boolean isSelectingEntries()
+    {
+        return events.isEnabled() || duplicatePolicy != null
+            || ( entryCompression != null && storedEntryPolicy != null )
+            || ( tarLayer != null && tarLayers != null );
+    }
+
+    /**
+     * Sets the policy for entries with the same path. The policy is applied by the proxy before the contents of the
+     * entries are read, instead of by the delegate: single entries are held back and file-sets get a selector, and
+     * when the archive is created, a first pass over the entries (without their contents) finds the entry kept for
+     * each path. Must be set before anything is added.
+     *
+     * @param duplicatePolicy the policy, or <code>null</code> to leave duplicates to the delegate.
+     * @since 3.1.1
+     */
+    public void setDuplicatePolicy( final DuplicatePolicy duplicatePolicy )
+    {
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    /**
+     * Sets whether the file-sets hand their entries to the delegate one at a time, as their directories are walked
+     * while the archive is written, instead of scanning each directory tree and creating the resources of all its
+     * files first. The entries of a directory then come right after it, rather than after all the directories.
+     *
+     * @param streamEntries <code>true</code> to stream the entries of the file-sets.
+     * @since 3.1.1
+     */
+    public void setStreamEntries( final boolean streamEntries )
+    {
+        this.streamEntries = streamEntries;
+    }
+
+    /**
+     * Sets the policy of the delegate for stored entries, so that the {@link #setEntryCompression(EntryCompression)
+     * compression} of the sets reaches it.
+     *
+     * @param storedEntryPolicy the policy, or <code>null</code> if the delegate cannot store entries.
+     * @since 3.1.1
+     */
+    public void setStoredEntryPolicy( final StoredEntryPolicy storedEntryPolicy )
+    {
+        this.storedEntryPolicy = storedEntryPolicy;
+    }
+
+    /**
+     * @return The compression of the entries added from now on, or <code>null</code> if left to the delegate.
+     * @since 3.1.1
+     */
+    public EntryCompression getEntryCompression()
+    {
+        return entryCompression;
+    }
+
+    /**
+     * Sets the compression of the entries added from now on. It only has an effect when the delegate has a
+     * {@link StoredEntryPolicy}, i.e. for zip and jar archives.
+     *
+     * @param entryCompression the compression, or <code>null</code> to leave it to the delegate.
+     * @since 3.1.1
+     */
+    public void setEntryCompression( final EntryCompression entryCompression )
+    {
+        this.entryCompression = entryCompression;
+    }
+
+    /**
+     * Sets the compression of the entries added from now on to an archiver, if it is a proxy.
+     *
+     * @param archiver the archiver.
+     * @param compression the compression, or <code>null</code> to leave the archiver as it is.
+     * @return the previous compression, to pass to {@link #restoreEntryCompression(Archiver, EntryCompression)}.
+     * @since 3.1.1
+     */
+    public static EntryCompression applyEntryCompression( final Archiver archiver,
+                                                          final EntryCompression compression )
+    {
+        if ( !( archiver instanceof AssemblyProxyArchiver ) )
+        {
+            return null;
+        }
+        final AssemblyProxyArchiver proxy = (AssemblyProxyArchiver) archiver;
+        final EntryCompression previous = proxy.getEntryCompression();
+        if ( compression != null )
+        {
+            proxy.setEntryCompression( compression );
+        }
+        return previous;
+    }
+
+    /**
+     * Restores the compression returned by {@link #applyEntryCompression(Archiver, EntryCompression)}.
+     *
+     * @param archiver the archiver.
+     * @param previous the previous compression.
+     * @since 3.1.1
+     */
+    public static void restoreEntryCompression( final Archiver archiver, final EntryCompression previous )
+    {
+        if ( archiver instanceof AssemblyProxyArchiver )
+        {
+            ( (AssemblyProxyArchiver) archiver ).setEntryCompression( previous );
+        }
+    }
+
+    /**
+     * Sets the layers of the delegate, so that the {@link #setTarLayer(TarLayer) layer} of the sets reaches it.
+     *
+     * @param tarLayers the layers, or <code>null</code> if the delegate does not write layers.
+     * @since 3.1.1
+     */
+    public void setTarLayers( final TarLayers tarLayers )
+    {
+        this.tarLayers = tarLayers;
+    }
+
+    /**
+     * @return The layer of the entries added from now on, or <code>null</code> if they are not assigned one.
+     * @since 3.1.1
+     */
+    public TarLayer getTarLayer()
+    {
+        return tarLayer;
+    }
+
+    /**
+     * Sets the layer of the entries added from now on. It only has an effect when the delegate has
+     * {@link TarLayers}, i.e. for layered tar archives.
+     *
+     * @param tarLayer the layer, or <code>null</code> to leave the entries {@link TarLayer#generated}.
+     * @since 3.1.1
+     */
+    public void setTarLayer( final TarLayer tarLayer )
+    {
+        this.tarLayer = tarLayer;
+    }
+
+    /**
+     * Sets the layer of the entries added from now on to an archiver, if it is a proxy.
+     *
+     * @param archiver the archiver.
+     * @param layer the layer.
+     * @return the previous layer, to pass to {@link #restoreTarLayer(Archiver, TarLayer)}.
+     * @since 3.1.1
+     */
+    public static TarLayer applyTarLayer( final Archiver archiver, final TarLayer layer )
+    {
+        if ( !( archiver instanceof AssemblyProxyArchiver ) )
+        {
+            return null;
+        }
+        final AssemblyProxyArchiver proxy = (AssemblyProxyArchiver) archiver;
+        final TarLayer previous = proxy.getTarLayer();
+        proxy.setTarLayer( layer );
+        return previous;
+    }
+
+    /**
+     * Moves the entries of a snapshot artifact added from now on to {@link TarLayer#snapshots}, if the archiver is a
+     * proxy adding {@link TarLayer#dependencies}.
+     *
+     * @param archiver the archiver.
+     * @param snapshot whether the artifact is a snapshot.
+     * @return the previous layer, to pass to {@link #restoreTarLayer(Archiver, TarLayer)}.
+     * @since 3.1.1
+     */
+    public static TarLayer applySnapshotLayer( final Archiver archiver, final boolean snapshot )
+    {
+        if ( !( archiver instanceof AssemblyProxyArchiver ) )
+        {
+            return null;
+        }
+        final TarLayer previous = ( (AssemblyProxyArchiver) archiver ).getTarLayer();
+        if ( snapshot && previous == TarLayer.dependencies )
+        {
+            ( (AssemblyProxyArchiver) archiver ).setTarLayer( TarLayer.snapshots );
+        }
+        return previous;
+    }
+
+    /**
+     * Restores the layer returned by {@link #applyTarLayer(Archiver, TarLayer)}.
+     *
+     * @param archiver the archiver.
+     * @param previous the previous layer.
+     * @since 3.1.1
+     */
+    public static void restoreTarLayer( final Archiver archiver, final TarLayer previous )
+    {
+        if ( archiver instanceof AssemblyProxyArchiver )
+        {
+            ( (AssemblyProxyArchiver) archiver ).setTarLayer( previous );
+        }
+    }
+
+    private void assignTarLayer( final String target )
+    {
+        if ( tarLayer != null && tarLayers != null )
+        {
+            tarLayers.assign( target, tarLayer );
+        }
+    }
+
+    private void addEntry( final File file, final PlexusIoResource resource, final String target,
+                           final int permissions )
+    {
+        if ( duplicatePolicy != null && !duplicatesResolved )
+        {
+            final int addition = ++additions;
+            targetIndex.record( target, addition );
+            deferredEntries.add(
+                new DirectEntry( addition, file, resource, target, permissions, entryCompression, tarLayer ) );
+        }
+        else
+        {
+            deliverEntry( file, resource, target, permissions, entryCompression, tarLayer );
+        }
+    }
+
+    private void deliverEntry( final File file, final PlexusIoResource resource, final String target,
+                               final int permissions, final EntryCompression compression, final TarLayer layer )
+    {
+        if ( compression != null && storedEntryPolicy != null )
+        {
+            storedEntryPolicy.configure( target, compression );
+        }
+        if ( layer != null && tarLayers != null )
+        {
+            tarLayers.assign( target, layer );
+        }
+        if ( resource != null )
+        {
+            delegate.addResource(
+                metrics.isEnabled() ? ReadCountingResourceCollection.countReads( resource, metrics ) : resource,
+                target, permissions );
+            if ( metrics.isEnabled() )
+            {
+                metrics.entryAdded( resource.getSize() );
+            }
+            if ( events.isEnabled() )
+            {
+                reportEntry( resource.getName(), target, resource.getSize(), false );
+            }
+            return;
+        }
+
+        if ( metrics.isEnabled() && file.isFile() )
+        {
+            addCountingReads( file, target, permissions );
+        }
+        else if ( permissions == UNSET_PERMISSIONS )
+        {
+            delegate.addFile( file, target );
+        }
+        else
+        {
+            delegate.addFile( file, target, permissions );
+        }
+        countFile( file );
+        if ( events.isEnabled() )
+        {
+            reportEntry( file.getPath(), target, file.length(), false );
+        }
+    }
+
+    /**
+     * Finds the entry kept for each path, then hands the single entries which are kept to the delegate. The gates of
+     * the file-sets record their entries and reject them all while the delegate's entries are iterated here; once the
+     * duplicates are resolved they only let through the entries which are kept.
+     */
+    private void resolveDuplicates()
+    {
+        if ( duplicatePolicy == null || duplicatesResolved )
+        {
+            return;
+        }
+
+        final ResourceIterator resources = delegate.getResources();
+        while ( resources.hasNext() )
+        {
+            resources.next();
+        }
+        duplicatesResolved = true;
+
+        if ( duplicatePolicy == DuplicatePolicy.fail && targetIndex.getShadowed() > 0 )
+        {
+            throw new ArchiverException( targetIndex.getShadowed() + " entries have the same path as another entry: "
+                                             + targetIndex.getDuplicates( 10 ) );
+        }
+
+        for ( final DirectEntry entry : deferredEntries )
+        {
+            if ( targetIndex.isKept( entry.target, entry.addition, duplicatePolicy ) )
+            {
+                deliverEntry( entry.file, entry.resource, entry.target, entry.permissions, entry.compression,
+                              entry.layer );
+            }
+            else
+            {
+                shadowed( entry.file != null ? entry.file.getPath() : entry.resource.getName(), entry.target );
+            }
+        }
+        deferredEntries.clear();
+
+        if ( targetIndex.getShadowed() > 0 && logger != null )
+        {
+            logger.info( "Dropping " + targetIndex.getShadowed() + " entries shadowed by another entry with the same "
+                             + "path (duplicate policy: " + duplicatePolicy + "), of " + targetIndex.getPaths()
+                             + " paths." );
+        }
+    }
+
+    private void shadowed( final String source, final String target )
+    {
+        debug( "Dropping " + source + ", shadowed by another entry at archive location: " + target );
+        if ( events.isEnabled() )
+        {
+            events.duplicateSkipped( source, target );
+        }
+    }
+
+    private synchronized void reportEntry( final String source, final String target, final long size,
+                                           final boolean transformed )
+    {
+        if ( reportedTargets.add( target ) < 0 && Archiver.DUPLICATES_SKIP.equals( delegate.getDuplicateBehavior() ) )
+        {
+            events.duplicateSkipped( source, target );
+        }
+        else
+        {
+            events.entryAdded( source, target, size, transformed );
+        }
+    }
+
+    /**
+     * Adds a file as the resource the delegate would create for it, with its contents wrapped so the bytes read from
+     * it are counted.
+     */
+    private void addCountingReads( final File file, final String target, final int permissions )
+    {
+        final PlexusIoResource resource;
+        try
+        {
+            resource = ResourceFactory.createResource( file );
+        }
+        catch ( final IOException e )
+        {
+            throw new ArchiverException( "Failed to create resource for " + file.getAbsolutePath() + ": "
+                                             + e.getMessage(), e );
+        }
+        // as the delegate does for files: java path separators, and the override mode unless a mode is given
+        delegate.addResource( ReadCountingResourceCollection.countReads( resource, metrics ),
+                              target.replace( '\\', '/' ),
+                              permissions < 0 ? delegate.getOverrideFileMode() : permissions );
+    }
+
+    private void countFile( final File inputFile )
+    {
+        if ( metrics.isEnabled() )
+        {
+            metrics.entryAdded( inputFile.length() );
         }
     }
 
     private boolean acceptFile( final File inputFile )
     {
-        if ( !Boolean.TRUE.equals( inPublicApi.get() ) )
+        if ( publicApiDepth == 0 )
         {
             if ( selectors != null )
             {
@@ -818,14 +1419,14 @@ public class AssemblyProxyArchiver
         if ( acceptFile( file ) )
         {
 
-            inPublicApi.set( Boolean.TRUE );
+            publicApiDepth++;
             try
             {
-                delegate.addResource( resource, rootPrefix + destFileName, permissions );
+                addEntry( null, resource, rootPrefix + destFileName, permissions );
             }
             finally
             {
-                inPublicApi.set( null );
+                publicApiDepth--;
             }
         }
     }
@@ -836,14 +1437,14 @@ public class AssemblyProxyArchiver
     @Override
     public void addResources( final PlexusIoResourceCollection resources )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             delegate.addResources( resources );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -854,6 +1455,7 @@ public class AssemblyProxyArchiver
     @Nonnull
     public ResourceIterator getResources()
     {
+        resolveDuplicates();
         return delegate.getResources();
     }
 
@@ -872,14 +1474,14 @@ public class AssemblyProxyArchiver
     @Override
     public void setDuplicateBehavior( final String duplicate )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             delegate.setDuplicateBehavior( duplicate );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -898,14 +1500,14 @@ public class AssemblyProxyArchiver
     @Override
     public void setDirectoryMode( final int mode )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             delegate.setDirectoryMode( mode );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -924,14 +1526,14 @@ public class AssemblyProxyArchiver
     @Override
     public void setFileMode( final int mode )
     {
-        inPublicApi.set( Boolean.TRUE );
+        publicApiDepth++;
         try
         {
             delegate.setFileMode( mode );
         }
         finally
         {
-            inPublicApi.set( null );
+            publicApiDepth--;
         }
     }
 
@@ -989,6 +1591,259 @@ public class AssemblyProxyArchiver
         delegate.setIgnorePermissions( ignorePermissions );
     }
 
+    private ArchiveFinalizer traced( final ArchiveFinalizer finalizer )
+    {
+        return trace.isEnabled() ? new TracedFinalizer( finalizer, trace ) : finalizer;
+    }
+
+    /**
+     * Records a span for each finalization of the archive, which happens while the archive is written.
+     */
+    private static final class TracedFinalizer
+        implements ArchiveFinalizer
+    {
+
+        private final ArchiveFinalizer finalizer;
+
+        private final AssemblyTrace trace;
+
+        TracedFinalizer( final ArchiveFinalizer finalizer, final AssemblyTrace trace )
+        {
+            this.finalizer = finalizer;
+            this.trace = trace;
+        }
+
+        @Override
+        public void finalizeArchiveCreation( final Archiver archiver )
+        {
+            final AssemblyTrace.Span span =
+                trace.begin( "archive", "finalize", "finalizer", finalizer.getClass().getName() );
+            try
+            {
+                finalizer.finalizeArchiveCreation( archiver );
+            }
+            finally
+            {
+                span.end();
+            }
+        }
+
+        @Override
+        public void finalizeArchiveExtraction( final UnArchiver unarchiver )
+        {
+            finalizer.finalizeArchiveExtraction( unarchiver );
+        }
+
+        @Override
+        public List getVirtualFiles()
+        {
+            return finalizer.getVirtualFiles();
+        }
+    }
+
+    /**
+     * A single entry held back until the duplicates are resolved.
+     */
+    private static final class DirectEntry
+    {
+
+        private final int addition;
+
+        private final File file;
+
+        private final PlexusIoResource resource;
+
+        private final String target;
+
+        private final int permissions;
+
+        private final EntryCompression compression;
+
+        private final TarLayer layer;
+
+        DirectEntry( final int addition, final File file, final PlexusIoResource resource, final String target,
+                     final int permissions, final EntryCompression compression, final TarLayer layer )
+        {
+            this.addition = addition;
+            this.file = file;
+            this.resource = resource;
+            this.target = target;
+            this.permissions = permissions;
+            this.compression = compression;
+            this.layer = layer;
+        }
+    }
+
+    /**
+     * Applies the {@link #duplicatePolicy} to the files of a file-set, before any other selector sees them.
+     */
+    private final class DuplicateGate
+        implements FileSelector
+    {
+
+        private final int addition;
+
+        private final String prefix;
+
+        private final File source;
+
+        private final String separator;
+
+        DuplicateGate( final int addition, final String prefix, final File source, final String separator )
+        {
+            this.addition = addition;
+            this.prefix = prefix == null ? "" : prefix;
+            this.source = source;
+            this.separator = separator;
+        }
+
+        @Override
+        public boolean isSelected( @Nonnull final FileInfo fileInfo )
+            throws IOException
+        {
+            if ( !fileInfo.isFile() )
+            {
+                return true;
+            }
+            final String target = fileInfo.getName();
+            if ( !duplicatesResolved )
+            {
+                targetIndex.record( target, addition );
+                return false;
+            }
+            if ( targetIndex.isKept( target, addition, duplicatePolicy ) )
+            {
+                return true;
+            }
+            final String name = target.startsWith( prefix ) ? target.substring( prefix.length() ) : target;
+            shadowed( source.getPath() + separator + name, target );
+            return false;
+        }
+    }
+
+    /**
+     * Reports the files of a file-set while they are added to the archive. Must be the last selector.
+     */
+    private final class EntryReporter
+        implements FileSelector
+    {
+
+        private final String prefix;
+
+        private final String sourceRoot;
+
+        private final boolean transformed;
+
+        EntryReporter( final String prefix, final String sourceRoot, final boolean transformed )
+        {
+            this.prefix = prefix == null ? "" : prefix;
+            this.sourceRoot = sourceRoot;
+            this.transformed = transformed;
+        }
+
+        @Override
+        public boolean isSelected( @Nonnull final FileInfo fileInfo )
+            throws IOException
+        {
+            if ( fileInfo.isFile() )
+            {
+                // the selectors see the names with the prefix of the file-set
+                final String target = fileInfo.getName();
+                final String name = target.startsWith( prefix ) ? target.substring( prefix.length() ) : target;
+                reportEntry( sourceRoot + name, target,
+                             fileInfo instanceof PlexusIoResource ? ( (PlexusIoResource) fileInfo ).getSize() : -1,
+                             transformed );
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Passes the compression of a file-set to the {@link StoredEntryPolicy} of the delegate, for the files which the
+     * other selectors accept. Must come after them.
+     */
+    private static final class CompressionMarker
+        implements FileSelector
+    {
+
+        private final StoredEntryPolicy policy;
+
+        private final EntryCompression compression;
+
+        CompressionMarker( final StoredEntryPolicy policy, final EntryCompression compression )
+        {
+            this.policy = policy;
+            this.compression = compression;
+        }
+
+        @Override
+        public boolean isSelected( @Nonnull final FileInfo fileInfo )
+            throws IOException
+        {
+            if ( fileInfo.isFile() )
+            {
+                // the selectors see the names with the prefix of the file-set
+                policy.configure( fileInfo.getName(), compression );
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Assigns the files and directories of a set to the layer of the {@link TarLayers} of the delegate, for those
+     * which the other selectors accept. Must come after them.
+     */
+    private static final class LayerMarker
+        implements FileSelector
+    {
+
+        private final TarLayers layers;
+
+        private final TarLayer layer;
+
+        LayerMarker( final TarLayers layers, final TarLayer layer )
+        {
+            this.layers = layers;
+            this.layer = layer;
+        }
+
+        @Override
+        public boolean isSelected( @Nonnull final FileInfo fileInfo )
+            throws IOException
+        {
+            // the selectors see the names with the prefix of the file-set
+            layers.assign( fileInfo.getName(), layer );
+            return true;
+        }
+    }
+
+    /**
+     * Counts the files of file-sets while they are added to the archive. Must be the last selector.
+     */
+    private static final class EntryCounter
+        implements FileSelector
+    {
+
+        private final AssemblyMetrics metrics;
+
+        EntryCounter( final AssemblyMetrics metrics )
+        {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public boolean isSelected( @Nonnull final FileInfo fileInfo )
+            throws IOException
+        {
+            if ( fileInfo.isFile() )
+            {
+                metrics.entryAdded( fileInfo instanceof PlexusIoResource ? ( (PlexusIoResource) fileInfo ).getSize()
+                                        : -1 );
+            }
+            return true;
+        }
+    }
+
     private static final class DefaultFileInfo
         implements FileInfo
     {
@@ -0,0 +1,122 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugins.assembly.utils.AssemblyFileUtils;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.dir.DirectoryArchiver;
+import org.codehaus.plexus.archiver.util.ArchiveEntryUtils;
+import org.codehaus.plexus.archiver.util.ResourceUtils;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A directory archiver which copies the contents of files from channel to channel, so the kernel copies them without
+ * moving them through the heap. Files read from disk as they are, and filtered files large enough to be kept in a
+ * temporary file, are transferred this way; other contents are copied through a buffer.
+ *
+ * @since 3.1.1
+ */
+@Component( role = Archiver.class, hint = ChannelCopyingDirectoryArchiver.HINT, instantiationStrategy = "per-lookup" )
+public class ChannelCopyingDirectoryArchiver
+    extends DirectoryArchiver
+{
+
+    /**
+     * The role hint of this archiver.
+     */
+    public static final String HINT = "dir-channel";
+
+    private int transferredFiles;
+
+    private int copiedFiles;
+
+    @Override
+    public void execute()
+        throws ArchiverException, IOException
+    {
+        transferredFiles = 0;
+        copiedFiles = 0;
+        super.execute();
+        getLogger().debug( "Transferred " + transferredFiles + " files by channel, copied " + copiedFiles
+                               + " files through a buffer." );
+    }
+
+    /**
+     * Copies a file as the directory archiver does, through {@link AssemblyFileUtils#copy}. Directories are left to
+     * the directory archiver, which sets their permissions last.
+     */
+    @Override
+    protected void copyFile( final ArchiveEntry entry, final String vPath )
+        throws ArchiverException, IOException
+    {
+        final PlexusIoResource in = entry.getResource();
+        if ( vPath.length() <= 0 || in.isDirectory() )
+        {
+            super.copyFile( entry, vPath );
+            return;
+        }
+
+        final File outFile = new File( vPath );
+        final long inLastModified = in.getLastModified();
+        if ( ResourceUtils.isUptodate( inLastModified, outFile.lastModified() ) )
+        {
+            return;
+        }
+
+        final File parent = outFile.getParentFile();
+        if ( !parent.exists() && !parent.mkdirs() )
+        {
+            throw new ArchiverException( "Unable to create directory or parent directory of " + outFile );
+        }
+
+        if ( AssemblyFileUtils.copy( entry.getInputStream(), outFile ) )
+        {
+            transferredFiles++;
+        }
+        else
+        {
+            copiedFiles++;
+        }
+
+        if ( !isIgnorePermissions() )
+        {
+            ArchiveEntryUtils.chmod( outFile, entry.getMode() );
+        }
+        outFile.setLastModified( inLastModified == PlexusIoResource.UNKNOWN_MODIFICATION_DATE
+                                     ? System.currentTimeMillis()
+                                     : inLastModified );
+    }
+
+    int getTransferredFiles()
+    {
+        return transferredFiles;
+    }
+
+    int getCopiedFiles()
+    {
+        return copiedFiles;
+    }
+}
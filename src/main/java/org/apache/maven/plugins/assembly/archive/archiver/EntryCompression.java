@@ -0,0 +1,38 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * How the entries added by a file-set or a dependency-set are compressed in zip and jar archives.
+ *
+ * @since 3.1.1
+ */
+public enum EntryCompression
+{
+    /**
+     * The entries are stored uncompressed.
+     */
+    stored,
+
+    /**
+     * The entries are deflated, whatever their extension.
+     */
+    deflate
+}
@@ -0,0 +1,216 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.codec.binary.Hex;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.components.io.resources.proxy.ProxyFactory;
+
+import javax.annotation.Nonnull;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The SHA-256 checksums of the file entries of an archive, computed from the bytes the archiver streams into the
+ * archive: the archivers which support them wrap the contents of each file entry they write with
+ * {@link #digesting(ArchiveEntry, String)}, and the checksum of an entry is recorded once its contents have been read
+ * to the end. Zip archivers read entries on several threads, so this class is thread-safe.
+ *
+ * @since 3.1.1
+ */
+public final class EntryDigests
+{
+
+    /**
+     * The algorithm of the checksums.
+     */
+    public static final String ALGORITHM = "SHA-256";
+
+    private final Map<String, String> checksums = new TreeMap<String, String>();
+
+    /**
+     * @param entry an entry about to be written.
+     * @param name the name of the entry in the archive.
+     * @return The entry, with contents which record their checksum under <code>name</code> once read to the end, or
+     *         <code>entry</code> itself if it is not a file.
+     */
+    @Nonnull
+    public ArchiveEntry digesting( @Nonnull final ArchiveEntry entry, @Nonnull final String name )
+    {
+        if ( entry.getType() != ArchiveEntry.FILE )
+        {
+            return entry;
+        }
+        final PlexusIoResource contents =
+            ProxyFactory.createProxy( entry.getResource(), new DigestingContents( entry, name ) );
+        final ArchiveEntry digesting =
+            ArchiveEntry.createFileEntry( entry.getName(), contents, entry.getMode() & 07777, null,
+                                          entry.getDefaultDirMode() );
+        digesting.setResourceAttributes( entry.getResourceAttributes() );
+        return digesting;
+    }
+
+    /**
+     * Records the checksum of a hard link, which is that of the entry it names.
+     *
+     * @param name the name of the link.
+     * @param target the name of the entry it links to.
+     */
+    public synchronized void link( @Nonnull String name, @Nonnull String target )
+    {
+        final String checksum = checksums.get( target );
+        if ( checksum != null )
+        {
+            checksums.put( name, checksum );
+        }
+    }
+
+    private synchronized void record( final String name, final String checksum )
+    {
+        checksums.put( name, checksum );
+    }
+
+    /**
+     * @return The checksum of each file entry written, hex encoded, by name.
+     */
+    @Nonnull
+    public synchronized Map<String, String> getChecksums()
+    {
+        return Collections.unmodifiableMap( new TreeMap<String, String>( checksums ) );
+    }
+
+    /**
+     * @return <code>true</code> if no checksum was recorded.
+     */
+    public synchronized boolean isEmpty()
+    {
+        return checksums.isEmpty();
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance( ALGORITHM );
+        }
+        catch ( final NoSuchAlgorithmException e )
+        {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * The contents of an entry, digested while the archiver reads them.
+     */
+    private final class DigestingContents
+        implements ContentSupplier
+    {
+
+        private final ArchiveEntry entry;
+
+        private final String name;
+
+        DigestingContents( final ArchiveEntry entry, final String name )
+        {
+            this.entry = entry;
+            this.name = name;
+        }
+
+        @Override
+        public InputStream getContents()
+            throws IOException
+        {
+            final MessageDigest digest = newDigest();
+            return new FilterInputStream( entry.getInputStream() )
+            {
+                private boolean recorded;
+
+                @Override
+                public int read()
+                    throws IOException
+                {
+                    final int b = super.read();
+                    if ( b >= 0 )
+                    {
+                        digest.update( (byte) b );
+                    }
+                    else
+                    {
+                        end();
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read( final byte[] b, final int off, final int len )
+                    throws IOException
+                {
+                    final int read = super.read( b, off, len );
+                    if ( read > 0 )
+                    {
+                        digest.update( b, off, read );
+                    }
+                    else if ( read < 0 )
+                    {
+                        end();
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip( final long n )
+                    throws IOException
+                {
+                    if ( n <= 0 )
+                    {
+                        return 0;
+                    }
+                    // the skipped bytes belong to the checksum as well
+                    final int read = read( new byte[(int) Math.min( n, 8192 )] );
+                    return read < 0 ? 0 : read;
+                }
+
+                @Override
+                public boolean markSupported()
+                {
+                    return false;
+                }
+
+                private void end()
+                {
+                    if ( !recorded )
+                    {
+                        recorded = true;
+                        record( name, Hex.encodeHexString( digest.digest() ) );
+                    }
+                }
+            };
+        }
+    }
+}
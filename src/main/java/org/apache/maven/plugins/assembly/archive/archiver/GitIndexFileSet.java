@@ -0,0 +1,54 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.plugins.assembly.utils.GitIndex;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A file-set whose candidate files are the ones tracked in a git index, rather than everything found below its
+ * directory. The includes and excludes still apply to the tracked files.
+ */
+public class GitIndexFileSet
+    extends DefaultFileSet
+{
+
+    private final GitIndex gitIndex;
+
+    /**
+     * @param gitIndex The index of the working tree which contains the file-set directory.
+     */
+    public GitIndexFileSet( @Nonnull final GitIndex gitIndex )
+    {
+        this.gitIndex = gitIndex;
+    }
+
+    /**
+     * @return The git index.
+     */
+    @Nonnull
+    public GitIndex getGitIndex()
+    {
+        return gitIndex;
+    }
+}
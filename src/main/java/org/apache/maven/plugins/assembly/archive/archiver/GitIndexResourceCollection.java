@@ -0,0 +1,166 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugins.assembly.utils.GitIndex;
+import org.codehaus.plexus.util.AbstractScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A file resource collection which takes its candidate files from a git index instead of walking the base directory.
+ * Includes, excludes, default excludes, selectors and attributes are applied exactly as in
+ * {@link org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection}.
+ */
+class GitIndexResourceCollection
+    extends LazyFileResourceCollection
+{
+
+    private final GitIndex gitIndex;
+
+    GitIndexResourceCollection( final GitIndex gitIndex )
+    {
+        this.gitIndex = gitIndex;
+    }
+
+    @Override
+    Iterator<String> getIncludedNames()
+        throws IOException
+    {
+        final TrackedFileScanner scanner = new TrackedFileScanner( getBaseDir(), gitIndex.getPaths( getBaseDir() ) );
+
+        final String[] includes = getIncludes();
+        if ( includes != null && includes.length > 0 )
+        {
+            scanner.setIncludes( includes );
+        }
+
+        final String[] excludes = getExcludes();
+        if ( excludes != null && excludes.length > 0 )
+        {
+            scanner.setExcludes( excludes );
+        }
+
+        if ( isUsingDefaultExcludes() )
+        {
+            scanner.addDefaultExcludes();
+        }
+
+        scanner.setCaseSensitive( isCaseSensitive() );
+        scanner.scan();
+
+        final List<String> names = new ArrayList<String>();
+        if ( isIncludingEmptyDirectories() )
+        {
+            names.addAll( scanner.includedDirectories );
+        }
+        names.addAll( scanner.includedFiles );
+        return names.iterator();
+    }
+
+    /**
+     * Matches tracked paths against the include and exclude patterns, the way a directory scanner matches the files
+     * it finds on disk. Tracked paths which were deleted from the working tree are skipped.
+     */
+    private static final class TrackedFileScanner
+        extends AbstractScanner
+    {
+
+        private final File basedir;
+
+        private final List<String> paths;
+
+        private final List<String> includedFiles = new ArrayList<String>();
+
+        private final Set<String> includedDirectories = new LinkedHashSet<String>();
+
+        private final Set<String> visitedDirectories = new HashSet<String>();
+
+        TrackedFileScanner( final File basedir, final List<String> paths )
+        {
+            this.basedir = basedir;
+            this.paths = paths;
+        }
+
+        @Override
+        public void scan()
+        {
+            setupDefaultFilters();
+            setupMatchPatterns();
+
+            if ( isIncluded( "" ) && !isExcluded( "" ) )
+            {
+                includedDirectories.add( "" );
+            }
+
+            for ( final String path : paths )
+            {
+                final String name = path.replace( '/', File.separatorChar );
+                if ( !Files.exists( new File( basedir, name ).toPath(), LinkOption.NOFOLLOW_LINKS ) )
+                {
+                    continue;
+                }
+
+                int slash = path.indexOf( '/' );
+                while ( slash > 0 )
+                {
+                    final String dir = name.substring( 0, slash );
+                    if ( visitedDirectories.add( dir ) && isIncluded( dir ) && !isExcluded( dir ) )
+                    {
+                        includedDirectories.add( dir );
+                    }
+                    slash = path.indexOf( '/', slash + 1 );
+                }
+
+                if ( isIncluded( name ) && !isExcluded( name ) )
+                {
+                    includedFiles.add( name );
+                }
+            }
+        }
+
+        @Override
+        public String[] getIncludedFiles()
+        {
+            return includedFiles.toArray( new String[includedFiles.size()] );
+        }
+
+        @Override
+        public String[] getIncludedDirectories()
+        {
+            return includedDirectories.toArray( new String[includedDirectories.size()] );
+        }
+
+        @Override
+        public File getBasedir()
+        {
+            return basedir;
+        }
+    }
+}
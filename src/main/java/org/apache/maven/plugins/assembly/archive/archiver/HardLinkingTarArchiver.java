@@ -0,0 +1,299 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.tar.TarLongFileMode;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A tar archiver which stores the contents of a regular file once: a file whose contents were already written under
+ * another path, with the same mode and owner, becomes a hard link to that path. The link and its target share a file
+ * once extracted, so files which differ in mode or owner are written in full. Only files with the size, mode and owner
+ * of a file already written are digested, so an archive without duplicates reads each file once.
+ *
+ * @since 3.1.1
+ */
+@Component( role = Archiver.class, hint = HardLinkingTarArchiver.HINT, instantiationStrategy = "per-lookup" )
+public class HardLinkingTarArchiver
+    extends PipelinedTarArchiver
+{
+
+    /**
+     * The role hint of this archiver.
+     */
+    public static final String HINT = "tar-hardlinks";
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final Map<Long, List<WrittenFile>> writtenFiles = new HashMap<Long, List<WrittenFile>>();
+
+    private TarLongFileMode longFileMode = TarLongFileMode.warn;
+
+    private int links;
+
+    private long linkedBytes;
+
+    @Override
+    public void setLongfile( final TarLongFileMode mode )
+    {
+        super.setLongfile( mode );
+        this.longFileMode = mode;
+    }
+
+    @Override
+    protected void execute()
+        throws ArchiverException, IOException
+    {
+        writtenFiles.clear();
+        links = 0;
+        linkedBytes = 0;
+
+        super.execute();
+
+        if ( links > 0 && getLogger() != null )
+        {
+            getLogger().info( "Stored " + links + " files as hard links to files with the same contents, saving "
+                                  + linkedBytes + " bytes." );
+        }
+        writtenFiles.clear();
+    }
+
+    @Override
+    protected void tarFile( final ArchiveEntry entry, final TarArchiveOutputStream tOut, final String vPath )
+        throws ArchiverException, IOException
+    {
+        final long size = entry.getResource().getSize();
+        // omitted entries cannot be the target of a link
+        if ( entry.getType() != ArchiveEntry.FILE || size <= 0 || longFileMode.isOmitMode() )
+        {
+            super.tarFile( entry, tOut, vPath );
+            return;
+        }
+
+        final String name = entryName( vPath );
+        if ( !isLinkable( name ) )
+        {
+            super.tarFile( entry, tOut, vPath );
+            return;
+        }
+
+        final int mode = entry.getMode();
+        final Owner owner = new Owner( entry.getResourceAttributes() );
+        List<WrittenFile> sameSize = writtenFiles.get( size );
+        byte[] digest = null;
+        if ( sameSize == null )
+        {
+            sameSize = new ArrayList<WrittenFile>( 1 );
+            writtenFiles.put( size, sameSize );
+        }
+        else
+        {
+            for ( final WrittenFile written : sameSize )
+            {
+                if ( written.mode != mode || !written.owner.equals( owner ) )
+                {
+                    continue;
+                }
+                if ( digest == null )
+                {
+                    digest = digest( entry );
+                }
+                if ( Arrays.equals( digest, written.getDigest() ) )
+                {
+                    tarLink( entry, tOut, name, written.name, owner );
+                    if ( getEntryDigests() != null )
+                    {
+                        getEntryDigests().link( name, written.name );
+                    }
+                    links++;
+                    linkedBytes += size;
+                    return;
+                }
+            }
+        }
+
+        super.tarFile( entry, tOut, vPath );
+        // not the entry itself, which holds its contents if it was read ahead of the writer
+        sameSize.add( new WrittenFile( name, mode, owner, sourceOf( entry ), digest ) );
+    }
+
+    /**
+     * Whether an entry of this name can be linked, or be the target of a link. Names which do not fit the header are
+     * only encoded in full in gnu and posix mode; the other modes warn about, truncate, fail on or omit them, which
+     * the tar archiver does when it writes the file itself.
+     */
+    private boolean isLinkable( final String name )
+    {
+        return name.length() < TarConstants.NAMELEN || longFileMode.isGnuMode() || longFileMode.isPosixMode();
+    }
+
+    /**
+     * Writes a hard link, with the mode and owner of its target, which it shares once extracted.
+     */
+    private void tarLink( final ArchiveEntry entry, final TarArchiveOutputStream tOut, final String name,
+                          final String target, final Owner owner )
+        throws IOException
+    {
+        final TarArchiveEntry link = new TarArchiveEntry( name, TarConstants.LF_LINK );
+        link.setLinkName( target );
+        link.setMode( entry.getMode() );
+        link.setModTime( entry.getResource().getLastModified() );
+        link.setUserName( owner.userName );
+        link.setGroupName( owner.groupName );
+        link.setUserId( owner.userId );
+        link.setGroupId( owner.groupId );
+
+        tOut.putArchiveEntry( link );
+        tOut.closeArchiveEntry();
+    }
+
+    private static byte[] digest( final ArchiveEntry entry )
+        throws IOException
+    {
+        final MessageDigest digest;
+        try
+        {
+            digest = MessageDigest.getInstance( DIGEST_ALGORITHM );
+        }
+        catch ( final NoSuchAlgorithmException e )
+        {
+            throw new ArchiverException( DIGEST_ALGORITHM + " is not available.", e );
+        }
+
+        InputStream in = null;
+        try
+        {
+            in = entry.getInputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ( ( read = in.read( buffer ) ) >= 0 )
+            {
+                digest.update( buffer, 0, read );
+            }
+            in.close();
+            in = null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return digest.digest();
+    }
+
+    /**
+     * The owner the tar archiver gives a file: that of its resource, else the defaults of the archiver.
+     */
+    private static final class Owner
+    {
+
+        private final String userName;
+
+        private final String groupName;
+
+        private final int userId;
+
+        private final int groupId;
+
+        Owner( final PlexusIoResourceAttributes attributes )
+        {
+            userName = attributes != null && attributes.getUserName() != null ? attributes.getUserName() : "";
+            groupName = attributes != null && attributes.getGroupName() != null ? attributes.getGroupName() : "";
+            userId = attributes != null && attributes.getUserId() != null && attributes.getUserId() >= 0
+                ? attributes.getUserId() : 0;
+            groupId = attributes != null && attributes.getGroupId() != null && attributes.getGroupId() >= 0
+                ? attributes.getGroupId() : 0;
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if ( !( o instanceof Owner ) )
+            {
+                return false;
+            }
+            final Owner other = (Owner) o;
+            return userId == other.userId && groupId == other.groupId && userName.equals( other.userName )
+                && groupName.equals( other.groupName );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * ( 31 * userName.hashCode() + groupName.hashCode() ) + userId * 17 + groupId;
+        }
+    }
+
+    /**
+     * A regular file written to the archive. Its digest is computed when a file of the same size, mode and owner comes
+     * along.
+     */
+    private static final class WrittenFile
+    {
+
+        private final String name;
+
+        private final int mode;
+
+        private final Owner owner;
+
+        private ArchiveEntry entry;
+
+        private byte[] digest;
+
+        WrittenFile( final String name, final int mode, final Owner owner, final ArchiveEntry entry,
+                     final byte[] digest )
+        {
+            this.name = name;
+            this.mode = mode;
+            this.owner = owner;
+            this.entry = digest == null ? entry : null;
+            this.digest = digest;
+        }
+
+        byte[] getDigest()
+            throws IOException
+        {
+            if ( digest == null )
+            {
+                digest = digest( entry );
+                entry = null;
+            }
+            return digest;
+        }
+    }
+}
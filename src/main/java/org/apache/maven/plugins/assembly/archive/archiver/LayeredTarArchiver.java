@@ -0,0 +1,468 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
+import org.codehaus.plexus.components.io.functions.SymlinkDestinationSupplier;
+import org.codehaus.plexus.components.io.resources.proxy.ProxyFactory;
+import org.codehaus.plexus.util.IOUtil;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A tar archiver which, besides the archive, writes the entries of each {@link TarLayer} to a tar of its own next to
+ * it, named after the archive with the layer as a suffix (<code>app-bin-dependencies.tar</code> for
+ * <code>app-bin.tar.gz</code>). The layer of an entry is taken from the {@link TarLayers} filled by
+ * {@link AssemblyProxyArchiver}.
+ * <p>
+ * The layer tars are uncompressed and reproducible: the entries are sorted by path, each one preceded by the
+ * directories above it, and their headers keep only the path, the permissions, the size and the link target, with a
+ * fixed time and owner. A layer whose entries did not change is thus byte for byte the same tar as in the previous
+ * build, and a container image built from the layers only uploads those which changed.
+ * </p>
+ * <p>
+ * The contents of the entries are copied to a spool file next to the archive as the archive reads them, so that each
+ * source is read once, and the layers are written from the spool. The spool takes as much disk space as the
+ * uncompressed contents of the archive until the layers are written.
+ * </p>
+ *
+ * @since 3.1.1
+ */
+@Component( role = Archiver.class, hint = LayeredTarArchiver.HINT, instantiationStrategy = "per-lookup" )
+public class LayeredTarArchiver
+    extends TarArchiver
+{
+
+    /**
+     * The role hint of this archiver.
+     */
+    public static final String HINT = "tar-layered";
+
+    /**
+     * The modification time of all the entries of the layers: 1970-01-01T00:00:01Z, as some tools take 0 for unset.
+     */
+    static final long MOD_TIME = 1000L;
+
+    private static final String[] TAR_EXTENSIONS =
+        { ".tar.gz", ".tar.bz2", ".tar.xz", ".tar.snappy", ".tgz", ".tbz2", ".txz", ".tar" };
+
+    private static final int TYPE_MASK = 0170000;
+
+    private static final int FILE_TYPE = 0100000;
+
+    private static final int DIRECTORY_TYPE = 040000;
+
+    private static final int SYMLINK_TYPE = 0120000;
+
+    private static final int DIRECTORY_MODE = 0755;
+
+    private TarLayers tarLayers;
+
+    private EntryDigests entryDigests;
+
+    /**
+     * The entries of each layer, by path without a trailing slash.
+     */
+    private final Map<TarLayer, TreeMap<String, LayerEntry>> layers =
+        new EnumMap<TarLayer, TreeMap<String, LayerEntry>>( TarLayer.class );
+
+    private RandomAccessFile spool;
+
+    private long spoolSize;
+
+    public void setTarLayers( final TarLayers tarLayers )
+    {
+        this.tarLayers = tarLayers;
+    }
+
+    /**
+     * @param entryDigests the checksums to record the file entries of the archive in as they are written, or
+     *            <code>null</code>.
+     */
+    public void setEntryDigests( final EntryDigests entryDigests )
+    {
+        this.entryDigests = entryDigests;
+    }
+
+    /**
+     * @param destFile the archive.
+     * @param layer the layer.
+     * @return The tar of the layer of the archive.
+     */
+    static File layerFile( @Nonnull File destFile, @Nonnull TarLayer layer )
+    {
+        String name = destFile.getName();
+        for ( final String extension : TAR_EXTENSIONS )
+        {
+            if ( name.endsWith( extension ) && name.length() > extension.length() )
+            {
+                name = name.substring( 0, name.length() - extension.length() );
+                break;
+            }
+        }
+        return new File( destFile.getParentFile(), name + "-" + layer + ".tar" );
+    }
+
+    @Override
+    protected void execute()
+        throws ArchiverException, IOException
+    {
+        layers.clear();
+        spoolSize = 0;
+        final File destFile = getDestFile();
+        final File spoolFile = File.createTempFile( destFile.getName(), ".layers", destFile.getParentFile() );
+        try
+        {
+            spool = new RandomAccessFile( spoolFile, "rw" );
+            super.execute();
+
+            for ( final TarLayer layer : TarLayer.values() )
+            {
+                final File layerFile = layerFile( destFile, layer );
+                final TreeMap<String, LayerEntry> entries = layers.get( layer );
+                if ( entries == null )
+                {
+                    // a stale layer of a previous build would be taken for part of this one
+                    layerFile.delete();
+                    continue;
+                }
+                if ( getLogger() != null )
+                {
+                    getLogger().info( "Writing " + layer + " layer with " + entries.size() + " entries to "
+                                          + layerFile.getName() );
+                }
+                writeLayer( layerFile, entries );
+            }
+        }
+        finally
+        {
+            if ( spool != null )
+            {
+                // the channel closes the file
+                IOUtil.close( spool.getChannel() );
+                spool = null;
+            }
+            layers.clear();
+            spoolFile.delete();
+        }
+    }
+
+    @Override
+    protected void tarFile( final ArchiveEntry entry, final TarArchiveOutputStream tOut, final String vPath )
+        throws ArchiverException, IOException
+    {
+        final String path = path( vPath );
+        if ( path.length() == 0 )
+        {
+            super.tarFile( entry, tOut, vPath );
+            return;
+        }
+        final TarLayer layer = tarLayers != null ? tarLayers.layerOf( path ) : TarLayer.generated;
+        TreeMap<String, LayerEntry> entries = layers.get( layer );
+        if ( entries == null )
+        {
+            entries = new TreeMap<String, LayerEntry>();
+            layers.put( layer, entries );
+        }
+        final LayerEntry existing = entries.get( path );
+        // the archive keeps the first entry of a path; a directory only replaces one the layer put above an entry
+        if ( existing != null && !( existing.implicit && entry.getType() == ArchiveEntry.DIRECTORY ) )
+        {
+            super.tarFile( entryDigests != null ? entryDigests.digesting( entry, path ) : entry, tOut, vPath );
+            return;
+        }
+
+        final int permissions = entry.getMode() & 07777;
+        final LayerEntry layerEntry;
+        if ( entry.getType() == ArchiveEntry.DIRECTORY )
+        {
+            super.tarFile( entry, tOut, vPath );
+            layerEntry = new LayerEntry( DIRECTORY_TYPE | permissions, null, -1, 0, false );
+        }
+        else if ( entry.getType() == ArchiveEntry.SYMLINK )
+        {
+            super.tarFile( entry, tOut, vPath );
+            final String target = ( (SymlinkDestinationSupplier) entry.getResource() ).getSymlinkDestination();
+            layerEntry = new LayerEntry( SYMLINK_TYPE | permissions, target, -1, 0, false );
+        }
+        else
+        {
+            // the contents go to the spool as the archive reads them
+            final SpooledContents contents = new SpooledContents( entry, spoolSize );
+            final ArchiveEntry spooled =
+                ArchiveEntry.createFileEntry( entry.getName(), ProxyFactory.createProxy( entry.getResource(), contents ),
+                                              permissions, null, entry.getDefaultDirMode() );
+            spooled.setResourceAttributes( entry.getResourceAttributes() );
+            super.tarFile( entryDigests != null ? entryDigests.digesting( spooled, path ) : spooled, tOut, vPath );
+            final long size = contents.size >= 0 ? contents.size : copyToSpool( entry );
+            layerEntry = new LayerEntry( FILE_TYPE | permissions, null, spoolSize, size, false );
+            spoolSize += size;
+        }
+        entries.put( path, layerEntry );
+
+        // the directories above the entry, unless the layer has them already
+        for ( int slash = path.lastIndexOf( '/' ); slash > 0; slash = path.lastIndexOf( '/', slash - 1 ) )
+        {
+            final String parent = path.substring( 0, slash );
+            if ( entries.containsKey( parent ) )
+            {
+                break;
+            }
+            entries.put( parent, new LayerEntry( DIRECTORY_TYPE | DIRECTORY_MODE, null, -1, 0, true ) );
+        }
+    }
+
+    /**
+     * @return The path of an entry as the tar archiver writes it, without the leading and trailing slashes.
+     */
+    private static String path( final String vPath )
+    {
+        int start = 0;
+        int end = vPath.length();
+        while ( start < end && vPath.charAt( start ) == '/' )
+        {
+            start++;
+        }
+        while ( end > start && vPath.charAt( end - 1 ) == '/' )
+        {
+            end--;
+        }
+        return vPath.substring( start, end );
+    }
+
+    private long copyToSpool( final ArchiveEntry entry )
+        throws IOException
+    {
+        spool.seek( spoolSize );
+        final byte[] buffer = new byte[8192];
+        long size = 0;
+        InputStream in = null;
+        try
+        {
+            in = entry.getInputStream();
+            int read;
+            while ( ( read = in.read( buffer ) ) >= 0 )
+            {
+                spool.write( buffer, 0, read );
+                size += read;
+            }
+            in.close();
+            in = null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return size;
+    }
+
+    private void writeLayer( final File layerFile, final TreeMap<String, LayerEntry> entries )
+        throws IOException
+    {
+        final byte[] buffer = new byte[8192];
+        TarArchiveOutputStream out = null;
+        try
+        {
+            final OutputStream file = new BufferedOutputStream( new FileOutputStream( layerFile ) );
+            out = new TarArchiveOutputStream( file, "UTF-8" );
+            out.setLongFileMode( TarArchiveOutputStream.LONGFILE_POSIX );
+            out.setBigNumberMode( TarArchiveOutputStream.BIGNUMBER_POSIX );
+            out.setAddPaxHeadersForNonAsciiNames( true );
+
+            for ( final Map.Entry<String, LayerEntry> mapEntry : entries.entrySet() )
+            {
+                final LayerEntry entry = mapEntry.getValue();
+                final TarArchiveEntry header;
+                if ( entry.isDirectory() )
+                {
+                    header = new TarArchiveEntry( mapEntry.getKey() + "/" );
+                }
+                else if ( entry.linkName != null )
+                {
+                    header = new TarArchiveEntry( mapEntry.getKey(), TarConstants.LF_SYMLINK );
+                    header.setLinkName( entry.linkName );
+                }
+                else
+                {
+                    header = new TarArchiveEntry( mapEntry.getKey() );
+                    header.setSize( entry.size );
+                }
+                header.setMode( entry.mode );
+                header.setModTime( MOD_TIME );
+                header.setIds( 0, 0 );
+                header.setNames( "", "" );
+                out.putArchiveEntry( header );
+
+                if ( entry.size > 0 )
+                {
+                    spool.seek( entry.offset );
+                    long remaining = entry.size;
+                    while ( remaining > 0 )
+                    {
+                        final int read = spool.read( buffer, 0, (int) Math.min( buffer.length, remaining ) );
+                        if ( read < 0 )
+                        {
+                            throw new ArchiverException( "The spool of " + layerFile + " is truncated." );
+                        }
+                        out.write( buffer, 0, read );
+                        remaining -= read;
+                    }
+                }
+                out.closeArchiveEntry();
+            }
+            out.close();
+            out = null;
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    /**
+     * The contents of a file, copied to the end of the spool while the archive reads them.
+     */
+    private final class SpooledContents
+        implements ContentSupplier
+    {
+
+        private final ArchiveEntry entry;
+
+        private final long offset;
+
+        /**
+         * The number of bytes copied to the spool, or -1 as long as the contents were not read.
+         */
+        private long size = -1;
+
+        SpooledContents( final ArchiveEntry entry, final long offset )
+        {
+            this.entry = entry;
+            this.offset = offset;
+        }
+
+        @Override
+        public InputStream getContents()
+            throws IOException
+        {
+            spool.seek( offset );
+            size = 0;
+            return new FilterInputStream( entry.getInputStream() )
+            {
+                @Override
+                public int read()
+                    throws IOException
+                {
+                    final int b = super.read();
+                    if ( b >= 0 )
+                    {
+                        spool.write( b );
+                        size++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read( final byte[] b, final int off, final int len )
+                    throws IOException
+                {
+                    final int read = super.read( b, off, len );
+                    if ( read > 0 )
+                    {
+                        spool.write( b, off, read );
+                        size += read;
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip( final long n )
+                    throws IOException
+                {
+                    if ( n <= 0 )
+                    {
+                        return 0;
+                    }
+                    // the skipped bytes belong to the spool as well
+                    final int read = read( new byte[(int) Math.min( n, 8192 )] );
+                    return read < 0 ? 0 : read;
+                }
+
+                @Override
+                public boolean markSupported()
+                {
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * An entry of a layer: a directory, a symbolic link, or a file whose contents are in the spool. An implicit
+     * directory is one the layer put above an entry, which the entry of the directory itself replaces.
+     */
+    private static final class LayerEntry
+    {
+
+        private final int mode;
+
+        private final String linkName;
+
+        private final long offset;
+
+        private final long size;
+
+        private final boolean implicit;
+
+        LayerEntry( final int mode, final String linkName, final long offset, final long size,
+                    final boolean implicit )
+        {
+            this.mode = mode;
+            this.linkName = linkName;
+            this.offset = offset;
+            this.size = size;
+            this.implicit = implicit;
+        }
+
+        boolean isDirectory()
+        {
+            return ( mode & TYPE_MASK ) == DIRECTORY_TYPE;
+        }
+    }
+}
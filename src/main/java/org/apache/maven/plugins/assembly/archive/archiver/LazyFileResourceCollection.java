@@ -0,0 +1,137 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.components.io.attributes.FileAttributes;
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.components.io.functions.PlexusIoResourceConsumer;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.components.io.resources.ResourceFactory;
+import org.codehaus.plexus.components.io.resources.Stream;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A file resource collection which creates the resource of each included file only when the archiver asks for it,
+ * where the superclass creates the resources of all the files before handing out the first one. The archiver writes
+ * each entry before it asks for the next, so the resources do not pile up in memory. Attributes and selectors are
+ * applied exactly as in the superclass.
+ *
+ * @since 3.1.1
+ */
+abstract class LazyFileResourceCollection
+    extends PlexusIoFileResourceCollection
+{
+
+    /**
+     * @return The paths of the included directories and files, relative to the base directory, with the separator of
+     *         the platform; the directories are only included if {@link #isIncludingEmptyDirectories()}.
+     * @throws IOException if the paths cannot be listed.
+     */
+    abstract Iterator<String> getIncludedNames()
+        throws IOException;
+
+    @Override
+    public Iterator<PlexusIoResource> getResources()
+        throws IOException
+    {
+        final Iterator<String> names = getIncludedNames();
+        final File baseDir = getBaseDir();
+        final Map<Integer, String> uidCache = new HashMap<Integer, String>();
+        final Map<Integer, String> gidCache = new HashMap<Integer, String>();
+
+        return new Iterator<PlexusIoResource>()
+        {
+            private PlexusIoResource next;
+
+            @Override
+            public boolean hasNext()
+            {
+                while ( next == null && names.hasNext() )
+                {
+                    final String name = names.next();
+                    final File file = new File( baseDir, name.replace( '\\', '/' ) );
+                    try
+                    {
+                        final PlexusIoResourceAttributes attrs =
+                            mergeAttributes( new FileAttributes( file, uidCache, gidCache ), file.isDirectory() );
+
+                        final PlexusIoResource resource =
+                            ResourceFactory.createResource( file, getName( name ), null, getStreamTransformer(),
+                                                            attrs );
+
+                        if ( isSelected( resource ) )
+                        {
+                            next = resource;
+                        }
+                    }
+                    catch ( final IOException e )
+                    {
+                        throw new ArchiverException( "Error reading " + file + ": " + e.getMessage(), e );
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public PlexusIoResource next()
+            {
+                if ( !hasNext() )
+                {
+                    throw new NoSuchElementException();
+                }
+                final PlexusIoResource resource = next;
+                next = null;
+                return resource;
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public Stream stream()
+    {
+        return new Stream()
+        {
+            @Override
+            public void forEach( final PlexusIoResourceConsumer resourceConsumer )
+                throws IOException
+            {
+                final Iterator<PlexusIoResource> resources = getResources();
+                while ( resources.hasNext() )
+                {
+                    resourceConsumer.accept( resources.next() );
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,520 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
+import org.codehaus.plexus.components.io.functions.SizeSupplier;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.components.io.resources.proxy.ProxyFactory;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Iterates the entries of an archiver ahead of the thread which writes them. A feeder thread walks the entries of the
+ * archiver, which is where plexus-io applies the stream transformers of filtered files, and a pool of readers loads
+ * the contents of the upcoming files into memory; the writer takes them in the original order, so reading and
+ * filtering overlap with compressing and writing.
+ * <p>
+ * The contents held in memory never exceed the buffer budget: the feeder waits for the writer to move past earlier
+ * entries before it reserves room for the size of the next one, and a reader which gets more bytes than that from the
+ * transformers tops up the reservation as it goes. Files larger than the budget, of unknown size, or which grow past
+ * the room left while they are read, are passed through and streamed by the writer as usual.
+ * </p>
+ *
+ * @since 3.1.1
+ */
+final class PipelinedResourceIterator
+    implements ResourceIterator
+{
+
+    /**
+     * The number of entries the feeder may run ahead of the writer, whatever their size.
+     */
+    static final int MAX_PENDING_ENTRIES = 256;
+
+    /**
+     * The least number of bytes a reader adds to its reservation when the contents outgrow it.
+     */
+    private static final int TOP_UP = 64 * 1024;
+
+    /**
+     * The largest contents an array holds; larger files are passed through whatever the budget.
+     */
+    private static final int MAX_ENTRY_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final AtomicInteger POOLS = new AtomicInteger();
+
+    private final BlockingQueue<Future<Slot>> pending = new ArrayBlockingQueue<Future<Slot>>( MAX_PENDING_ENTRIES );
+
+    private final Budget budget;
+
+    private final ExecutorService readers;
+
+    private final Thread feeder;
+
+    private Slot current;
+
+    private Slot next;
+
+    private boolean finished;
+
+    private int prefetchedEntries;
+
+    private long prefetchedBytes;
+
+    private long waitNanos;
+
+    /**
+     * Starts the feeder and the readers.
+     *
+     * @param source the entries of the archiver.
+     * @param bufferBudget the number of bytes of contents which may be held in memory.
+     * @param readerCount the number of threads which read contents.
+     */
+    PipelinedResourceIterator( final ResourceIterator source, final long bufferBudget, final int readerCount )
+    {
+        this.budget = new Budget( bufferBudget );
+
+        final String pool = "assembly-pipeline-" + POOLS.incrementAndGet();
+        this.readers = Executors.newFixedThreadPool( Math.max( 1, readerCount ), new ThreadFactory()
+        {
+            private final AtomicInteger threads = new AtomicInteger();
+
+            @Override
+            public Thread newThread( final Runnable runnable )
+            {
+                final Thread thread = new Thread( runnable, pool + "-reader-" + threads.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+        this.feeder = new Thread( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                feed( source );
+            }
+        }, pool + "-feeder" );
+        this.feeder.setDaemon( true );
+        this.feeder.start();
+    }
+
+    private void feed( final ResourceIterator source )
+    {
+        try
+        {
+            while ( source.hasNext() )
+            {
+                final ArchiveEntry entry = source.next();
+                final long size = entry.getType() == ArchiveEntry.FILE ? entry.getResource().getSize() : -1;
+                if ( size >= 0 && size <= Math.min( budget.capacity, MAX_ENTRY_SIZE ) )
+                {
+                    budget.reserve( size );
+                    pending.put( readers.submit( new Prefetch( entry, size ) ) );
+                }
+                else
+                {
+                    pending.put( done( new Slot( entry, entry, 0 ) ) );
+                }
+            }
+            pending.put( done( null ) );
+        }
+        catch ( final InterruptedException e )
+        {
+            // closed by the writer
+        }
+        catch ( final RuntimeException e )
+        {
+            offerFailure( e );
+        }
+        catch ( final Error e )
+        {
+            offerFailure( e );
+        }
+    }
+
+    private void offerFailure( final Throwable failure )
+    {
+        final FutureTask<Slot> task = new FutureTask<Slot>( new Callable<Slot>()
+        {
+            @Override
+            public Slot call()
+                throws Exception
+            {
+                if ( failure instanceof Error )
+                {
+                    throw (Error) failure;
+                }
+                throw (RuntimeException) failure;
+            }
+        } );
+        task.run();
+        try
+        {
+            pending.put( task );
+        }
+        catch ( final InterruptedException e )
+        {
+            // closed by the writer
+        }
+    }
+
+    private static Future<Slot> done( final Slot slot )
+    {
+        final FutureTask<Slot> task = new FutureTask<Slot>( new Callable<Slot>()
+        {
+            @Override
+            public Slot call()
+            {
+                return slot;
+            }
+        } );
+        task.run();
+        return task;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if ( next == null && !finished )
+        {
+            // the writer asks for the next entry once it is done with the current one, whose room the feeder may
+            // be waiting for
+            release( current );
+            current = null;
+            next = take();
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public ArchiveEntry next()
+    {
+        if ( !hasNext() )
+        {
+            throw new NoSuchElementException();
+        }
+
+        release( current );
+        current = next;
+        next = null;
+        return current.entry;
+    }
+
+    private Slot take()
+    {
+        final long start = System.nanoTime();
+        try
+        {
+            return pending.take().get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ArchiverException( "Interrupted while waiting for the next archive entry", e );
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof ArchiverException )
+            {
+                throw (ArchiverException) cause;
+            }
+            throw new ArchiverException( "Error reading archive entry: " + cause.getMessage(), cause );
+        }
+        finally
+        {
+            waitNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void release( final Slot slot )
+    {
+        if ( slot != null && slot.reserved > 0 )
+        {
+            budget.release( slot.reserved );
+        }
+    }
+
+    /**
+     * @param entry the entry being written, as returned by {@link #next()}.
+     * @return The entry as the archiver listed it, whose contents are read from the source again; the entry itself if
+     *         it was not read ahead.
+     */
+    ArchiveEntry sourceOf( final ArchiveEntry entry )
+    {
+        return current != null && current.entry == entry ? current.source : entry;
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops the feeder and the readers, and drops the contents which were not written.
+     */
+    void close()
+    {
+        feeder.interrupt();
+        readers.shutdownNow();
+        release( current );
+        release( next );
+        current = null;
+        next = null;
+    }
+
+    /**
+     * @return The number of bytes of the budget not reserved.
+     */
+    long getAvailableBuffer()
+    {
+        synchronized ( budget )
+        {
+            return budget.available;
+        }
+    }
+
+    synchronized int getPrefetchedEntries()
+    {
+        return prefetchedEntries;
+    }
+
+    synchronized long getPrefetchedBytes()
+    {
+        return prefetchedBytes;
+    }
+
+    /**
+     * @return The time the writer spent waiting for entries, in nanoseconds.
+     */
+    long getWaitNanos()
+    {
+        return waitNanos;
+    }
+
+    /**
+     * An entry handed to the writer, the entry it was read from, and the room its contents take in the budget.
+     */
+    private static final class Slot
+    {
+
+        private final ArchiveEntry entry;
+
+        private final ArchiveEntry source;
+
+        private final long reserved;
+
+        Slot( final ArchiveEntry entry, final ArchiveEntry source, final long reserved )
+        {
+            this.entry = entry;
+            this.source = source;
+            this.reserved = reserved;
+        }
+    }
+
+    /**
+     * Reads the contents of a file entry, through the transformers of its collection, into memory.
+     */
+    private final class Prefetch
+        implements Callable<Slot>
+    {
+
+        private final ArchiveEntry entry;
+
+        private final long reserved;
+
+        Prefetch( final ArchiveEntry entry, final long reserved )
+        {
+            this.entry = entry;
+            this.reserved = reserved;
+        }
+
+        @Override
+        public Slot call()
+            throws IOException
+        {
+            long reservation = reserved;
+            boolean kept = false;
+            InputStream in = null;
+            try
+            {
+                byte[] contents = new byte[(int) reserved];
+                int length = 0;
+                in = entry.getInputStream();
+                while ( true )
+                {
+                    if ( length == contents.length )
+                    {
+                        // the transformers may hand out more bytes than the size of the resource
+                        final int probe = in.read();
+                        if ( probe < 0 )
+                        {
+                            break;
+                        }
+                        final long extra = Math.max( TOP_UP, contents.length / 2 );
+                        if ( contents.length + extra > MAX_ENTRY_SIZE || !budget.tryReserve( extra ) )
+                        {
+                            // leave the entry to the writer rather than wait for room the writer may never free
+                            return new Slot( entry, entry, 0 );
+                        }
+                        reservation += extra;
+                        contents = Arrays.copyOf( contents, (int) ( contents.length + extra ) );
+                        contents[length++] = (byte) probe;
+                    }
+                    final int read = in.read( contents, length, contents.length - length );
+                    if ( read < 0 )
+                    {
+                        break;
+                    }
+                    length += read;
+                }
+                in.close();
+                in = null;
+
+                final PlexusIoResource buffered =
+                    ProxyFactory.createProxy( entry.getResource(), new BufferedContents( contents, length ) );
+                final ArchiveEntry prefetched =
+                    ArchiveEntry.createFileEntry( entry.getName(), buffered, entry.getMode() & 07777, null,
+                                                  entry.getDefaultDirMode() );
+                prefetched.setResourceAttributes( entry.getResourceAttributes() );
+
+                synchronized ( PipelinedResourceIterator.this )
+                {
+                    prefetchedEntries++;
+                    prefetchedBytes += length;
+                }
+                kept = true;
+                return new Slot( prefetched, entry, reservation );
+            }
+            catch ( final IOException e )
+            {
+                throw new ArchiverException( "Error reading " + entry.getName() + ": " + e.getMessage(), e );
+            }
+            finally
+            {
+                IOUtil.close( in );
+                if ( !kept )
+                {
+                    // passed through, or failed: the contents take no room
+                    budget.release( reservation );
+                }
+            }
+        }
+    }
+
+    /**
+     * The contents of a file, read ahead of the writer.
+     */
+    private static final class BufferedContents
+        implements ContentSupplier, SizeSupplier
+    {
+
+        private final byte[] contents;
+
+        private final int length;
+
+        BufferedContents( final byte[] contents, final int length )
+        {
+            this.contents = contents;
+            this.length = length;
+        }
+
+        @Override
+        public InputStream getContents()
+        {
+            return new ByteArrayInputStream( contents, 0, length );
+        }
+
+        @Override
+        public long getSize()
+        {
+            return length;
+        }
+    }
+
+    /**
+     * The number of bytes of contents which may still be read ahead.
+     */
+    private static final class Budget
+    {
+
+        private final long capacity;
+
+        private long available;
+
+        Budget( final long capacity )
+        {
+            this.capacity = capacity;
+            this.available = capacity;
+        }
+
+        synchronized void reserve( final long bytes )
+            throws InterruptedException
+        {
+            while ( available < bytes )
+            {
+                wait();
+            }
+            available -= bytes;
+        }
+
+        /**
+         * @return <code>true</code> if the bytes were reserved, <code>false</code> if there is not enough room now.
+         */
+        synchronized boolean tryReserve( final long bytes )
+        {
+            if ( available < bytes )
+            {
+                return false;
+            }
+            available -= bytes;
+            return true;
+        }
+
+        synchronized void release( final long bytes )
+        {
+            available += bytes;
+            notifyAll();
+        }
+    }
+}
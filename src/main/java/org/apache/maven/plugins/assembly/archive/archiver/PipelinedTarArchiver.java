@@ -0,0 +1,163 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.component.annotations.Component;
+
+import java.io.IOException;
+
+/**
+ * A tar archiver which reads and filters the upcoming files on other threads while it compresses and writes the
+ * current one, holding at most {@link #setPipelineBuffer(long) a budget} of contents in memory. Without a budget, it
+ * writes like the plain tar archiver.
+ *
+ * @since 3.1.1
+ */
+@Component( role = Archiver.class, hint = PipelinedTarArchiver.HINT, instantiationStrategy = "per-lookup" )
+public class PipelinedTarArchiver
+    extends TarArchiver
+{
+
+    /**
+     * The role hint of this archiver.
+     */
+    public static final String HINT = "tar-pipelined";
+
+    private long pipelineBuffer;
+
+    private int pipelineReaders = Math.max( 1, Math.min( 4, Runtime.getRuntime().availableProcessors() - 1 ) );
+
+    private boolean executing;
+
+    private PipelinedResourceIterator pipeline;
+
+    private EntryDigests entryDigests;
+
+    /**
+     * @param pipelineBuffer the number of bytes of contents which may be read ahead of the writer; 0 to read each
+     *            file when it is written.
+     */
+    public void setPipelineBuffer( final long pipelineBuffer )
+    {
+        this.pipelineBuffer = pipelineBuffer;
+    }
+
+    /**
+     * @param pipelineReaders the number of threads which read contents ahead of the writer.
+     */
+    public void setPipelineReaders( final int pipelineReaders )
+    {
+        this.pipelineReaders = pipelineReaders;
+    }
+
+    /**
+     * @param entryDigests the checksums to record the file entries in as they are written, or <code>null</code>.
+     */
+    public void setEntryDigests( final EntryDigests entryDigests )
+    {
+        this.entryDigests = entryDigests;
+    }
+
+    /**
+     * @return The checksums the file entries are recorded in, or <code>null</code>.
+     */
+    protected EntryDigests getEntryDigests()
+    {
+        return entryDigests;
+    }
+
+    @Override
+    protected void execute()
+        throws ArchiverException, IOException
+    {
+        executing = true;
+        try
+        {
+            super.execute();
+        }
+        finally
+        {
+            executing = false;
+            if ( pipeline != null )
+            {
+                pipeline.close();
+                getLogger().info( "Read " + pipeline.getPrefetchedEntries() + " files ("
+                                      + pipeline.getPrefetchedBytes() + " bytes) ahead of the writer on "
+                                      + pipelineReaders + " threads; the writer waited "
+                                      + pipeline.getWaitNanos() / 1000000 + " ms for entries." );
+                pipeline = null;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc} While the archive is written, the entries are read ahead of the writer if there is a budget.
+     */
+    @Override
+    public ResourceIterator getResources()
+        throws ArchiverException
+    {
+        final ResourceIterator resources = super.getResources();
+        if ( !executing || pipelineBuffer <= 0 || pipeline != null )
+        {
+            return resources;
+        }
+        pipeline = new PipelinedResourceIterator( resources, pipelineBuffer, pipelineReaders );
+        return pipeline;
+    }
+
+    @Override
+    protected void tarFile( final ArchiveEntry entry, final TarArchiveOutputStream tOut, final String vPath )
+        throws ArchiverException, IOException
+    {
+        super.tarFile( entryDigests != null ? entryDigests.digesting( entry, entryName( vPath ) ) : entry, tOut,
+                       vPath );
+    }
+
+    /**
+     * @return The name the entry of a path gets, with the leading slashes removed as the tar archiver does.
+     */
+    protected static String entryName( final String vPath )
+    {
+        int start = 0;
+        while ( start < vPath.length() && vPath.charAt( start ) == '/' )
+        {
+            start++;
+        }
+        return vPath.substring( start );
+    }
+
+    /**
+     * @param entry the entry being written.
+     * @return The entry as the resources of this archiver list it. An entry read ahead of the writer holds its
+     *         contents in memory; the entry returned reads them from their source again, so it may be kept once the
+     *         entry is written.
+     */
+    protected ArchiveEntry sourceOf( final ArchiveEntry entry )
+    {
+        return pipeline != null ? pipeline.sourceOf( entry ) : entry;
+    }
+}
@@ -0,0 +1,176 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugins.assembly.metrics.AssemblyMetrics;
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
+import org.codehaus.plexus.components.io.functions.PlexusIoResourceConsumer;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.components.io.resources.PlexusIoResourceCollection;
+import org.codehaus.plexus.components.io.resources.Stream;
+import org.codehaus.plexus.components.io.resources.proxy.ProxyFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * A resource collection which hands out the resources of another one with their contents wrapped, so the bytes the
+ * archiver reads from them are counted in {@link AssemblyMetrics#bytesRead(long) the metrics}. Names, attributes and
+ * the order of the resources are those of the wrapped collection.
+ *
+ * @since 3.1.1
+ */
+class ReadCountingResourceCollection
+    implements PlexusIoResourceCollection
+{
+
+    private final PlexusIoResourceCollection src;
+
+    private final AssemblyMetrics metrics;
+
+    ReadCountingResourceCollection( final PlexusIoResourceCollection src, final AssemblyMetrics metrics )
+    {
+        this.src = src;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wraps the contents of a file resource so the bytes read from them are counted.
+     *
+     * @param resource the resource.
+     * @param metrics the counters.
+     * @return A proxy of <code>resource</code>, or <code>resource</code> itself if it is not a file.
+     */
+    static PlexusIoResource countReads( final PlexusIoResource resource, final AssemblyMetrics metrics )
+    {
+        if ( !resource.isFile() )
+        {
+            return resource;
+        }
+        return ProxyFactory.createProxy( resource, new ContentSupplier()
+        {
+            @Nonnull
+            @Override
+            public InputStream getContents()
+                throws IOException
+            {
+                return metrics.countReads( resource.getContents() );
+            }
+        } );
+    }
+
+    @Override
+    public Iterator<PlexusIoResource> getResources()
+        throws IOException
+    {
+        final Iterator<PlexusIoResource> resources = src.getResources();
+        return new Iterator<PlexusIoResource>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return resources.hasNext();
+            }
+
+            @Override
+            public PlexusIoResource next()
+            {
+                return countReads( resources.next(), metrics );
+            }
+
+            @Override
+            public void remove()
+            {
+                resources.remove();
+            }
+        };
+    }
+
+    @Override
+    public Stream stream()
+    {
+        return new Stream()
+        {
+            @Override
+            public void forEach( final PlexusIoResourceConsumer resourceConsumer )
+                throws IOException
+            {
+                src.stream().forEach( new PlexusIoResourceConsumer()
+                {
+                    @Override
+                    public void accept( final PlexusIoResource resource )
+                        throws IOException
+                    {
+                        resourceConsumer.accept( countReads( resource, metrics ) );
+                    }
+                } );
+            }
+        };
+    }
+
+    @Override
+    public String getName( final PlexusIoResource resource )
+    {
+        return src.getName( resource );
+    }
+
+    @Override
+    public long getLastModified()
+        throws IOException
+    {
+        return src.getLastModified();
+    }
+
+    @Override
+    public InputStream getInputStream( final PlexusIoResource resource )
+        throws IOException
+    {
+        // the resources handed out already count their contents
+        return src.getInputStream( resource );
+    }
+
+    @Override
+    public PlexusIoResource resolve( final PlexusIoResource resource )
+        throws IOException
+    {
+        return src.resolve( resource );
+    }
+
+    @Override
+    public boolean isConcurrentAccessSupported()
+    {
+        return src.isConcurrentAccessSupported();
+    }
+
+    @Override
+    public Iterator<PlexusIoResource> iterator()
+    {
+        try
+        {
+            return getResources();
+        }
+        catch ( final IOException e )
+        {
+            throw new RuntimeException( e );
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.zip.AbstractZipArchiver;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.util.IOUtil;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which entries of a zip archive are stored instead of deflated: those whose extension marks contents which
+ * are compressed already, and optionally those whose first kilobyte looks random. Deflating such contents costs CPU
+ * for almost no gain. Nested zips are left to <code>recompressAddedZips</code>. The compression configured for the
+ * set which added an entry takes precedence over both.
+ *
+ * @since 3.1.1
+ */
+public final class StoredEntryPolicy
+{
+
+    /**
+     * The number of bytes of an entry the entropy probe reads.
+     */
+    static final int PROBE_SIZE = 1024;
+
+    /**
+     * The entropy, in bits per byte, from which the probe takes contents for compressed. Random bytes reach about 7.8
+     * over a kilobyte, text and class files stay below 6.
+     */
+    static final double ENTROPY_THRESHOLD = 7.5;
+
+    private final Set<String> extensions = new HashSet<String>();
+
+    private final boolean probeEntropy;
+
+    /**
+     * The compression of the entries whose set configures one other than the extension would give, by path in the
+     * archive.
+     */
+    private final Map<String, EntryCompression> configured = new HashMap<String, EntryCompression>();
+
+    private int storedByConfiguration;
+
+    private int storedByExtension;
+
+    private int storedByEntropy;
+
+    private long storedBytes;
+
+    private int probes;
+
+    private long probeNanos;
+
+    /**
+     * @param extensions the extensions of the entries which are always stored, without the dot; case is ignored.
+     * @param probeEntropy whether to store the other entries whose first kilobyte has a high entropy.
+     */
+    public StoredEntryPolicy( @Nullable Collection<String> extensions, boolean probeEntropy )
+    {
+        if ( extensions != null )
+        {
+            for ( final String extension : extensions )
+            {
+                final String trimmed = extension.trim();
+                this.extensions.add( ( trimmed.startsWith( "." ) ? trimmed.substring( 1 ) : trimmed ).toLowerCase(
+                    Locale.ENGLISH ) );
+            }
+        }
+        this.probeEntropy = probeEntropy;
+    }
+
+    /**
+     * Sets the compression of an entry, which takes precedence over its extension and its entropy.
+     *
+     * @param path the path of the entry in the archive.
+     * @param compression the compression configured for the set which added it.
+     */
+    synchronized void configure( @Nonnull String path, @Nonnull EntryCompression compression )
+    {
+        final boolean storedByExtension = extensions.contains( extension( path ) );
+        if ( compression == EntryCompression.stored ? storedByExtension : !storedByExtension && !probeEntropy )
+        {
+            // the default gives the same, so only a setting left by an earlier set is dropped
+            if ( !configured.isEmpty() )
+            {
+                configured.remove( path );
+            }
+            return;
+        }
+        configured.put( path, compression );
+    }
+
+    /**
+     * @return The number of paths whose configured compression overrides the default.
+     */
+    synchronized int configuredPaths()
+    {
+        return configured.size();
+    }
+
+    /**
+     * Turns off the compression of a zip archiver for an entry which a policy stores. The compression method of the
+     * entry is taken from the flag of the archiver while the entry is created, so the caller writes the entry next and
+     * then restores the flag.
+     *
+     * @param policy the policy, or <code>null</code> to leave the compression alone.
+     * @param archiver the archiver.
+     * @param entry the entry about to be written.
+     * @param vPath the path of the entry in the archive.
+     * @return The compression flag to restore with {@link AbstractZipArchiver#setCompress(boolean)}.
+     * @throws IOException if the entry cannot be probed.
+     */
+    static boolean applyTo( @Nullable StoredEntryPolicy policy, @Nonnull AbstractZipArchiver archiver,
+                            @Nonnull ArchiveEntry entry, @Nonnull String vPath )
+        throws IOException
+    {
+        final boolean compress = archiver.isCompress();
+        if ( policy != null && compress && policy.isStored( entry, vPath ) )
+        {
+            archiver.setCompress( false );
+        }
+        return compress;
+    }
+
+    /**
+     * @param entry the entry.
+     * @param vPath the path of the entry in the archive.
+     * @return <code>true</code> if the entry is to be stored.
+     * @throws IOException if the entry cannot be probed.
+     */
+    boolean isStored( @Nonnull ArchiveEntry entry, @Nonnull String vPath )
+        throws IOException
+    {
+        if ( entry.getType() != ArchiveEntry.FILE )
+        {
+            return false;
+        }
+
+        final long size = entry.getResource().getSize();
+        final EntryCompression compression;
+        synchronized ( this )
+        {
+            compression = configured.isEmpty() ? null : configured.get( vPath );
+        }
+        if ( compression != null )
+        {
+            if ( compression == EntryCompression.stored )
+            {
+                storedByConfiguration++;
+                storedBytes += Math.max( size, 0 );
+                return true;
+            }
+            return false;
+        }
+
+        if ( extensions.contains( extension( vPath ) ) )
+        {
+            storedByExtension++;
+            storedBytes += Math.max( size, 0 );
+            return true;
+        }
+
+        if ( probeEntropy && size >= PROBE_SIZE )
+        {
+            final long start = System.nanoTime();
+            final boolean random = entropy( entry ) >= ENTROPY_THRESHOLD;
+            probeNanos += System.nanoTime() - start;
+            probes++;
+            if ( random )
+            {
+                storedByEntropy++;
+                storedBytes += size;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String extension( String vPath )
+    {
+        final int slash = vPath.lastIndexOf( '/' );
+        final int dot = vPath.lastIndexOf( '.' );
+        return dot > slash + 1 ? vPath.substring( dot + 1 ).toLowerCase( Locale.ENGLISH ) : "";
+    }
+
+    private static double entropy( ArchiveEntry entry )
+        throws IOException
+    {
+        final byte[] sample = new byte[PROBE_SIZE];
+        int length = 0;
+        InputStream in = null;
+        try
+        {
+            in = entry.getInputStream();
+            int read;
+            while ( length < sample.length && ( read = in.read( sample, length, sample.length - length ) ) >= 0 )
+            {
+                length += read;
+            }
+            in.close();
+            in = null;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return entropy( sample, length );
+    }
+
+    /**
+     * @return The Shannon entropy of the bytes, in bits per byte.
+     */
+    static double entropy( byte[] bytes, int length )
+    {
+        if ( length == 0 )
+        {
+            return 0;
+        }
+        final int[] counts = new int[256];
+        for ( int i = 0; i < length; i++ )
+        {
+            counts[bytes[i] & 0xff]++;
+        }
+        double entropy = 0;
+        for ( final int count : counts )
+        {
+            if ( count > 0 )
+            {
+                final double p = (double) count / length;
+                entropy -= p * Math.log( p );
+            }
+        }
+        return entropy / Math.log( 2 );
+    }
+
+    public int getStoredByConfiguration()
+    {
+        return storedByConfiguration;
+    }
+
+    public int getStoredByExtension()
+    {
+        return storedByExtension;
+    }
+
+    public int getStoredByEntropy()
+    {
+        return storedByEntropy;
+    }
+
+    /**
+     * @return The size of the entries stored instead of deflated, which the deflater did not have to go through.
+     */
+    public long getStoredBytes()
+    {
+        return storedBytes;
+    }
+
+    /**
+     * @return The time spent probing entries, in nanoseconds.
+     */
+    public long getProbeNanos()
+    {
+        return probeNanos;
+    }
+
+    /**
+     * Logs the entries stored instead of deflated, if any.
+     *
+     * @param logger the logger, at INFO level.
+     * @param archiveType the format of the archive.
+     */
+    void log( @Nullable Logger logger, @Nonnull String archiveType )
+    {
+        if ( logger == null || ( storedByConfiguration == 0 && storedByExtension == 0 && probes == 0 ) )
+        {
+            return;
+        }
+        logger.info( archiveType + ": stored " + ( storedByConfiguration + storedByExtension + storedByEntropy )
+                         + " entries (" + storedBytes + " bytes) without deflating them, " + storedByConfiguration
+                         + " by their set, " + storedByExtension + " by extension and " + storedByEntropy + " of "
+                         + probes + " probed by entropy; probing took " + probeNanos / 1000000 + " ms." );
+    }
+
+    /**
+     * Resets the statistics, before an archive is written.
+     */
+    void reset()
+    {
+        storedByConfiguration = 0;
+        storedByExtension = 0;
+        storedByEntropy = 0;
+        storedBytes = 0;
+        probes = 0;
+        probeNanos = 0;
+    }
+}
@@ -0,0 +1,92 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.zip.ConcurrentJarCreator;
+import org.codehaus.plexus.archiver.zip.ZipArchiver;
+import org.codehaus.plexus.component.annotations.Component;
+
+import java.io.IOException;
+
+/**
+ * A zip archiver which stores the entries selected by a {@link StoredEntryPolicy} instead of deflating them.
+ *
+ * @since 3.1.1
+ */
+@Component( role = Archiver.class, hint = StoringZipArchiver.HINT, instantiationStrategy = "per-lookup" )
+public class StoringZipArchiver
+    extends ZipArchiver
+{
+
+    /**
+     * The role hint of this archiver.
+     */
+    public static final String HINT = "storing-zip";
+
+    private StoredEntryPolicy storedEntryPolicy;
+
+    private EntryDigests entryDigests;
+
+    public void setStoredEntryPolicy( final StoredEntryPolicy storedEntryPolicy )
+    {
+        this.storedEntryPolicy = storedEntryPolicy;
+    }
+
+    /**
+     * @param entryDigests the checksums to record the file entries in as they are written, or <code>null</code>.
+     */
+    public void setEntryDigests( final EntryDigests entryDigests )
+    {
+        this.entryDigests = entryDigests;
+    }
+
+    @Override
+    protected void execute()
+        throws ArchiverException, IOException
+    {
+        if ( storedEntryPolicy == null )
+        {
+            super.execute();
+            return;
+        }
+
+        storedEntryPolicy.reset();
+        super.execute();
+        storedEntryPolicy.log( getLogger(), getArchiveType() );
+    }
+
+    @Override
+    protected void zipFile( final ArchiveEntry entry, final ConcurrentJarCreator zOut, final String vPath )
+        throws IOException, ArchiverException
+    {
+        final boolean compress = StoredEntryPolicy.applyTo( storedEntryPolicy, this, entry, vPath );
+        try
+        {
+            super.zipFile( entryDigests != null ? entryDigests.digesting( entry, vPath ) : entry, zOut, vPath );
+        }
+        finally
+        {
+            setCompress( compress );
+        }
+    }
+}
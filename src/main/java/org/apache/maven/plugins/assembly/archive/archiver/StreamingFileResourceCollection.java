@@ -0,0 +1,210 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.DirectoryScanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A file resource collection which walks its base directory as the archiver asks for entries, instead of scanning the
+ * whole tree first. Only the listings of the directories being walked are held in memory, so a file-set of millions
+ * of files takes no more memory than a small one.
+ * <p>
+ * Files and directories are included and excluded as by a {@link DirectoryScanner}, but they come in the order of the
+ * walk: each directory is followed by its contents, where the scanner lists all the directories before the files.
+ * </p>
+ *
+ * @since 3.1.1
+ */
+class StreamingFileResourceCollection
+    extends LazyFileResourceCollection
+{
+
+    @Override
+    Iterator<String> getIncludedNames()
+    {
+        final WalkingScanner scanner = new WalkingScanner( getBaseDir(), isIncludingEmptyDirectories() );
+
+        final String[] includes = getIncludes();
+        if ( includes != null && includes.length > 0 )
+        {
+            scanner.setIncludes( includes );
+        }
+
+        final String[] excludes = getExcludes();
+        if ( excludes != null && excludes.length > 0 )
+        {
+            scanner.setExcludes( excludes );
+        }
+
+        if ( isUsingDefaultExcludes() )
+        {
+            scanner.addDefaultExcludes();
+        }
+
+        scanner.setCaseSensitive( isCaseSensitive() );
+        scanner.setFollowSymlinks( isFollowingSymLinks() );
+        scanner.start();
+        return scanner;
+    }
+
+    /**
+     * Matches the files of a directory tree against the include and exclude patterns one at a time, descending into
+     * a directory when it is included or could hold included files, as {@link DirectoryScanner#scan()} does.
+     */
+    private static final class WalkingScanner
+        extends DirectoryScanner
+        implements Iterator<String>
+    {
+
+        private final boolean includingDirectories;
+
+        private final Deque<Listing> listings = new ArrayDeque<Listing>();
+
+        private boolean following;
+
+        private String next;
+
+        WalkingScanner( final File basedir, final boolean includingDirectories )
+        {
+            setBasedir( basedir );
+            this.includingDirectories = includingDirectories;
+        }
+
+        @Override
+        public void setFollowSymlinks( final boolean followSymlinks )
+        {
+            super.setFollowSymlinks( followSymlinks );
+            this.following = followSymlinks;
+        }
+
+        void start()
+        {
+            setupDefaultFilters();
+            setupMatchPatterns();
+
+            listings.push( new Listing( basedir, "" ) );
+            if ( includingDirectories && isIncluded( "" ) && !isExcluded( "" ) )
+            {
+                next = "";
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            while ( next == null && !listings.isEmpty() )
+            {
+                final Listing listing = listings.peek();
+                if ( listing.index == listing.names.length )
+                {
+                    listings.pop();
+                    continue;
+                }
+
+                final String child = listing.names[listing.index++];
+                if ( !following && isLink( listing.dir, child ) )
+                {
+                    continue;
+                }
+
+                final String name = listing.path + child;
+                final File file = new File( listing.dir, child );
+                final boolean included = isIncluded( name ) && !isExcluded( name );
+                if ( file.isDirectory() )
+                {
+                    if ( included || couldHoldIncluded( name ) )
+                    {
+                        listings.push( new Listing( file, name + File.separator ) );
+                    }
+                    if ( included && includingDirectories )
+                    {
+                        next = name;
+                    }
+                }
+                else if ( included )
+                {
+                    next = name;
+                }
+            }
+            return next != null;
+        }
+
+        private boolean isLink( final File dir, final String child )
+        {
+            try
+            {
+                return isParentSymbolicLink( dir, child );
+            }
+            catch ( final IOException e )
+            {
+                // as the scanner does, walk on as if it were no link
+                return false;
+            }
+        }
+
+        @Override
+        public String next()
+        {
+            if ( !hasNext() )
+            {
+                throw new NoSuchElementException();
+            }
+            final String name = next;
+            next = null;
+            return name;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * The names in a directory, and how far the walk has got through them.
+     */
+    private static final class Listing
+    {
+
+        private final File dir;
+
+        private final String path;
+
+        private final String[] names;
+
+        private int index;
+
+        Listing( final File dir, final String path )
+        {
+            this.dir = dir;
+            this.path = path;
+            final String[] list = dir.list();
+            this.names = list != null ? list : new String[0];
+        }
+    }
+}
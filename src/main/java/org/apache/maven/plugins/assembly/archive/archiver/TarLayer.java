@@ -0,0 +1,55 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * The layers of a layered tar output, from the most stable to the least. Each entry of the archive is also written to
+ * the tar of its layer, so that a container image built from these tars only rebuilds the layers whose entries
+ * changed.
+ *
+ * @since 3.1.1
+ */
+public enum TarLayer
+{
+    /**
+     * The released third-party artifacts of dependency-sets and repositories.
+     */
+    dependencies,
+
+    /**
+     * The snapshot artifacts of dependency-sets, which change more often than released ones.
+     */
+    snapshots,
+
+    /**
+     * The artifacts and sources of module-sets.
+     */
+    modules,
+
+    /**
+     * The files of file-sets and single files.
+     */
+    files,
+
+    /**
+     * The entries which were not added by a set, such as the files generated by container descriptor handlers.
+     */
+    generated
+}
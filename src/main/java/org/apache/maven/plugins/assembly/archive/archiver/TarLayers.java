@@ -0,0 +1,75 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugins.assembly.utils.HashedPathIndex;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * The {@link TarLayer} of each path of a layered tar archive, assigned by {@link AssemblyProxyArchiver} while the
+ * sets are added and looked up by {@link LayeredTarArchiver} while the archive is written. A path keeps the layer it
+ * was first assigned; paths never assigned are {@link TarLayer#generated}.
+ *
+ * @since 3.1.1
+ */
+public final class TarLayers
+{
+
+    private static final TarLayer[] LAYERS = TarLayer.values();
+
+    private final HashedPathIndex paths = new HashedPathIndex();
+
+    /**
+     * The ordinal of the layer of each path, by id in {@link #paths}.
+     */
+    private byte[] layers = new byte[16];
+
+    /**
+     * Assigns a path to a layer, unless it already has one.
+     *
+     * @param path the path of the entry in the archive.
+     * @param layer the layer.
+     */
+    synchronized void assign( @Nonnull String path, @Nonnull TarLayer layer )
+    {
+        final int id = paths.add( path.replace( '\\', '/' ) );
+        if ( id < 0 )
+        {
+            return;
+        }
+        if ( id == layers.length )
+        {
+            layers = Arrays.copyOf( layers, layers.length * 2 );
+        }
+        layers[id] = (byte) layer.ordinal();
+    }
+
+    /**
+     * @param path the path of the entry in the archive.
+     * @return The layer of the path.
+     */
+    synchronized TarLayer layerOf( @Nonnull String path )
+    {
+        final int id = paths.indexOf( path.replace( '\\', '/' ) );
+        return id < 0 ? TarLayer.generated : LAYERS[layers[id]];
+    }
+}
@@ -0,0 +1,130 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugins.assembly.utils.HashedPathIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The paths of the entries of an archive, kept as hashes in a {@link HashedPathIndex} so that the index stays small
+ * for archives of millions of entries. For each path it records which additions (numbered in the order they were
+ * made) map an entry onto it.
+ *
+ * @since 3.1.1
+ */
+final class TargetPathIndex
+{
+
+    /**
+     * The number of duplicated paths kept as strings, to name them in messages.
+     */
+    static final int LISTED_DUPLICATES = 100;
+
+    private final HashedPathIndex index = new HashedPathIndex();
+
+    private int[] first = new int[16];
+
+    private int[] last = new int[16];
+
+    private int[] count = new int[16];
+
+    private final List<String> duplicates = new ArrayList<String>();
+
+    private int shadowed;
+
+    /**
+     * Records that an addition maps an entry onto a path.
+     *
+     * @param path the path in the archive.
+     * @param addition the number of the addition.
+     */
+    void record( String path, int addition )
+    {
+        final int added = index.add( path );
+        if ( added >= 0 )
+        {
+            if ( added == first.length )
+            {
+                first = Arrays.copyOf( first, added * 2 );
+                last = Arrays.copyOf( last, added * 2 );
+                count = Arrays.copyOf( count, added * 2 );
+            }
+            first[added] = addition;
+            last[added] = addition;
+            count[added] = 1;
+            return;
+        }
+
+        // the additions are not recorded in their order: single entries are recorded when they are added, the
+        // entries of file-sets only when the sets are listed
+        final int id = -1 - added;
+        first[id] = Math.min( first[id], addition );
+        last[id] = Math.max( last[id], addition );
+        if ( count[id]++ == 1 && duplicates.size() < LISTED_DUPLICATES )
+        {
+            duplicates.add( path );
+        }
+        shadowed++;
+    }
+
+    /**
+     * @param path the path in the archive.
+     * @param addition the number of the addition.
+     * @param policy the policy for duplicates.
+     * @return <code>true</code> if the entry of this addition is the one kept for this path.
+     */
+    boolean isKept( String path, int addition, DuplicatePolicy policy )
+    {
+        final int id = index.indexOf( path );
+        if ( id < 0 || count[id] < 2 )
+        {
+            return true;
+        }
+        return policy == DuplicatePolicy.last ? addition == last[id] : addition == first[id];
+    }
+
+    /**
+     * @return The number of distinct paths.
+     */
+    int getPaths()
+    {
+        return index.size();
+    }
+
+    /**
+     * @return The number of entries shadowed by another entry with the same path.
+     */
+    int getShadowed()
+    {
+        return shadowed;
+    }
+
+    /**
+     * @param max the maximum number of paths to return, up to {@link #LISTED_DUPLICATES}.
+     * @return Paths recorded more than once, in the order they were first duplicated.
+     */
+    List<String> getDuplicates( int max )
+    {
+        return new ArrayList<String>( duplicates.subList( 0, Math.min( max, duplicates.size() ) ) );
+    }
+}
@@ -23,6 +23,8 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugins.assembly.AssemblerConfigurationSource;
 import org.apache.maven.plugins.assembly.InvalidAssemblerConfigurationException;
 import org.apache.maven.plugins.assembly.archive.ArchiveCreationException;
+import org.apache.maven.plugins.assembly.archive.archiver.AssemblyProxyArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.TarLayer;
 import org.apache.maven.plugins.assembly.archive.task.AddArtifactTask;
 import org.apache.maven.plugins.assembly.archive.task.AddDependencySetsTask;
 import org.apache.maven.plugins.assembly.archive.task.AddFileSetsTask;
@@ -125,6 +127,7 @@ public class ModuleSetAssemblyPhase
             //impliedDependencySet.setOutputFileNameMapping( binaries.getOutputFileNameMapping() );
             impliedDependencySet.setFileMode( binaries.getFileMode() );
             impliedDependencySet.setDirectoryMode( binaries.getDirectoryMode() );
+            impliedDependencySet.setCompression( binaries.getCompression() );
             impliedDependencySet.setExcludes( binaries.getExcludes() );
             impliedDependencySet.setIncludes( binaries.getIncludes() );
             impliedDependencySet.setUnpack( binaries.isUnpack() );
@@ -338,7 +341,16 @@ public class ModuleSetAssemblyPhase
                     task.setDefaultOutputDirectory( binaries.getOutputDirectory() );
                     task.setDefaultOutputFileNameMapping( binaries.getOutputFileNameMapping() );
 
-                    task.execute( archiver, configSource );
+                    // the dependencies of the modules change as seldom as those of the project
+                    final TarLayer oldLayer = AssemblyProxyArchiver.applyTarLayer( archiver, TarLayer.dependencies );
+                    try
+                    {
+                        task.execute( archiver, configSource );
+                    }
+                    finally
+                    {
+                        AssemblyProxyArchiver.restoreTarLayer( archiver, oldLayer );
+                    }
 
                 }
             }
@@ -396,6 +408,7 @@ public class ModuleSetAssemblyPhase
             task.setFileMode( fileMode );
         }
 
+        task.setCompression( TypeConversionUtils.toEntryCompression( binaries.getCompression() ) );
         task.setUnpack( binaries.isUnpack() );
 
         if ( binaries.isUnpack() && binaries.getUnpackOptions() != null )
@@ -534,8 +547,10 @@ public class ModuleSetAssemblyPhase
         fs.setExcludes( excludes );
         fs.setFiltered( fileSet.isFiltered() );
         fs.setFileMode( fileSet.getFileMode() );
+        fs.setCompression( fileSet.getCompression() );
         fs.setIncludes( fileSet.getIncludes() );
         fs.setLineEnding( fileSet.getLineEnding() );
+        fs.setUseGitIndex( fileSet.isUseGitIndex() || sources.isUseGitIndex() );
 
         FixedStringSearchInterpolator moduleProjectInterpolator =
             AssemblyFormatUtils.moduleProjectInterpolator( moduleProject );
@@ -22,15 +22,17 @@ package org.apache.maven.plugins.assembly.archive.phase;
 import org.apache.maven.plugins.assembly.AssemblerConfigurationSource;
 import org.apache.maven.plugins.assembly.InvalidAssemblerConfigurationException;
 import org.apache.maven.plugins.assembly.archive.ArchiveCreationException;
+import org.apache.maven.plugins.assembly.archive.archiver.AssemblyProxyArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.EntryCompression;
 import org.apache.maven.plugins.assembly.archive.phase.wrappers.RepoBuilderConfigSourceWrapper;
 import org.apache.maven.plugins.assembly.archive.phase.wrappers.RepoInfoWrapper;
-import org.apache.maven.plugins.assembly.archive.task.AddDirectoryTask;
 import org.apache.maven.plugins.assembly.format.AssemblyFormattingException;
 import org.apache.maven.plugins.assembly.model.Assembly;
 import org.apache.maven.plugins.assembly.model.Repository;
 import org.apache.maven.plugins.assembly.repository.RepositoryAssembler;
 import org.apache.maven.plugins.assembly.repository.RepositoryAssemblyException;
 import org.apache.maven.plugins.assembly.repository.RepositoryBuilderConfigSource;
+import org.apache.maven.plugins.assembly.repository.ResolvedRepository;
 import org.apache.maven.plugins.assembly.repository.model.RepositoryInfo;
 import org.apache.maven.plugins.assembly.utils.AssemblyFormatUtils;
 import org.apache.maven.plugins.assembly.utils.TypeConversionUtils;
@@ -39,8 +41,13 @@ import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
 
-import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * @version $Id: RepositoryAssemblyPhase.java 1722459 2015-12-31 19:47:48Z rfscholte $
@@ -69,59 +76,148 @@ public class RepositoryAssemblyPhase
      * {@inheritDoc}
      */
     @Override
-    @SuppressWarnings( "ResultOfMethodCallIgnored" )
     public void execute( final Assembly assembly, final Archiver archiver,
                          final AssemblerConfigurationSource configSource )
         throws ArchiveCreationException, AssemblyFormattingException, InvalidAssemblerConfigurationException
     {
         final List<Repository> repositoriesList = assembly.getRepositories();
 
-        final File tempRoot = configSource.getTemporaryRootDirectory();
+        if ( repositoriesList.isEmpty() )
+        {
+            return;
+        }
+
+        final List<ResolvedRepository> resolvedRepositories = resolveRepositories( repositoriesList, configSource );
 
-        for ( final Repository repository : repositoriesList )
+        for ( int i = 0; i < repositoriesList.size(); i++ )
         {
+            final Repository repository = repositoriesList.get( i );
+
             final String outputDirectory =
                 AssemblyFormatUtils.getOutputDirectory( repository.getOutputDirectory(), configSource.getFinalName(),
                                                         configSource, AssemblyFormatUtils.moduleProjectInterpolator(
                         configSource.getProject() ), AssemblyFormatUtils.artifactProjectInterpolator( null ) );
 
-            final File repositoryDirectory = new File( tempRoot, outputDirectory );
+            final int oldDirMode = archiver.getOverrideDirectoryMode();
+            final int oldFileMode = archiver.getOverrideFileMode();
 
-            if ( !repositoryDirectory.exists() )
-            {
-                repositoryDirectory.mkdirs();
-            }
+            boolean dirModeSet = false;
+            boolean fileModeSet = false;
 
+            final EntryCompression oldCompression = AssemblyProxyArchiver.applyEntryCompression(
+                archiver, TypeConversionUtils.toEntryCompression( repository.getCompression() ) );
             try
             {
-                getLogger().debug( "Assembling repository to: " + repositoryDirectory );
-                repositoryAssembler.buildRemoteRepository( repositoryDirectory, wrap( repository ),
-                                                           wrap( configSource ) );
-                getLogger().debug( "Finished assembling repository to: " + repositoryDirectory );
+                final int dirMode = TypeConversionUtils.modeToInt( repository.getDirectoryMode(), getLogger() );
+                if ( dirMode != -1 )
+                {
+                    archiver.setDirectoryMode( dirMode );
+                    dirModeSet = true;
+                }
+
+                final int fileMode = TypeConversionUtils.modeToInt( repository.getFileMode(), getLogger() );
+                if ( fileMode != -1 )
+                {
+                    archiver.setFileMode( fileMode );
+                    fileModeSet = true;
+                }
+
+                getLogger().debug( "Assembling repository to: " + outputDirectory );
+                repositoryAssembler.buildRemoteRepository( archiver, outputDirectory, resolvedRepositories.get( i ) );
+                getLogger().debug( "Finished assembling repository to: " + outputDirectory );
             }
             catch ( final RepositoryAssemblyException e )
             {
                 throw new ArchiveCreationException( "Failed to assemble repository: " + e.getMessage(), e );
             }
+            finally
+            {
+                if ( dirModeSet )
+                {
+                    archiver.setDirectoryMode( oldDirMode );
+                }
 
-            final AddDirectoryTask task = new AddDirectoryTask( repositoryDirectory );
+                if ( fileModeSet )
+                {
+                    archiver.setFileMode( oldFileMode );
+                }
 
-            final int dirMode = TypeConversionUtils.modeToInt( repository.getDirectoryMode(), getLogger() );
-            if ( dirMode != -1 )
-            {
-                task.setDirectoryMode( dirMode );
+                AssemblyProxyArchiver.restoreEntryCompression( archiver, oldCompression );
             }
+        }
+    }
 
-            final int fileMode = TypeConversionUtils.modeToInt( repository.getFileMode(), getLogger() );
-            if ( fileMode != -1 )
+    /**
+     * Resolves the repositories, concurrently when there are several of them. The results are returned in the order
+     * of the descriptor, so the archive contents do not depend on which resolution finishes first.
+     */
+    private List<ResolvedRepository> resolveRepositories( final List<Repository> repositories,
+                                                          final AssemblerConfigurationSource configSource )
+        throws ArchiveCreationException
+    {
+        final List<ResolvedRepository> result = new ArrayList<ResolvedRepository>( repositories.size() );
+
+        if ( repositories.size() == 1 )
+        {
+            try
             {
-                task.setFileMode( fileMode );
+                result.add( repositoryAssembler.resolveRepository( wrap( repositories.get( 0 ) ),
+                                                                   wrap( configSource ) ) );
             }
+            catch ( final RepositoryAssemblyException e )
+            {
+                throw new ArchiveCreationException( "Failed to assemble repository: " + e.getMessage(), e );
+            }
+            return result;
+        }
 
-            task.setOutputDirectory( outputDirectory );
+        final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min( repositories.size(), Runtime.getRuntime().availableProcessors() ) );
+        try
+        {
+            final List<Future<ResolvedRepository>> futures = new ArrayList<Future<ResolvedRepository>>();
+            for ( final Repository repository : repositories )
+            {
+                futures.add( executor.submit( new Callable<ResolvedRepository>()
+                {
+                    @Override
+                    public ResolvedRepository call()
+                        throws RepositoryAssemblyException
+                    {
+                        return repositoryAssembler.resolveRepository( wrap( repository ), wrap( configSource ) );
+                    }
+                } ) );
+            }
 
-            task.execute( archiver );
+            for ( final Future<ResolvedRepository> future : futures )
+            {
+                result.add( future.get() );
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ArchiveCreationException( "Interrupted while resolving repositories.", e );
         }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            else if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new ArchiveCreationException( "Failed to assemble repository: " + cause.getMessage(), cause );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return result;
     }
 
     private RepositoryBuilderConfigSource wrap( final AssemblerConfigurationSource configSource )
@@ -22,6 +22,9 @@ package org.apache.maven.plugins.assembly.archive.task;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugins.assembly.AssemblerConfigurationSource;
 import org.apache.maven.plugins.assembly.archive.ArchiveCreationException;
+import org.apache.maven.plugins.assembly.archive.archiver.AssemblyProxyArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.EntryCompression;
+import org.apache.maven.plugins.assembly.archive.archiver.TarLayer;
 import org.apache.maven.plugins.assembly.format.AssemblyFormattingException;
 import org.apache.maven.plugins.assembly.utils.AssemblyFormatUtils;
 import org.apache.maven.plugins.assembly.utils.TypeConversionUtils;
@@ -60,6 +63,8 @@ public class AddArtifactTask
 
     private int fileMode = -1;
 
+    private EntryCompression compression;
+
     private boolean unpack = false;
 
     private List<String> includes;
@@ -120,6 +125,9 @@ public class AddArtifactTask
             archiver.setDirectoryMode( directoryMode );
             dirModeSet = true;
         }
+
+        final EntryCompression oldCompression = AssemblyProxyArchiver.applyEntryCompression( archiver, compression );
+        final TarLayer oldLayer = AssemblyProxyArchiver.applySnapshotLayer( archiver, artifact.isSnapshot() );
         try
         {
 
@@ -143,6 +151,9 @@ public class AddArtifactTask
             {
                 archiver.setFileMode( oldFileMode );
             }
+
+            AssemblyProxyArchiver.restoreEntryCompression( archiver, oldCompression );
+            AssemblyProxyArchiver.restoreTarLayer( archiver, oldLayer );
         }
 
     }
@@ -278,6 +289,15 @@ public class AddArtifactTask
         this.fileMode = fileMode;
     }
 
+    /**
+     * @param compression the compression of the added entries, or <code>null</code> to leave it to the archiver.
+     * @since 3.1.1
+     */
+    public void setCompression( final EntryCompression compression )
+    {
+        this.compression = compression;
+    }
+
     public void setExcludes( final List<String> excludes )
     {
         this.excludes = excludes;
@@ -34,8 +34,12 @@ import org.apache.maven.model.Model;
 import org.apache.maven.plugins.assembly.AssemblerConfigurationSource;
 import org.apache.maven.plugins.assembly.InvalidAssemblerConfigurationException;
 import org.apache.maven.plugins.assembly.archive.ArchiveCreationException;
+import org.apache.maven.plugins.assembly.archive.archiver.AssemblyProxyArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.EntryCompression;
 import org.apache.maven.plugins.assembly.format.AssemblyFormattingException;
 import org.apache.maven.plugins.assembly.format.ReaderFormatter;
+import org.apache.maven.plugins.assembly.metrics.AssemblyMetrics;
+import org.apache.maven.plugins.assembly.metrics.AssemblyTrace;
 import org.apache.maven.plugins.assembly.model.DependencySet;
 import org.apache.maven.plugins.assembly.model.UnpackOptions;
 import org.apache.maven.plugins.assembly.utils.AssemblyFormatUtils;
@@ -154,8 +158,18 @@ public class AddDependencySetsTask
             MavenProject depProject;
             try
             {
-                ProjectBuildingResult build = projectBuilder1.build( depArtifact, pbr );
-                depProject = build.getProject();
+                AssemblyMetrics.current().projectBuild();
+                final AssemblyTrace.Span span =
+                    AssemblyTrace.current().begin( "project", "buildProject", "artifact", depArtifact );
+                try
+                {
+                    ProjectBuildingResult build = projectBuilder1.build( depArtifact, pbr );
+                    depProject = build.getProject();
+                }
+                finally
+                {
+                    span.end();
+                }
             }
             catch ( final ProjectBuildingException e )
             {
@@ -251,6 +265,7 @@ public class AddDependencySetsTask
             task.setFileMode( fileMode );
         }
 
+        task.setCompression( TypeConversionUtils.toEntryCompression( dependencySet.getCompression() ) );
         task.setUnpack( dependencySet.isUnpack() );
 
         final UnpackOptions opts = dependencySet.getUnpackOptions();
@@ -378,6 +393,8 @@ public class AddDependencySetsTask
             target = outputDirectory + "/" + destName;
         }
 
+        final EntryCompression oldCompression = AssemblyProxyArchiver.applyEntryCompression(
+            archiver, TypeConversionUtils.toEntryCompression( dependencySet.getCompression() ) );
         try
         {
             final int mode = TypeConversionUtils.modeToInt( dependencySet.getFileMode(), logger );
@@ -394,6 +411,10 @@ public class AddDependencySetsTask
         {
             throw new ArchiveCreationException( "Error adding file to archive: " + e.getMessage(), e );
         }
+        finally
+        {
+            AssemblyProxyArchiver.restoreEntryCompression( archiver, oldCompression );
+        }
     }
 
     public List<DependencySet> getDependencySets()
@@ -20,13 +20,18 @@ package org.apache.maven.plugins.assembly.archive.task;
  */
 
 import org.apache.maven.plugins.assembly.archive.ArchiveCreationException;
+import org.apache.maven.plugins.assembly.archive.archiver.AssemblyProxyArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.EntryCompression;
+import org.apache.maven.plugins.assembly.archive.archiver.GitIndexFileSet;
 import org.apache.maven.plugins.assembly.utils.AssemblyFormatUtils;
+import org.apache.maven.plugins.assembly.utils.GitIndex;
 import org.codehaus.plexus.archiver.Archiver;
 import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.util.DefaultFileSet;
 import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -52,6 +57,10 @@ public class AddDirectoryTask
 
     private int fileMode = -1;
 
+    private EntryCompression compression;
+
+    private boolean useGitIndex;
+
     public AddDirectoryTask( final File directory, InputStreamTransformer transformers )
     {
         this.directory = directory;
@@ -84,6 +93,7 @@ public class AddDirectoryTask
         boolean fileModeSet = false;
         boolean dirModeSet = false;
 
+        final EntryCompression oldCompression = AssemblyProxyArchiver.applyEntryCompression( archiver, compression );
         try
         {
             if ( directoryMode != -1 )
@@ -133,7 +143,9 @@ public class AddDirectoryTask
                         excludesArray[i++] = normalize( directoryExclude );
                     }
 
-                    final DefaultFileSet fs = new DefaultFileSet();
+                    final GitIndex gitIndex = useGitIndex ? GitIndex.forDirectory( directory ) : null;
+
+                    final DefaultFileSet fs = gitIndex != null ? new GitIndexFileSet( gitIndex ) : new DefaultFileSet();
                     fs.setUsingDefaultExcludes( useDefaultExcludes );
                     fs.setPrefix( outputDirectory );
                     fs.setDirectory( directory );
@@ -150,6 +162,10 @@ public class AddDirectoryTask
                 {
                     throw new ArchiveCreationException( "Error adding directory to archive: " + e.getMessage(), e );
                 }
+                catch ( final IOException e )
+                {
+                    throw new ArchiveCreationException( "Error reading git index for: " + directory, e );
+                }
             }
         }
         finally
@@ -163,6 +179,8 @@ public class AddDirectoryTask
             {
                 archiver.setFileMode( oldFileMode );
             }
+
+            AssemblyProxyArchiver.restoreEntryCompression( archiver, oldCompression );
         }
     }
 
@@ -202,9 +220,22 @@ public class AddDirectoryTask
         this.fileMode = fileMode;
     }
 
+    /**
+     * @param compression the compression of the added entries, or <code>null</code> to leave it to the archiver.
+     * @since 3.1.1
+     */
+    public void setCompression( final EntryCompression compression )
+    {
+        this.compression = compression;
+    }
+
     public void setUseDefaultExcludes( final boolean useDefaultExcludes )
     {
         this.useDefaultExcludes = useDefaultExcludes;
     }
 
+    public void setUseGitIndex( final boolean useGitIndex )
+    {
+        this.useGitIndex = useGitIndex;
+    }
 }
@@ -161,7 +161,9 @@ public class AddFileSetsTask
                 task.setFileMode( fileMode );
             }
 
+            task.setCompression( TypeConversionUtils.toEntryCompression( fileSet.getCompression() ) );
             task.setUseDefaultExcludes( fileSet.isUseDefaultExcludes() );
+            task.setUseGitIndex( fileSet.isUseGitIndex() );
             task.setExcludes( fileSet.getExcludes() );
             task.setIncludes( fileSet.getIncludes() );
             task.setOutputDirectory( destDirectory );
@@ -19,7 +19,10 @@ package org.apache.maven.plugins.assembly.artifact;
  * under the License.
  */
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -27,6 +30,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
@@ -34,9 +38,12 @@ import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
 import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.MultipleArtifactsNotFoundException;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugins.assembly.AssemblerConfigurationSource;
 import org.apache.maven.plugins.assembly.archive.ArchiveCreationException;
 import org.apache.maven.plugins.assembly.archive.phase.ModuleSetAssemblyPhase;
+import org.apache.maven.plugins.assembly.metrics.AssemblyMetrics;
+import org.apache.maven.plugins.assembly.metrics.AssemblyTrace;
 import org.apache.maven.plugins.assembly.model.Assembly;
 import org.apache.maven.plugins.assembly.model.DependencySet;
 import org.apache.maven.plugins.assembly.model.ModuleBinaries;
@@ -72,6 +79,16 @@ public class DefaultDependencyResolver
     @Requirement
     private org.apache.maven.shared.dependencies.resolve.DependencyResolver dependencyResolver;
 
+    /**
+     * Number of dependency sets served from the project's already resolved artifacts.
+     */
+    private final AtomicInteger projectArtifactResolutions = new AtomicInteger();
+
+    /**
+     * Number of dependency sets which required a full resolution of the dependency graph.
+     */
+    private final AtomicInteger fullResolutions = new AtomicInteger();
+
     @Override
     public Map<DependencySet, Set<Artifact>> resolveDependencySets( final Assembly assembly, ModuleSet moduleSet,
                                                                     final AssemblerConfigurationSource configSource,
@@ -107,22 +124,67 @@ public class DefaultDependencyResolver
         Set<Artifact> artifacts;
         if ( info.isResolutionRequired() )
         {
-            final List<ArtifactRepository> repos =
-                aggregateRemoteArtifactRepositories( configSource.getRemoteRepositories(), info.getEnabledProjects() );
+            AssemblyMetrics.current().dependencyResolution();
+            final AssemblyTrace.Span span = AssemblyTrace.current().begin( "resolution", "resolveDependencySet",
+                                                                           "outputDirectory",
+                                                                           dependencySet.getOutputDirectory() );
 
-            artifacts = info.getArtifacts();
-            if ( info.isResolvedTransitively() )
+            try
             {
-                getLogger().debug( "Resolving project dependencies transitively." );
-                
-                ArtifactFilter filter = new ArtifactIncludeFilterTransformer().transform( info.getScopeFilter() );
-                artifacts = resolveTransitively( artifacts, repos, filter, configSource );
+                final List<ArtifactRepository> repos =
+                    aggregateRemoteArtifactRepositories( configSource.getRemoteRepositories(),
+                                                         info.getEnabledProjects() );
+
+                artifacts = info.getArtifacts();
+                if ( info.isResolvedTransitively() && isCoveredByProjectResolution( info, configSource ) )
+                {
+                    ArtifactFilter filter = new ArtifactIncludeFilterTransformer().transform( info.getScopeFilter() );
+                    artifacts = filterProjectArtifacts( configSource.getProject(), filter );
+
+                    getLogger().debug( "Using the resolved artifacts of the project (project graph: "
+                                           + projectArtifactResolutions.incrementAndGet() + ", full resolution: "
+                                           + fullResolutions.get() + ")." );
+                }
+                else
+                {
+                    final DependencySetResolutionCache cache =
+                        DependencySetResolutionCache.isCacheable( info ) ? getResolutionCache( configSource ) : null;
+                    final String key = cache != null
+                        ? DependencySetResolutionCache.computeKey( info, getLocalRepositoryPath( configSource ) )
+                        : null;
+
+                    final Set<Artifact> cached = cache != null ? cache.load( key ) : null;
+                    if ( cached != null )
+                    {
+                        getLogger().debug( "Using the cached resolution " + key + " of the dependency set." );
+                        artifacts = cached;
+                    }
+                    else if ( info.isResolvedTransitively() )
+                    {
+                        getLogger().debug( "Resolving project dependencies transitively (project graph: "
+                                               + projectArtifactResolutions.get() + ", full resolution: "
+                                               + fullResolutions.incrementAndGet() + ")." );
+
+                        ArtifactFilter filter =
+                            new ArtifactIncludeFilterTransformer().transform( info.getScopeFilter() );
+                        artifacts = resolveTransitively( artifacts, repos, filter, configSource );
+                    }
+                    else
+                    {
+                        getLogger().debug( "Resolving project dependencies ONLY. "
+                                               + "Transitive dependencies WILL NOT be included in the results." );
+                        artifacts = resolveNonTransitively( assembly, artifacts, configSource, repos );
+                    }
+
+                    if ( cache != null && cached == null )
+                    {
+                        cache.store( key, artifacts );
+                    }
+                }
             }
-            else
+            finally
             {
-                getLogger().debug( "Resolving project dependencies ONLY. "
-                                       + "Transitive dependencies WILL NOT be included in the results." );
-                artifacts = resolveNonTransitively( assembly, artifacts, configSource, repos );
+                span.end();
             }
         }
         else
@@ -158,6 +220,110 @@ public class DefaultDependencyResolver
         return result;
     }
 
+    /**
+     * @return The cache of dependency-set resolutions below the build directory of the current project, or
+     *         <code>null</code> when it cannot be used: no build directory, no local repository, or the user asked to
+     *         update snapshots (<code>-U</code>), which must always reach the repositories.
+     */
+    private DependencySetResolutionCache getResolutionCache( final AssemblerConfigurationSource configSource )
+    {
+        final MavenProject project = configSource.getProject();
+        if ( project == null || project.getBuild() == null || project.getBuild().getDirectory() == null
+            || getLocalRepositoryPath( configSource ) == null )
+        {
+            return null;
+        }
+
+        final MavenSession session = configSource.getMavenSession();
+        if ( session != null && session.getRequest() != null && session.getRequest().isUpdateSnapshots() )
+        {
+            return null;
+        }
+
+        final File directory = new File( project.getBuild().getDirectory(), "assembly/resolution-cache" );
+        return new DependencySetResolutionCache( directory, resolver, getLogger() );
+    }
+
+    private static String getLocalRepositoryPath( final AssemblerConfigurationSource configSource )
+    {
+        final ArtifactRepository localRepository = configSource.getLocalRepository();
+        return localRepository != null ? localRepository.getBasedir() : null;
+    }
+
+    /**
+     * Maven resolved the dependencies of the current project for the scope declared by the mojo before executing it.
+     * When the dependency set needs nothing outside that scope, and no module-set project contributes dependencies,
+     * the project's artifacts are exactly what a transitive resolution would return.
+     */
+    boolean isCoveredByProjectResolution( final ResolutionManagementInfo info,
+                                          final AssemblerConfigurationSource configSource )
+    {
+        final MavenProject project = configSource.getProject();
+        if ( project == null || project.getArtifacts() == null )
+        {
+            return false;
+        }
+
+        final Set<MavenProject> enabledProjects = info.getEnabledProjects();
+        if ( enabledProjects.size() != 1 || !enabledProjects.contains( project ) )
+        {
+            return false;
+        }
+
+        final Collection<String> requiredScopes = info.getScopeFilter().getIncluded();
+        final Set<String> resolvedScopes = getResolvedScopes( configSource.getDependencyResolutionScope() );
+
+        return requiredScopes != null && resolvedScopes.containsAll( requiredScopes );
+    }
+
+    /**
+     * @param resolutionScope A mojo resolution scope such as <code>compile+runtime</code>.
+     * @return The artifact scopes contained in the project's artifacts after Maven resolved that scope.
+     */
+    static Set<String> getResolvedScopes( final String resolutionScope )
+    {
+        final Set<String> scopes = new HashSet<String>();
+        if ( resolutionScope == null )
+        {
+            return scopes;
+        }
+
+        if ( "compile".equals( resolutionScope ) )
+        {
+            scopes.addAll( Arrays.asList( "compile", "provided", "system" ) );
+        }
+        else if ( "compile+runtime".equals( resolutionScope ) )
+        {
+            scopes.addAll( Arrays.asList( "compile", "provided", "runtime", "system" ) );
+        }
+        else if ( "runtime".equals( resolutionScope ) )
+        {
+            scopes.addAll( Arrays.asList( "compile", "runtime" ) );
+        }
+        else if ( "runtime+system".equals( resolutionScope ) )
+        {
+            scopes.addAll( Arrays.asList( "compile", "runtime", "system" ) );
+        }
+        else if ( "test".equals( resolutionScope ) )
+        {
+            scopes.addAll( Arrays.asList( "compile", "provided", "runtime", "system", "test" ) );
+        }
+        return scopes;
+    }
+
+    private Set<Artifact> filterProjectArtifacts( final MavenProject project, final ArtifactFilter filter )
+    {
+        final Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+        for ( final Artifact artifact : project.getArtifacts() )
+        {
+            if ( filter.include( artifact ) )
+            {
+                artifacts.add( artifact );
+            }
+        }
+        return artifacts;
+    }
+
     Set<Artifact> resolveNonTransitively( final Assembly assembly, final Set<Artifact> dependencyArtifacts,
                                           final AssemblerConfigurationSource configSource,
                                           final List<ArtifactRepository> repos )
@@ -0,0 +1,351 @@
+package org.apache.maven.plugins.assembly.artifact;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.repository.RepositorySystem;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Persists the artifacts a dependency set resolved to, so that a later build with the same dependency declarations
+ * can skip the resolution. One file per key is kept below the project build directory. The key covers everything the
+ * resolution depends on: the effective dependencies and dependency management of the projects involved, the scopes,
+ * the transitivity and the local repository. An entry is only used while all of its files still exist with their
+ * recorded sizes. Dependency sets with a snapshot or version range among their roots are not cached, since the
+ * dependencies such a root brings in may change without any change to the key.
+ *
+ * @since 3.1.1
+ */
+final class DependencySetResolutionCache
+{
+
+    private static final String HEADER = "# assembly dependency-set resolution v1";
+
+    private static final String ENCODING = "UTF-8";
+
+    private static final char SEPARATOR = '\t';
+
+    private static final String TRAIL_SEPARATOR = "|";
+
+    private final File directory;
+
+    private final RepositorySystem repositorySystem;
+
+    private final Logger logger;
+
+    DependencySetResolutionCache( File directory, RepositorySystem repositorySystem, Logger logger )
+    {
+        this.directory = directory;
+        this.repositorySystem = repositorySystem;
+        this.logger = logger;
+    }
+
+    /**
+     * @param info            The resolution requirements of the dependency set.
+     * @param localRepository The base directory of the local repository.
+     * @return The hex encoded SHA-1 of all inputs of the resolution.
+     */
+    static String computeKey( ResolutionManagementInfo info, String localRepository )
+    {
+        final StringBuilder key = new StringBuilder( 1024 );
+
+        key.append( "transitive=" ).append( info.isResolvedTransitively() ).append( '\n' );
+        key.append( "scopes=" ).append( new TreeSet<String>( info.getScopeFilter().getIncluded() ) ).append( '\n' );
+        key.append( "localRepository=" ).append( localRepository ).append( '\n' );
+
+        for ( final MavenProject project : info.getEnabledProjects() )
+        {
+            key.append( "project=" ).append( project.getId() ).append( '\n' );
+
+            for ( final Dependency dependency : project.getDependencies() )
+            {
+                appendDependency( key.append( "dependency=" ), dependency );
+            }
+
+            final DependencyManagement management = project.getDependencyManagement();
+            if ( management != null )
+            {
+                for ( final Dependency dependency : management.getDependencies() )
+                {
+                    appendDependency( key.append( "managed=" ), dependency );
+                }
+            }
+        }
+
+        final Set<String> roots = new TreeSet<String>();
+        for ( final Artifact artifact : info.getArtifacts() )
+        {
+            roots.add( artifact.getId() + ":" + artifact.getScope() );
+        }
+        key.append( "roots=" ).append( roots ).append( '\n' );
+
+        return DigestUtils.shaHex( key.toString() );
+    }
+
+    /**
+     * @param info The resolution requirements of the dependency set.
+     * @return <code>false</code> if a root of the dependency set, or a dependency its projects declare, is a snapshot
+     *         or a version range, whose own dependencies may change from one build to the next.
+     */
+    static boolean isCacheable( ResolutionManagementInfo info )
+    {
+        for ( final Artifact artifact : info.getArtifacts() )
+        {
+            if ( artifact.isSnapshot()
+                || artifact.getVersionRange() != null && artifact.getVersionRange().getRecommendedVersion() == null
+                && artifact.getVersionRange().hasRestrictions() )
+            {
+                return false;
+            }
+        }
+        for ( final MavenProject project : info.getEnabledProjects() )
+        {
+            for ( final Dependency dependency : project.getDependencies() )
+            {
+                final String version = dependency.getVersion();
+                if ( version != null && ( version.endsWith( Artifact.SNAPSHOT_VERSION ) || version.startsWith( "[" )
+                    || version.startsWith( "(" ) ) )
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void appendDependency( StringBuilder key, Dependency dependency )
+    {
+        key.append( dependency.getManagementKey() ).append( ':' ).append( dependency.getVersion() ).append( ':' );
+        key.append( dependency.getScope() ).append( ':' ).append( dependency.isOptional() ).append( ':' );
+        key.append( dependency.getSystemPath() );
+        for ( final Exclusion exclusion : dependency.getExclusions() )
+        {
+            key.append( ":!" ).append( exclusion.getGroupId() ).append( ':' ).append( exclusion.getArtifactId() );
+        }
+        key.append( '\n' );
+    }
+
+    /**
+     * @param key The resolution key.
+     * @return The cached artifacts, or <code>null</code> when there is no valid entry for the key.
+     */
+    Set<Artifact> load( String key )
+    {
+        final File file = new File( directory, key + ".txt" );
+        if ( !file.isFile() )
+        {
+            return null;
+        }
+
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), ENCODING ) );
+            if ( !HEADER.equals( reader.readLine() ) )
+            {
+                return null;
+            }
+
+            final Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                final Artifact artifact = parse( line );
+                if ( artifact == null )
+                {
+                    logger.debug( "Discarding cached resolution " + key + ": " + line );
+                    return null;
+                }
+                artifacts.add( artifact );
+            }
+
+            reader.close();
+            reader = null;
+
+            return artifacts;
+        }
+        catch ( final IOException e )
+        {
+            logger.debug( "Cannot read cached resolution " + file + ": " + e.getMessage() );
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    private Artifact parse( String line )
+    {
+        final String[] fields = line.split( String.valueOf( SEPARATOR ), -1 );
+        if ( fields.length != 10 )
+        {
+            return null;
+        }
+
+        final File file = new File( fields[9] );
+        final long size;
+        try
+        {
+            size = Long.parseLong( fields[8] );
+        }
+        catch ( final NumberFormatException e )
+        {
+            return null;
+        }
+        if ( !file.isFile() || file.length() != size )
+        {
+            return null;
+        }
+
+        final String classifier = fields[4].length() > 0 ? fields[4] : null;
+        final Artifact artifact =
+            repositorySystem.createArtifactWithClassifier( fields[0], fields[1], fields[2], fields[3], classifier );
+        artifact.setScope( fields[5].length() > 0 ? fields[5] : null );
+        artifact.setOptional( Boolean.parseBoolean( fields[6] ) );
+        artifact.setDependencyTrail( fields[7].length() > 0
+                                         ? new ArrayList<String>( Arrays.asList( fields[7].split( "\\|" ) ) )
+                                         : new ArrayList<String>() );
+        artifact.setFile( file );
+        artifact.setResolved( true );
+        return artifact;
+    }
+
+    /**
+     * Stores the resolution result. Results containing snapshots are not stored, since a snapshot may change in the
+     * local repository without any change to the key.
+     *
+     * @param key       The resolution key.
+     * @param artifacts The resolved artifacts.
+     */
+    void store( String key, Set<Artifact> artifacts )
+    {
+        final StringBuilder content = new StringBuilder( HEADER ).append( '\n' );
+        for ( final Artifact artifact : artifacts )
+        {
+            final File file = artifact.getFile();
+            if ( artifact.isSnapshot() || file == null || !file.isFile() )
+            {
+                return;
+            }
+
+            final List<String> trail =
+                artifact.getDependencyTrail() != null ? artifact.getDependencyTrail() : Collections.<String>emptyList();
+
+            final String[] fields =
+                { artifact.getGroupId(), artifact.getArtifactId(), artifact.getVersion(), artifact.getType(),
+                    artifact.getClassifier() != null ? artifact.getClassifier() : "",
+                    artifact.getScope() != null ? artifact.getScope() : "", String.valueOf( artifact.isOptional() ),
+                    join( trail ), String.valueOf( file.length() ), file.getAbsolutePath() };
+
+            for ( int i = 0; i < fields.length; i++ )
+            {
+                if ( fields[i] == null || fields[i].indexOf( SEPARATOR ) >= 0 || fields[i].indexOf( '\n' ) >= 0 )
+                {
+                    return;
+                }
+                if ( i > 0 )
+                {
+                    content.append( SEPARATOR );
+                }
+                content.append( fields[i] );
+            }
+            content.append( '\n' );
+        }
+
+        if ( !directory.isDirectory() && !directory.mkdirs() )
+        {
+            logger.debug( "Cannot create resolution cache directory " + directory );
+            return;
+        }
+
+        final File target = new File( directory, key + ".txt" );
+        File temp = null;
+        Writer writer = null;
+        try
+        {
+            // write to a temporary file first, so an interrupted build leaves no truncated entry behind
+            temp = File.createTempFile( "resolution-", ".tmp", directory );
+            writer = new OutputStreamWriter( new FileOutputStream( temp ), ENCODING );
+            writer.write( content.toString() );
+            writer.close();
+            writer = null;
+
+            if ( !temp.renameTo( target ) && !( target.delete() && temp.renameTo( target ) ) )
+            {
+                temp.delete();
+            }
+        }
+        catch ( final IOException e )
+        {
+            logger.debug( "Cannot write cached resolution " + target + ": " + e.getMessage() );
+            IOUtil.close( writer );
+            writer = null;
+            if ( temp != null )
+            {
+                temp.delete();
+            }
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    private static String join( List<String> trail )
+    {
+        final StringBuilder result = new StringBuilder();
+        for ( final String id : trail )
+        {
+            if ( id.contains( TRAIL_SEPARATOR ) )
+            {
+                return null;
+            }
+            if ( result.length() > 0 )
+            {
+                result.append( TRAIL_SEPARATOR );
+            }
+            result.append( id );
+        }
+        return result.toString();
+    }
+}
@@ -28,23 +28,27 @@ import org.codehaus.plexus.archiver.UnArchiver;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.components.io.fileselectors.FileInfo;
 import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.xml.PrettyPrintXMLWriter;
+import org.codehaus.plexus.util.xml.XMLWriter;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
 import org.codehaus.plexus.util.xml.Xpp3DomWriter;
+import org.codehaus.plexus.util.xml.pull.MXParser;
+import org.codehaus.plexus.util.xml.pull.XmlPullParser;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 import javax.annotation.Nonnull;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.io.Reader;
-import java.io.Writer;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * Components XML file filter.
@@ -54,80 +58,111 @@ import java.util.Map;
  */
 @Component( role = ContainerDescriptorHandler.class, hint = "plexus", instantiationStrategy = "per-lookup" )
 public class ComponentsXmlArchiverFileFilter
-    implements ContainerDescriptorHandler
+    implements ContainerDescriptorHandler, Closeable
 {
     public static final String COMPONENTS_XML_PATH = "META-INF/plexus/components.xml";
 
-    // [jdcasey] Switched visibility to protected to allow testing. Also, because this class isn't final, it should
-    // allow
-    // some minimal access to the components accumulated for extending classes.
-    Map<String, Xpp3Dom> components;
+    /**
+     * The role and role-hint of the components written so far; the first component with a role and role-hint wins.
+     */
+    final Set<String> componentKeys = new HashSet<String>();
+
+    /**
+     * The number of bytes of merged components kept in memory before they are spilled to disk.
+     */
+    int bufferThreshold = SpillBuffer.DEFAULT_THRESHOLD;
+
+    private SpillBuffer buffer;
+
+    private PrintWriter bufferWriter;
+
+    private XMLWriter xmlWriter;
 
     private boolean excludeOverride = false;
 
+    /**
+     * Pull-parses a components.xml, and writes the components whose role and role-hint were not seen yet to the
+     * merged component-set. Only one component is held in memory at a time.
+     */
     void addComponentsXml( final Reader componentsReader )
         throws XmlPullParserException, IOException
     {
-        Xpp3Dom newDom = Xpp3DomBuilder.build( componentsReader );
-
-        if ( newDom != null )
-        {
-            newDom = newDom.getChild( "components" );
-        }
-
-        if ( newDom != null )
+        final XmlPullParser parser = new MXParser();
+        parser.setInput( componentsReader );
+
+        // the components of the first components element under the root, as Xpp3Dom.getChild() would find them
+        int depth = 0;
+        boolean inComponents = false;
+        boolean componentsSeen = false;
+        for ( int event = parser.getEventType(); event != XmlPullParser.END_DOCUMENT; event = parser.next() )
         {
-            final Xpp3Dom[] children = newDom.getChildren();
-
-            for ( final Xpp3Dom component : children )
+            if ( event == XmlPullParser.START_TAG )
             {
-                if ( components == null )
+                if ( inComponents )
                 {
-                    components = new LinkedHashMap<String, Xpp3Dom>();
+                    // consumes the component up to its end tag
+                    addComponent( Xpp3DomBuilder.build( parser ) );
+                    continue;
                 }
 
-                final String role = component.getChild( "role" ).getValue();
-                final Xpp3Dom child = component.getChild( "role-hint" );
-                final String roleHint = child != null ? child.getValue() : "";
-
-                final String key = role + roleHint;
-                if ( !components.containsKey( key ) )
+                depth++;
+                if ( depth == 2 && !componentsSeen && "components".equals( parser.getName() ) )
                 {
-                    components.put( key, component );
+                    inComponents = true;
+                    componentsSeen = true;
                 }
             }
+            else if ( event == XmlPullParser.END_TAG )
+            {
+                depth--;
+                inComponents = false;
+            }
         }
     }
 
-    private void addToArchive( final Archiver archiver )
+    private void addComponent( final Xpp3Dom component )
         throws IOException
     {
-        if ( components != null )
+        final String role = component.getChild( "role" ).getValue();
+        final Xpp3Dom child = component.getChild( "role-hint" );
+        final String roleHint = child != null ? child.getValue() : "";
+
+        if ( componentKeys.add( role + roleHint ) )
         {
-            final File f = File.createTempFile( "maven-assembly-plugin", "tmp" );
-            f.deleteOnExit();
+            if ( xmlWriter == null )
+            {
+                buffer = new SpillBuffer( bufferThreshold );
+                bufferWriter = new PrintWriter( WriterFactory.newXmlWriter( buffer.getOutputStream() ) );
+                xmlWriter = new PrettyPrintXMLWriter( bufferWriter );
+                xmlWriter.startElement( "component-set" );
+                xmlWriter.startElement( "components" );
+            }
+            Xpp3DomWriter.write( xmlWriter, component );
+        }
+    }
 
-            Writer fileWriter = null;
+    private void addToArchive( final Archiver archiver )
+        throws IOException
+    {
+        if ( xmlWriter != null )
+        {
+            final File f;
             try
             {
-                fileWriter = WriterFactory.newXmlWriter( new FileOutputStream( f ) );
-                final Xpp3Dom dom = new Xpp3Dom( "component-set" );
-                final Xpp3Dom componentDom = new Xpp3Dom( "components" );
-                dom.addChild( componentDom );
-
-                for ( final Xpp3Dom component : components.values() )
+                xmlWriter.endElement();
+                xmlWriter.endElement();
+                bufferWriter.close();
+                if ( bufferWriter.checkError() )
                 {
-                    componentDom.addChild( component );
+                    throw new IOException( "Error writing the merged " + COMPONENTS_XML_PATH );
                 }
-
-                Xpp3DomWriter.write( fileWriter, dom );
-
-                fileWriter.close();
-                fileWriter = null;
+                f = buffer.toFile();
             }
             finally
             {
-                IOUtil.close( fileWriter );
+                xmlWriter = null;
+                IOUtil.close( bufferWriter );
+                bufferWriter = null;
             }
 
             excludeOverride = true;
@@ -164,7 +199,7 @@ public class ComponentsXmlArchiverFileFilter
     @Override
     public List<String> getVirtualFiles()
     {
-        if ( ( components != null ) && !components.isEmpty() )
+        if ( !componentKeys.isEmpty() )
         {
             return Collections.singletonList( COMPONENTS_XML_PATH );
         }
@@ -231,4 +266,20 @@ public class ComponentsXmlArchiverFileFilter
     {
     }
 
+    /**
+     * Deletes the file the merged components were written to, once the archive is written or given up.
+     */
+    @Override
+    public void close()
+    {
+        if ( buffer != null )
+        {
+            xmlWriter = null;
+            IOUtil.close( bufferWriter );
+            bufferWriter = null;
+            buffer.delete();
+            buffer = null;
+        }
+    }
+
 }
@@ -25,20 +25,27 @@ import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.UnArchiver;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.components.io.fileselectors.FileInfo;
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
+import org.codehaus.plexus.components.io.resources.AbstractPlexusIoResource;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
 import org.codehaus.plexus.logging.LogEnabled;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.logging.console.ConsoleLogger;
 import org.codehaus.plexus.util.IOUtil;
 
 import javax.annotation.Nonnull;
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
-import java.io.StringWriter;
+import java.io.SequenceInputStream;
 import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -49,16 +56,16 @@ import java.util.List;
  */
 @Component( role = ContainerDescriptorHandler.class, hint = "file-aggregator", instantiationStrategy = "per-lookup" )
 public class SimpleAggregatingDescriptorHandler
-    implements ContainerDescriptorHandler, LogEnabled
+    implements ContainerDescriptorHandler, LogEnabled, Closeable
 {
 
+    private static final Charset ISO_8859_1 = Charset.forName( "ISO-8859-1" );
+
     // component configuration.
 
     @SuppressWarnings( "FieldCanBeLocal" )
     private final String commentChars = "#";
 
-    private final StringWriter aggregateWriter = new StringWriter();
-
     private final List<String> filenames = new ArrayList<String>();
 
     // calculated, temporary values.
@@ -67,6 +74,14 @@ public class SimpleAggregatingDescriptorHandler
 
     private String outputPath;
 
+    private String encoding;
+
+    private int bufferThreshold = SpillBuffer.DEFAULT_THRESHOLD;
+
+    private SpillBuffer aggregate;
+
+    private Writer aggregateWriter;
+
     private boolean overrideFilterAction;
 
     // injected by the container.
@@ -90,54 +105,64 @@ public class SimpleAggregatingDescriptorHandler
             outputPath = outputPath.substring( 1 );
         }
 
-        final File temp = writePropertiesFile();
+        final PlexusIoResource resource = createAggregatedResource();
 
         overrideFilterAction = true;
 
-        archiver.addFile( temp, outputPath );
+        archiver.addResource( resource, outputPath, archiver.getOverrideFileMode() );
 
         overrideFilterAction = false;
     }
 
-    private File writePropertiesFile()
+    /**
+     * Ends the aggregate, and puts the list of the aggregated files in front of it. The aggregate is streamed from
+     * memory or from the file it spilled to when the archive is written.
+     */
+    private PlexusIoResource createAggregatedResource()
     {
-        File f;
-
-        Writer writer = null;
         try
         {
-            f = File.createTempFile( "maven-assembly-plugin", "tmp" );
-            f.deleteOnExit();
-
-            writer = AssemblyFileUtils.isPropertyFile( f )
-                         ? new OutputStreamWriter( new FileOutputStream( f ), "ISO-8859-1" )
-                         : new OutputStreamWriter( new FileOutputStream( f ) ); // Still platform encoding
-
-            writer.write( commentChars + " Aggregated on " + new Date() + " from: " );
-
+            final StringBuilder header = new StringBuilder();
+            header.append( commentChars ).append( " Aggregated on " ).append( new Date() ).append( " from: " );
             for ( final String filename : filenames )
             {
-                writer.write( "\n" + commentChars + " " + filename );
+                header.append( "\n" ).append( commentChars ).append( " " ).append( filename );
             }
+            header.append( "\n\n" );
+            final byte[] headerBytes = header.toString().getBytes( getCharset( outputPath ).name() );
 
-            writer.write( "\n\n" );
-
-            writer.write( aggregateWriter.toString() );
+            final SpillBuffer contents = aggregate;
+            final long size;
+            if ( contents != null )
+            {
+                aggregateWriter.close();
+                aggregateWriter = null;
+                contents.close();
+                size = headerBytes.length + contents.getSize();
+            }
+            else
+            {
+                size = headerBytes.length;
+            }
 
-            writer.close();
-            writer = null;
+            return new AggregatedResource( outputPath, System.currentTimeMillis(), size, new ContentSupplier()
+            {
+                @Override
+                public InputStream getContents()
+                    throws IOException
+                {
+                    final InputStream headerStream = new ByteArrayInputStream( headerBytes );
+                    return contents != null
+                        ? new SequenceInputStream( headerStream, contents.newInputStream() )
+                        : headerStream;
+                }
+            } );
         }
         catch ( final IOException e )
         {
             throw new ArchiverException(
                 "Error adding aggregated properties to finalize archive creation. Reason: " + e.getMessage(), e );
         }
-        finally
-        {
-            IOUtil.close( writer );
-        }
-
-        return f;
     }
 
     @Override
@@ -145,6 +170,21 @@ public class SimpleAggregatingDescriptorHandler
     {
     }
 
+    /**
+     * Deletes the file the aggregate spilled to, once the archive is written or given up.
+     */
+    @Override
+    public void close()
+    {
+        if ( aggregate != null )
+        {
+            IOUtil.close( aggregateWriter );
+            aggregateWriter = null;
+            aggregate.delete();
+            aggregate = null;
+        }
+    }
+
     @Override
     public List<String> getVirtualFiles()
     {
@@ -186,38 +226,49 @@ public class SimpleAggregatingDescriptorHandler
         }
     }
 
+    /**
+     * Appends a file to the aggregate, decoded with its own encoding and encoded with the one of the output.
+     */
     private void readProperties( final FileInfo fileInfo )
         throws IOException
     {
+        if ( aggregate == null )
+        {
+            aggregate = new SpillBuffer( bufferThreshold );
+            aggregateWriter = new BufferedWriter(
+                new OutputStreamWriter( aggregate.getOutputStream(), getCharset( outputPath ) ) );
+        }
+
         Reader reader = null;
-        StringWriter writer = null;
         try
         {
-            writer = new StringWriter();
-
-            reader = AssemblyFileUtils.isPropertyFile( fileInfo.getName() )
-                         ? new InputStreamReader( fileInfo.getContents(), "ISO-8859-1" )
-                         : new InputStreamReader( fileInfo.getContents() ); // platform encoding
+            reader = new InputStreamReader( fileInfo.getContents(), getCharset( fileInfo.getName() ) );
 
-            IOUtil.copy( reader, writer );
-
-            writer.close();
-            final String content = writer.toString();
-            writer = null;
+            aggregateWriter.write( "\n" );
+            IOUtil.copy( reader, aggregateWriter );
 
             reader.close();
             reader = null;
-
-            aggregateWriter.write( "\n" );
-            aggregateWriter.write( content );
         }
         finally
         {
-            IOUtil.close( writer );
             IOUtil.close( reader );
         }
     }
 
+    /**
+     * The configured encoding; otherwise ISO-8859-1 for properties files, as {@link java.util.Properties} reads them,
+     * and the platform encoding for other files.
+     */
+    private Charset getCharset( final String name )
+    {
+        if ( encoding != null )
+        {
+            return Charset.forName( encoding );
+        }
+        return AssemblyFileUtils.isPropertyFile( name ) ? ISO_8859_1 : Charset.defaultCharset();
+    }
+
     protected final Logger getLogger()
     {
         if ( logger == null )
@@ -258,4 +309,67 @@ public class SimpleAggregatingDescriptorHandler
         this.outputPath = outputPath;
     }
 
+    @SuppressWarnings( "UnusedDeclaration" )
+    public String getEncoding()
+    {
+        return encoding;
+    }
+
+    /**
+     * @param encoding the encoding of the aggregated files and of the aggregate, instead of ISO-8859-1 for properties
+     *            files and the platform encoding for others.
+     * @since 3.1.1
+     */
+    @SuppressWarnings( "UnusedDeclaration" )
+    public void setEncoding( final String encoding )
+    {
+        this.encoding = encoding;
+    }
+
+    @SuppressWarnings( "UnusedDeclaration" )
+    public int getBufferThreshold()
+    {
+        return bufferThreshold;
+    }
+
+    /**
+     * @param bufferThreshold the number of bytes of the aggregate kept in memory before it spills to a temporary file.
+     * @since 3.1.1
+     */
+    @SuppressWarnings( "UnusedDeclaration" )
+    public void setBufferThreshold( final int bufferThreshold )
+    {
+        this.bufferThreshold = bufferThreshold;
+    }
+
+    /**
+     * The aggregate, which only exists in the archive. Its size is known up front, as tar headers need it.
+     */
+    private static final class AggregatedResource
+        extends AbstractPlexusIoResource
+    {
+
+        private final ContentSupplier contents;
+
+        AggregatedResource( final String name, final long lastModified, final long size,
+                            final ContentSupplier contents )
+        {
+            super( name, lastModified, size, true, false, true );
+            this.contents = contents;
+        }
+
+        @Override
+        public InputStream getContents()
+            throws IOException
+        {
+            return contents.getContents();
+        }
+
+        @Override
+        public URL getURL()
+        {
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,158 @@
+package org.apache.maven.plugins.assembly.filter;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The contents a container descriptor handler aggregates, kept in memory up to a threshold and in a single temporary
+ * file beyond it.
+ *
+ * @since 3.1.1
+ */
+final class SpillBuffer
+{
+
+    /**
+     * The number of bytes kept in memory by default.
+     */
+    static final int DEFAULT_THRESHOLD = 1024 * 1024;
+
+    private static final String PREFIX = "maven-assembly-plugin";
+
+    private static final String SUFFIX = "tmp";
+
+    private final DeferredFileOutputStream out;
+
+    private File copy;
+
+    SpillBuffer( final int threshold )
+    {
+        this.out = new DeferredFileOutputStream( threshold, PREFIX, SUFFIX, null );
+    }
+
+    /**
+     * @return The stream to write the contents to; closed by {@link #close()} and {@link #toFile()}.
+     */
+    OutputStream getOutputStream()
+    {
+        return out;
+    }
+
+    /**
+     * @return <code>true</code> as long as the contents have not been spilled to disk.
+     */
+    boolean isInMemory()
+    {
+        return out.isInMemory();
+    }
+
+    /**
+     * @return The number of bytes written.
+     */
+    long getSize()
+    {
+        return out.getByteCount();
+    }
+
+    /**
+     * Ends the contents. A buffer which spilled to disk keeps its file until {@link #delete()}, or else until the JVM
+     * exits.
+     *
+     * @throws IOException if the contents cannot be written.
+     */
+    void close()
+        throws IOException
+    {
+        out.close();
+        if ( !out.isInMemory() )
+        {
+            out.getFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * @return A new stream over the contents of the closed buffer.
+     * @throws IOException if the file the buffer spilled to cannot be read.
+     */
+    InputStream newInputStream()
+        throws IOException
+    {
+        return out.isInMemory() ? new ByteArrayInputStream( out.getData() ) : new FileInputStream( out.getFile() );
+    }
+
+    /**
+     * Closes the buffer, and returns a file with its contents: the temporary file it spilled to, or a new one.
+     *
+     * @return the file, deleted by {@link #delete()} or else when the JVM exits.
+     * @throws IOException if the file cannot be written.
+     */
+    File toFile()
+        throws IOException
+    {
+        close();
+        if ( !out.isInMemory() )
+        {
+            return out.getFile();
+        }
+
+        final File f = File.createTempFile( PREFIX, SUFFIX );
+        f.deleteOnExit();
+        copy = f;
+        OutputStream fileOut = null;
+        try
+        {
+            fileOut = new FileOutputStream( f );
+            out.writeTo( fileOut );
+            fileOut.close();
+            fileOut = null;
+        }
+        finally
+        {
+            IOUtil.close( fileOut );
+        }
+        return f;
+    }
+
+    /**
+     * Deletes the files the contents were written to, once they have been read for the last time.
+     */
+    void delete()
+    {
+        if ( !out.isInMemory() && out.getFile() != null )
+        {
+            out.getFile().delete();
+        }
+        if ( copy != null )
+        {
+            copy.delete();
+            copy = null;
+        }
+    }
+}
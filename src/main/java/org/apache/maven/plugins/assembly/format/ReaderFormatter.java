@@ -21,6 +21,8 @@ package org.apache.maven.plugins.assembly.format;
 
 import org.apache.commons.io.input.ReaderInputStream;
 import org.apache.maven.plugins.assembly.AssemblerConfigurationSource;
+import org.apache.maven.plugins.assembly.metrics.AssemblyMetrics;
+import org.apache.maven.plugins.assembly.metrics.AssemblyTrace;
 import org.apache.maven.plugins.assembly.utils.AssemblyFileUtils;
 import org.apache.maven.plugins.assembly.utils.LineEndings;
 import org.apache.maven.plugins.assembly.utils.LineEndingsUtils;
@@ -136,6 +138,7 @@ public class ReaderFormatter
                     InputStream result = inputStream;
                     if ( isFiltered )
                     {
+                        AssemblyMetrics.current().filterInvocation();
                         boolean isPropertyFile = AssemblyFileUtils.isPropertyFile( plexusIoResource.getName() );
                         final String encoding = isPropertyFile ? "ISO-8859-1" : configSource.getEncoding();
 
@@ -148,6 +151,8 @@ public class ReaderFormatter
                         result = encoding != null
                             ? new ReaderInputStream( filtered, encoding )
                             : new ReaderInputStream( filtered );
+                        result = AssemblyTrace.current().traceFilteredFile( result, plexusIoResource.getName(),
+                                                                            plexusIoResource.getSize() );
                     }
                     if ( transformLineEndings )
                     {
@@ -64,27 +64,29 @@ public class AssemblyInterpolator
     public static AssemblyXpp3Reader.ContentTransformer assemblyInterpolator(
         final FixedStringSearchInterpolator interpolator, final InterpolationState is, final Logger logger )
     {
-        final Set<String> blacklistFields =
-            new HashSet<String>( FieldBasedObjectInterpolator.DEFAULT_BLACKLISTED_FIELD_NAMES );
-        blacklistFields.addAll( INTERPOLATION_BLACKLIST );
+        return assemblyInterpolator( ExpressionIndex.EMPTY, interpolator, is, logger );
+    }
+
+    /**
+     * @param index the expressions of the descriptor, resolved with <code>interpolator</code>.
+     * @param interpolator the interpolator for expressions missing from the index.
+     * @param is the interpolation state.
+     * @param logger the logger.
+     * @return the transformer.
+     * @since 3.1.1
+     */
+    public static AssemblyXpp3Reader.ContentTransformer assemblyInterpolator(
+        final ExpressionIndex index, final FixedStringSearchInterpolator interpolator, final InterpolationState is,
+        final Logger logger )
+    {
+        final Set<String> blacklistFields = getBlacklistedFields();
 
         return new AssemblyXpp3Reader.ContentTransformer()
         {
             @Override
             public String transform( String source, String contextDescription )
             {
-                if ( blacklistFields.contains( contextDescription ) )
-                {
-                    return source;
-                }
-
-                String interpolated = interpolator.interpolate( source, is );
-                if ( !source.equals( interpolated ) && logger.isDebugEnabled() )
-                {
-                    logger.debug(
-                        "Field " + contextDescription + " source: " + source + " interpolated to: " + interpolated );
-                }
-                return interpolated;
+                return interpolate( source, contextDescription, blacklistFields, index, interpolator, is, logger );
             }
         };
     }
@@ -92,31 +94,69 @@ public class AssemblyInterpolator
     public static ComponentXpp3Reader.ContentTransformer componentInterpolator(
         final FixedStringSearchInterpolator interpolator, final InterpolationState is, final Logger logger )
     {
-        final Set<String> blacklistFields =
-            new HashSet<String>( FieldBasedObjectInterpolator.DEFAULT_BLACKLISTED_FIELD_NAMES );
-        blacklistFields.addAll( INTERPOLATION_BLACKLIST );
+        return componentInterpolator( ExpressionIndex.EMPTY, interpolator, is, logger );
+    }
+
+    /**
+     * @param index the expressions of the descriptor, resolved with <code>interpolator</code>.
+     * @param interpolator the interpolator for expressions missing from the index.
+     * @param is the interpolation state.
+     * @param logger the logger.
+     * @return the transformer.
+     * @since 3.1.1
+     */
+    public static ComponentXpp3Reader.ContentTransformer componentInterpolator(
+        final ExpressionIndex index, final FixedStringSearchInterpolator interpolator, final InterpolationState is,
+        final Logger logger )
+    {
+        final Set<String> blacklistFields = getBlacklistedFields();
 
         return new ComponentXpp3Reader.ContentTransformer()
         {
             @Override
             public String transform( String source, String contextDescription )
             {
-                if ( blacklistFields.contains( contextDescription ) )
-                {
-                    return source;
-                }
-
-                String interpolated = interpolator.interpolate( source, is );
-                if ( !source.equals( interpolated ) )
-                {
-                    logger.debug(
-                        "Field " + contextDescription + " source: " + source + " interpolated to: " + interpolated );
-                }
-                return interpolated;
+                return interpolate( source, contextDescription, blacklistFields, index, interpolator, is, logger );
             }
         };
     }
 
+    /**
+     * @param fieldName the name of a descriptor field.
+     * @return <code>true</code> if expressions in the field are interpolated when the descriptor is read.
+     * @since 3.1.1
+     */
+    public static boolean isInterpolatedField( String fieldName )
+    {
+        return !INTERPOLATION_BLACKLIST.contains( fieldName )
+            && !FieldBasedObjectInterpolator.DEFAULT_BLACKLISTED_FIELD_NAMES.contains( fieldName );
+    }
+
+    private static Set<String> getBlacklistedFields()
+    {
+        final Set<String> blacklistFields =
+            new HashSet<String>( FieldBasedObjectInterpolator.DEFAULT_BLACKLISTED_FIELD_NAMES );
+        blacklistFields.addAll( INTERPOLATION_BLACKLIST );
+        return blacklistFields;
+    }
+
+    private static String interpolate( String source, String contextDescription, Set<String> blacklistFields,
+                                       ExpressionIndex index, FixedStringSearchInterpolator interpolator,
+                                       InterpolationState is, Logger logger )
+    {
+        if ( source == null || source.indexOf( ExpressionIndex.START ) < 0
+            || blacklistFields.contains( contextDescription ) )
+        {
+            return source;
+        }
+
+        String interpolated = index.interpolate( source, interpolator, is );
+        if ( !source.equals( interpolated ) && logger.isDebugEnabled() )
+        {
+            logger.debug( "Field " + contextDescription + " source: " + source + " interpolated to: " + interpolated );
+        }
+        return interpolated;
+    }
 
     public static void checkErrors( AssemblyId assemblyId, InterpolationState interpolationState, Logger logger )
     {
@@ -0,0 +1,183 @@
+package org.apache.maven.plugins.assembly.interpolation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+import org.codehaus.plexus.interpolation.fixed.InterpolationState;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The values of the expressions referenced by a descriptor, resolved once before the descriptor is interpolated.
+ * Interpolating a field then only takes a hash lookup per expression instead of a walk through the value sources;
+ * the project sources reflect on the model for each <code>${project.*}</code> lookup.
+ * <p>
+ * Instances are immutable. Text with an expression which is not in the index, or with nested expressions, is handed
+ * to the interpolator the index was built from.
+ * </p>
+ *
+ * @since 3.1.1
+ */
+public final class ExpressionIndex
+{
+
+    static final String START = "${";
+
+    static final String END = "}";
+
+    /**
+     * An index without values; all text with expressions goes to the interpolator.
+     */
+    public static final ExpressionIndex EMPTY = new ExpressionIndex( Collections.<String, String>emptyMap() );
+
+    private final Map<String, String> values;
+
+    private ExpressionIndex( Map<String, String> values )
+    {
+        this.values = values;
+    }
+
+    /**
+     * Resolves expressions with an interpolator.
+     *
+     * @param expressions the expressions, including their delimiters, e.g. <code>${project.version}</code>.
+     * @param interpolator the interpolator.
+     * @param state the interpolation state, which records the expressions that could not be resolved.
+     * @return the index.
+     */
+    @Nonnull
+    public static ExpressionIndex resolve( @Nonnull Collection<String> expressions,
+                                           @Nonnull FixedStringSearchInterpolator interpolator,
+                                           @Nonnull InterpolationState state )
+    {
+        final Map<String, String> values = new HashMap<String, String>( expressions.size() * 2 );
+        for ( final String expression : expressions )
+        {
+            values.put( expression, interpolator.interpolate( expression, state ) );
+        }
+        return new ExpressionIndex( Collections.unmodifiableMap( values ) );
+    }
+
+    /**
+     * Resolves the expressions which are not yet in this index, e.g. those of a component descriptor merged into the
+     * assembly.
+     *
+     * @param expressions the expressions, including their delimiters.
+     * @param interpolator the interpolator.
+     * @param state the interpolation state, which records the expressions that could not be resolved.
+     * @return an index with the values of this one and of the new expressions; this index if all are known.
+     */
+    @Nonnull
+    public ExpressionIndex extend( @Nonnull Collection<String> expressions,
+                                   @Nonnull FixedStringSearchInterpolator interpolator,
+                                   @Nonnull InterpolationState state )
+    {
+        Map<String, String> extended = null;
+        for ( final String expression : expressions )
+        {
+            if ( !values.containsKey( expression ) )
+            {
+                if ( extended == null )
+                {
+                    extended = new HashMap<String, String>( ( values.size() + expressions.size() ) * 2 );
+                    extended.putAll( values );
+                }
+                extended.put( expression, interpolator.interpolate( expression, state ) );
+            }
+        }
+        return extended == null ? this : new ExpressionIndex( Collections.unmodifiableMap( extended ) );
+    }
+
+    /**
+     * Adds the expressions found in some text to a collection.
+     *
+     * @param text the text, may be <code>null</code>.
+     * @param expressions receives each expression, including its delimiters.
+     */
+    public static void collectExpressions( String text, @Nonnull Collection<String> expressions )
+    {
+        if ( text == null )
+        {
+            return;
+        }
+        int start = text.indexOf( START );
+        while ( start >= 0 )
+        {
+            final int end = text.indexOf( END, start + START.length() );
+            if ( end < 0 )
+            {
+                return;
+            }
+            expressions.add( text.substring( start, end + END.length() ) );
+            start = text.indexOf( START, end + END.length() );
+        }
+    }
+
+    /**
+     * @return The number of resolved expressions.
+     */
+    public int size()
+    {
+        return values.size();
+    }
+
+    /**
+     * Interpolates text.
+     *
+     * @param text the text.
+     * @param interpolator the interpolator for text which cannot be interpolated from the index.
+     * @param state the interpolation state.
+     * @return the interpolated text.
+     */
+    public String interpolate( @Nonnull String text, @Nonnull FixedStringSearchInterpolator interpolator,
+                               @Nonnull InterpolationState state )
+    {
+        int start = text.indexOf( START );
+        if ( start < 0 )
+        {
+            return text;
+        }
+
+        final StringBuilder result = new StringBuilder( text.length() + 32 );
+        int copied = 0;
+        while ( start >= 0 )
+        {
+            final int end = text.indexOf( END, start + START.length() );
+            if ( end < 0 )
+            {
+                break;
+            }
+            final String expression = text.substring( start, end + END.length() );
+            final String value = values.get( expression );
+            if ( value == null || expression.indexOf( START, START.length() ) >= 0 )
+            {
+                return interpolator.interpolate( text, state );
+            }
+            result.append( text, copied, start ).append( value );
+            copied = end + END.length();
+            start = text.indexOf( START, copied );
+        }
+        return result.append( text, copied, text.length() ).toString();
+    }
+}
@@ -0,0 +1,193 @@
+package org.apache.maven.plugins.assembly.interpolation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.shared.utils.cli.CommandLineUtils;
+import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+import org.codehaus.plexus.interpolation.fixed.PrefixedPropertiesValueSource;
+import org.codehaus.plexus.interpolation.fixed.PropertiesBasedValueSource;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+
+/**
+ * The interpolation layers which do not depend on the project being built: the local repository, the command line
+ * (system and user) properties and the environment. They are built once per build session and shared, read-only, by
+ * the assembly executions of all modules.
+ *
+ * @since 3.1.1
+ */
+public final class SessionInterpolators
+{
+
+    /**
+     * Keyed by execution request, which all copies of a session made for a parallel build have in common.
+     */
+    private static final Map<Object, SessionInterpolators> BY_REQUEST = new WeakHashMap<Object, SessionInterpolators>();
+
+    private final String localRepository;
+
+    private final FixedStringSearchInterpolator repositoryInterpolator;
+
+    private final FixedStringSearchInterpolator commandLinePropertiesInterpolator;
+
+    private final FixedStringSearchInterpolator envInterpolator;
+
+    private SessionInterpolators( String localRepository, FixedStringSearchInterpolator repositoryInterpolator,
+                                  FixedStringSearchInterpolator commandLinePropertiesInterpolator,
+                                  FixedStringSearchInterpolator envInterpolator )
+    {
+        this.localRepository = localRepository;
+        this.repositoryInterpolator = repositoryInterpolator;
+        this.commandLinePropertiesInterpolator = commandLinePropertiesInterpolator;
+        this.envInterpolator = envInterpolator;
+    }
+
+    /**
+     * Returns the interpolators of a session, building them on first use.
+     *
+     * @param session the session, or <code>null</code> outside of a build (nothing is shared then).
+     * @param localRepository the local repository of the execution, may be <code>null</code>.
+     * @return the interpolators.
+     */
+    @Nonnull
+    public static SessionInterpolators forSession( @Nullable MavenSession session,
+                                                   @Nullable ArtifactRepository localRepository )
+    {
+        final String localRepositoryPath = getLocalRepositoryPath( session, localRepository );
+        if ( session == null || session.getRequest() == null )
+        {
+            return create( session, localRepositoryPath );
+        }
+
+        synchronized ( BY_REQUEST )
+        {
+            SessionInterpolators interpolators = BY_REQUEST.get( session.getRequest() );
+            if ( interpolators == null )
+            {
+                interpolators = create( session, localRepositoryPath );
+                BY_REQUEST.put( session.getRequest(), interpolators );
+            }
+            else if ( !equals( interpolators.localRepository, localRepositoryPath ) )
+            {
+                // an execution with a local repository of its own; only the repository layer differs
+                return new SessionInterpolators( localRepositoryPath,
+                                                 createRepositoryInterpolator( localRepositoryPath ),
+                                                 interpolators.commandLinePropertiesInterpolator,
+                                                 interpolators.envInterpolator );
+            }
+            return interpolators;
+        }
+    }
+
+    private static SessionInterpolators create( MavenSession session, String localRepositoryPath )
+    {
+        return new SessionInterpolators( localRepositoryPath, createRepositoryInterpolator( localRepositoryPath ),
+                                         createCommandLinePropertiesInterpolator( session ),
+                                         createEnvInterpolator() );
+    }
+
+    private static String getLocalRepositoryPath( MavenSession session, ArtifactRepository localRepository )
+    {
+        if ( localRepository != null )
+        {
+            return localRepository.getBasedir();
+        }
+        else if ( session != null && session.getSettings() != null )
+        {
+            return session.getSettings().getLocalRepository();
+        }
+        return null;
+    }
+
+    private static boolean equals( String a, String b )
+    {
+        return a == null ? b == null : a.equals( b );
+    }
+
+    private static FixedStringSearchInterpolator createRepositoryInterpolator( String localRepositoryPath )
+    {
+        final Properties settingsProperties = new Properties();
+
+        if ( localRepositoryPath != null )
+        {
+            settingsProperties.setProperty( "localRepository", localRepositoryPath );
+            settingsProperties.setProperty( "settings.localRepository", localRepositoryPath );
+        }
+
+        return FixedStringSearchInterpolator.create( new PropertiesBasedValueSource( settingsProperties ) );
+    }
+
+    private static FixedStringSearchInterpolator createCommandLinePropertiesInterpolator( MavenSession session )
+    {
+        Properties commandLineProperties = System.getProperties();
+
+        if ( session != null )
+        {
+            commandLineProperties = new Properties();
+            commandLineProperties.putAll( session.getSystemProperties() );
+            commandLineProperties.putAll( session.getUserProperties() );
+        }
+
+        PropertiesBasedValueSource cliProps = new PropertiesBasedValueSource( commandLineProperties );
+        return FixedStringSearchInterpolator.create( cliProps );
+    }
+
+    private static FixedStringSearchInterpolator createEnvInterpolator()
+    {
+        PrefixedPropertiesValueSource envProps = new PrefixedPropertiesValueSource( Collections.singletonList( "env." ),
+                                                                                    CommandLineUtils.getSystemEnvVars(
+                                                                                        false ), true );
+        return FixedStringSearchInterpolator.create( envProps );
+    }
+
+    /**
+     * @return The interpolator for <code>${localRepository}</code> and <code>${settings.localRepository}</code>.
+     */
+    @Nonnull
+    public FixedStringSearchInterpolator getRepositoryInterpolator()
+    {
+        return repositoryInterpolator;
+    }
+
+    /**
+     * @return The interpolator for the system and user properties of the session.
+     */
+    @Nonnull
+    public FixedStringSearchInterpolator getCommandLinePropertiesInterpolator()
+    {
+        return commandLinePropertiesInterpolator;
+    }
+
+    /**
+     * @return The interpolator for <code>${env.*}</code>.
+     */
+    @Nonnull
+    public FixedStringSearchInterpolator getEnvInterpolator()
+    {
+        return envInterpolator;
+    }
+}
@@ -24,6 +24,8 @@ import org.apache.maven.plugins.assembly.AssemblerConfigurationSource;
 import org.apache.maven.plugins.assembly.InvalidAssemblerConfigurationException;
 import org.apache.maven.plugins.assembly.interpolation.AssemblyExpressionEvaluator;
 import org.apache.maven.plugins.assembly.interpolation.AssemblyInterpolator;
+import org.apache.maven.plugins.assembly.interpolation.ExpressionIndex;
+import org.apache.maven.plugins.assembly.metrics.AssemblyTrace;
 import org.apache.maven.plugins.assembly.model.Assembly;
 import org.apache.maven.plugins.assembly.model.Component;
 import org.apache.maven.plugins.assembly.model.ContainerDescriptorHandlerConfig;
@@ -43,6 +45,7 @@ import org.apache.maven.shared.io.location.FileLocatorStrategy;
 import org.apache.maven.shared.io.location.Location;
 import org.apache.maven.shared.io.location.Locator;
 import org.apache.maven.shared.io.location.LocatorStrategy;
+import org.apache.maven.shared.io.location.URLLocation;
 import org.apache.maven.shared.utils.ReaderFactory;
 import org.codehaus.plexus.interpolation.PrefixAwareRecursionInterceptor;
 import org.codehaus.plexus.interpolation.RecursionInterceptor;
@@ -59,10 +62,10 @@ import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringWriter;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -106,6 +109,7 @@ public class DefaultAssemblyReader
         final String[] descriptors = configSource.getDescriptors();
         final String[] descriptorRefs = configSource.getDescriptorReferences();
         final File descriptorSourceDirectory = configSource.getDescriptorSourceDirectory();
+        final AssemblyTrace trace = AssemblyTrace.current();
 
         if ( ( descriptors != null ) && ( descriptors.length > 0 ) )
         {
@@ -113,7 +117,16 @@ public class DefaultAssemblyReader
             for ( String descriptor1 : descriptors )
             {
                 getLogger().info( "Reading assembly descriptor: " + descriptor1 );
-                addAssemblyFromDescriptor( descriptor1, locator, configSource, assemblies );
+                final AssemblyTrace.Span span =
+                    trace.begin( "descriptor", "readDescriptor", "descriptor", descriptor1 );
+                try
+                {
+                    addAssemblyFromDescriptor( descriptor1, locator, configSource, assemblies );
+                }
+                finally
+                {
+                    span.end();
+                }
             }
         }
 
@@ -122,7 +135,16 @@ public class DefaultAssemblyReader
             locator.setStrategies( refStrategies );
             for ( String descriptorRef : descriptorRefs )
             {
-                addAssemblyForDescriptorReference( descriptorRef, configSource, assemblies );
+                final AssemblyTrace.Span span =
+                    trace.begin( "descriptor", "readDescriptor", "descriptorRef", descriptorRef );
+                try
+                {
+                    addAssemblyForDescriptorReference( descriptorRef, configSource, assemblies );
+                }
+                finally
+                {
+                    span.end();
+                }
             }
         }
 
@@ -143,7 +165,15 @@ public class DefaultAssemblyReader
 
             for ( String path : paths )
             {
-                addAssemblyFromDescriptor( path, locator, configSource, assemblies );
+                final AssemblyTrace.Span span = trace.begin( "descriptor", "readDescriptor", "descriptor", path );
+                try
+                {
+                    addAssemblyFromDescriptor( path, locator, configSource, assemblies );
+                }
+                finally
+                {
+                    span.end();
+                }
             }
         }
 
@@ -195,9 +225,9 @@ public class DefaultAssemblyReader
                                                             throws AssemblyReadException,
                                                             InvalidAssemblerConfigurationException
     {
-        final InputStream resourceAsStream = getClass().getResourceAsStream( "/assemblies/" + ref + ".xml" );
+        final URL resource = getClass().getResource( "/assemblies/" + ref + ".xml" );
 
-        if ( resourceAsStream == null )
+        if ( resource == null )
         {
             if ( configSource.isIgnoreMissingDescriptor() )
             {
@@ -213,10 +243,16 @@ public class DefaultAssemblyReader
         Reader reader = null;
         try
         {
-            reader = ReaderFactory.newXmlReader( resourceAsStream );
-            final Assembly assembly = readAssembly( reader, ref, null, configSource );
-            reader.close();
-            reader = null;
+            final String cacheKey = DescriptorTemplate.keyOf( resource );
+            DescriptorTemplate template = DescriptorTemplate.get( cacheKey );
+            if ( template == null )
+            {
+                reader = ReaderFactory.newXmlReader( resource.openStream() );
+                template = readTemplate( cacheKey, reader, ref );
+                reader.close();
+                reader = null;
+            }
+            final Assembly assembly = readAssembly( template, ref, null, configSource );
             assemblies.add( assembly );
             return assembly;
         }
@@ -252,13 +288,18 @@ public class DefaultAssemblyReader
         Reader r = null;
         try
         {
-            r = ReaderFactory.newXmlReader( descriptor );
+            final String cacheKey = DescriptorTemplate.keyOf( descriptor );
+            DescriptorTemplate template = DescriptorTemplate.get( cacheKey );
+            if ( template == null )
+            {
+                r = ReaderFactory.newXmlReader( descriptor );
+                template = readTemplate( cacheKey, r, descriptor.getAbsolutePath() );
+                r.close();
+                r = null;
+            }
 
             final Assembly assembly =
-                readAssembly( r, descriptor.getAbsolutePath(), descriptor.getParentFile(), configSource );
-
-            r.close();
-            r = null;
+                readAssembly( template, descriptor.getAbsolutePath(), descriptor.getParentFile(), configSource );
 
             assemblies.add( assembly );
 
@@ -299,18 +340,23 @@ public class DefaultAssemblyReader
         Reader r = null;
         try
         {
-            r = ReaderFactory.newXmlReader( location.getInputStream() );
-
             File dir = null;
             if ( location.getFile() != null )
             {
                 dir = location.getFile().getParentFile();
             }
 
-            final Assembly assembly = readAssembly( r, spec, dir, configSource );
+            final String cacheKey = location.getFile() != null ? DescriptorTemplate.keyOf( location.getFile() ) : null;
+            DescriptorTemplate template = DescriptorTemplate.get( cacheKey );
+            if ( template == null )
+            {
+                r = ReaderFactory.newXmlReader( location.getInputStream() );
+                template = readTemplate( cacheKey, r, spec );
+                r.close();
+                r = null;
+            }
 
-            r.close();
-            r = null;
+            final Assembly assembly = readAssembly( template, spec, dir, configSource );
 
             assemblies.add( assembly );
 
@@ -330,6 +376,55 @@ public class DefaultAssemblyReader
     public Assembly readAssembly( Reader reader, final String locationDescription, final File assemblyDir,
                                   final AssemblerConfigurationSource configSource )
         throws AssemblyReadException, InvalidAssemblerConfigurationException
+    {
+        final DescriptorTemplate template;
+        try
+        {
+            template = readTemplate( null, reader, locationDescription );
+            reader.close();
+            reader = null;
+        }
+        catch ( final IOException e )
+        {
+            throw new AssemblyReadException( "Error reading descriptor: " + locationDescription + ": " + e.getMessage(),
+                                             e );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+
+        return readAssembly( template, locationDescription, assemblyDir, configSource );
+    }
+
+    /**
+     * Parses a descriptor without interpolating it.
+     *
+     * @param cacheKey the key under which the parsed descriptor is cached, or <code>null</code> to skip caching.
+     * @param reader the descriptor.
+     * @param locationDescription the location for error messages.
+     * @return the parsed descriptor.
+     * @throws AssemblyReadException if the descriptor cannot be parsed.
+     * @throws IOException if the descriptor cannot be read.
+     */
+    private DescriptorTemplate readTemplate( final String cacheKey, final Reader reader,
+                                             final String locationDescription )
+        throws AssemblyReadException, IOException
+    {
+        try
+        {
+            return DescriptorTemplate.readAssembly( cacheKey, reader );
+        }
+        catch ( final XmlPullParserException e )
+        {
+            throw new AssemblyReadException( "Error reading descriptor: " + locationDescription + ": " + e.getMessage(),
+                                             e );
+        }
+    }
+
+    private Assembly readAssembly( final DescriptorTemplate template, final String locationDescription,
+                                   final File assemblyDir, final AssemblerConfigurationSource configSource )
+        throws AssemblyReadException, InvalidAssemblerConfigurationException
     {
         Assembly assembly;
 
@@ -344,21 +439,16 @@ public class DefaultAssemblyReader
 
             FixedStringSearchInterpolator interpolator =
                 AssemblyInterpolator.fullInterpolator( project, createProjectInterpolator( project ), configSource );
+            final ExpressionIndex index = ExpressionIndex.resolve( template.getExpressions(), interpolator, is );
             AssemblyXpp3Reader.ContentTransformer transformer =
-                AssemblyInterpolator.assemblyInterpolator( interpolator, is, getLogger() );
+                AssemblyInterpolator.assemblyInterpolator( index, interpolator, is, getLogger() );
 
-            final AssemblyXpp3Reader r = new AssemblyXpp3Reader( transformer );
-            assembly = r.read( reader );
+            assembly = template.newAssembly( transformer );
 
-            ComponentXpp3Reader.ContentTransformer ctrans =
-                AssemblyInterpolator.componentInterpolator( interpolator, is, getLogger() );
-            mergeComponentsWithMainAssembly( assembly, assemblyDir, configSource, ctrans );
+            mergeComponentsWithMainAssembly( assembly, assemblyDir, configSource, null, index, interpolator, is );
             debugPrintAssembly( "After assembly is interpolated:", assembly );
 
             AssemblyInterpolator.checkErrors( AssemblyId.createAssemblyId( assembly ), is, getLogger() );
-
-            reader.close();
-            reader = null;
         }
         catch ( final IOException e )
         {
@@ -370,10 +460,6 @@ public class DefaultAssemblyReader
             throw new AssemblyReadException( "Error reading descriptor: " + locationDescription + ": " + e.getMessage(),
                                              e );
         }
-        finally
-        {
-            IOUtil.close( reader );
-        }
 
         if ( assembly.isIncludeSiteDirectory() )
         {
@@ -411,6 +497,21 @@ public class DefaultAssemblyReader
                                                     final AssemblerConfigurationSource configSource,
                                                     ComponentXpp3Reader.ContentTransformer transformer )
                                                         throws AssemblyReadException
+    {
+        mergeComponentsWithMainAssembly( assembly, assemblyDir, configSource, transformer, null, null, null );
+    }
+
+    /**
+     * Add the contents of all included components to main assembly. Without a transformer, each component is
+     * interpolated through the index of the main assembly, extended with the expressions of the component.
+     */
+    private void mergeComponentsWithMainAssembly( final Assembly assembly, final File assemblyDir,
+                                                  final AssemblerConfigurationSource configSource,
+                                                  final ComponentXpp3Reader.ContentTransformer transformer,
+                                                  final ExpressionIndex index,
+                                                  final FixedStringSearchInterpolator interpolator,
+                                                  final InterpolationState is )
+        throws AssemblyReadException
     {
         final Locator locator = new Locator();
 
@@ -451,8 +552,23 @@ public class DefaultAssemblyReader
             Reader reader = null;
             try
             {
-                reader = new InputStreamReader( resolvedLocation.getInputStream() );
-                component = new ComponentXpp3Reader( transformer ).read( reader );
+                final String cacheKey = getComponentCacheKey( resolvedLocation );
+                DescriptorTemplate template = DescriptorTemplate.get( cacheKey );
+                if ( template == null )
+                {
+                    reader = new InputStreamReader( resolvedLocation.getInputStream() );
+                    template = DescriptorTemplate.readComponent( cacheKey, reader );
+                }
+                if ( transformer != null )
+                {
+                    component = template.newComponent( transformer );
+                }
+                else
+                {
+                    final ExpressionIndex componentIndex = index.extend( template.getExpressions(), interpolator, is );
+                    component = template.newComponent(
+                        AssemblyInterpolator.componentInterpolator( componentIndex, interpolator, is, getLogger() ) );
+                }
             }
             catch ( final IOException e )
             {
@@ -473,6 +589,19 @@ public class DefaultAssemblyReader
         }
     }
 
+    private static String getComponentCacheKey( final Location location )
+        throws IOException
+    {
+        if ( location instanceof URLLocation )
+        {
+            // resolved the same way as by ClasspathResourceLocatorStrategy; reading the file would copy the resource
+            final URL resource = Thread.currentThread().getContextClassLoader().getResource(
+                location.getSpecification() );
+            return resource != null ? DescriptorTemplate.keyOf( resource ) : null;
+        }
+        return location.getFile() != null ? DescriptorTemplate.keyOf( location.getFile() ) : null;
+    }
+
     /**
      * Add the content of a single Component to main assembly
      *
@@ -0,0 +1,488 @@
+package org.apache.maven.plugins.assembly.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugins.assembly.interpolation.AssemblyInterpolator;
+import org.apache.maven.plugins.assembly.interpolation.ExpressionIndex;
+import org.apache.maven.plugins.assembly.model.Assembly;
+import org.apache.maven.plugins.assembly.model.Component;
+import org.apache.maven.plugins.assembly.model.io.xpp3.AssemblyXpp3Reader;
+import org.apache.maven.plugins.assembly.model.io.xpp3.ComponentXpp3Reader;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A parsed, not yet interpolated assembly descriptor or component. In a reactor every module reads the same
+ * descriptors, so templates are kept for the lifetime of the JVM and each module only copies and interpolates the
+ * cached model instead of locating, reading and parsing the XML again.
+ * <p>
+ * The reader interpolates the text of every element before converting it to the type of its field. A template whose
+ * expressions all end up in <code>String</code> fields can therefore be interpolated field by field on a copy;
+ * other templates (an expression in a boolean field, or inside a DOM configuration) are parsed again from the cached
+ * text.
+ * </p>
+ *
+ * @since 3.1.1
+ */
+final class DescriptorTemplate
+{
+
+    private static final int MAX_TEMPLATES = 256;
+
+    private static final String EXPRESSION_START = "${";
+
+    private static final String MODEL_PACKAGE = Assembly.class.getPackage().getName();
+
+    /**
+     * Templates keyed by location and modification stamp, least recently used first.
+     */
+    private static final Map<String, DescriptorTemplate> CACHE =
+        new LinkedHashMap<String, DescriptorTemplate>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, DescriptorTemplate> eldest )
+            {
+                return size() > MAX_TEMPLATES;
+            }
+        };
+
+    private final String text;
+
+    private final Object model;
+
+    private final boolean copyable;
+
+    private final Set<String> expressions;
+
+    private DescriptorTemplate( String text, Object model, ExpressionRecorder recorder )
+    {
+        this.text = text;
+        this.model = model;
+        this.copyable = recorder.isCopyable( model );
+        this.expressions = Collections.unmodifiableSet( recorder.expressions );
+    }
+
+    /**
+     * Builds the cache key of a descriptor file: its canonical path together with its size and modification time,
+     * so that an edited descriptor is read again.
+     *
+     * @param file the descriptor file.
+     * @return the key.
+     * @throws IOException if the canonical path cannot be determined.
+     */
+    @Nonnull
+    static String keyOf( @Nonnull File file )
+        throws IOException
+    {
+        final File canonical = file.getCanonicalFile();
+        return canonical.getPath() + '@' + canonical.lastModified() + ':' + canonical.length();
+    }
+
+    /**
+     * Builds the cache key of a descriptor resource. Resources of plain directories and of jar files are stamped
+     * with the modification time of the file they come from; other resources are keyed by URL only.
+     *
+     * @param url the resource.
+     * @return the key.
+     * @throws IOException if the canonical path of the underlying file cannot be determined.
+     */
+    @Nonnull
+    static String keyOf( @Nonnull URL url )
+        throws IOException
+    {
+        final String external = url.toExternalForm();
+        if ( "file".equals( url.getProtocol() ) )
+        {
+            final File file = toFile( external );
+            if ( file != null )
+            {
+                return keyOf( file );
+            }
+        }
+        else if ( "jar".equals( url.getProtocol() ) )
+        {
+            final int separator = external.indexOf( "!/" );
+            final File jar = separator < 0 ? null : toFile( external.substring( "jar:".length(), separator ) );
+            if ( jar != null && jar.isFile() )
+            {
+                return keyOf( jar ) + external.substring( separator + 1 );
+            }
+        }
+        return external;
+    }
+
+    private static File toFile( String fileUrl )
+    {
+        try
+        {
+            return new File( new URI( fileUrl ) );
+        }
+        catch ( final URISyntaxException e )
+        {
+            return null;
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @param key the key of the descriptor, may be <code>null</code>.
+     * @return the cached template, or <code>null</code> if the descriptor has not been parsed yet.
+     */
+    @Nullable
+    static DescriptorTemplate get( @Nullable String key )
+    {
+        if ( key == null )
+        {
+            return null;
+        }
+        synchronized ( CACHE )
+        {
+            return CACHE.get( key );
+        }
+    }
+
+    private static DescriptorTemplate put( @Nullable String key, DescriptorTemplate template )
+    {
+        if ( key != null )
+        {
+            synchronized ( CACHE )
+            {
+                CACHE.put( key, template );
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Drops all cached templates.
+     */
+    static void clear()
+    {
+        synchronized ( CACHE )
+        {
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * Parses an assembly descriptor without interpolating it, and caches the result.
+     *
+     * @param key the key of the descriptor, or <code>null</code> if it must not be cached.
+     * @param reader the descriptor; it is read fully but not closed.
+     * @return the template.
+     * @throws IOException if the descriptor cannot be read.
+     * @throws XmlPullParserException if the descriptor is not a valid assembly.
+     */
+    @Nonnull
+    static DescriptorTemplate readAssembly( @Nullable String key, @Nonnull Reader reader )
+        throws IOException, XmlPullParserException
+    {
+        final String text = IOUtil.toString( reader );
+        final ExpressionRecorder recorder = new ExpressionRecorder();
+        final Assembly assembly = new AssemblyXpp3Reader( new AssemblyXpp3Reader.ContentTransformer()
+        {
+            @Override
+            public String transform( String source, String fieldName )
+            {
+                return recorder.transform( source, fieldName );
+            }
+        } ).read( new StringReader( text ) );
+        return put( key, new DescriptorTemplate( text, assembly, recorder ) );
+    }
+
+    /**
+     * Parses a component descriptor without interpolating it, and caches the result.
+     *
+     * @param key the key of the descriptor, or <code>null</code> if it must not be cached.
+     * @param reader the descriptor; it is read fully but not closed.
+     * @return the template.
+     * @throws IOException if the descriptor cannot be read.
+     * @throws XmlPullParserException if the descriptor is not a valid component.
+     */
+    @Nonnull
+    static DescriptorTemplate readComponent( @Nullable String key, @Nonnull Reader reader )
+        throws IOException, XmlPullParserException
+    {
+        final String text = IOUtil.toString( reader );
+        final ExpressionRecorder recorder = new ExpressionRecorder();
+        final Component component = new ComponentXpp3Reader( new ComponentXpp3Reader.ContentTransformer()
+        {
+            @Override
+            public String transform( String source, String fieldName )
+            {
+                return recorder.transform( source, fieldName );
+            }
+        } ).read( new StringReader( text ) );
+        return put( key, new DescriptorTemplate( text, component, recorder ) );
+    }
+
+    /**
+     * @return <code>true</code> if instances are copied from the parsed model, <code>false</code> if the text is
+     *         parsed again.
+     */
+    boolean isCopyable()
+    {
+        return copyable;
+    }
+
+    /**
+     * @return The expressions referenced by fields which are interpolated, including their delimiters.
+     */
+    @Nonnull
+    Set<String> getExpressions()
+    {
+        return expressions;
+    }
+
+    /**
+     * Creates a new, interpolated assembly from this template.
+     *
+     * @param transformer the interpolation to apply to each field.
+     * @return a model which shares no mutable state with the template.
+     * @throws IOException if the cached text cannot be parsed again.
+     * @throws XmlPullParserException if the cached text cannot be parsed again.
+     */
+    @Nonnull
+    Assembly newAssembly( @Nonnull final AssemblyXpp3Reader.ContentTransformer transformer )
+        throws IOException, XmlPullParserException
+    {
+        if ( !copyable )
+        {
+            return new AssemblyXpp3Reader( transformer ).read( new StringReader( text ) );
+        }
+        return (Assembly) copy( model, new FieldTransformer()
+        {
+            @Override
+            public String transform( String source, String fieldName )
+            {
+                return transformer.transform( source, fieldName );
+            }
+        } );
+    }
+
+    /**
+     * Creates a new, interpolated component from this template.
+     *
+     * @param transformer the interpolation to apply to each field.
+     * @return a model which shares no mutable state with the template.
+     * @throws IOException if the cached text cannot be parsed again.
+     * @throws XmlPullParserException if the cached text cannot be parsed again.
+     */
+    @Nonnull
+    Component newComponent( @Nonnull final ComponentXpp3Reader.ContentTransformer transformer )
+        throws IOException, XmlPullParserException
+    {
+        if ( !copyable )
+        {
+            return new ComponentXpp3Reader( transformer ).read( new StringReader( text ) );
+        }
+        return (Component) copy( model, new FieldTransformer()
+        {
+            @Override
+            public String transform( String source, String fieldName )
+            {
+                return transformer.transform( source, fieldName );
+            }
+        } );
+    }
+
+    private static Object copy( Object source, FieldTransformer transformer )
+    {
+        try
+        {
+            final Object target = source.getClass().newInstance();
+            for ( final Field field : modelFields( source.getClass() ) )
+            {
+                field.set( target, copyValue( field.get( source ), field.getName(), transformer ) );
+            }
+            return target;
+        }
+        catch ( final InstantiationException e )
+        {
+            throw new IllegalStateException( "Cannot copy " + source.getClass().getName(), e );
+        }
+        catch ( final IllegalAccessException e )
+        {
+            throw new IllegalStateException( "Cannot copy " + source.getClass().getName(), e );
+        }
+    }
+
+    private static Object copyValue( Object value, String fieldName, FieldTransformer transformer )
+    {
+        if ( value instanceof String )
+        {
+            // the reader trims the interpolated text of every element
+            final String transformed = transformer.transform( (String) value, fieldName );
+            return transformed == null ? null : transformed.trim();
+        }
+        else if ( value instanceof List )
+        {
+            final List<?> source = (List<?>) value;
+            final List<Object> copy = new ArrayList<Object>( source.size() );
+            for ( final Object element : source )
+            {
+                copy.add( copyValue( element, fieldName, transformer ) );
+            }
+            return copy;
+        }
+        else if ( value instanceof Xpp3Dom )
+        {
+            return new Xpp3Dom( (Xpp3Dom) value );
+        }
+        else if ( isModel( value ) )
+        {
+            return copy( value, transformer );
+        }
+        return value;
+    }
+
+    private static boolean isModel( Object value )
+    {
+        return value != null && value.getClass().getPackage() != null
+            && MODEL_PACKAGE.equals( value.getClass().getPackage().getName() );
+    }
+
+    private static List<Field> modelFields( Class<?> type )
+    {
+        final List<Field> fields = new ArrayList<Field>();
+        for ( Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass() )
+        {
+            for ( final Field field : c.getDeclaredFields() )
+            {
+                if ( !Modifier.isStatic( field.getModifiers() ) && !field.isSynthetic() )
+                {
+                    field.setAccessible( true );
+                    fields.add( field );
+                }
+            }
+        }
+        return fields;
+    }
+
+    private interface FieldTransformer
+    {
+        String transform( String source, String fieldName );
+    }
+
+    /**
+     * Remembers which fields hold expressions while a descriptor is parsed without interpolation.
+     */
+    private static final class ExpressionRecorder
+        implements FieldTransformer
+    {
+
+        private final Set<String> fieldsWithExpressions = new HashSet<String>();
+
+        private final Set<String> expressions = new LinkedHashSet<String>();
+
+        @Override
+        public String transform( String source, String fieldName )
+        {
+            if ( source != null && source.contains( EXPRESSION_START ) )
+            {
+                fieldsWithExpressions.add( fieldName );
+                if ( AssemblyInterpolator.isInterpolatedField( fieldName ) )
+                {
+                    ExpressionIndex.collectExpressions( source, expressions );
+                }
+            }
+            return source;
+        }
+
+        boolean isCopyable( Object model )
+        {
+            if ( fieldsWithExpressions.isEmpty() )
+            {
+                return true;
+            }
+            try
+            {
+                return isCopyableModel( model );
+            }
+            catch ( final IllegalAccessException e )
+            {
+                return false;
+            }
+        }
+
+        private boolean isCopyableModel( Object model )
+            throws IllegalAccessException
+        {
+            for ( final Field field : modelFields( model.getClass() ) )
+            {
+                final Object value = field.get( model );
+                if ( value instanceof Xpp3Dom )
+                {
+                    if ( value.toString().contains( EXPRESSION_START ) )
+                    {
+                        return false;
+                    }
+                }
+                else if ( value instanceof List )
+                {
+                    for ( final Object element : (List<?>) value )
+                    {
+                        if ( isModel( element ) && !isCopyableModel( element ) )
+                        {
+                            return false;
+                        }
+                    }
+                }
+                else if ( isModel( value ) )
+                {
+                    if ( !isCopyableModel( value ) )
+                    {
+                        return false;
+                    }
+                }
+                else if ( field.getType() != String.class && fieldsWithExpressions.contains( field.getName() ) )
+                {
+                    // the reader converts the interpolated text, a copy would keep the value of the raw text
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
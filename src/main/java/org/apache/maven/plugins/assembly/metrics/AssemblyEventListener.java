@@ -0,0 +1,86 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+/**
+ * Receives the events of the creation of assembly archives. Every component of this role found in the plugin's
+ * dependencies or the build extensions is notified, the same way {@link
+ * org.apache.maven.plugins.assembly.filter.ContainerDescriptorHandler} components are discovered:
+ * <pre>
+ * &#64;Component( role = AssemblyEventListener.class, hint = "my-metrics" )
+ * public class MyMetrics implements AssemblyEventListener { ... }
+ * </pre>
+ * Entries of file-sets are reported while the archive is written, other entries when they are added. Callbacks may
+ * come from the threads of the archiver, and exceptions they throw fail the build.
+ *
+ * @since 3.1.1
+ */
+public interface AssemblyEventListener
+{
+
+    /**
+     * An assembly phase starts.
+     *
+     * @param assemblyId the id of the assembly.
+     * @param format the format of the archive.
+     * @param phase the name of the phase.
+     */
+    void phaseStarted( String assemblyId, String format, String phase );
+
+    /**
+     * An assembly phase ended.
+     *
+     * @param assemblyId the id of the assembly.
+     * @param format the format of the archive.
+     * @param phase the name of the phase.
+     * @param nanos the wall time of the phase.
+     */
+    void phaseFinished( String assemblyId, String format, String phase, long nanos );
+
+    /**
+     * An entry is added to the archive.
+     *
+     * @param source the file, resource or archive entry the content comes from.
+     * @param target the path of the entry in the archive.
+     * @param size the size of the source, or a negative value if unknown.
+     * @param transformed <code>true</code> if the content goes through a transformer (filtering, line endings).
+     */
+    void entryAdded( String source, String target, long size, boolean transformed );
+
+    /**
+     * An entry is left out because an entry with the same path was added before, and the archiver skips duplicates.
+     *
+     * @param source the file, resource or archive entry which is left out.
+     * @param target the path of the entry in the archive.
+     */
+    void duplicateSkipped( String source, String target );
+
+    /**
+     * An archive was written.
+     *
+     * @param assemblyId the id of the assembly.
+     * @param format the format of the archive.
+     * @param file the archive.
+     * @param nanos the wall time of writing the archive, after all phases ran.
+     */
+    void archiveWritten( String assemblyId, String format, File file, long nanos );
+}
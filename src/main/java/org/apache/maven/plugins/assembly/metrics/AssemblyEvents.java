@@ -0,0 +1,109 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.List;
+
+/**
+ * Dispatches events to the {@link AssemblyEventListener} components. Callers check {@link #isEnabled()} before they
+ * build the arguments of an event, so that without listeners nothing is allocated per entry.
+ *
+ * @since 3.1.1
+ */
+public final class AssemblyEvents
+{
+
+    /**
+     * The dispatcher without listeners.
+     */
+    public static final AssemblyEvents NONE = new AssemblyEvents( new AssemblyEventListener[0] );
+
+    private final AssemblyEventListener[] listeners;
+
+    private AssemblyEvents( AssemblyEventListener[] listeners )
+    {
+        this.listeners = listeners;
+    }
+
+    /**
+     * @param listeners the listeners, may be <code>null</code>.
+     * @return a dispatcher to the listeners.
+     */
+    @Nonnull
+    public static AssemblyEvents of( @Nullable List<AssemblyEventListener> listeners )
+    {
+        if ( listeners == null || listeners.isEmpty() )
+        {
+            return NONE;
+        }
+        return new AssemblyEvents( listeners.toArray( new AssemblyEventListener[listeners.size()] ) );
+    }
+
+    /**
+     * @return <code>true</code> if there is at least one listener.
+     */
+    public boolean isEnabled()
+    {
+        return listeners.length > 0;
+    }
+
+    public void phaseStarted( String assemblyId, String format, String phase )
+    {
+        for ( final AssemblyEventListener listener : listeners )
+        {
+            listener.phaseStarted( assemblyId, format, phase );
+        }
+    }
+
+    public void phaseFinished( String assemblyId, String format, String phase, long nanos )
+    {
+        for ( final AssemblyEventListener listener : listeners )
+        {
+            listener.phaseFinished( assemblyId, format, phase, nanos );
+        }
+    }
+
+    public void entryAdded( String source, String target, long size, boolean transformed )
+    {
+        for ( final AssemblyEventListener listener : listeners )
+        {
+            listener.entryAdded( source, target, size, transformed );
+        }
+    }
+
+    public void duplicateSkipped( String source, String target )
+    {
+        for ( final AssemblyEventListener listener : listeners )
+        {
+            listener.duplicateSkipped( source, target );
+        }
+    }
+
+    public void archiveWritten( String assemblyId, String format, File file, long nanos )
+    {
+        for ( final AssemblyEventListener listener : listeners )
+        {
+            listener.archiveWritten( assemblyId, format, file, nanos );
+        }
+    }
+}
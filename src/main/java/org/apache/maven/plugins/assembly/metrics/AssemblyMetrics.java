@@ -0,0 +1,333 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.annotation.Nonnull;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Volume counters of the assembly being created on the current thread. The archiver binds an instance while it
+ * creates an archive with a report; the phases, tasks and archivers it calls count through {@link #current()}.
+ * Threads started while an instance is bound (resolution pools, concurrent compression) count into the same instance.
+ * <p>
+ * Without a bound instance, {@link #current()} returns a disabled instance whose methods return at once.
+ * </p>
+ *
+ * @since 3.1.1
+ */
+public final class AssemblyMetrics
+{
+
+    private static final AssemblyMetrics DISABLED = new AssemblyMetrics( false );
+
+    private static final InheritableThreadLocal<AssemblyMetrics> CURRENT =
+        new InheritableThreadLocal<AssemblyMetrics>();
+
+    private final boolean enabled;
+
+    private final AtomicLong entries = new AtomicLong();
+
+    private final AtomicLong entryBytes = new AtomicLong();
+
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private final AtomicLong dependencyResolutions = new AtomicLong();
+
+    private final AtomicLong projectBuilds = new AtomicLong();
+
+    private final AtomicLong filterInvocations = new AtomicLong();
+
+    private AssemblyMetrics( boolean enabled )
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Binds new counters to the current thread.
+     *
+     * @return the counters.
+     */
+    @Nonnull
+    public static AssemblyMetrics start()
+    {
+        final AssemblyMetrics metrics = new AssemblyMetrics( true );
+        CURRENT.set( metrics );
+        return metrics;
+    }
+
+    /**
+     * Unbinds the counters of the current thread.
+     */
+    public static void stop()
+    {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return The counters bound to the current thread, or a disabled instance.
+     */
+    @Nonnull
+    public static AssemblyMetrics current()
+    {
+        final AssemblyMetrics metrics = CURRENT.get();
+        return metrics != null ? metrics : DISABLED;
+    }
+
+    /**
+     * @return <code>true</code> if this instance counts.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Counts an entry added to the archive.
+     *
+     * @param size the size of its content, or a negative value if unknown.
+     */
+    public void entryAdded( long size )
+    {
+        if ( enabled )
+        {
+            entries.incrementAndGet();
+            if ( size > 0 )
+            {
+                entryBytes.addAndGet( size );
+            }
+        }
+    }
+
+    /**
+     * Counts bytes read from the contents of the entries.
+     *
+     * @param bytes the number of bytes.
+     */
+    public void bytesRead( long bytes )
+    {
+        if ( enabled && bytes > 0 )
+        {
+            bytesRead.addAndGet( bytes );
+        }
+    }
+
+    /**
+     * Wraps the contents of an entry so the bytes read from them are counted.
+     *
+     * @param contents the contents.
+     * @return A stream counting into {@link #bytesRead(long)}, or <code>contents</code> if this instance is disabled.
+     */
+    @Nonnull
+    public InputStream countReads( @Nonnull InputStream contents )
+    {
+        return enabled ? new ReadCountingInputStream( contents, bytesRead ) : contents;
+    }
+
+    /**
+     * Counts bytes written to disk.
+     *
+     * @param bytes the number of bytes.
+     */
+    public void bytesWritten( long bytes )
+    {
+        if ( enabled && bytes > 0 )
+        {
+            bytesWritten.addAndGet( bytes );
+        }
+    }
+
+    /**
+     * Counts the resolution of a dependency set.
+     */
+    public void dependencyResolution()
+    {
+        if ( enabled )
+        {
+            dependencyResolutions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Counts a project built from a POM.
+     */
+    public void projectBuild()
+    {
+        if ( enabled )
+        {
+            projectBuilds.incrementAndGet();
+        }
+    }
+
+    /**
+     * Counts a file passed through the filtering of expressions.
+     */
+    public void filterInvocation()
+    {
+        if ( enabled )
+        {
+            filterInvocations.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return The current values of all counters.
+     */
+    @Nonnull
+    public Counters snapshot()
+    {
+        return new Counters( entries.get(), entryBytes.get(), bytesRead.get(), bytesWritten.get(),
+                             dependencyResolutions.get(), projectBuilds.get(), filterInvocations.get() );
+    }
+
+    /**
+     * The values of the counters at one point in time, or the difference between two points.
+     */
+    public static final class Counters
+    {
+
+        private final long entries;
+
+        private final long entryBytes;
+
+        private final long bytesRead;
+
+        private final long bytesWritten;
+
+        private final long dependencyResolutions;
+
+        private final long projectBuilds;
+
+        private final long filterInvocations;
+
+        public Counters( long entries, long entryBytes, long bytesRead, long bytesWritten, long dependencyResolutions,
+                         long projectBuilds, long filterInvocations )
+        {
+            this.entries = entries;
+            this.entryBytes = entryBytes;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
+            this.dependencyResolutions = dependencyResolutions;
+            this.projectBuilds = projectBuilds;
+            this.filterInvocations = filterInvocations;
+        }
+
+        /**
+         * @param earlier an earlier snapshot.
+         * @return The counts between <code>earlier</code> and this snapshot.
+         */
+        @Nonnull
+        public Counters since( @Nonnull Counters earlier )
+        {
+            return new Counters( entries - earlier.entries, entryBytes - earlier.entryBytes,
+                                 bytesRead - earlier.bytesRead, bytesWritten - earlier.bytesWritten,
+                                 dependencyResolutions - earlier.dependencyResolutions,
+                                 projectBuilds - earlier.projectBuilds, filterInvocations - earlier.filterInvocations );
+        }
+
+        public long getEntries()
+        {
+            return entries;
+        }
+
+        /**
+         * @return The total size of the entries added, as their resources report it before any filtering; this is
+         *         not a measure of the bytes actually read.
+         */
+        public long getEntryBytes()
+        {
+            return entryBytes;
+        }
+
+        /**
+         * @return The bytes read from the contents of the entries while the archive was written, after any filtering.
+         *         An entry read twice counts twice; an entry never read does not count, nor do the entries of
+         *         archived file-sets, which the archiver reads without the assembly seeing them.
+         */
+        public long getBytesRead()
+        {
+            return bytesRead;
+        }
+
+        public long getBytesWritten()
+        {
+            return bytesWritten;
+        }
+
+        public long getDependencyResolutions()
+        {
+            return dependencyResolutions;
+        }
+
+        public long getProjectBuilds()
+        {
+            return projectBuilds;
+        }
+
+        public long getFilterInvocations()
+        {
+            return filterInvocations;
+        }
+    }
+
+    /**
+     * Adds the bytes read through it to a counter.
+     */
+    private static final class ReadCountingInputStream
+        extends FilterInputStream
+    {
+
+        private final AtomicLong counter;
+
+        ReadCountingInputStream( InputStream in, AtomicLong counter )
+        {
+            super( in );
+            this.counter = counter;
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            final int b = super.read();
+            if ( b >= 0 )
+            {
+                counter.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+            throws IOException
+        {
+            final int read = super.read( b, off, len );
+            if ( read > 0 )
+            {
+                counter.addAndGet( read );
+            }
+            return read;
+        }
+    }
+}
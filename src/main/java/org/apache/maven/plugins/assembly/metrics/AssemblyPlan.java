@@ -0,0 +1,285 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugins.assembly.utils.HashedPathIndex;
+import org.codehaus.plexus.logging.Logger;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The entries an assembly archive would contain, collected without reading their contents, and the size the archive
+ * would have. The output size is estimated from the size of each entry and a compression ratio guessed from its
+ * extension, plus the per-entry overhead of the format.
+ *
+ * @since 3.1.1
+ */
+public final class AssemblyPlan
+{
+
+    /**
+     * The number of largest entries which are kept.
+     */
+    public static final int LARGEST_ENTRIES = 10;
+
+    private static final int MAX_LOGGED_DUPLICATES = 20;
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>(
+        Arrays.asList( "jar", "war", "ear", "rar", "sar", "zip", "gz", "tgz", "bz2", "tbz2", "xz", "txz", "7z", "png",
+                       "jpg", "jpeg", "gif", "mp3", "mp4", "woff", "woff2" ) );
+
+    private static final Set<String> TEXT_EXTENSIONS = new HashSet<String>(
+        Arrays.asList( "txt", "xml", "properties", "html", "htm", "css", "js", "json", "java", "md", "sh", "bat",
+                       "cmd", "conf", "yml", "yaml", "csv", "sql", "pom", "mf", "xsd", "dtd", "vm", "sample" ) );
+
+    private static final double TEXT_RATIO = 0.25;
+
+    private static final double BINARY_RATIO = 0.5;
+
+    private static final Comparator<Entry> BY_SIZE = new Comparator<Entry>()
+    {
+        @Override
+        public int compare( Entry o1, Entry o2 )
+        {
+            return o1.size < o2.size ? -1 : ( o1.size == o2.size ? 0 : 1 );
+        }
+    };
+
+    private final PriorityQueue<Entry> largest = new PriorityQueue<Entry>( LARGEST_ENTRIES + 1, BY_SIZE );
+
+    private final HashedPathIndex targets = new HashedPathIndex();
+
+    private final Map<String, Integer> duplicates = new LinkedHashMap<String, Integer>();
+
+    private long entries;
+
+    private long inputBytes;
+
+    private double compressedBytes;
+
+    private long nameBytes;
+
+    private long tarBytes;
+
+    /**
+     * Adds an entry.
+     *
+     * @param target the path of the entry in the archive.
+     * @param size the size of its content, or a negative value if unknown.
+     */
+    public void add( @Nonnull String target, long size )
+    {
+        final long length = Math.max( size, 0 );
+
+        if ( targets.add( target ) < 0 )
+        {
+            final Integer count = duplicates.get( target );
+            duplicates.put( target, count == null ? 2 : count + 1 );
+        }
+
+        entries++;
+        inputBytes += length;
+        compressedBytes += length * compressionRatio( target );
+        nameBytes += target.length();
+        tarBytes += 512 + roundUp( length );
+        if ( target.length() > 100 )
+        {
+            // GNU long name entry
+            tarBytes += 512 + roundUp( target.length() + 1 );
+        }
+
+        largest.add( new Entry( target, length ) );
+        if ( largest.size() > LARGEST_ENTRIES )
+        {
+            largest.poll();
+        }
+    }
+
+    private static long roundUp( long size )
+    {
+        return ( size + 511 ) / 512 * 512;
+    }
+
+    static double compressionRatio( String target )
+    {
+        final int slash = target.lastIndexOf( '/' );
+        final int dot = target.lastIndexOf( '.' );
+        if ( dot <= slash + 1 )
+        {
+            return BINARY_RATIO;
+        }
+        final String extension = target.substring( dot + 1 ).toLowerCase( Locale.ENGLISH );
+        if ( COMPRESSED_EXTENSIONS.contains( extension ) )
+        {
+            return 1.0;
+        }
+        return TEXT_EXTENSIONS.contains( extension ) ? TEXT_RATIO : BINARY_RATIO;
+    }
+
+    public long getEntries()
+    {
+        return entries;
+    }
+
+    public long getInputBytes()
+    {
+        return inputBytes;
+    }
+
+    /**
+     * @return The largest entries, largest first.
+     */
+    @Nonnull
+    public List<Entry> getLargestEntries()
+    {
+        final List<Entry> sorted = new ArrayList<Entry>( largest );
+        Collections.sort( sorted, Collections.reverseOrder( BY_SIZE ) );
+        return sorted;
+    }
+
+    /**
+     * @return The target paths added more than once, with the number of times they were added.
+     */
+    @Nonnull
+    public Map<String, Integer> getDuplicates()
+    {
+        return Collections.unmodifiableMap( duplicates );
+    }
+
+    /**
+     * Estimates the size of the archive in a format.
+     *
+     * @param format the format, e.g. <code>zip</code> or <code>tar.gz</code>.
+     * @return the estimated size in bytes.
+     */
+    public long estimateSize( @Nonnull String format )
+    {
+        final String f = format.toLowerCase( Locale.ENGLISH );
+        if ( f.startsWith( "dir" ) )
+        {
+            return inputBytes;
+        }
+        if ( "tar".equals( f ) )
+        {
+            return tarBytes + 1024;
+        }
+        if ( f.startsWith( "tar." ) || "tgz".equals( f ) || "tbz2".equals( f ) || "txz".equals( f ) )
+        {
+            // headers and padding compress to almost nothing
+            return (long) compressedBytes + entries * 64 + 1024;
+        }
+        // zip and its derivatives: local header and central directory record per entry, plus the end record
+        return (long) compressedBytes + entries * ( 30 + 46 ) + 2 * nameBytes + 22;
+    }
+
+    /**
+     * Logs the plan.
+     *
+     * @param logger the logger, at INFO level.
+     * @param assemblyId the id of the assembly.
+     * @param format the format of the archive.
+     */
+    public void log( @Nonnull Logger logger, @Nonnull String assemblyId, @Nonnull String format )
+    {
+        logger.info( "Assembly plan for " + assemblyId + " (" + format + "): " + entries + " entries, "
+                         + formatSize( inputBytes ) + " of input, about " + formatSize( estimateSize( format ) )
+                         + " of output." );
+
+        final List<Entry> largestEntries = getLargestEntries();
+        if ( !largestEntries.isEmpty() )
+        {
+            logger.info( "  Largest entries:" );
+            for ( final Entry entry : largestEntries )
+            {
+                logger.info( "    " + formatSize( entry.size ) + "  " + entry.target );
+            }
+        }
+
+        if ( !duplicates.isEmpty() )
+        {
+            logger.info( "  Duplicate target paths (" + duplicates.size() + "):" );
+            int logged = 0;
+            for ( final Map.Entry<String, Integer> duplicate : duplicates.entrySet() )
+            {
+                if ( logged++ == MAX_LOGGED_DUPLICATES )
+                {
+                    logger.info( "    ..." );
+                    break;
+                }
+                logger.info( "    " + duplicate.getKey() + " (added " + duplicate.getValue() + " times)" );
+            }
+        }
+    }
+
+    static String formatSize( long bytes )
+    {
+        if ( bytes < 1024 )
+        {
+            return bytes + " B";
+        }
+        final String[] units = { "KiB", "MiB", "GiB", "TiB" };
+        double value = bytes;
+        int unit = -1;
+        while ( value >= 1024 && unit < units.length - 1 )
+        {
+            value /= 1024;
+            unit++;
+        }
+        return String.format( Locale.ROOT, "%.1f %s", value, units[unit] );
+    }
+
+    /**
+     * An entry of the plan.
+     */
+    public static final class Entry
+    {
+
+        private final String target;
+
+        private final long size;
+
+        Entry( String target, long size )
+        {
+            this.target = target;
+            this.size = size;
+        }
+
+        public String getTarget()
+        {
+            return target;
+        }
+
+        public long getSize()
+        {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.util.IOUtil;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Wall time, CPU time and volumes of each step of the creation of one assembly archive: every assembly phase, then
+ * the archiver writing the archive. File sets are expanded while the archive is written, so their entries are
+ * counted in that last step.
+ * <p>
+ * The CPU time is that of the calling thread only: the threads which compress entries, read them ahead or resolve
+ * dependency sets are not included, and they usually end before the step does, so their time cannot be added up
+ * afterwards. The volumes, on the other hand, are counted on every thread.
+ * </p>
+ *
+ * @since 3.1.1
+ */
+public final class AssemblyReport
+{
+
+    private static final String[] COLUMNS = { "Step", "Wall ms", "Thread CPU ms", "Entries", "Entries KiB", "Read KiB",
+        "Written KiB", "Resolutions", "Builds", "Filtered" };
+
+    private final String assemblyId;
+
+    private final String format;
+
+    private final AssemblyMetrics metrics;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private final boolean cpuTimeSupported;
+
+    private final List<Step> steps = new ArrayList<Step>();
+
+    /**
+     * @param assemblyId the id of the assembly.
+     * @param format the format of the archive.
+     * @param metrics the counters bound while the archive is created.
+     */
+    public AssemblyReport( @Nonnull String assemblyId, @Nonnull String format, @Nonnull AssemblyMetrics metrics )
+    {
+        this.assemblyId = assemblyId;
+        this.format = format;
+        this.metrics = metrics;
+        this.cpuTimeSupported = threads.isCurrentThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * Starts measuring a step on the current thread.
+     *
+     * @param name the name of the step.
+     * @return the step, to pass to {@link #end(Step)}.
+     */
+    @Nonnull
+    public Step begin( @Nonnull String name )
+    {
+        return new Step( name, System.nanoTime(), cpuTime(), metrics.snapshot() );
+    }
+
+    /**
+     * Ends measuring a step and records it.
+     *
+     * @param step the step returned by {@link #begin(String)}.
+     */
+    public void end( @Nonnull Step step )
+    {
+        step.wallNanos = System.nanoTime() - step.wallNanos;
+        step.threadCpuNanos = cpuTimeSupported ? cpuTime() - step.threadCpuNanos : -1;
+        step.counters = metrics.snapshot().since( step.counters );
+        steps.add( step );
+    }
+
+    private long cpuTime()
+    {
+        return cpuTimeSupported ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * @return The recorded steps, in order.
+     */
+    @Nonnull
+    public List<Step> getSteps()
+    {
+        return Collections.unmodifiableList( steps );
+    }
+
+    private Step total()
+    {
+        final Step total = new Step( "Total", 0, 0, new AssemblyMetrics.Counters( 0, 0, 0, 0, 0, 0, 0 ) );
+        long entries = 0;
+        long entryBytes = 0;
+        long bytesRead = 0;
+        long bytesWritten = 0;
+        long resolutions = 0;
+        long builds = 0;
+        long filtered = 0;
+        for ( final Step step : steps )
+        {
+            total.wallNanos += step.wallNanos;
+            total.threadCpuNanos = step.threadCpuNanos < 0 || total.threadCpuNanos < 0 ? -1
+                : total.threadCpuNanos + step.threadCpuNanos;
+            entries += step.counters.getEntries();
+            entryBytes += step.counters.getEntryBytes();
+            bytesRead += step.counters.getBytesRead();
+            bytesWritten += step.counters.getBytesWritten();
+            resolutions += step.counters.getDependencyResolutions();
+            builds += step.counters.getProjectBuilds();
+            filtered += step.counters.getFilterInvocations();
+        }
+        total.counters = new AssemblyMetrics.Counters( entries, entryBytes, bytesRead, bytesWritten, resolutions,
+                                                       builds, filtered );
+        return total;
+    }
+
+    /**
+     * Logs the report as a table.
+     *
+     * @param logger the logger, at INFO level.
+     */
+    public void log( @Nonnull Logger logger )
+    {
+        final List<String[]> rows = new ArrayList<String[]>();
+        rows.add( COLUMNS );
+        for ( final Step step : steps )
+        {
+            rows.add( step.toRow() );
+        }
+        rows.add( total().toRow() );
+
+        final int[] widths = new int[COLUMNS.length];
+        for ( final String[] row : rows )
+        {
+            for ( int i = 0; i < row.length; i++ )
+            {
+                widths[i] = Math.max( widths[i], row[i].length() );
+            }
+        }
+
+        logger.info( "Assembly report for " + assemblyId + " (" + format + "):" );
+        for ( final String[] row : rows )
+        {
+            final StringBuilder line = new StringBuilder( "  " );
+            for ( int i = 0; i < row.length; i++ )
+            {
+                if ( i == 0 )
+                {
+                    line.append( row[i] );
+                    pad( line, widths[i] - row[i].length() );
+                }
+                else
+                {
+                    pad( line, 2 + widths[i] - row[i].length() );
+                    line.append( row[i] );
+                }
+            }
+            logger.info( line.toString() );
+        }
+    }
+
+    private static void pad( StringBuilder line, int count )
+    {
+        for ( int i = 0; i < count; i++ )
+        {
+            line.append( ' ' );
+        }
+    }
+
+    /**
+     * Writes the report as JSON.
+     *
+     * @param file the file to write; its parent directories are created.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write( @Nonnull File file )
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+
+        Writer writer = null;
+        try
+        {
+            writer = new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" );
+            writer.write( toJson() );
+            writer.close();
+            writer = null;
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    /**
+     * @return The report as a JSON object.
+     */
+    @Nonnull
+    public String toJson()
+    {
+        final StringBuilder json = new StringBuilder( 256 + steps.size() * 256 );
+        json.append( "{\n  \"assemblyId\": " ).append( quote( assemblyId ) );
+        json.append( ",\n  \"format\": " ).append( quote( format ) );
+        json.append( ",\n  \"steps\": [" );
+        for ( int i = 0; i < steps.size(); i++ )
+        {
+            json.append( i == 0 ? "\n    " : ",\n    " );
+            steps.get( i ).appendJson( json );
+        }
+        json.append( "\n  ],\n  \"total\": " );
+        total().appendJson( json );
+        return json.append( "\n}\n" ).toString();
+    }
+
+    static String quote( String value )
+    {
+        final StringBuilder quoted = new StringBuilder( value.length() + 2 ).append( '"' );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            final char c = value.charAt( i );
+            if ( c == '"' || c == '\\' )
+            {
+                quoted.append( '\\' ).append( c );
+            }
+            else if ( c < 0x20 )
+            {
+                quoted.append( String.format( Locale.ROOT, "\\u%04x", (int) c ) );
+            }
+            else
+            {
+                quoted.append( c );
+            }
+        }
+        return quoted.append( '"' ).toString();
+    }
+
+    /**
+     * One measured step.
+     */
+    public static final class Step
+    {
+
+        private final String name;
+
+        private long wallNanos;
+
+        private long threadCpuNanos;
+
+        private AssemblyMetrics.Counters counters;
+
+        private Step( String name, long wallNanos, long threadCpuNanos, AssemblyMetrics.Counters counters )
+        {
+            this.name = name;
+            this.wallNanos = wallNanos;
+            this.threadCpuNanos = threadCpuNanos;
+            this.counters = counters;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public long getWallNanos()
+        {
+            return wallNanos;
+        }
+
+        /**
+         * @return The CPU time of the thread which ran the step, without that of the threads it started, or -1 if the
+         *         JVM does not measure it.
+         */
+        public long getThreadCpuNanos()
+        {
+            return threadCpuNanos;
+        }
+
+        public AssemblyMetrics.Counters getCounters()
+        {
+            return counters;
+        }
+
+        private String[] toRow()
+        {
+            return new String[] { name, String.valueOf( wallNanos / 1000000 ),
+                threadCpuNanos < 0 ? "-" : String.valueOf( threadCpuNanos / 1000000 ),
+                String.valueOf( counters.getEntries() ), String.valueOf( counters.getEntryBytes() / 1024 ),
+                String.valueOf( counters.getBytesRead() / 1024 ), String.valueOf( counters.getBytesWritten() / 1024 ),
+                String.valueOf( counters.getDependencyResolutions() ), String.valueOf( counters.getProjectBuilds() ),
+                String.valueOf( counters.getFilterInvocations() ) };
+        }
+
+        private void appendJson( StringBuilder json )
+        {
+            json.append( "{ \"name\": " ).append( quote( name ) );
+            json.append( ", \"wallNanos\": " ).append( wallNanos );
+            json.append( ", \"threadCpuNanos\": " ).append( threadCpuNanos );
+            json.append( ", \"entries\": " ).append( counters.getEntries() );
+            json.append( ", \"entryBytes\": " ).append( counters.getEntryBytes() );
+            json.append( ", \"bytesRead\": " ).append( counters.getBytesRead() );
+            json.append( ", \"bytesWritten\": " ).append( counters.getBytesWritten() );
+            json.append( ", \"dependencyResolutions\": " ).append( counters.getDependencyResolutions() );
+            json.append( ", \"projectBuilds\": " ).append( counters.getProjectBuilds() );
+            json.append( ", \"filterInvocations\": " ).append( counters.getFilterInvocations() );
+            json.append( " }" );
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.IOUtil;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A timeline of the spans of an assembly execution, written in the Chrome trace-event format which Perfetto and
+ * <code>chrome://tracing</code> load. The mojo binds an instance to its thread while it reads the descriptors and
+ * creates the archives; threads started meanwhile record into the same instance, each span carrying the id of the
+ * thread which ran it.
+ * <p>
+ * Without a bound instance, {@link #current()} returns a disabled instance: {@link #begin(String, String)} returns a
+ * shared span whose {@link Span#end()} returns at once, so an untraced build allocates nothing per span.
+ * </p>
+ *
+ * @since 3.1.1
+ */
+public final class AssemblyTrace
+{
+
+    /**
+     * The default size from which filtered files get a span of their own.
+     */
+    public static final long DEFAULT_FILTERED_FILE_THRESHOLD = 64 * 1024;
+
+    private static final AssemblyTrace DISABLED = new AssemblyTrace( false, Long.MAX_VALUE );
+
+    private static final InheritableThreadLocal<AssemblyTrace> CURRENT = new InheritableThreadLocal<AssemblyTrace>();
+
+    private static final Span NO_SPAN = new Span( null, null, null, null, null );
+
+    private final boolean enabled;
+
+    private final long filteredFileThreshold;
+
+    private final long origin = System.nanoTime();
+
+    private final ConcurrentLinkedQueue<Span> spans = new ConcurrentLinkedQueue<Span>();
+
+    private AssemblyTrace( boolean enabled, long filteredFileThreshold )
+    {
+        this.enabled = enabled;
+        this.filteredFileThreshold = filteredFileThreshold;
+    }
+
+    /**
+     * Binds a new trace to the current thread.
+     *
+     * @param filteredFileThreshold the size from which filtered files get a span of their own.
+     * @return the trace.
+     */
+    @Nonnull
+    public static AssemblyTrace start( long filteredFileThreshold )
+    {
+        final AssemblyTrace trace = new AssemblyTrace( true, filteredFileThreshold );
+        CURRENT.set( trace );
+        return trace;
+    }
+
+    /**
+     * Unbinds the trace of the current thread.
+     */
+    public static void stop()
+    {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return The trace bound to the current thread, or a disabled instance.
+     */
+    @Nonnull
+    public static AssemblyTrace current()
+    {
+        final AssemblyTrace trace = CURRENT.get();
+        return trace != null ? trace : DISABLED;
+    }
+
+    /**
+     * @return <code>true</code> if this instance records spans.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Starts a span on the current thread.
+     *
+     * @param category the category of the span, e.g. <code>phase</code>.
+     * @param name the name of the span.
+     * @return the span, to end once its work is done.
+     */
+    @Nonnull
+    public Span begin( @Nonnull String category, @Nonnull String name )
+    {
+        return begin( category, name, null, null );
+    }
+
+    /**
+     * Starts a span with an argument on the current thread. The argument is only turned into a string when the span
+     * is recorded, so callers may pass the object at hand.
+     *
+     * @param category the category of the span, e.g. <code>phase</code>.
+     * @param name the name of the span.
+     * @param argName the name of the argument.
+     * @param argValue the value of the argument.
+     * @return the span, to end once its work is done.
+     */
+    @Nonnull
+    public Span begin( @Nonnull String category, @Nonnull String name, @Nullable String argName,
+                       @Nullable Object argValue )
+    {
+        if ( !enabled )
+        {
+            return NO_SPAN;
+        }
+        return new Span( this, category, name, argName, argValue );
+    }
+
+    /**
+     * Wraps the stream of a filtered file, so that reading it gets a span if the file is at least as large as the
+     * threshold of this trace. The span starts with the first read and ends when the stream is closed.
+     *
+     * @param stream the filtered stream.
+     * @param name the name of the file.
+     * @param size the size of the file before filtering, or a negative value if unknown.
+     * @return the stream to read.
+     */
+    @Nonnull
+    public InputStream traceFilteredFile( @Nonnull InputStream stream, @Nonnull String name, long size )
+    {
+        if ( !enabled || size < filteredFileThreshold )
+        {
+            return stream;
+        }
+        return new SpanInputStream( stream, this, name );
+    }
+
+    /**
+     * @return The number of recorded spans.
+     */
+    public int size()
+    {
+        return spans.size();
+    }
+
+    /**
+     * Writes the trace.
+     *
+     * @param file the file to write; its parent directories are created.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write( @Nonnull File file )
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+
+        Writer writer = null;
+        try
+        {
+            writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" ) );
+            write( writer );
+            writer.close();
+            writer = null;
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    /**
+     * Writes the trace as a Chrome trace-event JSON object: one complete event per span, and the names of the threads
+     * which ran them as metadata events.
+     *
+     * @param writer the writer.
+     * @throws IOException if the writer fails.
+     */
+    public void write( @Nonnull Writer writer )
+        throws IOException
+    {
+        final List<Span> recorded = new ArrayList<Span>( spans );
+        final Map<Long, String> threads = new LinkedHashMap<Long, String>();
+
+        writer.write( "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[" );
+        boolean first = true;
+        for ( final Span span : recorded )
+        {
+            if ( !threads.containsKey( span.threadId ) )
+            {
+                threads.put( span.threadId, span.threadName );
+            }
+
+            final StringBuilder event = new StringBuilder( 160 );
+            event.append( first ? "\n" : ",\n" );
+            event.append( "{\"ph\":\"X\",\"pid\":1,\"tid\":" ).append( span.threadId );
+            event.append( ",\"cat\":" ).append( AssemblyReport.quote( span.category ) );
+            event.append( ",\"name\":" ).append( AssemblyReport.quote( span.name ) );
+            event.append( ",\"ts\":" ).append( micros( span.startNanos - origin ) );
+            event.append( ",\"dur\":" ).append( micros( span.durationNanos ) );
+            if ( span.argName != null )
+            {
+                event.append( ",\"args\":{" ).append( AssemblyReport.quote( span.argName ) ).append( ':' );
+                event.append( AssemblyReport.quote( String.valueOf( span.argValue ) ) ).append( '}' );
+            }
+            writer.write( event.append( '}' ).toString() );
+            first = false;
+        }
+
+        for ( final Map.Entry<Long, String> thread : threads.entrySet() )
+        {
+            writer.write( first ? "\n" : ",\n" );
+            writer.write( "{\"ph\":\"M\",\"pid\":1,\"tid\":" + thread.getKey() + ",\"name\":\"thread_name\",\"args\":"
+                              + "{\"name\":" + AssemblyReport.quote( thread.getValue() ) + "}}" );
+            first = false;
+        }
+        writer.write( "\n]}\n" );
+    }
+
+    private static String micros( long nanos )
+    {
+        final StringBuilder micros = new StringBuilder().append( nanos / 1000 ).append( '.' );
+        final long fraction = nanos % 1000;
+        if ( fraction < 100 )
+        {
+            micros.append( fraction < 10 ? "00" : "0" );
+        }
+        return micros.append( fraction ).toString();
+    }
+
+    /**
+     * One span of the timeline.
+     */
+    public static final class Span
+    {
+
+        private final AssemblyTrace trace;
+
+        private final String category;
+
+        private final String name;
+
+        private final String argName;
+
+        private final Object argValue;
+
+        private final long threadId;
+
+        private final String threadName;
+
+        private final long startNanos;
+
+        private long durationNanos = -1;
+
+        private Span( AssemblyTrace trace, String category, String name, String argName, Object argValue )
+        {
+            this.trace = trace;
+            this.category = category;
+            this.name = name;
+            this.argName = argName;
+            this.argValue = argValue;
+            if ( trace != null )
+            {
+                final Thread thread = Thread.currentThread();
+                this.threadId = thread.getId();
+                this.threadName = thread.getName();
+                this.startNanos = System.nanoTime();
+            }
+            else
+            {
+                this.threadId = 0;
+                this.threadName = null;
+                this.startNanos = 0;
+            }
+        }
+
+        /**
+         * Ends the span and records it. Ending a span twice records it once.
+         */
+        public void end()
+        {
+            if ( trace != null && durationNanos < 0 )
+            {
+                durationNanos = System.nanoTime() - startNanos;
+                trace.spans.add( this );
+            }
+        }
+    }
+
+    private static final class SpanInputStream
+        extends FilterInputStream
+    {
+
+        private final AssemblyTrace trace;
+
+        private final String name;
+
+        private Span span;
+
+        SpanInputStream( InputStream in, AssemblyTrace trace, String name )
+        {
+            super( in );
+            this.trace = trace;
+            this.name = name;
+        }
+
+        private void started()
+        {
+            if ( span == null )
+            {
+                span = trace.begin( "filter", "filter", "file", name );
+            }
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            started();
+            return super.read();
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+            throws IOException
+        {
+            started();
+            return super.read( b, off, len );
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            try
+            {
+                super.close();
+            }
+            finally
+            {
+                if ( span != null )
+                {
+                    span.end();
+                }
+            }
+        }
+    }
+}
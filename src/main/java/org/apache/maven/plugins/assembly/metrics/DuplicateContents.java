@@ -0,0 +1,162 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.logging.Logger;
+
+import javax.annotation.Nonnull;
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The entries of a zip archive whose contents are stored more than once. Entries are compared by the size and the
+ * CRC-32 of their contents, which the central directory holds, so no entry is read.
+ *
+ * @since 3.1.1
+ */
+public final class DuplicateContents
+{
+
+    private int duplicateEntries;
+
+    private long duplicateBytes;
+
+    private long compressedDuplicateBytes;
+
+    private DuplicateContents()
+    {
+    }
+
+    /**
+     * Lists the duplicate contents of a zip archive.
+     *
+     * @param zip the archive.
+     * @return the duplicate contents.
+     * @throws IOException if the archive cannot be read.
+     */
+    @Nonnull
+    public static DuplicateContents ofZip( @Nonnull File zip )
+        throws IOException
+    {
+        final DuplicateContents contents = new DuplicateContents();
+        final Map<Key, Boolean> seen = new HashMap<Key, Boolean>();
+
+        final ZipFile zipFile = new ZipFile( zip );
+        try
+        {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while ( entries.hasMoreElements() )
+            {
+                final ZipEntry entry = entries.nextElement();
+                if ( entry.isDirectory() || entry.getSize() <= 0 || entry.getCrc() < 0 )
+                {
+                    continue;
+                }
+                if ( seen.put( new Key( entry.getSize(), entry.getCrc() ), Boolean.TRUE ) != null )
+                {
+                    contents.duplicateEntries++;
+                    contents.duplicateBytes += entry.getSize();
+                    contents.compressedDuplicateBytes += Math.max( entry.getCompressedSize(), 0 );
+                }
+            }
+        }
+        finally
+        {
+            zipFile.close();
+        }
+        return contents;
+    }
+
+    /**
+     * @return The number of entries whose contents are stored by an earlier entry too.
+     */
+    public int getDuplicateEntries()
+    {
+        return duplicateEntries;
+    }
+
+    /**
+     * @return The uncompressed size of these entries.
+     */
+    public long getDuplicateBytes()
+    {
+        return duplicateBytes;
+    }
+
+    /**
+     * @return The size these entries take in the archive.
+     */
+    public long getCompressedDuplicateBytes()
+    {
+        return compressedDuplicateBytes;
+    }
+
+    /**
+     * Logs the duplicate contents, if any.
+     *
+     * @param logger the logger, at INFO level.
+     * @param archive the name of the archive.
+     */
+    public void log( @Nonnull Logger logger, @Nonnull String archive )
+    {
+        if ( duplicateEntries > 0 )
+        {
+            logger.info( archive + ": " + duplicateEntries + " entries repeat the contents of another entry, "
+                             + AssemblyPlan.formatSize( duplicateBytes ) + " ("
+                             + AssemblyPlan.formatSize( compressedDuplicateBytes ) + " compressed)." );
+        }
+    }
+
+    private static final class Key
+    {
+
+        private final long size;
+
+        private final long crc;
+
+        Key( long size, long crc )
+        {
+            this.size = size;
+            this.crc = crc;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( !( o instanceof Key ) )
+            {
+                return false;
+            }
+            final Key other = (Key) o;
+            return size == other.size && crc == other.crc;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return (int) ( size ^ ( size >>> 32 ) ) * 31 + (int) crc;
+        }
+    }
+}
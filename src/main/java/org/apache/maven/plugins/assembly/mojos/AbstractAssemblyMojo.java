@@ -23,6 +23,7 @@ import org.apache.maven.archiver.MavenArchiveConfiguration;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
@@ -33,25 +34,24 @@ import org.apache.maven.plugins.assembly.InvalidAssemblerConfigurationException;
 import org.apache.maven.plugins.assembly.archive.ArchiveCreationException;
 import org.apache.maven.plugins.assembly.archive.AssemblyArchiver;
 import org.apache.maven.plugins.assembly.format.AssemblyFormattingException;
+import org.apache.maven.plugins.assembly.interpolation.SessionInterpolators;
 import org.apache.maven.plugins.assembly.io.AssemblyReadException;
 import org.apache.maven.plugins.assembly.io.AssemblyReader;
+import org.apache.maven.plugins.assembly.metrics.AssemblyTrace;
 import org.apache.maven.plugins.assembly.model.Assembly;
 import org.apache.maven.plugins.assembly.utils.AssemblyFormatUtils;
 import org.apache.maven.plugins.assembly.utils.InterpolationConstants;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.apache.maven.shared.filtering.MavenReaderFilter;
-import org.apache.maven.shared.utils.cli.CommandLineUtils;
 import org.codehaus.plexus.configuration.PlexusConfiguration;
 import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
-import org.codehaus.plexus.interpolation.fixed.PrefixedPropertiesValueSource;
-import org.codehaus.plexus.interpolation.fixed.PropertiesBasedValueSource;
 
 import javax.annotation.Nonnull;
 import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
-import java.util.Properties;
 
 /**
  * @author <a href="mailto:brett@apache.org">Brett Porter</a>
@@ -107,6 +107,145 @@ public abstract class AbstractAssemblyMojo
     @Parameter( property = "assembly.dryRun", defaultValue = "false" )
     private boolean dryRun;
 
+    /**
+     * If this flag is set, the wall time, CPU time and volumes of each assembly phase and of the archive creation are
+     * logged as a table, and written as JSON to
+     * <code>${project.build.directory}/assembly/report/&lt;assemblyId&gt;-&lt;format&gt;.json</code>.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.report", defaultValue = "false" )
+    private boolean report;
+
+    /**
+     * If this flag is set, every assembly phase runs but no archive is written: the entries each archive would
+     * contain are listed without reading their contents, and the entry count, the total input size, the largest
+     * entries, the duplicate target paths and the estimated size of the archive are logged. Nothing is attached.
+     * Container descriptor handlers do not run, and duplicates are listed before the duplicatePolicy would drop them.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.plan", defaultValue = "false" )
+    private boolean plan;
+
+    /**
+     * How to treat entries which have the same path in an archive, e.g. a file of a fileSet overwritten by a file of a
+     * dependency. With <code>first</code> the first entry added is kept, with <code>last</code> the last one, and
+     * <code>fail</code> fails the build listing the duplicated paths. The entries are listed before any content is
+     * read, so the shadowed ones are neither filtered nor compressed. Single files are then added after the fileSets
+     * and dependencySets. If not set, the archiver handles duplicates as before.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.duplicatePolicy" )
+    private String duplicatePolicy;
+
+    /**
+     * If this flag is set, tar archives store a regular file whose contents were already written under another path
+     * as a hard link to that path, e.g. the same dependency included by several modules. Only files with the size of
+     * a file already written are digested. Zip archives cannot link, so the entries they store more than once are
+     * reported instead.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.hardLinkDuplicates", defaultValue = "false" )
+    private boolean hardLinkDuplicates;
+
+    /**
+     * The extensions of the files which zip and jar archives store instead of deflating them, because their contents
+     * are compressed already, e.g. <code>png,jpg,gz,xz,mp4,woff2</code>. Nested zips and jars are governed by
+     * {@link #recompressZippedFiles} instead.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.storedExtensions" )
+    private List<String> storedExtensions;
+
+    /**
+     * If this flag is set, zip and jar archives read the first kilobyte of each file of at least that size, and store
+     * the file instead of deflating it if those bytes look random, i.e. compressed or encrypted.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.probeEntropy", defaultValue = "false" )
+    private boolean probeEntropy;
+
+    /**
+     * The digest algorithms, e.g. <code>SHA-256,SHA-512</code>, whose checksums of each archive are written next to
+     * it, in files named after the archive and the algorithm such as <code>bin.zip.sha256</code>. The checksums are
+     * computed in a single read of the archive right after it has been written, for all algorithms at once.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.archiveDigests" )
+    private List<String> archiveDigests;
+
+    /**
+     * If this flag is set, the SHA-256 checksum of each file entry of an archive is written next to it, in a file
+     * named after the archive such as <code>bin.zip.entries.sha256</code>. The checksums are computed from the contents
+     * as they are written to the archive, without reading it back; they apply to tar, zip and jar archives.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.entryDigests", defaultValue = "false" )
+    private boolean entryDigests;
+
+    /**
+     * The megabytes of file contents which tar archives may read and filter ahead of the thread which compresses and
+     * writes them, on other threads. Files larger than this are read by the writer as usual. With 0, each file is
+     * read when it is written. Zip archives already read and compress their entries on several threads.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.pipelineBuffer", defaultValue = "0" )
+    private int pipelineBuffer;
+
+    /**
+     * If set, the files of file-sets are handed to the archiver one at a time, as their directories are walked while
+     * the archive is written, instead of being scanned and listed all at once first. This keeps the memory used by
+     * assemblies of millions of files bounded. The entries of each directory then come right after it in the archive,
+     * rather than after all the directories of the file-set.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.streamEntries", defaultValue = "false" )
+    private boolean streamEntries;
+
+    /**
+     * If set, tar archives are also split into one uncompressed tar per layer next to them, for container image
+     * builds: <code>dependencies</code> (released artifacts of dependency-sets and repositories),
+     * <code>snapshots</code> (snapshot artifacts of dependency-sets), <code>modules</code> (module-sets),
+     * <code>files</code> (file-sets and files) and <code>generated</code> (the other entries), e.g.
+     * <code>app-bin-dependencies.tar</code> for <code>app-bin.tar.gz</code>. The layers are sorted and their entries
+     * have a fixed time and owner, so a layer whose entries did not change is the same file as in the previous build.
+     * While the archive is written, its uncompressed contents are also copied to a temporary file next to it, from
+     * which the layers are written: this takes as much disk space again as the layers themselves. Tar archives are
+     * then written without hard links nor a read-ahead pipeline, with a warning if those are asked for.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.tarLayers", defaultValue = "false" )
+    private boolean tarLayers;
+
+    /**
+     * If set, a timeline of this execution is written to this file in the Chrome trace-event format, which can be
+     * loaded in Perfetto or <code>chrome://tracing</code>. It holds spans for the reading of each descriptor, each
+     * assembly phase, each dependency resolution and project build, each unpacked archive, each filtered file of at
+     * least {@link #traceFilteredFileThreshold} bytes, and the finalization and compression of each archive.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.traceFile" )
+    private File traceFile;
+
+    /**
+     * The size in bytes from which filtered files get a span of their own in the {@link #traceFile}.
+     *
+     * @since 3.1.1
+     */
+    @Parameter( property = "assembly.traceFilteredFileThreshold", defaultValue = "65536" )
+    private long traceFilteredFileThreshold = AssemblyTrace.DEFAULT_FILTERED_FILE_THRESHOLD;
+
     /**
      * If this flag is set, the ".dir" suffix will be suppressed in the output directory name when using assembly/format
      * == 'dir' and other formats that begin with 'dir'. <br/>
@@ -228,6 +367,12 @@ public abstract class AbstractAssemblyMojo
     @Parameter( defaultValue = "${session}", readonly = true, required = true )
     private MavenSession mavenSession;
 
+    /**
+     * The current mojo execution, used to find out which dependency scope Maven has already resolved.
+     */
+    @Parameter( defaultValue = "${mojoExecution}", readonly = true )
+    private MojoExecution mojoExecution;
+
     /**
      * Temporary directory that contain the files to be assembled.
      */
@@ -250,6 +395,8 @@ public abstract class AbstractAssemblyMojo
      * This is a set of instructions to the archive builder, especially for building .jar files. It enables you to
      * specify a Manifest file for the jar, in addition to other options.
      * See <a href="http://maven.apache.org/shared/maven-archiver/index.html">Maven Archiver Reference</a>.
+     * Since 3.1.1, <code>&lt;index&gt;true&lt;/index&gt;</code> adds a <code>META-INF/INDEX.LIST</code> to jar
+     * assemblies.
      */
     @Parameter
     private MavenArchiveConfiguration archive;
@@ -437,6 +584,40 @@ public abstract class AbstractAssemblyMojo
             return;
         }
 
+        if ( traceFile == null )
+        {
+            createAssemblies();
+            return;
+        }
+
+        final AssemblyTrace trace = AssemblyTrace.start( traceFilteredFileThreshold );
+        try
+        {
+            createAssemblies();
+        }
+        finally
+        {
+            AssemblyTrace.stop();
+            writeTrace( trace );
+        }
+    }
+
+    private void writeTrace( final AssemblyTrace trace )
+    {
+        try
+        {
+            trace.write( traceFile );
+            getLog().info( "Assembly trace with " + trace.size() + " spans written to " + traceFile );
+        }
+        catch ( final IOException e )
+        {
+            getLog().warn( "Failed to write the assembly trace " + traceFile + ": " + e.getMessage() );
+        }
+    }
+
+    private void createAssemblies()
+        throws MojoExecutionException, MojoFailureException
+    {
         List<Assembly> assemblies;
         try
         {
@@ -479,6 +660,11 @@ public abstract class AbstractAssemblyMojo
                         assemblyArchiver.createArchive( assembly, fullName, format,
                             this, isRecompressZippedFiles(), getMergeManifestMode() );
 
+                    if ( plan )
+                    {
+                        continue;
+                    }
+
                     final MavenProject project = getProject();
                     final String type = project.getArtifact().getType();
 
@@ -544,51 +730,6 @@ public abstract class AbstractAssemblyMojo
         }
     }
 
-    private FixedStringSearchInterpolator createRepositoryInterpolator()
-    {
-        final Properties settingsProperties = new Properties();
-        final MavenSession session = getMavenSession();
-
-        if ( getLocalRepository() != null )
-        {
-            settingsProperties.setProperty( "localRepository", getLocalRepository().getBasedir() );
-            settingsProperties.setProperty( "settings.localRepository", getLocalRepository().getBasedir() );
-        }
-        else if ( session != null && session.getSettings() != null )
-        {
-            settingsProperties.setProperty( "localRepository", session.getSettings().getLocalRepository() );
-            settingsProperties.setProperty( "settings.localRepository", getLocalRepository().getBasedir() );
-        }
-
-        return FixedStringSearchInterpolator.create( new PropertiesBasedValueSource( settingsProperties ) );
-
-    }
-
-    private FixedStringSearchInterpolator createCommandLinePropertiesInterpolator()
-    {
-        Properties commandLineProperties = System.getProperties();
-        final MavenSession session = getMavenSession();
-
-        if ( session != null )
-        {
-            commandLineProperties = new Properties();
-            commandLineProperties.putAll( session.getSystemProperties() );
-            commandLineProperties.putAll( session.getUserProperties() );
-        }
-
-        PropertiesBasedValueSource cliProps = new PropertiesBasedValueSource( commandLineProperties );
-        return FixedStringSearchInterpolator.create( cliProps );
-
-    }
-
-    private FixedStringSearchInterpolator createEnvInterpolator()
-    {
-        PrefixedPropertiesValueSource envProps = new PrefixedPropertiesValueSource( Collections.singletonList( "env." ),
-                                                                                    CommandLineUtils.getSystemEnvVars(
-                                                                                        false ), true );
-        return FixedStringSearchInterpolator.create( envProps );
-    }
-
     /**
      * Returns true if the current project is located at the Execution Root Directory (where mvn was launched)
      *
@@ -807,6 +948,72 @@ public abstract class AbstractAssemblyMojo
         return dryRun;
     }
 
+    @Override
+    public boolean isReport()
+    {
+        return report;
+    }
+
+    @Override
+    public boolean isPlan()
+    {
+        return plan;
+    }
+
+    @Override
+    public String getDuplicatePolicy()
+    {
+        return duplicatePolicy;
+    }
+
+    @Override
+    public boolean isHardLinkDuplicates()
+    {
+        return hardLinkDuplicates;
+    }
+
+    @Override
+    public List<String> getStoredExtensions()
+    {
+        return storedExtensions;
+    }
+
+    @Override
+    public boolean isProbeEntropy()
+    {
+        return probeEntropy;
+    }
+
+    @Override
+    public List<String> getArchiveDigests()
+    {
+        return archiveDigests;
+    }
+
+    @Override
+    public boolean isEntryDigests()
+    {
+        return entryDigests;
+    }
+
+    @Override
+    public int getPipelineBuffer()
+    {
+        return pipelineBuffer;
+    }
+
+    @Override
+    public boolean isStreamEntries()
+    {
+        return streamEntries;
+    }
+
+    @Override
+    public boolean isTarLayers()
+    {
+        return tarLayers;
+    }
+
     @Override
     public boolean isIgnoreDirFormatExtensions()
     {
@@ -825,6 +1032,16 @@ public abstract class AbstractAssemblyMojo
         return mavenSession;
     }
 
+    @Override
+    public String getDependencyResolutionScope()
+    {
+        if ( mojoExecution == null || mojoExecution.getMojoDescriptor() == null )
+        {
+            return null;
+        }
+        return mojoExecution.getMojoDescriptor().getDependencyResolutionRequired();
+    }
+
     @Override
     public String getArchiverConfig()
     {
@@ -888,13 +1105,18 @@ public abstract class AbstractAssemblyMojo
         this.delimiters = delimiters;
     }
 
+    private SessionInterpolators getSessionInterpolators()
+    {
+        return SessionInterpolators.forSession( getMavenSession(), getLocalRepository() );
+    }
+
     @Override
     @Nonnull
     public FixedStringSearchInterpolator getCommandLinePropsInterpolator()
     {
         if ( commanndLinePropertiesInterpolator == null )
         {
-            this.commanndLinePropertiesInterpolator = createCommandLinePropertiesInterpolator();
+            this.commanndLinePropertiesInterpolator = getSessionInterpolators().getCommandLinePropertiesInterpolator();
         }
         return commanndLinePropertiesInterpolator;
     }
@@ -905,7 +1127,7 @@ public abstract class AbstractAssemblyMojo
     {
         if ( envInterpolator == null )
         {
-            this.envInterpolator = createEnvInterpolator();
+            this.envInterpolator = getSessionInterpolators().getEnvInterpolator();
         }
         return envInterpolator;
     }
@@ -916,7 +1138,7 @@ public abstract class AbstractAssemblyMojo
     {
         if ( rootInterpolator == null )
         {
-            this.rootInterpolator = createRepositoryInterpolator();
+            this.rootInterpolator = getSessionInterpolators().getRepositoryInterpolator();
         }
         return rootInterpolator;
     }
@@ -0,0 +1,247 @@
+package org.apache.maven.plugins.assembly.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.codec.binary.Hex;
+import org.codehaus.plexus.components.io.attributes.FileAttributes;
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.components.io.resources.ResourceFactory;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A repository file together with its MD5 and SHA-1 checksums. The checksums are computed from the bytes the archiver
+ * reads while it adds the file itself, so the checksum entries normally cost no additional pass over the file. Only if
+ * a checksum entry is read before the file has been read completely (archivers may add entries concurrently) is the
+ * file read once more to compute it.
+ *
+ * @since 3.1.1
+ */
+final class ChecksummedFile
+{
+
+    static final String MD5 = "md5";
+
+    static final String SHA1 = "sha1";
+
+    private static final Charset US_ASCII = Charset.forName( "US-ASCII" );
+
+    private final File file;
+
+    private final long lastModified;
+
+    private String md5;
+
+    private String sha1;
+
+    ChecksummedFile( File file )
+    {
+        this.file = file;
+        this.lastModified = file.lastModified();
+    }
+
+    /**
+     * For content generated in memory, such as repository metadata, whose checksums are computed right away.
+     */
+    ChecksummedFile( byte[] content, long lastModified )
+    {
+        this.file = null;
+        this.lastModified = lastModified;
+        this.md5 = Hex.encodeHexString( newDigest( "MD5" ).digest( content ) );
+        this.sha1 = Hex.encodeHexString( newDigest( "SHA-1" ).digest( content ) );
+    }
+
+    /**
+     * @param name The archive path of the file.
+     * @return A resource for the file itself, which records the checksums when it is read to the end.
+     * @throws IOException if the file attributes cannot be read.
+     */
+    PlexusIoResource fileResource( String name )
+        throws IOException
+    {
+        ContentSupplier contents = new ContentSupplier()
+        {
+            @Override
+            public InputStream getContents()
+                throws IOException
+            {
+                return new DigestingInputStream( new FileInputStream( file ) );
+            }
+        };
+
+        return ResourceFactory.createResource( file, name, contents, FileAttributes.uncached( file ) );
+    }
+
+    /**
+     * @param name      The archive path of the checksum file.
+     * @param algorithm Either {@link #MD5} or {@link #SHA1}.
+     * @return A resource holding the hex encoded checksum.
+     */
+    PlexusIoResource checksumResource( String name, final String algorithm )
+    {
+        ContentSupplier contents = new ContentSupplier()
+        {
+            @Override
+            public InputStream getContents()
+                throws IOException
+            {
+                return new ByteArrayInputStream( getChecksum( algorithm ).getBytes( US_ASCII ) );
+            }
+        };
+
+        // hex encoding: two characters per digest byte
+        long size = MD5.equals( algorithm ) ? 32 : 40;
+
+        return new GeneratedResource( name, lastModified, size, contents );
+    }
+
+    synchronized String getChecksum( String algorithm )
+        throws IOException
+    {
+        if ( sha1 == null )
+        {
+            InputStream in = null;
+            try
+            {
+                in = new DigestingInputStream( new FileInputStream( file ) );
+                final byte[] buffer = new byte[8192];
+                while ( in.read( buffer ) >= 0 )
+                {
+                    // digests are updated while reading
+                }
+                in.close();
+                in = null;
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+        }
+
+        return MD5.equals( algorithm ) ? md5 : sha1;
+    }
+
+    private synchronized void setChecksums( String md5, String sha1 )
+    {
+        this.md5 = md5;
+        this.sha1 = sha1;
+    }
+
+    private static MessageDigest newDigest( String algorithm )
+    {
+        try
+        {
+            return MessageDigest.getInstance( algorithm );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // every Java platform is required to support MD5 and SHA-1
+            throw new IllegalStateException( e );
+        }
+    }
+
+    /**
+     * Updates both digests with every byte read, and records the checksums once the end of the file is reached.
+     */
+    private final class DigestingInputStream
+        extends FilterInputStream
+    {
+
+        private final MessageDigest md5Digest = newDigest( "MD5" );
+
+        private final MessageDigest sha1Digest = newDigest( "SHA-1" );
+
+        private boolean complete;
+
+        DigestingInputStream( InputStream in )
+        {
+            super( in );
+        }
+
+        @Override
+        public int read()
+            throws IOException
+        {
+            final int b = super.read();
+            if ( b >= 0 )
+            {
+                md5Digest.update( (byte) b );
+                sha1Digest.update( (byte) b );
+            }
+            else
+            {
+                complete();
+            }
+            return b;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+            throws IOException
+        {
+            final int n = super.read( b, off, len );
+            if ( n > 0 )
+            {
+                md5Digest.update( b, off, n );
+                sha1Digest.update( b, off, n );
+            }
+            else if ( n < 0 )
+            {
+                complete();
+            }
+            return n;
+        }
+
+        @Override
+        public long skip( long n )
+            throws IOException
+        {
+            // skipped bytes must still be digested
+            final byte[] buffer = new byte[(int) Math.min( n, 8192 )];
+            final int read = read( buffer, 0, buffer.length );
+            return read < 0 ? 0 : read;
+        }
+
+        @Override
+        public boolean markSupported()
+        {
+            return false;
+        }
+
+        private void complete()
+        {
+            if ( !complete )
+            {
+                complete = true;
+                setChecksums( Hex.encodeHexString( md5Digest.digest() ), Hex.encodeHexString( sha1Digest.digest() ) );
+            }
+        }
+    }
+}
@@ -19,18 +19,28 @@ package org.apache.maven.plugins.assembly.repository;
  * under the License.
  */
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Writer;
 import org.apache.maven.artifact.resolver.filter.AndArtifactFilter;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.artifact.versioning.ComparableVersion;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.plugins.assembly.repository.model.GroupVersionAlignment;
 import org.apache.maven.plugins.assembly.repository.model.RepositoryInfo;
@@ -46,9 +56,11 @@ import org.apache.maven.shared.artifact.resolve.ArtifactResult;
 import org.apache.maven.shared.dependencies.resolve.DependencyResolver;
 import org.apache.maven.shared.dependencies.resolve.DependencyResolverException;
 import org.apache.maven.shared.repository.RepositoryManager;
-import org.apache.maven.shared.utils.io.FileUtils;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
 import org.codehaus.plexus.logging.Logger;
 
@@ -71,10 +83,26 @@ public class DefaultRepositoryAssembler
     @Requirement
     private RepositoryManager repositoryManager;
 
-    public void buildRemoteRepository( File repositoryDirectory, RepositoryInfo repository,
-                                       RepositoryBuilderConfigSource configSource )
-                                           throws RepositoryAssemblyException
+    public DefaultRepositoryAssembler()
     {
+        // used for plexus.
+    }
+
+    // introduced for testing.
+    public DefaultRepositoryAssembler( ArtifactResolver artifactResolver, DependencyResolver dependencyResolver,
+                                       RepositoryManager repositoryManager )
+    {
+        this.artifactResolver = artifactResolver;
+        this.dependencyResolver = dependencyResolver;
+        this.repositoryManager = repositoryManager;
+    }
+
+    public ResolvedRepository resolveRepository( RepositoryInfo repository,
+                                                 RepositoryBuilderConfigSource configSource )
+                                                     throws RepositoryAssemblyException
+    {
+        ResolvedRepository resolved = new ResolvedRepository();
+
         MavenProject project = configSource.getProject();
         ProjectBuildingRequest buildingRequest = configSource.getProjectBuildingRequest();
 
@@ -92,7 +120,7 @@ public class DefaultRepositoryAssembler
                     + " is null. Skipping repository processing." );
             }
 
-            return;
+            return resolved;
         }
 
         Collection<Dependency> managedDependencies = null;
@@ -101,13 +129,8 @@ public class DefaultRepositoryAssembler
             managedDependencies = project.getDependencyManagement().getDependencies();
         }
 
-        // Older Aether versions use an cache which can't be cleared. So can't delete repoDir and use it again.
-        // Instead create a temporary repository, delete it at end (should be in a finally-block)
-
-        File tempRepo = new File( repositoryDirectory.getParentFile(), repositoryDirectory.getName() + "_tmp" );
-
-        buildingRequest = repositoryManager.setLocalRepositoryBasedir( buildingRequest, tempRepo );
-
+        // Resolve against the regular local repository: the archive entries are read from there directly, so there
+        // is no need for a private local repository (or a copy of it) under the assembly working directory.
         try
         {
             result = dependencyResolver.resolveDependencies( buildingRequest, dependencies, managedDependencies, null );
@@ -119,26 +142,72 @@ public class DefaultRepositoryAssembler
 
         ArtifactFilter filter = buildRepositoryFilter( repository, project );
 
-        buildingRequest = repositoryManager.setLocalRepositoryBasedir( buildingRequest, repositoryDirectory );
-
         Map<String, GroupVersionAlignment> groupVersionAlignments =
             createGroupVersionAlignments( repository.getGroupVersionAlignments() );
 
-        assembleRepositoryArtifacts( buildingRequest, result, filter, groupVersionAlignments );
+        List<Artifact> artifacts =
+            assembleRepositoryArtifacts( resolved, buildingRequest, result, filter, groupVersionAlignments );
 
         if ( repository.isIncludeMetadata() )
         {
-//            assembleRepositoryMetadata( result, filter, centralRepository, targetRepository );
+            assembleRepositoryMetadata( resolved, artifacts );
         }
 
+        return resolved;
+    }
+
+    public void buildRemoteRepository( Archiver archiver, String outputDirectory, ResolvedRepository repository )
+        throws RepositoryAssemblyException
+    {
+        int fileMode = archiver.getOverrideFileMode();
+        long now = System.currentTimeMillis();
+
         try
         {
-            FileUtils.deleteDirectory( tempRepo );
+            for ( Map.Entry<String, File> entry : repository.getFiles().entrySet() )
+            {
+                String path = outputDirectory + entry.getKey();
+
+                // the checksum entries are filled in while the archiver reads the file entry
+                ChecksummedFile file = new ChecksummedFile( entry.getValue() );
+                archiver.addResource( file.fileResource( path ), path, fileMode );
+                addChecksums( archiver, path, file, fileMode );
+            }
+
+            for ( Map.Entry<String, byte[]> entry : repository.getMetadata().entrySet() )
+            {
+                String path = outputDirectory + entry.getKey();
+
+                final byte[] content = entry.getValue();
+                ContentSupplier contents = new ContentSupplier()
+                {
+                    @Override
+                    public InputStream getContents()
+                    {
+                        return new ByteArrayInputStream( content );
+                    }
+                };
+
+                ChecksummedFile checksums = new ChecksummedFile( content, now );
+                archiver.addResource( new GeneratedResource( path, now, content.length, contents ), path, fileMode );
+                addChecksums( archiver, path, checksums, fileMode );
+            }
         }
         catch ( IOException e )
         {
-            // noop
+            throw new RepositoryAssemblyException( "Error adding repository to archive: " + e.getMessage(), e );
         }
+        catch ( ArchiverException e )
+        {
+            throw new RepositoryAssemblyException( "Error adding repository to archive: " + e.getMessage(), e );
+        }
+    }
+
+    private void addChecksums( Archiver archiver, String path, ChecksummedFile file, int fileMode )
+    {
+        archiver.addResource( file.checksumResource( path + ".md5", ChecksummedFile.MD5 ), path + ".md5", fileMode );
+        archiver.addResource( file.checksumResource( path + ".sha1", ChecksummedFile.SHA1 ), path + ".sha1",
+                              fileMode );
     }
 
     private ArtifactFilter buildRepositoryFilter( RepositoryInfo repository, MavenProject project )
@@ -200,11 +269,14 @@ public class DefaultRepositoryAssembler
         return filter;
     }
 
-    private void assembleRepositoryArtifacts( ProjectBuildingRequest buildingRequest, Iterable<ArtifactResult> result,
-                                              ArtifactFilter filter,
-                                              Map<String, GroupVersionAlignment> groupVersionAlignments )
-                                                  throws RepositoryAssemblyException
+    private List<Artifact> assembleRepositoryArtifacts( ResolvedRepository resolved,
+                                                        ProjectBuildingRequest buildingRequest,
+                                                        Iterable<ArtifactResult> result, ArtifactFilter filter,
+                                                        Map<String, GroupVersionAlignment> groupVersionAlignments )
+                                                            throws RepositoryAssemblyException
     {
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+
         try
         {
             for ( ArtifactResult ar : result )
@@ -213,20 +285,30 @@ public class DefaultRepositoryAssembler
 
                 if ( filter.include( a ) )
                 {
-                    getLogger().debug( "Re-resolving: " + a + " for repository assembly." );
+                    File file = a.getFile();
 
+                    String version = a.getVersion();
                     setAlignment( a, groupVersionAlignments );
 
-                    artifactResolver.resolveArtifact( buildingRequest, TransferUtils.toArtifactCoordinate( a ) );
+                    if ( !version.equals( a.getVersion() ) )
+                    {
+                        getLogger().debug( "Re-resolving: " + a + " for repository assembly." );
+
+                        ArtifactResult aligned =
+                            artifactResolver.resolveArtifact( buildingRequest, TransferUtils.toArtifactCoordinate( a ) );
+
+                        file = aligned.getArtifact().getFile();
+                    }
 
                     a.setVersion( a.getBaseVersion() );
 
-                    File targetFile = new File( repositoryManager.getLocalRepositoryBasedir( buildingRequest ),
-                                                repositoryManager.getPathForLocalArtifact( buildingRequest, a ) );
-                    
-                    FileUtils.copyFile( a.getFile(), targetFile );
+                    String path = repositoryManager.getPathForLocalArtifact( buildingRequest, a );
 
-//                    writeChecksums( targetFile );
+                    if ( !resolved.getFiles().containsKey( path ) )
+                    {
+                        resolved.addFile( path, file );
+                        artifacts.add( a );
+                    }
                 }
             }
         }
@@ -234,9 +316,75 @@ public class DefaultRepositoryAssembler
         {
             throw new RepositoryAssemblyException( "Error resolving artifacts: " + e.getMessage(), e );
         }
-        catch ( IOException e )
+
+        return artifacts;
+    }
+
+    /**
+     * Generates the artifact-level <code>maven-metadata.xml</code> of every included groupId:artifactId, listing the
+     * included versions.
+     */
+    private void assembleRepositoryMetadata( ResolvedRepository resolved, List<Artifact> artifacts )
+        throws RepositoryAssemblyException
+    {
+        Map<String, Metadata> metadataByPath = new TreeMap<String, Metadata>();
+
+        for ( Artifact a : artifacts )
+        {
+            String path = a.getGroupId().replace( '.', '/' ) + "/" + a.getArtifactId() + "/maven-metadata.xml";
+
+            Metadata metadata = metadataByPath.get( path );
+            if ( metadata == null )
+            {
+                metadata = new Metadata();
+                metadata.setGroupId( a.getGroupId() );
+                metadata.setArtifactId( a.getArtifactId() );
+                metadata.setVersioning( new Versioning() );
+                metadataByPath.put( path, metadata );
+            }
+
+            Versioning versioning = metadata.getVersioning();
+            if ( !versioning.getVersions().contains( a.getBaseVersion() ) )
+            {
+                versioning.addVersion( a.getBaseVersion() );
+            }
+        }
+
+        for ( Map.Entry<String, Metadata> entry : metadataByPath.entrySet() )
         {
-            throw new RepositoryAssemblyException( "Error writing artifact metdata.", e );
+            Versioning versioning = entry.getValue().getVersioning();
+
+            List<ComparableVersion> versions = new ArrayList<ComparableVersion>();
+            for ( String version : versioning.getVersions() )
+            {
+                versions.add( new ComparableVersion( version ) );
+            }
+            Collections.sort( versions );
+
+            versioning.getVersions().clear();
+            for ( ComparableVersion version : versions )
+            {
+                versioning.addVersion( version.toString() );
+
+                versioning.setLatest( version.toString() );
+                if ( !ArtifactUtils.isSnapshot( version.toString() ) )
+                {
+                    versioning.setRelease( version.toString() );
+                }
+            }
+            versioning.updateTimestamp();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try
+            {
+                new MetadataXpp3Writer().write( out, entry.getValue() );
+            }
+            catch ( IOException e )
+            {
+                throw new RepositoryAssemblyException( "Error writing repository metadata: " + entry.getKey(), e );
+            }
+
+            resolved.addMetadata( entry.getKey(), out.toByteArray() );
         }
     }
 
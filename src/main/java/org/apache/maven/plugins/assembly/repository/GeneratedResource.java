@@ -0,0 +1,60 @@
+package org.apache.maven.plugins.assembly.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.components.io.functions.ContentSupplier;
+import org.codehaus.plexus.components.io.resources.AbstractPlexusIoResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * A repository entry which only exists in the archive, such as a checksum or a metadata file. The size must be known
+ * up front since tar headers precede the entry data.
+ *
+ * @since 3.1.1
+ */
+final class GeneratedResource
+    extends AbstractPlexusIoResource
+{
+
+    private final ContentSupplier contents;
+
+    GeneratedResource( String name, long lastModified, long size, ContentSupplier contents )
+    {
+        super( name, lastModified, size, true, false, true );
+        this.contents = contents;
+    }
+
+    @Override
+    public InputStream getContents()
+        throws IOException
+    {
+        return contents.getContents();
+    }
+
+    @Override
+    public URL getURL()
+        throws IOException
+    {
+        return null;
+    }
+}
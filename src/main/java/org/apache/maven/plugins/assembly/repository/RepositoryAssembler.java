@@ -19,16 +19,36 @@ package org.apache.maven.plugins.assembly.repository;
  * under the License.
  */
 
-import java.io.File;
-
 import org.apache.maven.plugins.assembly.repository.model.RepositoryInfo;
+import org.codehaus.plexus.archiver.Archiver;
 
 /**
  * @author Jason van Zyl
  */
 public interface RepositoryAssembler
 {
-    void buildRemoteRepository( File repositoryDirectory, RepositoryInfo repository,
-                                RepositoryBuilderConfigSource configSource )
+    /**
+     * Resolves the artifacts selected by the repository. This does not touch the archive and may be called
+     * concurrently for different repositories.
+     *
+     * @param repository   The repository definition.
+     * @param configSource The configuration source.
+     * @return The files and metadata making up the repository.
+     * @throws RepositoryAssemblyException in case of resolution failures.
+     */
+    ResolvedRepository resolveRepository( RepositoryInfo repository, RepositoryBuilderConfigSource configSource )
+        throws RepositoryAssemblyException;
+
+    /**
+     * Adds a resolved repository to the archive, together with the <code>.md5</code> and <code>.sha1</code> checksum
+     * of every file. The resolved files are added in place; nothing is copied into a staging directory first, and the
+     * checksums are computed while the archiver reads each file.
+     *
+     * @param archiver        The archiver receiving the repository entries.
+     * @param outputDirectory The archive path of the repository root, empty or ending with '/'.
+     * @param repository      The resolved repository.
+     * @throws RepositoryAssemblyException in case of archiving failures.
+     */
+    void buildRemoteRepository( Archiver archiver, String outputDirectory, ResolvedRepository repository )
         throws RepositoryAssemblyException;
 }
@@ -0,0 +1,66 @@
+package org.apache.maven.plugins.assembly.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of resolving a repository: the files to include, keyed by their repository-layout path, and the
+ * generated <code>maven-metadata.xml</code> contents, keyed likewise. Resolving does not touch the archive, so several
+ * repositories can be resolved concurrently and added to the archive afterwards in a stable order.
+ *
+ * @since 3.1.1
+ */
+public final class ResolvedRepository
+{
+
+    private final Map<String, File> files = new LinkedHashMap<String, File>();
+
+    private final Map<String, byte[]> metadata = new LinkedHashMap<String, byte[]>();
+
+    void addFile( String path, File file )
+    {
+        files.put( path, file );
+    }
+
+    void addMetadata( String path, byte[] content )
+    {
+        metadata.put( path, content );
+    }
+
+    /**
+     * @return The resolved files, keyed by their '/'-separated path relative to the repository root.
+     */
+    public Map<String, File> getFiles()
+    {
+        return Collections.unmodifiableMap( files );
+    }
+
+    /**
+     * @return The generated metadata, keyed by its '/'-separated path relative to the repository root.
+     */
+    public Map<String, byte[]> getMetadata()
+    {
+        return Collections.unmodifiableMap( metadata );
+    }
+}
@@ -20,14 +20,22 @@ package org.apache.maven.plugins.assembly.utils;
  */
 
 import org.apache.maven.plugins.assembly.archive.ArchiveExpansionException;
+import org.apache.maven.plugins.assembly.metrics.AssemblyTrace;
 import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.UnArchiver;
 import org.codehaus.plexus.archiver.manager.ArchiverManager;
 import org.codehaus.plexus.archiver.manager.NoSuchArchiverException;
 import org.codehaus.plexus.components.io.fileselectors.FileInfo;
+import org.codehaus.plexus.util.IOUtil;
 
 import javax.annotation.Nonnull;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.Locale;
 
 /**
@@ -36,6 +44,8 @@ import java.util.Locale;
 public final class AssemblyFileUtils
 {
 
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     private AssemblyFileUtils()
     {
         // no op
@@ -99,6 +109,7 @@ public final class AssemblyFileUtils
     public static void unpack( File source, File destDir, ArchiverManager archiverManager )
         throws ArchiveExpansionException, NoSuchArchiverException
     {
+        final AssemblyTrace.Span span = AssemblyTrace.current().begin( "unpack", "unpack", "file", source );
         try
         {
             UnArchiver unArchiver = archiverManager.getUnArchiver( source );
@@ -113,6 +124,72 @@ public final class AssemblyFileUtils
         {
             throw new ArchiveExpansionException( "Error unpacking file: " + source + "to: " + destDir, e );
         }
+        finally
+        {
+            span.end();
+        }
+    }
+
+    /**
+     * Copies a stream to a file, and closes it. The contents of a file stream are transferred from channel to channel,
+     * which lets the kernel copy them without moving them through the heap; other streams are copied through a
+     * buffer.
+     *
+     * @param in          the contents.
+     * @param destination the file to write.
+     * @return <code>true</code> if the contents were transferred by channels.
+     * @throws IOException if the contents cannot be read or written.
+     * @since 3.1.1
+     */
+    public static boolean copy( @Nonnull InputStream in, @Nonnull File destination )
+        throws IOException
+    {
+        InputStream input = in;
+        OutputStream out = null;
+        try
+        {
+            final FileOutputStream fileOut = new FileOutputStream( destination );
+            out = fileOut;
+
+            final boolean transferred = in instanceof FileInputStream;
+            if ( transferred )
+            {
+                transfer( ( (FileInputStream) in ).getChannel(), fileOut.getChannel() );
+            }
+            else
+            {
+                IOUtil.copy( in, out, COPY_BUFFER_SIZE );
+            }
+
+            out.close();
+            out = null;
+            input.close();
+            input = null;
+            return transferred;
+        }
+        finally
+        {
+            IOUtil.close( out );
+            IOUtil.close( input );
+        }
+    }
+
+    private static void transfer( final FileChannel source, final FileChannel target )
+        throws IOException
+    {
+        // a single call transfers at most 2 GB on some platforms
+        long position = source.position();
+        final long size = source.size();
+        while ( position < size )
+        {
+            final long transferred = source.transferTo( position, size - position, target );
+            if ( transferred <= 0 )
+            {
+                // truncated while copying
+                break;
+            }
+            position += transferred;
+        }
     }
 
     @Nonnull
@@ -0,0 +1,434 @@
+package org.apache.maven.plugins.assembly.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The list of files tracked by a git working tree, read straight from its <code>.git/index</code> file. No git
+ * executable is involved; versions 2, 3 and 4 of the index format are supported.
+ */
+public final class GitIndex
+{
+
+    private static final int SIGNATURE = 0x44495243; // "DIRC"
+
+    private static final int ENTRY_HEADER_LENGTH = 62;
+
+    private static final int EXTENDED_FLAG = 0x4000;
+
+    private static final int NAME_MASK = 0xFFF;
+
+    private static final int OBJECT_TYPE_REGULAR = 0x8;
+
+    private static final int OBJECT_TYPE_SYMLINK = 0xA;
+
+    private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    private static final int MAX_INDEXES = 8;
+
+    /**
+     * Parsed indexes, keyed by index file, least recently used first. Module source sets of a reactor share one
+     * working tree, so the index is only read again when it changed on disk; a long-lived JVM keeps the last few.
+     */
+    private static final Map<File, GitIndex> CACHE = new LinkedHashMap<File, GitIndex>( 16, 0.75f, true )
+    {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<File, GitIndex> eldest )
+        {
+            return size() > MAX_INDEXES;
+        }
+    };
+
+    private final File workTree;
+
+    private final File indexFile;
+
+    private final long lastModified;
+
+    private final long length;
+
+    private final List<String> paths;
+
+    private GitIndex( File workTree, File indexFile, List<String> paths )
+    {
+        this.workTree = workTree;
+        this.indexFile = indexFile;
+        this.lastModified = indexFile.lastModified();
+        this.length = indexFile.length();
+        this.paths = Collections.unmodifiableList( paths );
+    }
+
+    /**
+     * Locates the git working tree containing the given directory and reads its index.
+     *
+     * @param directory a directory which may be inside a git working tree.
+     * @return the index, or <code>null</code> if the directory is not inside a working tree, or if the index cannot be
+     *         used (it does not exist yet, or it is a split index).
+     * @throws IOException if the index file cannot be read.
+     */
+    @Nullable
+    public static GitIndex forDirectory( @Nonnull File directory )
+        throws IOException
+    {
+        File dir = directory.getCanonicalFile();
+        while ( dir != null )
+        {
+            final File dotGit = new File( dir, ".git" );
+            if ( dotGit.isDirectory() )
+            {
+                return load( dir, new File( dotGit, "index" ) );
+            }
+            else if ( dotGit.isFile() )
+            {
+                // worktrees and submodules: ".git" is a file with a "gitdir: <path>" line
+                final String content = FileUtils.fileRead( dotGit, "UTF-8" ).trim();
+                if ( content.startsWith( "gitdir:" ) )
+                {
+                    File gitDir = new File( content.substring( "gitdir:".length() ).trim() );
+                    if ( !gitDir.isAbsolute() )
+                    {
+                        gitDir = new File( dir, gitDir.getPath() );
+                    }
+                    return load( dir, new File( gitDir, "index" ) );
+                }
+                return null;
+            }
+            dir = dir.getParentFile();
+        }
+        return null;
+    }
+
+    private static GitIndex load( File workTree, File indexFile )
+        throws IOException
+    {
+        if ( !indexFile.isFile() )
+        {
+            return null;
+        }
+
+        final File key = indexFile.getCanonicalFile();
+        synchronized ( CACHE )
+        {
+            final GitIndex cached = CACHE.get( key );
+            if ( cached != null && cached.lastModified == key.lastModified() && cached.length == key.length() )
+            {
+                return cached;
+            }
+        }
+
+        final List<String> paths = read( key );
+        if ( paths == null )
+        {
+            return null;
+        }
+
+        final GitIndex index = new GitIndex( workTree, key, paths );
+        synchronized ( CACHE )
+        {
+            CACHE.put( key, index );
+        }
+        return index;
+    }
+
+    /**
+     * @return The number of indexes kept in memory.
+     */
+    static int cachedIndexes()
+    {
+        synchronized ( CACHE )
+        {
+            return CACHE.size();
+        }
+    }
+
+    /**
+     * Reads the paths of all regular files and symbolic links recorded in an index file.
+     *
+     * @param indexFile the index file.
+     * @return the '/'-separated paths relative to the working tree, in index order; or <code>null</code> if the index
+     *         uses a format which cannot be read without git itself.
+     * @throws IOException if the file cannot be read or is not a git index.
+     */
+    @Nullable
+    static List<String> read( @Nonnull File indexFile )
+        throws IOException
+    {
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( indexFile );
+            final List<String> paths = read( new DataInputStream( new BufferedInputStream( in, 65536 ) ) );
+            in.close();
+            in = null;
+            return paths;
+        }
+        catch ( final EOFException e )
+        {
+            throw new IOException( "Truncated git index: " + indexFile, e );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    private static List<String> read( DataInputStream in )
+        throws IOException
+    {
+        if ( in.readInt() != SIGNATURE )
+        {
+            throw new IOException( "Not a git index (bad signature)" );
+        }
+
+        final int version = in.readInt();
+        if ( version < 2 || version > 4 )
+        {
+            return null;
+        }
+
+        final int entries = in.readInt();
+        final Set<String> paths = new LinkedHashSet<String>( Math.max( 16, entries + entries / 3 + 1 ) );
+
+        byte[] previous = new byte[0];
+        int previousLength = 0;
+        for ( int i = 0; i < entries; i++ )
+        {
+            // ctime, mtime, dev, ino
+            skipFully( in, 24 );
+            final int mode = in.readInt();
+            // uid, gid, size, object id
+            skipFully( in, 32 );
+            final int flags = in.readUnsignedShort();
+
+            int headerLength = ENTRY_HEADER_LENGTH;
+            if ( version >= 3 && ( flags & EXTENDED_FLAG ) != 0 )
+            {
+                in.readUnsignedShort();
+                headerLength += 2;
+            }
+
+            byte[] name;
+            int nameLength;
+            if ( version == 4 )
+            {
+                final int strip = readOffset( in );
+                if ( strip > previousLength )
+                {
+                    throw new IOException( "Corrupt git index: bad path prefix in entry " + i );
+                }
+                final byte[] suffix = readToNul( in );
+                nameLength = previousLength - strip + suffix.length;
+                name = new byte[nameLength];
+                System.arraycopy( previous, 0, name, 0, previousLength - strip );
+                System.arraycopy( suffix, 0, name, previousLength - strip, suffix.length );
+            }
+            else
+            {
+                final int declared = flags & NAME_MASK;
+                if ( declared < NAME_MASK )
+                {
+                    name = new byte[declared];
+                    in.readFully( name );
+                    nameLength = declared;
+                    // terminating NUL plus padding to a multiple of eight bytes
+                    final int entryLength = ( headerLength + nameLength + 8 ) & ~7;
+                    skipFully( in, entryLength - headerLength - nameLength );
+                }
+                else
+                {
+                    name = readToNul( in );
+                    nameLength = name.length;
+                    final int entryLength = ( headerLength + nameLength + 8 ) & ~7;
+                    skipFully( in, entryLength - headerLength - nameLength - 1 );
+                }
+            }
+
+            previous = name;
+            previousLength = nameLength;
+
+            final int objectType = mode >>> 12;
+            if ( objectType == OBJECT_TYPE_REGULAR || objectType == OBJECT_TYPE_SYMLINK )
+            {
+                // conflicted paths appear once per stage
+                paths.add( new String( name, 0, nameLength, UTF_8 ) );
+            }
+        }
+
+        // the entries may be followed by extensions; a split index keeps part of its entries in a shared file
+        final byte[] extension = new byte[4];
+        if ( readExtensionSignature( in, extension ) && "link".equals( new String( extension, UTF_8 ) ) )
+        {
+            return null;
+        }
+
+        return new ArrayList<String>( paths );
+    }
+
+    private static boolean readExtensionSignature( DataInputStream in, byte[] signature )
+        throws IOException
+    {
+        int read = 0;
+        while ( read < signature.length )
+        {
+            final int n = in.read( signature, read, signature.length - read );
+            if ( n < 0 )
+            {
+                return false;
+            }
+            read += n;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the variable-length offset used by index version 4 to encode the length of the shared path prefix.
+     */
+    private static int readOffset( DataInputStream in )
+        throws IOException
+    {
+        int c = in.readUnsignedByte();
+        int value = c & 0x7F;
+        while ( ( c & 0x80 ) != 0 )
+        {
+            value += 1;
+            c = in.readUnsignedByte();
+            value = ( value << 7 ) + ( c & 0x7F );
+        }
+        return value;
+    }
+
+    private static byte[] readToNul( DataInputStream in )
+        throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream( 64 );
+        int c;
+        while ( ( c = in.readUnsignedByte() ) != 0 )
+        {
+            out.write( c );
+        }
+        return out.toByteArray();
+    }
+
+    private static void skipFully( DataInputStream in, int count )
+        throws IOException
+    {
+        int remaining = count;
+        while ( remaining > 0 )
+        {
+            final int skipped = in.skipBytes( remaining );
+            if ( skipped <= 0 )
+            {
+                in.readUnsignedByte();
+                remaining--;
+            }
+            else
+            {
+                remaining -= skipped;
+            }
+        }
+    }
+
+    /**
+     * @return The root directory of the working tree.
+     */
+    @Nonnull
+    public File getWorkTree()
+    {
+        return workTree;
+    }
+
+    /**
+     * @return The index file which was read.
+     */
+    @Nonnull
+    public File getIndexFile()
+    {
+        return indexFile;
+    }
+
+    /**
+     * @return All tracked paths, '/'-separated and relative to the working tree.
+     */
+    @Nonnull
+    public List<String> getPaths()
+    {
+        return paths;
+    }
+
+    /**
+     * Selects the tracked paths below a directory of the working tree.
+     *
+     * @param directory a directory inside the working tree.
+     * @return the '/'-separated paths relative to <code>directory</code>.
+     * @throws IOException if the canonical path of the directory cannot be determined.
+     */
+    @Nonnull
+    public List<String> getPaths( @Nonnull File directory )
+        throws IOException
+    {
+        final String root = workTree.getPath().replace( File.separatorChar, '/' );
+        final String dir = directory.getCanonicalPath().replace( File.separatorChar, '/' );
+
+        String prefix;
+        if ( dir.equals( root ) )
+        {
+            return paths;
+        }
+        else if ( dir.startsWith( root.endsWith( "/" ) ? root : root + "/" ) )
+        {
+            prefix = dir.substring( root.endsWith( "/" ) ? root.length() : root.length() + 1 ) + "/";
+        }
+        else
+        {
+            return Collections.emptyList();
+        }
+
+        final List<String> result = new ArrayList<String>();
+        for ( final String path : paths )
+        {
+            if ( path.startsWith( prefix ) )
+            {
+                result.add( path.substring( prefix.length() ) );
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,253 @@
+package org.apache.maven.plugins.assembly.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.annotation.Nonnull;
+
+/**
+ * A set of archive paths which keeps two independent 64-bit hashes of each path instead of the path itself, so that it
+ * takes 20 bytes per path (in arrays, without an object per path) whatever the length of the paths. Each path gets an
+ * id, numbered from 0 in the order the paths are added.
+ * <p>
+ * Paths are compared after their redundant slashes are dropped, so <code>/lib//a.jar</code> is the same path as
+ * <code>lib/a.jar</code>. The first hash places a path in the table; two paths are only taken for the same path when
+ * the second hash matches too. With two million paths the odds that two different paths match on both are below one
+ * in 10<sup>25</sup>.
+ * </p>
+ *
+ * @since 3.1.1
+ */
+public final class HashedPathIndex
+{
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long SECOND_OFFSET_BASIS = 0x84222325cbf29ce4L;
+
+    private static final long SECOND_PRIME = 0x9e3779b97f4a7c15L;
+
+    /**
+     * The hashes of the paths, 0 marking a free slot.
+     */
+    private long[] hashes;
+
+    /**
+     * The second hashes of the paths, which confirm a match on the first.
+     */
+    private long[] checks;
+
+    private int[] ids;
+
+    private int size;
+
+    public HashedPathIndex()
+    {
+        this( MIN_CAPACITY );
+    }
+
+    /**
+     * @param expectedPaths the number of paths expected, to avoid growing the index while they are added.
+     */
+    public HashedPathIndex( int expectedPaths )
+    {
+        int capacity = MIN_CAPACITY;
+        while ( capacity * 3L / 4 < expectedPaths && capacity < 1 << 30 )
+        {
+            capacity <<= 1;
+        }
+        hashes = new long[capacity];
+        checks = new long[capacity];
+        ids = new int[capacity];
+    }
+
+    /**
+     * Adds a path.
+     *
+     * @param path the path.
+     * @return The id of the path if it is new; otherwise <code>-1 - id</code>, where <code>id</code> is the id it got
+     *         when it was first added.
+     */
+    public int add( @Nonnull CharSequence path )
+    {
+        return add( hash( path ), check( path ) );
+    }
+
+    int add( long hash, long check )
+    {
+        final int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while ( hashes[slot] != 0 )
+        {
+            if ( hashes[slot] == hash && checks[slot] == check )
+            {
+                return -1 - ids[slot];
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+
+        hashes[slot] = hash;
+        checks[slot] = check;
+        ids[slot] = size;
+        if ( ++size > hashes.length * 3L / 4 )
+        {
+            grow();
+        }
+        return size - 1;
+    }
+
+    /**
+     * @param path the path.
+     * @return The id of the path, or -1 if it was not added.
+     */
+    public int indexOf( @Nonnull CharSequence path )
+    {
+        return indexOf( hash( path ), check( path ) );
+    }
+
+    int indexOf( long hash, long check )
+    {
+        final int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while ( hashes[slot] != 0 )
+        {
+            if ( hashes[slot] == hash && checks[slot] == check )
+            {
+                return ids[slot];
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param path the path.
+     * @return <code>true</code> if the path was added.
+     */
+    public boolean contains( @Nonnull CharSequence path )
+    {
+        return indexOf( path ) >= 0;
+    }
+
+    /**
+     * @return The number of distinct paths.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    private void grow()
+    {
+        final long[] oldHashes = hashes;
+        final long[] oldChecks = checks;
+        final int[] oldIds = ids;
+        hashes = new long[oldHashes.length << 1];
+        checks = new long[oldHashes.length << 1];
+        ids = new int[oldHashes.length << 1];
+
+        final int mask = hashes.length - 1;
+        for ( int i = 0; i < oldHashes.length; i++ )
+        {
+            if ( oldHashes[i] != 0 )
+            {
+                int slot = (int) oldHashes[i] & mask;
+                while ( hashes[slot] != 0 )
+                {
+                    slot = ( slot + 1 ) & mask;
+                }
+                hashes[slot] = oldHashes[i];
+                checks[slot] = oldChecks[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
+
+    /**
+     * Hashes the segments of a path, without building the normalized path: FNV-1a over the characters, with a single
+     * separator between segments, then the finalizer of MurmurHash3 so that the low bits used for the slots depend on
+     * all the characters.
+     */
+    static long hash( CharSequence path )
+    {
+        long hash = FNV_OFFSET_BASIS;
+        boolean started = false;
+        boolean separator = false;
+        for ( int i = 0; i < path.length(); i++ )
+        {
+            final char c = path.charAt( i );
+            if ( c == '/' )
+            {
+                separator = true;
+                continue;
+            }
+            if ( separator && started )
+            {
+                hash = ( hash ^ '/' ) * FNV_PRIME;
+            }
+            started = true;
+            separator = false;
+            hash = ( hash ^ ( c & 0xff ) ) * FNV_PRIME;
+            hash = ( hash ^ ( c >>> 8 ) ) * FNV_PRIME;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        // 0 marks a free slot
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * The second hash, over the same normalized path: a multiplicative hash of whole characters with other constants,
+     * then the finalizer of SplitMix64, so that it does not collide together with {@link #hash(CharSequence)}.
+     */
+    static long check( CharSequence path )
+    {
+        long hash = SECOND_OFFSET_BASIS;
+        boolean started = false;
+        boolean separator = false;
+        for ( int i = 0; i < path.length(); i++ )
+        {
+            final char c = path.charAt( i );
+            if ( c == '/' )
+            {
+                separator = true;
+                continue;
+            }
+            if ( separator && started )
+            {
+                hash = ( hash + '/' ) * SECOND_PRIME;
+            }
+            started = true;
+            separator = false;
+            hash = ( hash + c + 1 ) * SECOND_PRIME;
+        }
+
+        hash = ( hash ^ ( hash >>> 30 ) ) * 0xbf58476d1ce4e5b9L;
+        hash = ( hash ^ ( hash >>> 27 ) ) * 0x94d049bb133111ebL;
+        return hash ^ ( hash >>> 31 );
+    }
+}
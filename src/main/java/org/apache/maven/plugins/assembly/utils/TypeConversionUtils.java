@@ -19,6 +19,7 @@ package org.apache.maven.plugins.assembly.utils;
  * under the License.
  */
 
+import org.apache.maven.plugins.assembly.archive.archiver.EntryCompression;
 import org.apache.maven.plugins.assembly.format.AssemblyFormattingException;
 import org.codehaus.plexus.logging.Logger;
 
@@ -87,6 +88,31 @@ public final class TypeConversionUtils
         }
     }
 
+    /**
+     * @param compression the compression of a set, as configured.
+     * @return the compression, or <code>null</code> if none is configured.
+     * @throws AssemblyFormattingException if the compression is unknown.
+     * @since 3.1.1
+     */
+    public static EntryCompression toEntryCompression( final String compression )
+        throws AssemblyFormattingException
+    {
+        if ( compression == null || compression.trim().length() < 1 )
+        {
+            return null;
+        }
+
+        try
+        {
+            return EntryCompression.valueOf( compression.trim() );
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            throw new AssemblyFormattingException(
+                "Unknown compression: \'" + compression + "\', expected 'stored' or 'deflate'.", e );
+        }
+    }
+
     // the boolean return type is for people who want to make a decision based on the sanity
     // assessment.
     public static boolean verifyModeSanity( final int mode, final Logger logger )
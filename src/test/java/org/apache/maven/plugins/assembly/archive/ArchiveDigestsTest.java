@@ -0,0 +1,197 @@
+package org.apache.maven.plugins.assembly.archive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.maven.plugins.assembly.archive.archiver.HardLinkingTarArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.PipelinedTarArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.StoringZipArchiver;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class ArchiveDigestsTest
+    extends TestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "archive-digests.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testZipChecksumsAndEntries()
+        throws Exception
+    {
+        final File dir = fileManager.createTempDir();
+        final File readme = fileManager.createFile( dir, "README.txt", "read me" );
+        final File lib = fileManager.createFile( dir, "lib.jar", "not really a jar" );
+        final File destFile = new File( dir, "bin.zip" );
+
+        final ArchiveDigests digests = new ArchiveDigests( Arrays.asList( "sha-256", "SHA-1", "SHA-256" ), true );
+
+        final StoringZipArchiver archiver = new StoringZipArchiver();
+        archiver.setEntryDigests( digests.getEntryDigests() );
+        archiver.setDestFile( destFile );
+        archiver.addFile( readme, "README.txt" );
+        archiver.addFile( lib, "lib/lib.jar" );
+        archiver.createArchive();
+
+        digests.compute( destFile );
+
+        final Map<String, String> checksums = digests.getChecksums();
+        assertEquals( Arrays.asList( "SHA-256", "SHA-1" ), Arrays.asList( checksums.keySet().toArray() ) );
+        assertEquals( sha256( destFile ), checksums.get( "SHA-256" ) );
+
+        final Map<String, String> entries = digests.getEntryChecksums();
+        assertEquals( 2, entries.size() );
+        assertEquals( sha256( readme ), entries.get( "README.txt" ) );
+        assertEquals( sha256( lib ), entries.get( "lib/lib.jar" ) );
+
+        final List<File> files = digests.write( destFile );
+        assertEquals( 3, files.size() );
+        assertEquals( sha256( destFile ) + "  bin.zip\n",
+                      FileUtils.fileRead( new File( dir, "bin.zip.sha256" ), "UTF-8" ) );
+        assertTrue( new File( dir, "bin.zip.sha1" ).isFile() );
+        assertEquals( sha256( readme ) + "  README.txt\n" + sha256( lib ) + "  lib/lib.jar\n",
+                      FileUtils.fileRead( new File( dir, "bin.zip" + ArchiveDigests.ENTRIES_SUFFIX ), "UTF-8" ) );
+    }
+
+    public void testCompressedTarWithHardLinks()
+        throws Exception
+    {
+        final File dir = fileManager.createTempDir();
+        final File lib = fileManager.createFile( dir, "lib.jar", "the same contents" );
+        final File copy = fileManager.createFile( dir, "copy.jar", "the same contents" );
+        final File destFile = new File( dir, "bin.tar.gz" );
+
+        final ArchiveDigests digests = new ArchiveDigests( Collections.singletonList( "SHA-512" ), true );
+
+        final HardLinkingTarArchiver archiver = new HardLinkingTarArchiver();
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        archiver.setEntryDigests( digests.getEntryDigests() );
+        archiver.setCompression( TarArchiver.TarCompressionMethod.gzip );
+        archiver.setDestFile( destFile );
+        archiver.addFile( lib, "module-a/lib.jar" );
+        archiver.addFile( copy, "module-b/lib.jar" );
+        archiver.createArchive();
+
+        digests.compute( destFile );
+
+        assertEquals( DigestUtils.sha512Hex( contents( destFile ) ), digests.getChecksums().get( "SHA-512" ) );
+        final Map<String, String> entries = digests.getEntryChecksums();
+        assertEquals( sha256( lib ), entries.get( "module-a/lib.jar" ) );
+        assertEquals( sha256( lib ), entries.get( "module-b/lib.jar" ) );
+    }
+
+    public void testPipelinedTarRecordsTheEntriesReadAhead()
+        throws Exception
+    {
+        final File dir = fileManager.createTempDir();
+        final File readme = fileManager.createFile( dir, "README.txt", "read me" );
+        final File empty = fileManager.createFile( dir, "empty.txt", "" );
+        final File destFile = new File( dir, "bin.tar" );
+
+        final ArchiveDigests digests = new ArchiveDigests( null, true );
+
+        final PipelinedTarArchiver archiver = new PipelinedTarArchiver();
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        archiver.setPipelineBuffer( 1024 * 1024 );
+        archiver.setEntryDigests( digests.getEntryDigests() );
+        archiver.setDestFile( destFile );
+        archiver.addFile( readme, "/doc/README.txt" );
+        archiver.addFile( empty, "doc/empty.txt" );
+        archiver.createArchive();
+
+        digests.compute( destFile );
+
+        assertTrue( digests.getChecksums().isEmpty() );
+        final Map<String, String> entries = digests.getEntryChecksums();
+        assertEquals( Arrays.asList( "doc/README.txt", "doc/empty.txt" ), Arrays.asList( entries.keySet().toArray() ) );
+        assertEquals( sha256( readme ), entries.get( "doc/README.txt" ) );
+        assertEquals( sha256( empty ), entries.get( "doc/empty.txt" ) );
+        assertEquals( Collections.singletonList( new File( dir, "bin.tar" + ArchiveDigests.ENTRIES_SUFFIX ) ),
+                      digests.write( destFile ) );
+    }
+
+    public void testArchiverWithoutEntryChecksumsOnlyGetsArchiveChecksums()
+        throws Exception
+    {
+        final File dir = fileManager.createTempDir();
+        final File archive = fileManager.createFile( dir, "bin.war", "opaque" );
+
+        final ArchiveDigests digests = new ArchiveDigests( Collections.singletonList( "SHA-256" ), true );
+        digests.compute( archive );
+
+        assertTrue( digests.getEntryChecksums().isEmpty() );
+        assertEquals( Collections.singletonList( new File( dir, "bin.war.sha256" ) ), digests.write( archive ) );
+    }
+
+    public void testUnknownAlgorithm()
+    {
+        try
+        {
+            new ArchiveDigests( Collections.singletonList( "SHA-257" ), false );
+            fail( "Should fail on an unknown algorithm." );
+        }
+        catch ( final NoSuchAlgorithmException e )
+        {
+            // expected
+        }
+        assertEquals( "sha512", ArchiveDigests.extension( "SHA-512" ) );
+    }
+
+    private static String sha256( final File file )
+        throws IOException
+    {
+        return DigestUtils.sha256Hex( contents( file ) );
+    }
+
+    private static byte[] contents( final File file )
+        throws IOException
+    {
+        final InputStream in = new FileInputStream( file );
+        try
+        {
+            return IOUtil.toByteArray( in );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+}
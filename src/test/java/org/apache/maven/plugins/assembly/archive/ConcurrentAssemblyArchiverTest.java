@@ -0,0 +1,289 @@
+package org.apache.maven.plugins.assembly.archive;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugins.assembly.archive.phase.AssemblyArchiverPhase;
+import org.apache.maven.plugins.assembly.archive.phase.FileItemAssemblyPhase;
+import org.apache.maven.plugins.assembly.archive.phase.FileSetAssemblyPhase;
+import org.apache.maven.plugins.assembly.model.Assembly;
+import org.apache.maven.plugins.assembly.model.ContainerDescriptorHandlerConfig;
+import org.apache.maven.plugins.assembly.model.FileItem;
+import org.apache.maven.plugins.assembly.model.FileSet;
+import org.apache.maven.plugins.assembly.mojos.AbstractAssemblyMojo;
+import org.apache.maven.plugins.assembly.testutils.PojoConfigSource;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.archiver.manager.ArchiverManager;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Builds the assemblies of many modules at once through a single archiver and shared phases, as a parallel build
+ * does, and checks that each of them is identical to the same assembly built alone.
+ */
+public class ConcurrentAssemblyArchiverTest
+    extends TestCase
+{
+
+    private static final int ASSEMBLIES = 48;
+
+    private static final int THREADS = 8;
+
+    private static final List<String> FORMATS = Arrays.asList( "zip", "tar", "tar.gz" );
+
+    private final TestFileManager fileManager = new TestFileManager( "concurrent-assembly.test.", "" );
+
+    private PlexusContainer container;
+
+    @Override
+    public void setUp()
+        throws Exception
+    {
+        container = new DefaultPlexusContainer();
+    }
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        container.dispose();
+        fileManager.cleanUp();
+    }
+
+    public void testConcurrentAssembliesMatchSequentialOnes()
+        throws Exception
+    {
+        final File sources = createSources( "com.example.Module" );
+        final DefaultAssemblyArchiver archiver = createArchiver();
+
+        final List<File> references = new ArrayList<File>();
+        for ( int variant = 0; variant < FORMATS.size(); variant++ )
+        {
+            references.add( build( archiver, sources, variant, false ) );
+        }
+
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+        final List<Future<File>> outputs = new ArrayList<Future<File>>();
+        try
+        {
+            for ( int i = 0; i < ASSEMBLIES; i++ )
+            {
+                final int variant = i % FORMATS.size();
+                outputs.add( executor.submit( new Callable<File>()
+                {
+                    @Override
+                    public File call()
+                        throws Exception
+                    {
+                        start.await();
+                        return build( archiver, sources, variant, false );
+                    }
+                } ) );
+            }
+            start.countDown();
+
+            for ( int i = 0; i < ASSEMBLIES; i++ )
+            {
+                final File reference = references.get( i % FORMATS.size() );
+                final File output = outputs.get( i ).get( 2, TimeUnit.MINUTES );
+                assertFalse( reference.equals( output ) );
+                assertTrue( "Assembly " + i + " differs from " + reference, FileUtils.contentEquals( reference,
+                                                                                                   output ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            executor.awaitTermination( 1, TimeUnit.MINUTES );
+        }
+    }
+
+    public void testConcurrentAssembliesDoNotShareHandlers()
+        throws Exception
+    {
+        // each module declares a service implementation of its own, which a shared handler would leak into the
+        // assemblies of the other modules
+        final List<File> modules = new ArrayList<File>();
+        for ( int i = 0; i < ASSEMBLIES; i++ )
+        {
+            modules.add( createSources( "com.example.Module" + i ) );
+        }
+        final DefaultAssemblyArchiver archiver = createArchiver();
+
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+        final List<Future<File>> outputs = new ArrayList<Future<File>>();
+        try
+        {
+            for ( final File sources : modules )
+            {
+                outputs.add( executor.submit( new Callable<File>()
+                {
+                    @Override
+                    public File call()
+                        throws Exception
+                    {
+                        start.await();
+                        return build( archiver, sources, 0, true );
+                    }
+                } ) );
+            }
+            start.countDown();
+
+            for ( int i = 0; i < ASSEMBLIES; i++ )
+            {
+                final File output = outputs.get( i ).get( 2, TimeUnit.MINUTES );
+                assertEquals( "Assembly " + i, "com.example.Module" + i + "\n",
+                              read( output, "META-INF/services/com.example.Spi" ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+            executor.awaitTermination( 1, TimeUnit.MINUTES );
+        }
+    }
+
+    private DefaultAssemblyArchiver createArchiver()
+        throws Exception
+    {
+        final Logger logger = new ConsoleLogger( Logger.LEVEL_WARN, "test" );
+
+        final FileSetAssemblyPhase fileSets = new FileSetAssemblyPhase();
+        fileSets.enableLogging( logger );
+        final FileItemAssemblyPhase fileItems = new FileItemAssemblyPhase();
+        fileItems.enableLogging( logger );
+
+        final DefaultAssemblyArchiver archiver =
+            new DefaultAssemblyArchiver( container.lookup( ArchiverManager.class ),
+                                         Arrays.<AssemblyArchiverPhase>asList( fileSets, fileItems ) );
+        archiver.setContainer( container );
+        archiver.enableLogging( logger );
+        return archiver;
+    }
+
+    private File createSources( final String implementation )
+        throws IOException
+    {
+        final File sources = fileManager.createTempDir();
+        fileManager.createFile( sources, "README.txt", "The concurrent assembly.\n" );
+        for ( int i = 0; i < 40; i++ )
+        {
+            fileManager.createFile( sources, "a/lib/lib-" + i + ".txt", "library " + i + "\n" );
+        }
+        fileManager.createFile( sources, "a/META-INF/services/com.example.Spi", implementation + "\n" );
+        fileManager.createFile( sources, "b/conf/app.properties", "name=app\n" );
+        return sources;
+    }
+
+    /**
+     * Builds the assembly of a module of its own, as each module of a reactor has its project and its directories.
+     */
+    private File build( final DefaultAssemblyArchiver archiver, final File sources, final int variant,
+                        final boolean mergeServices )
+        throws Exception
+    {
+        final File moduleDir = fileManager.createTempDir();
+
+        final Model model = new Model();
+        model.setGroupId( "group" );
+        model.setArtifactId( "module" );
+        model.setVersion( "1" );
+        final MavenProject project = new MavenProject( model );
+        project.setFile( new File( moduleDir, "pom.xml" ) );
+
+        final PojoConfigSource configSource = new PojoConfigSource();
+        configSource.setMavenProject( project );
+        configSource.setBasedir( sources );
+        configSource.setFinalName( "app-1" );
+        configSource.setTarLongFileMode( "gnu" );
+        configSource.setOutputDirectory( new File( moduleDir, "target" ) );
+        configSource.setWorkingDirectory( new File( moduleDir, "work" ) );
+        configSource.setTemporaryRootDirectory( new File( moduleDir, "tmp" ) );
+        configSource.setMainProjectInterpolator( AbstractAssemblyMojo.mainProjectInterpolator( project ) );
+
+        final Assembly assembly = new Assembly();
+        assembly.setId( "bin" );
+        // the base directory would be added with the current time
+        assembly.setIncludeBaseDirectory( false );
+
+        final FileSet libraries = new FileSet();
+        libraries.setDirectory( new File( sources, "a" ).getAbsolutePath() );
+        libraries.setOutputDirectory( "" );
+        assembly.addFileSet( libraries );
+
+        final FileSet configuration = new FileSet();
+        configuration.setDirectory( new File( sources, "b" ).getAbsolutePath() );
+        configuration.setOutputDirectory( "ext" );
+        assembly.addFileSet( configuration );
+
+        final FileItem readme = new FileItem();
+        readme.setSource( "README.txt" );
+        readme.setOutputDirectory( "" );
+        assembly.addFile( readme );
+
+        if ( mergeServices )
+        {
+            final ContainerDescriptorHandlerConfig handler = new ContainerDescriptorHandlerConfig();
+            handler.setHandlerName( "metaInf-services" );
+            assembly.addContainerDescriptorHandler( handler );
+        }
+
+        return archiver.createArchive( assembly, "app-1-bin", FORMATS.get( variant ), configSource, false, null );
+    }
+
+    private static String read( final File archive, final String name )
+        throws IOException
+    {
+        final ZipFile zip = new ZipFile( archive );
+        try
+        {
+            final ZipEntry entry = zip.getEntry( name );
+            assertNotNull( name, entry );
+            return IOUtil.toString( zip.getInputStream( entry ), "UTF-8" );
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+
+}
@@ -20,21 +20,26 @@ package org.apache.maven.plugins.assembly.archive;
  */
 
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.model.Build;
 import org.apache.maven.model.Model;
 import org.apache.maven.plugins.assembly.AssemblerConfigurationSource;
 import org.apache.maven.plugins.assembly.InvalidAssemblerConfigurationException;
+import org.apache.maven.plugins.assembly.archive.archiver.LayeredTarArchiver;
+import org.apache.maven.plugins.assembly.archive.archiver.TarLayers;
 import org.apache.maven.plugins.assembly.archive.phase.AssemblyArchiverPhase;
 import org.apache.maven.plugins.assembly.artifact.DependencyResolutionException;
 import org.apache.maven.plugins.assembly.artifact.DependencyResolver;
 import org.apache.maven.plugins.assembly.format.AssemblyFormattingException;
 import org.apache.maven.plugins.assembly.model.Assembly;
 import org.apache.maven.plugins.assembly.mojos.AbstractAssemblyMojo;
+import org.apache.maven.plugins.assembly.testutils.PojoConfigSource;
 import org.apache.maven.plugins.assembly.testutils.TestFileManager;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.DefaultPlexusContainer;
 import org.codehaus.plexus.PlexusContainer;
 import org.codehaus.plexus.PlexusContainerException;
 import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.UnArchiver;
 import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.diags.NoOpArchiver;
 import org.codehaus.plexus.archiver.manager.ArchiverManager;
@@ -43,7 +48,9 @@ import org.codehaus.plexus.archiver.tar.TarArchiver;
 import org.codehaus.plexus.archiver.tar.TarLongFileMode;
 import org.codehaus.plexus.archiver.war.WarArchiver;
 import org.codehaus.plexus.archiver.zip.ZipArchiver;
+import org.codehaus.plexus.components.io.resources.PlexusIoResourceCollection;
 import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+import org.codehaus.plexus.logging.AbstractLogger;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.logging.console.ConsoleLogger;
 import org.codehaus.plexus.util.FileUtils;
@@ -66,6 +73,8 @@ import static org.easymock.EasyMock.expectLastCall;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class DefaultAssemblyArchiverTest
@@ -132,6 +141,94 @@ public class DefaultAssemblyArchiverTest
         mm.verifyAll();
     }
 
+    @Test
+    public void failWhenDuplicatePolicyIsUnknown()
+        throws ArchiveCreationException, AssemblyFormattingException
+    {
+        final Assembly assembly = new Assembly();
+        assembly.setId( "id" );
+
+        final PojoConfigSource configSource = new PojoConfigSource();
+        configSource.setDuplicatePolicy( "newest" );
+
+        try
+        {
+            new DefaultAssemblyArchiver( null, new ArrayList<AssemblyArchiverPhase>() ).createArchive(
+                assembly, "full-name", "zip", configSource, false, null );
+
+            fail( "Should fail on an unknown duplicate policy." );
+        }
+        catch ( final InvalidAssemblerConfigurationException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "'newest'" ) );
+            assertTrue( e.getMessage(), e.getMessage().contains( "first, last, fail" ) );
+        }
+    }
+
+    @Test
+    public void testCreateArchive_PlanWritesTheReport()
+        throws Exception
+    {
+        final File buildDir = fileManager.createTempDir();
+        final PojoConfigSource configSource = fakeConfigSource( buildDir );
+        configSource.setReport( true );
+        configSource.setPlan( true );
+
+        final File file = fileManager.createFile( fileManager.createTempDir(), "a.txt", "a" );
+        final DefaultAssemblyArchiver subject =
+            new DefaultAssemblyArchiver( new FixedArchiverManager( new ZipArchiver() ),
+                                         Collections.<AssemblyArchiverPhase>singletonList(
+                                             new AddFilePhase( file, "a.txt" ) ) );
+        subject.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+
+        final Assembly assembly = new Assembly();
+        assembly.setId( "id" );
+        final File destFile = subject.createArchive( assembly, "full-name", "zip", configSource, false, null );
+
+        assertFalse( destFile.exists() );
+        final File report = new File( buildDir, "assembly/report/id-zip.json" );
+        assertTrue( report.isFile() );
+        final String json = FileUtils.fileRead( report, "UTF-8" );
+        assertTrue( json, json.contains( "\"name\": \"plan\"" ) );
+        assertFalse( json, json.contains( "\"name\": \"createArchive\"" ) );
+    }
+
+    @Test
+    public void testCreateArchive_PlanListsEntriesAsAddedAndWritesNoArchive()
+        throws Exception
+    {
+        final File buildDir = fileManager.createTempDir();
+        final PojoConfigSource configSource = fakeConfigSource( buildDir );
+        configSource.setPlan( true );
+        configSource.setDuplicatePolicy( "fail" );
+
+        final File sources = fileManager.createTempDir();
+        final File file = fileManager.createFile( sources, "a.txt", "a" );
+        // the components.xml handler would fail on this while the entry is added
+        final File componentsXml = fileManager.createFile( sources, "components.xml", "not xml" );
+        final List<AssemblyArchiverPhase> phases = new ArrayList<AssemblyArchiverPhase>();
+        phases.add( new AddFilePhase( file, "a.txt", "a.txt" ) );
+        phases.add( new AddFilePhase( componentsXml, "META-INF/plexus/components.xml" ) );
+
+        final ZipArchiver zipArchiver = new ZipArchiver();
+        final DefaultAssemblyArchiver subject =
+            new DefaultAssemblyArchiver( new FixedArchiverManager( zipArchiver ), phases );
+        final RecordingLogger logger = new RecordingLogger();
+        subject.enableLogging( logger );
+
+        final Assembly assembly = new Assembly();
+        assembly.setId( "id" );
+        final File destFile = subject.createArchive( assembly, "full-name", "zip", configSource, false, null );
+
+        assertFalse( destFile.exists() );
+        assertFalse( new File( buildDir, "out" ).exists() && new File( buildDir, "out" ).list().length > 0 );
+        assertTrue( logger.messages.toString(), logger.messages.contains( "  Duplicate target paths (1):" ) );
+        assertTrue( logger.messages.toString(),
+                    logger.messages.contains( "    full-name/a.txt (added 2 times)" ) );
+        assertTrue( logger.messages.toString(),
+                    logger.messages.contains( "  The duplicate policy 'fail' applies to these paths." ) );
+    }
+
     @Test
     public void testCreateArchive()
         throws ArchiveCreationException, AssemblyFormattingException, InvalidAssemblerConfigurationException,
@@ -156,6 +253,17 @@ public class DefaultAssemblyArchiverTest
 
         expect( configSource.getTemporaryRootDirectory() ).andReturn( tempDir ).anyTimes();
         expect( configSource.isDryRun() ).andReturn( false ).anyTimes();
+        expect( configSource.getDuplicatePolicy() ).andReturn( null ).anyTimes();
+        expect( configSource.isHardLinkDuplicates() ).andReturn( false ).anyTimes();
+        expect( configSource.getStoredExtensions() ).andReturn( null ).anyTimes();
+        expect( configSource.isProbeEntropy() ).andReturn( false ).anyTimes();
+        expect( configSource.getArchiveDigests() ).andReturn( null ).anyTimes();
+        expect( configSource.isEntryDigests() ).andReturn( false ).anyTimes();
+        expect( configSource.getPipelineBuffer() ).andReturn( 0 ).anyTimes();
+        expect( configSource.isStreamEntries() ).andReturn( false ).anyTimes();
+        expect( configSource.isTarLayers() ).andReturn( false ).anyTimes();
+        expect( configSource.isReport() ).andReturn( false ).anyTimes();
+        expect( configSource.isPlan() ).andReturn( false ).anyTimes();
         expect( configSource.isIgnoreDirFormatExtensions() ).andReturn( false ).anyTimes();
 
         final File outDir = fileManager.createTempDir();
@@ -232,6 +340,22 @@ public class DefaultAssemblyArchiverTest
 
         expect( configSource.isDryRun() ).andReturn( false ).anyTimes();
 
+        expect( configSource.getDuplicatePolicy() ).andReturn( null ).anyTimes();
+
+        expect( configSource.isHardLinkDuplicates() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getStoredExtensions() ).andReturn( null ).anyTimes();
+
+        expect( configSource.isProbeEntropy() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getArchiveDigests() ).andReturn( null ).anyTimes();
+
+        expect( configSource.isEntryDigests() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getPipelineBuffer() ).andReturn( 0 ).anyTimes();
+        expect( configSource.isStreamEntries() ).andReturn( false ).anyTimes();
+        expect( configSource.isTarLayers() ).andReturn( false ).anyTimes();
+
         expect( configSource.getWorkingDirectory() ).andReturn( new File( "." ) ).anyTimes();
 
         expect( configSource.isUpdateOnly() ).andReturn( false ).anyTimes();
@@ -272,6 +396,15 @@ public class DefaultAssemblyArchiverTest
 
         expect( configSource.getTarLongFileMode() ).andReturn( TarLongFileMode.fail.toString() ).anyTimes();
         expect( configSource.isDryRun() ).andReturn( false ).anyTimes();
+        expect( configSource.getDuplicatePolicy() ).andReturn( null ).anyTimes();
+        expect( configSource.isHardLinkDuplicates() ).andReturn( false ).anyTimes();
+        expect( configSource.getStoredExtensions() ).andReturn( null ).anyTimes();
+        expect( configSource.isProbeEntropy() ).andReturn( false ).anyTimes();
+        expect( configSource.getArchiveDigests() ).andReturn( null ).anyTimes();
+        expect( configSource.isEntryDigests() ).andReturn( false ).anyTimes();
+        expect( configSource.getPipelineBuffer() ).andReturn( 0 ).anyTimes();
+        expect( configSource.isStreamEntries() ).andReturn( false ).anyTimes();
+        expect( configSource.isTarLayers() ).andReturn( false ).anyTimes();
 
         expect( configSource.getArchiverConfig() ).andReturn( null ).anyTimes();
 
@@ -319,6 +452,22 @@ public class DefaultAssemblyArchiverTest
         final AssemblerConfigurationSource configSource = mm.createMock( AssemblerConfigurationSource.class );
 
         expect( configSource.isDryRun() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getDuplicatePolicy() ).andReturn( null ).anyTimes();
+
+        expect( configSource.isHardLinkDuplicates() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getStoredExtensions() ).andReturn( null ).anyTimes();
+
+        expect( configSource.isProbeEntropy() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getArchiveDigests() ).andReturn( null ).anyTimes();
+
+        expect( configSource.isEntryDigests() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getPipelineBuffer() ).andReturn( 0 ).anyTimes();
+        expect( configSource.isStreamEntries() ).andReturn( false ).anyTimes();
+        expect( configSource.isTarLayers() ).andReturn( false ).anyTimes();
         expect( configSource.getArchiverConfig() ).andReturn( null ).anyTimes();
         expect( configSource.getMavenSession() ).andReturn( null ).anyTimes();
         final DefaultAssemblyArchiver subject = setupStdExpectations( mm, macArchiverManager, configSource );
@@ -343,6 +492,22 @@ public class DefaultAssemblyArchiverTest
         final AssemblerConfigurationSource configSource = mm.createMock( AssemblerConfigurationSource.class );
 
         expect( configSource.isDryRun() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getDuplicatePolicy() ).andReturn( null ).anyTimes();
+
+        expect( configSource.isHardLinkDuplicates() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getStoredExtensions() ).andReturn( null ).anyTimes();
+
+        expect( configSource.isProbeEntropy() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getArchiveDigests() ).andReturn( null ).anyTimes();
+
+        expect( configSource.isEntryDigests() ).andReturn( false ).anyTimes();
+
+        expect( configSource.getPipelineBuffer() ).andReturn( 0 ).anyTimes();
+        expect( configSource.isStreamEntries() ).andReturn( false ).anyTimes();
+        expect( configSource.isTarLayers() ).andReturn( false ).anyTimes();
         expect( configSource.getArchiverConfig() ).andReturn( null ).anyTimes();
         expect( configSource.getWorkingDirectory() ).andReturn( new File( "." ) ).anyTimes();
         expect( configSource.isUpdateOnly() ).andReturn( false ).anyTimes();
@@ -397,6 +562,25 @@ public class DefaultAssemblyArchiverTest
         mm.verifyAll();
     }
 
+    @Test
+    public void testCreateTarArchiver_ShouldWarnOfTheOptionsLayersLeaveOut()
+        throws NoSuchArchiverException
+    {
+        final LayeredTarArchiver layeredArchiver = new LayeredTarArchiver();
+        final DefaultAssemblyArchiver subject =
+            new DefaultAssemblyArchiver( new FixedArchiverManager( layeredArchiver ),
+                                         new ArrayList<AssemblyArchiverPhase>() );
+        final RecordingLogger logger = new RecordingLogger();
+        subject.enableLogging( logger );
+
+        assertSame( layeredArchiver,
+                    subject.createTarArchiver( "tar", TarLongFileMode.gnu, true, 1024, new TarLayers() ) );
+
+        assertEquals( 2, logger.messages.size() );
+        assertTrue( logger.messages.get( 0 ), logger.messages.get( 0 ).startsWith( "hardLinkDuplicates " ) );
+        assertTrue( logger.messages.get( 1 ), logger.messages.get( 1 ).startsWith( "pipelineBuffer " ) );
+    }
+
     private DefaultAssemblyArchiver createSubject( EasyMockSupport mm, TestTarArchiver ttArchiver )
         throws NoSuchArchiverException
     {
@@ -679,4 +863,144 @@ public class DefaultAssemblyArchiverTest
         }
     }
 
+    private static PojoConfigSource fakeConfigSource( final File buildDir )
+    {
+        final Model model = new Model();
+        model.setBuild( new Build() );
+        model.getBuild().setDirectory( buildDir.getPath() );
+
+        final PojoConfigSource configSource = new PojoConfigSource();
+        configSource.setMavenProject( new MavenProject( model ) );
+        configSource.setMainProjectInterpolator( FixedStringSearchInterpolator.empty() );
+        configSource.setFinalName( "full-name" );
+        configSource.setOutputDirectory( new File( buildDir, "out" ) );
+        configSource.setWorkingDirectory( new File( buildDir, "work" ) );
+        configSource.setTemporaryRootDirectory( new File( buildDir, "tmp" ) );
+        return configSource;
+    }
+
+    private static final class FixedArchiverManager
+        implements ArchiverManager
+    {
+
+        private final Archiver archiver;
+
+        FixedArchiverManager( final Archiver archiver )
+        {
+            this.archiver = archiver;
+        }
+
+        @Override
+        public Archiver getArchiver( final String archiverName )
+        {
+            return archiver;
+        }
+
+        @Override
+        public Archiver getArchiver( final File file )
+        {
+            return archiver;
+        }
+
+        @Override
+        public UnArchiver getUnArchiver( final String unArchiverName )
+            throws NoSuchArchiverException
+        {
+            throw new NoSuchArchiverException( unArchiverName );
+        }
+
+        @Override
+        public UnArchiver getUnArchiver( final File file )
+            throws NoSuchArchiverException
+        {
+            throw new NoSuchArchiverException( file.getName() );
+        }
+
+        @Override
+        public PlexusIoResourceCollection getResourceCollection( final File file )
+            throws NoSuchArchiverException
+        {
+            throw new NoSuchArchiverException( file.getName() );
+        }
+
+        @Override
+        public PlexusIoResourceCollection getResourceCollection( final String unArchiverName )
+            throws NoSuchArchiverException
+        {
+            throw new NoSuchArchiverException( unArchiverName );
+        }
+    }
+
+    private static final class AddFilePhase
+        implements AssemblyArchiverPhase
+    {
+
+        private final File file;
+
+        private final String[] destinations;
+
+        AddFilePhase( final File file, final String... destinations )
+        {
+            this.file = file;
+            this.destinations = destinations;
+        }
+
+        @Override
+        public void execute( final Assembly assembly, final Archiver archiver,
+                             final AssemblerConfigurationSource configSource )
+        {
+            for ( final String destination : destinations )
+            {
+                archiver.addFile( file, destination );
+            }
+        }
+    }
+
+    private static final class RecordingLogger
+        extends AbstractLogger
+    {
+
+        final List<String> messages = new ArrayList<String>();
+
+        RecordingLogger()
+        {
+            super( Logger.LEVEL_INFO, "test" );
+        }
+
+        @Override
+        public void debug( final String message, final Throwable throwable )
+        {
+        }
+
+        @Override
+        public void info( final String message, final Throwable throwable )
+        {
+            messages.add( message );
+        }
+
+        @Override
+        public void warn( final String message, final Throwable throwable )
+        {
+            messages.add( message );
+        }
+
+        @Override
+        public void error( final String message, final Throwable throwable )
+        {
+            messages.add( message );
+        }
+
+        @Override
+        public void fatalError( final String message, final Throwable throwable )
+        {
+            messages.add( message );
+        }
+
+        @Override
+        public Logger getChildLogger( final String name )
+        {
+            return this;
+        }
+    }
+
 }
@@ -150,6 +150,40 @@ public class ManifestCreationFinalizerTest
         ( (JarURLConnection) resource.openConnection() ).getJarFile().close();
     }
 
+    public void testManifestIsBuiltOnce()
+        throws ArchiverException
+    {
+        MavenProject project = new MavenProject( new Model() );
+        MavenArchiveConfiguration config = new MavenArchiveConfiguration();
+        config.addManifestEntry( "Test-Key", "test-value" );
+
+        ManifestCreationFinalizer finalizer = new ManifestCreationFinalizer( null, project, config );
+
+        assertEquals( Collections.singletonList( "META-INF/MANIFEST.MF" ), finalizer.getVirtualFiles() );
+        assertSame( finalizer.getManifest(), finalizer.getManifest() );
+        assertEquals( "test-value", finalizer.getManifest().getMainSection().getAttributeValue( "Test-Key" ) );
+    }
+
+    public void testMissingManifestFileFailsOnFinalization()
+    {
+        MavenArchiveConfiguration config = new MavenArchiveConfiguration();
+        config.setManifestFile( new File( fileManager.createTempDir(), "MANIFEST.MF" ) );
+
+        ManifestCreationFinalizer finalizer =
+            new ManifestCreationFinalizer( null, new MavenProject( new Model() ), config );
+        assertNull( finalizer.getVirtualFiles() );
+
+        try
+        {
+            finalizer.finalizeArchiveCreation( new JarArchiver() );
+            fail( "Should fail on a missing manifest." );
+        }
+        catch ( final ArchiverException e )
+        {
+            assertTrue( e.getMessage().startsWith( "Manifest not found" ) );
+        }
+    }
+
     private final class MockAndControlForArchiver
     {
         final Archiver archiver;
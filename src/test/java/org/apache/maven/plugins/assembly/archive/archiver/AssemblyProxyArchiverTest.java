@@ -19,6 +19,9 @@ package org.apache.maven.plugins.assembly.archive.archiver;
  * under the License.
  */
 
+import org.apache.maven.plugins.assembly.metrics.AssemblyEventListener;
+import org.apache.maven.plugins.assembly.metrics.AssemblyEvents;
+import org.apache.maven.plugins.assembly.metrics.AssemblyMetrics;
 import org.apache.maven.plugins.assembly.testutils.TestFileManager;
 import org.codehaus.plexus.archiver.Archiver;
 import org.codehaus.plexus.archiver.ArchiverException;
@@ -30,6 +33,7 @@ import org.codehaus.plexus.components.io.fileselectors.FileSelector;
 import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.logging.console.ConsoleLogger;
 import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
 import org.easymock.EasyMock;
 import org.easymock.classextension.EasyMockSupport;
 import org.junit.AfterClass;
@@ -39,12 +43,15 @@ import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.zip.ZipFile;
 
 import static org.easymock.EasyMock.anyObject;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class AssemblyProxyArchiverTest
 {
@@ -177,6 +184,188 @@ public class AssemblyProxyArchiverTest
         assertEquals( 1, counter.getCount() );
     }
 
+    @Test
+    public void addDirectory_ReportsEntriesAndSkippedDuplicates()
+        throws IOException, ArchiverException
+    {
+        final Archiver delegate = new JarArchiver();
+        delegate.setDestFile( fileManager.createTempFile() );
+
+        final RecordingListener listener = new RecordingListener();
+        final AssemblyEvents events =
+            AssemblyEvents.of( Collections.<AssemblyEventListener>singletonList( listener ) );
+        final AssemblyProxyArchiver archiver =
+            new AssemblyProxyArchiver( "", delegate, null, null, null, new File( "." ),
+                                       new ConsoleLogger( Logger.LEVEL_DEBUG, "test" ), events );
+
+        archiver.setForced( true );
+
+        final File first = fileManager.createTempDir();
+        FileUtils.cleanDirectory( first );
+        fileManager.createFile( first, "file.txt", "This is a test." );
+        final File second = fileManager.createTempDir();
+        FileUtils.cleanDirectory( second );
+        fileManager.createFile( second, "file.txt", "This is a duplicate." );
+
+        archiver.addDirectory( first, "lib/" );
+        archiver.addDirectory( second, "lib/" );
+        archiver.createArchive();
+
+        assertEquals( Collections.singletonList( "lib/file.txt:15" ), listener.added );
+        assertEquals( Collections.singletonList( new File( second, "file.txt" ).getPath() + "->lib/file.txt" ),
+                      listener.skipped );
+    }
+
+    @Test
+    public void metrics_CountBytesReadFromFilesAndFileSets()
+        throws IOException, ArchiverException
+    {
+        final AssemblyMetrics metrics = AssemblyMetrics.start();
+        try
+        {
+            final File destFile = fileManager.createTempFile();
+            final Archiver delegate = new JarArchiver();
+            delegate.setDestFile( destFile );
+
+            final AssemblyProxyArchiver archiver =
+                new AssemblyProxyArchiver( "", delegate, null, null, null, new File( "." ), logger );
+            archiver.setForced( true );
+
+            final File dir = fileManager.createTempDir();
+            FileUtils.cleanDirectory( dir );
+            fileManager.createFile( dir, "file.txt", "This is a test." );
+            final File single = fileManager.createFile( fileManager.createTempDir(), "single.txt", "Single file." );
+
+            archiver.addDirectory( dir, "lib/" );
+            archiver.addFile( single, "single.txt" );
+            archiver.addFile( single, "bin/single.txt", 0755 );
+            archiver.createArchive();
+
+            final AssemblyMetrics.Counters counters = metrics.snapshot();
+            assertEquals( 3, counters.getEntries() );
+            assertEquals( 15 + 12 + 12, counters.getBytesRead() );
+
+            final ZipFile zip = new ZipFile( destFile );
+            try
+            {
+                assertEquals( "This is a test.",
+                              IOUtil.toString( zip.getInputStream( zip.getEntry( "lib/file.txt" ) ) ) );
+                assertEquals( "Single file.", IOUtil.toString( zip.getInputStream( zip.getEntry( "single.txt" ) ) ) );
+                assertNotNull( zip.getEntry( "bin/single.txt" ) );
+            }
+            finally
+            {
+                zip.close();
+            }
+        }
+        finally
+        {
+            AssemblyMetrics.stop();
+        }
+    }
+
+    @Test
+    public void duplicatePolicy_KeepsOneEntryPerPath()
+        throws IOException, ArchiverException
+    {
+        assertEquals( "This is the first.", archiveDuplicates( DuplicatePolicy.first ) );
+        assertEquals( "This is the second.", archiveDuplicates( DuplicatePolicy.last ) );
+    }
+
+    @Test
+    public void duplicatePolicy_FailListsDuplicatedPaths()
+        throws IOException
+    {
+        try
+        {
+            archiveDuplicates( DuplicatePolicy.fail );
+            fail( "Duplicated paths should fail the archive." );
+        }
+        catch ( final ArchiverException e )
+        {
+            assertEquals( "2 entries have the same path as another entry: [lib/file.txt]", e.getMessage() );
+        }
+    }
+
+    private String archiveDuplicates( final DuplicatePolicy policy )
+        throws IOException, ArchiverException
+    {
+        final File destFile = fileManager.createTempFile();
+        final Archiver delegate = new JarArchiver();
+        delegate.setDestFile( destFile );
+
+        final CounterSelector counter = new CounterSelector( true );
+        final AssemblyProxyArchiver archiver =
+            new AssemblyProxyArchiver( "", delegate, null, Collections.<FileSelector>singletonList( counter ), null,
+                                       new File( "." ), logger );
+        archiver.setDuplicatePolicy( policy );
+        archiver.setForced( true );
+
+        final File first = fileManager.createTempDir();
+        FileUtils.cleanDirectory( first );
+        fileManager.createFile( first, "file.txt", "This is the first." );
+        fileManager.createFile( first, "other.txt", "This is unique." );
+        final File second = fileManager.createTempDir();
+        FileUtils.cleanDirectory( second );
+        fileManager.createFile( second, "file.txt", "This is the second." );
+        final File single = fileManager.createFile( second, "single.txt", "This is the single file." );
+
+        archiver.addDirectory( first, "lib/" );
+        archiver.addFile( single, "lib/file.txt" );
+        archiver.addDirectory( second, "lib/", new String[] { "file.txt" }, null );
+        archiver.createArchive();
+
+        // the selectors see single files when they are added, but only the kept files of the directories
+        assertEquals( 3, counter.getCount() );
+
+        final ZipFile zip = new ZipFile( destFile );
+        try
+        {
+            assertNotNull( zip.getEntry( "lib/other.txt" ) );
+            return IOUtil.toString( zip.getInputStream( zip.getEntry( "lib/file.txt" ) ) );
+        }
+        finally
+        {
+            zip.close();
+        }
+    }
+
+    private static final class RecordingListener
+        implements AssemblyEventListener
+    {
+
+        private final List<String> added = new ArrayList<String>();
+
+        private final List<String> skipped = new ArrayList<String>();
+
+        @Override
+        public void phaseStarted( String assemblyId, String format, String phase )
+        {
+        }
+
+        @Override
+        public void phaseFinished( String assemblyId, String format, String phase, long nanos )
+        {
+        }
+
+        @Override
+        public void entryAdded( String source, String target, long size, boolean transformed )
+        {
+            added.add( target + ":" + size );
+        }
+
+        @Override
+        public void duplicateSkipped( String source, String target )
+        {
+            skipped.add( source + "->" + target );
+        }
+
+        @Override
+        public void archiveWritten( String assemblyId, String format, File file, long nanos )
+        {
+        }
+    }
+
     private static final class CounterSelector
         implements FileSelector
     {
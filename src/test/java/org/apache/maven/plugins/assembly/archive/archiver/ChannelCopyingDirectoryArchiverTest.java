@@ -0,0 +1,145 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.apache.maven.plugins.assembly.utils.AssemblyFileUtils;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class ChannelCopyingDirectoryArchiverTest
+    extends TestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "channel-copying-dir.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testFilesAreTransferred()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File lib = fileManager.createFile( dir, "lib.so", "native library" );
+        final File script = fileManager.createFile( dir, "run.sh", "#!/bin/sh" );
+        final File destDir = new File( dir, "out" );
+
+        final ChannelCopyingDirectoryArchiver archiver = new ChannelCopyingDirectoryArchiver();
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        archiver.setDestFile( destDir );
+        archiver.addFile( lib, "lib/lib.so" );
+        archiver.addFile( script, "bin/run.sh", 0755 );
+        archiver.createArchive();
+
+        assertEquals( 2, archiver.getTransferredFiles() );
+        assertEquals( 0, archiver.getCopiedFiles() );
+        assertEquals( "native library", FileUtils.fileRead( new File( destDir, "lib/lib.so" ), "UTF-8" ) );
+        final File copiedScript = new File( destDir, "bin/run.sh" );
+        assertEquals( "#!/bin/sh", FileUtils.fileRead( copiedScript, "UTF-8" ) );
+        assertEquals( script.lastModified(), copiedScript.lastModified() );
+        if ( File.separatorChar == '/' )
+        {
+            assertTrue( copiedScript.canExecute() );
+        }
+    }
+
+    public void testOtherStreamsAreCopied()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File destination = new File( dir, "out.txt" );
+
+        final byte[] filtered = "filtered".getBytes( "UTF-8" );
+        assertFalse( AssemblyFileUtils.copy( new ByteArrayInputStream( filtered ), destination ) );
+        assertEquals( "filtered", FileUtils.fileRead( destination, "UTF-8" ) );
+    }
+
+    /**
+     * Checks that the channel transfer keeps up with the stream copy on files of 1 MB to 2 GB. Only runs with
+     * <code>-Dassembly.benchmark=true</code>.
+     */
+    public void testBenchmarkCopyThroughput()
+        throws IOException
+    {
+        if ( !Boolean.getBoolean( "assembly.benchmark" ) )
+        {
+            return;
+        }
+
+        final File dir = fileManager.createTempDir();
+        final long[] sizes = { 1L << 20, 16L << 20, 256L << 20, 2L << 30 };
+        for ( final long size : sizes )
+        {
+            final File source = new File( dir, "source-" + size );
+            final RandomAccessFile file = new RandomAccessFile( source, "rw" );
+            try
+            {
+                // the data need not be random: neither path looks at it
+                file.setLength( size );
+            }
+            finally
+            {
+                file.close();
+            }
+
+            final File destination = new File( dir, "destination-" + size );
+            for ( int warmup = 0; warmup < 2; warmup++ )
+            {
+                long start = System.nanoTime();
+                AssemblyFileUtils.copy( new BufferedInputStream( new FileInputStream( source ) ), destination );
+                final long stream = System.nanoTime() - start;
+                assertEquals( size, destination.length() );
+
+                start = System.nanoTime();
+                assertTrue( AssemblyFileUtils.copy( new FileInputStream( source ), destination ) );
+                final long channel = System.nanoTime() - start;
+                assertEquals( size, destination.length() );
+
+                if ( warmup > 0 )
+                {
+                    // allow some noise on the small files; the transfer must not fall behind the stream copy
+                    assertTrue( ( size >> 20 ) + " MB: stream " + throughput( size, stream ) + " MB/s, channel "
+                        + throughput( size, channel ) + " MB/s", channel <= stream + stream / 4 );
+                }
+            }
+
+            source.delete();
+            destination.delete();
+        }
+    }
+
+    private static long throughput( final long bytes, final long nanos )
+    {
+        return ( bytes >> 20 ) * 1000000000L / Math.max( 1, nanos );
+    }
+}
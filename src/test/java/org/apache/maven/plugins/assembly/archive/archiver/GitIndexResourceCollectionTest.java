@@ -0,0 +1,162 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.maven.plugins.assembly.archive.task.AddDirectoryTask;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.apache.maven.plugins.assembly.utils.GitIndex;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class GitIndexResourceCollectionTest
+    extends TestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "git-index-collection.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testOnlyTrackedFilesAreAdded()
+        throws Exception
+    {
+        final File workTree = createWorkTree();
+        writeIndex( new File( workTree, ".git/index" ), "pom.xml", "src/A.java", "src/sub/C.java" );
+
+        assertEquals( new TreeSet<String>( Arrays.asList( "src/A.java", "src/sub/C.java" ) ),
+                      archive( workTree, new File( workTree, "src" ) ) );
+    }
+
+    public void testFallsBackToDirectoryScanWithoutIndex()
+        throws Exception
+    {
+        final File workTree = createWorkTree();
+        assertNull( GitIndex.forDirectory( workTree ) );
+
+        assertEquals( new TreeSet<String>( Arrays.asList( "src/A.java", "src/B.tmp", "src/sub/C.java" ) ),
+                      archive( workTree, new File( workTree, "src" ) ) );
+    }
+
+    private File createWorkTree()
+        throws IOException
+    {
+        final File workTree = fileManager.createTempDir();
+        assertTrue( new File( workTree, ".git" ).mkdirs() );
+        fileManager.createFile( workTree, "pom.xml", "<project/>" );
+        fileManager.createFile( workTree, "src/A.java", "class A {}" );
+        fileManager.createFile( workTree, "src/B.tmp", "untracked" );
+        fileManager.createFile( workTree, "src/sub/C.java", "class C {}" );
+        return workTree;
+    }
+
+    private Set<String> archive( final File workTree, final File directory )
+        throws Exception
+    {
+        final File destFile = new File( fileManager.createTempDir(), "sources.tar" );
+        final TarArchiver tar = new TarArchiver();
+        tar.setDestFile( destFile );
+
+        final AssemblyProxyArchiver archiver =
+            new AssemblyProxyArchiver( "", tar, null, null, null, new File( workTree, "work" ),
+                                       new ConsoleLogger( Logger.LEVEL_WARN, "test" ) );
+        archiver.setForced( true );
+
+        final AddDirectoryTask task = new AddDirectoryTask( directory );
+        task.setOutputDirectory( "src/" );
+        task.setUseGitIndex( true );
+        task.execute( archiver );
+        archiver.createArchive();
+
+        final Set<String> names = new TreeSet<String>();
+        final TarArchiveInputStream in = new TarArchiveInputStream( new FileInputStream( destFile ) );
+        try
+        {
+            TarArchiveEntry entry;
+            while ( ( entry = in.getNextTarEntry() ) != null )
+            {
+                if ( !entry.isDirectory() )
+                {
+                    names.add( entry.getName() );
+                }
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return names;
+    }
+
+    /**
+     * Writes a version 2 index of regular files, in the order given.
+     */
+    private static void writeIndex( final File index, final String... paths )
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream( bytes );
+        out.writeBytes( "DIRC" );
+        out.writeInt( 2 );
+        out.writeInt( paths.length );
+        for ( final String path : paths )
+        {
+            final byte[] name = path.getBytes( "UTF-8" );
+            out.write( new byte[24] );
+            out.writeInt( 0100644 );
+            out.write( new byte[32] );
+            out.writeShort( name.length );
+            out.write( name );
+            final int padded = ( 62 + name.length + 8 ) & ~7;
+            out.write( new byte[padded - 62 - name.length] );
+        }
+        // the trailing checksum is not verified
+        out.write( new byte[20] );
+        out.close();
+
+        final FileOutputStream fos = new FileOutputStream( index );
+        try
+        {
+            fos.write( bytes.toByteArray() );
+        }
+        finally
+        {
+            fos.close();
+        }
+    }
+}
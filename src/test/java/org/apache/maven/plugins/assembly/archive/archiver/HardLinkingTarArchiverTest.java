@@ -0,0 +1,178 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.codehaus.plexus.archiver.tar.TarLongFileMode;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.StringUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class HardLinkingTarArchiverTest
+    extends TestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "hardlinking-tar.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testIdenticalContentsAreLinked()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File lib = fileManager.createFile( dir, "lib.jar", "the same contents" );
+        final File copy = fileManager.createFile( dir, "copy.jar", "the same contents" );
+        final File other = fileManager.createFile( dir, "other.jar", "same size, others" );
+        final File destFile = new File( dir, "out.tar" );
+
+        final HardLinkingTarArchiver archiver = new HardLinkingTarArchiver();
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        archiver.setDestFile( destFile );
+        archiver.addFile( lib, "module-a/lib/lib.jar" );
+        archiver.addFile( other, "module-a/lib/other.jar" );
+        archiver.addFile( copy, "module-b/lib/lib.jar" );
+        archiver.createArchive();
+
+        final Map<String, TarArchiveEntry> entries = readEntries( destFile );
+
+        final TarArchiveEntry first = entries.get( "module-a/lib/lib.jar" );
+        assertTrue( first.isFile() );
+        assertEquals( 17, first.getSize() );
+
+        final TarArchiveEntry unlinked = entries.get( "module-a/lib/other.jar" );
+        assertTrue( unlinked.isFile() );
+        assertEquals( 17, unlinked.getSize() );
+
+        final TarArchiveEntry link = entries.get( "module-b/lib/lib.jar" );
+        assertTrue( link.isLink() );
+        assertEquals( "module-a/lib/lib.jar", link.getLinkName() );
+        assertEquals( 0, link.getSize() );
+        assertEquals( first.getUserName(), link.getUserName() );
+        assertEquals( first.getGroupName(), link.getGroupName() );
+        assertEquals( first.getLongUserId(), link.getLongUserId() );
+        assertEquals( first.getLongGroupId(), link.getLongGroupId() );
+    }
+
+    public void testIdenticalContentsWithAnotherModeAreNotLinked()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File script = fileManager.createFile( dir, "run.sh", "#!/bin/sh\nrun" );
+        final File destFile = new File( dir, "out.tar" );
+
+        final HardLinkingTarArchiver archiver = new HardLinkingTarArchiver();
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        archiver.setDestFile( destFile );
+        archiver.addFile( script, "bin/run.sh", 0755 );
+        archiver.addFile( script, "doc/run.sh", 0644 );
+        archiver.addFile( script, "bin/run-again.sh", 0755 );
+        archiver.createArchive();
+
+        final Map<String, TarArchiveEntry> entries = readEntries( destFile );
+
+        final TarArchiveEntry copy = entries.get( "doc/run.sh" );
+        assertTrue( copy.isFile() );
+        assertEquals( 13, copy.getSize() );
+        assertEquals( 0644, copy.getMode() & 07777 );
+
+        final TarArchiveEntry link = entries.get( "bin/run-again.sh" );
+        assertTrue( link.isLink() );
+        assertEquals( "bin/run.sh", link.getLinkName() );
+    }
+
+    public void testLongNamesAreLinkedInGnuMode()
+        throws IOException
+    {
+        final Map<String, TarArchiveEntry> entries = archiveCopiesWithLongNames( TarLongFileMode.gnu );
+
+        final TarArchiveEntry link = entries.get( LONG_DIR + "b/lib.jar" );
+        assertTrue( link.isLink() );
+        assertEquals( LONG_DIR + "a/lib.jar", link.getLinkName() );
+    }
+
+    public void testLongNamesAreNotLinkedInWarnMode()
+        throws IOException
+    {
+        final Map<String, TarArchiveEntry> entries = archiveCopiesWithLongNames( TarLongFileMode.warn );
+
+        assertEquals( 2, entries.size() );
+        for ( final TarArchiveEntry entry : entries.values() )
+        {
+            assertTrue( entry.getName(), entry.isFile() );
+            assertEquals( 17, entry.getSize() );
+        }
+    }
+
+    private static final String LONG_DIR = "module/" + StringUtils.repeat( "nested/", 14 );
+
+    private Map<String, TarArchiveEntry> archiveCopiesWithLongNames( final TarLongFileMode mode )
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File lib = fileManager.createFile( dir, "lib.jar", "the same contents" );
+        final File copy = fileManager.createFile( dir, "copy.jar", "the same contents" );
+        final File destFile = new File( dir, "out.tar" );
+
+        final HardLinkingTarArchiver archiver = new HardLinkingTarArchiver();
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_ERROR, "test" ) );
+        archiver.setLongfile( mode );
+        archiver.setDestFile( destFile );
+        archiver.addFile( lib, LONG_DIR + "a/lib.jar" );
+        archiver.addFile( copy, LONG_DIR + "b/lib.jar" );
+        archiver.createArchive();
+
+        return readEntries( destFile );
+    }
+
+    private static Map<String, TarArchiveEntry> readEntries( final File destFile )
+        throws IOException
+    {
+        final Map<String, TarArchiveEntry> entries = new LinkedHashMap<String, TarArchiveEntry>();
+        final TarArchiveInputStream in = new TarArchiveInputStream( new FileInputStream( destFile ) );
+        try
+        {
+            TarArchiveEntry entry;
+            while ( ( entry = in.getNextTarEntry() ) != null )
+            {
+                entries.put( entry.getName(), entry );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,310 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.tar.TarLongFileMode;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.codehaus.plexus.components.io.resources.AbstractPlexusIoResource;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class LayeredTarArchiverTest
+    extends TestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "layered-tar.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testLayerFilesAreNamedAfterTheArchive()
+    {
+        final File dir = new File( "target" );
+        assertEquals( new File( dir, "app-bin-files.tar" ),
+                      LayeredTarArchiver.layerFile( new File( dir, "app-bin.tar.gz" ), TarLayer.files ) );
+        assertEquals( new File( dir, "app-bin-modules.tar" ),
+                      LayeredTarArchiver.layerFile( new File( dir, "app-bin.tgz" ), TarLayer.modules ) );
+        assertEquals( new File( dir, "app-bin-generated.tar" ),
+                      LayeredTarArchiver.layerFile( new File( dir, "app-bin.tar" ), TarLayer.generated ) );
+    }
+
+    public void testEntriesAreSplitByLayer()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File destFile = new File( dir, "out/app.tar.gz" );
+        build( dir, destFile, "name=app" );
+
+        assertEquals( Arrays.asList( "app/", "app/lib/", "app/lib/commons.jar" ),
+                      names( LayeredTarArchiver.layerFile( destFile, TarLayer.dependencies ) ) );
+        assertEquals( Arrays.asList( "app/", "app/lib/", "app/lib/core-SNAPSHOT.jar" ),
+                      names( LayeredTarArchiver.layerFile( destFile, TarLayer.snapshots ) ) );
+        assertEquals( Arrays.asList( "app/", "app/conf/", "app/conf/app.properties", "app/conf/z/",
+                                     "app/conf/z/log.xml", "app/run.sh" ),
+                      names( LayeredTarArchiver.layerFile( destFile, TarLayer.files ) ) );
+        assertEquals( Arrays.asList( "app/", "app/BUILD.txt" ),
+                      names( LayeredTarArchiver.layerFile( destFile, TarLayer.generated ) ) );
+        assertFalse( LayeredTarArchiver.layerFile( destFile, TarLayer.modules ).exists() );
+
+        final TarArchiveInputStream in =
+            new TarArchiveInputStream( new FileInputStream( LayeredTarArchiver.layerFile( destFile, TarLayer.files ) ) );
+        try
+        {
+            TarArchiveEntry entry;
+            while ( ( entry = in.getNextTarEntry() ) != null )
+            {
+                assertEquals( LayeredTarArchiver.MOD_TIME, entry.getModTime().getTime() );
+                assertEquals( 0, entry.getLongUserId() );
+                assertEquals( "", entry.getUserName() );
+                if ( entry.getName().equals( "app/run.sh" ) )
+                {
+                    assertEquals( 0100755, entry.getMode() );
+                    assertEquals( 13, entry.getSize() );
+                }
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    public void testUnchangedLayersAreIdenticalAcrossBuilds()
+        throws Exception
+    {
+        final File dir = fileManager.createTempDir();
+        final File destFile = new File( dir, "out/app.tar" );
+        build( dir, destFile, "name=app" );
+        final List<byte[]> first = layers( destFile );
+
+        // the files are written again, with new times, and one of them changes
+        Thread.sleep( 1100 );
+        build( dir, destFile, "name=app2" );
+        final List<byte[]> second = layers( destFile );
+
+        assertTrue( Arrays.equals( first.get( TarLayer.dependencies.ordinal() ),
+                                   second.get( TarLayer.dependencies.ordinal() ) ) );
+        assertTrue( Arrays.equals( first.get( TarLayer.generated.ordinal() ),
+                                   second.get( TarLayer.generated.ordinal() ) ) );
+        assertFalse( Arrays.equals( first.get( TarLayer.files.ordinal() ), second.get( TarLayer.files.ordinal() ) ) );
+    }
+
+    public void testDirectoriesReplaceTheOnesAddedAboveTheirEntries()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File file = fileManager.createFile( dir, "data/x.txt", "x" );
+        final File empty = new File( dir, "sources/data" );
+        empty.mkdirs();
+        final File destFile = new File( dir, "out/app.tar" );
+        destFile.getParentFile().mkdirs();
+
+        final LayeredTarArchiver tar = new LayeredTarArchiver();
+        tar.setDestFile( destFile );
+        tar.addFile( file, "app/data/x.txt" );
+        tar.setDirectoryMode( 0700 );
+        final DefaultFileSet fileSet = DefaultFileSet.fileSet( empty.getParentFile() );
+        fileSet.setPrefix( "app/" );
+        tar.addFileSet( fileSet );
+        tar.createArchive();
+
+        final File layer = LayeredTarArchiver.layerFile( destFile, TarLayer.generated );
+        assertEquals( Arrays.asList( "app/", "app/data/", "app/data/x.txt" ), names( layer ) );
+        final TarArchiveInputStream in = new TarArchiveInputStream( new FileInputStream( layer ) );
+        try
+        {
+            // both directories come with the file-set, after the file below them
+            assertEquals( 040700, in.getNextTarEntry().getMode() );
+            assertEquals( 040700, in.getNextTarEntry().getMode() );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    public void testSourcesAreReadOnce()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File destFile = new File( dir, "out/app.tar" );
+        destFile.getParentFile().mkdirs();
+
+        final LayeredTarArchiver tar = new LayeredTarArchiver();
+        tar.setDestFile( destFile );
+        final List<CountingResource> resources = new ArrayList<CountingResource>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            final CountingResource resource = new CountingResource( "file-" + i + ".txt", "contents of file " + i );
+            tar.addResource( resource, resource.getName(), 0644 );
+            resources.add( resource );
+        }
+        tar.createArchive();
+
+        for ( final CountingResource resource : resources )
+        {
+            assertEquals( resource.getName(), 1, resource.reads );
+        }
+        final TarArchiveInputStream in =
+            new TarArchiveInputStream( new FileInputStream( LayeredTarArchiver.layerFile( destFile,
+                                                                                          TarLayer.generated ) ) );
+        try
+        {
+            for ( final CountingResource resource : resources )
+            {
+                assertEquals( resource.getName(), in.getNextTarEntry().getName() );
+                assertEquals( resource.contents, IOUtil.toString( in, "UTF-8" ) );
+            }
+            assertNull( in.getNextTarEntry() );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    private void build( final File dir, final File destFile, final String properties )
+        throws IOException
+    {
+        fileManager.createFile( dir, "lib/commons.jar", "commons" );
+        fileManager.createFile( dir, "lib/core-SNAPSHOT.jar", "core" );
+        fileManager.createFile( dir, "conf/z/log.xml", "<log/>" );
+        fileManager.createFile( dir, "conf/app.properties", properties );
+        fileManager.createFile( dir, "bin/run.sh", "#!/bin/sh\nrun" );
+        destFile.getParentFile().mkdirs();
+
+        final TarLayers tarLayers = new TarLayers();
+        final LayeredTarArchiver tar = new LayeredTarArchiver();
+        tar.setTarLayers( tarLayers );
+        tar.setDestFile( destFile );
+        tar.setLongfile( TarLongFileMode.gnu );
+        tar.setCompression( TarArchiver.TarCompressionMethod.gzip );
+
+        final AssemblyProxyArchiver archiver =
+            new AssemblyProxyArchiver( "app/", tar, null, null, null, new File( dir, "work" ),
+                                       new ConsoleLogger( Logger.LEVEL_WARN, "test" ) );
+        archiver.setTarLayers( tarLayers );
+        archiver.setForced( true );
+
+        archiver.setTarLayer( TarLayer.dependencies );
+        archiver.addFile( new File( dir, "lib/commons.jar" ), "lib/commons.jar" );
+        final TarLayer oldLayer = AssemblyProxyArchiver.applySnapshotLayer( archiver, true );
+        archiver.addFile( new File( dir, "lib/core-SNAPSHOT.jar" ), "lib/core-SNAPSHOT.jar" );
+        AssemblyProxyArchiver.restoreTarLayer( archiver, oldLayer );
+        assertEquals( TarLayer.dependencies, archiver.getTarLayer() );
+
+        archiver.setTarLayer( TarLayer.files );
+        final DefaultFileSet fileSet = DefaultFileSet.fileSet( new File( dir, "conf" ) );
+        fileSet.setPrefix( "conf/" );
+        fileSet.setIncludingEmptyDirectories( false );
+        archiver.addFileSet( fileSet );
+        archiver.addFile( new File( dir, "bin/run.sh" ), "run.sh", 0755 );
+
+        archiver.setTarLayer( null );
+        final File generated = fileManager.createFile( dir, "work/BUILD.txt", "generated" );
+        archiver.addFile( generated, "BUILD.txt" );
+
+        archiver.createArchive();
+        assertTrue( destFile.isFile() );
+    }
+
+    private static List<byte[]> layers( final File destFile )
+        throws IOException
+    {
+        final List<byte[]> layers = new ArrayList<byte[]>();
+        for ( final TarLayer layer : TarLayer.values() )
+        {
+            final File layerFile = LayeredTarArchiver.layerFile( destFile, layer );
+            layers.add( layerFile.isFile() ? FileUtils.fileRead( layerFile, "ISO-8859-1" ).getBytes( "ISO-8859-1" )
+                            : null );
+        }
+        return layers;
+    }
+
+    private static List<String> names( final File tar )
+        throws IOException
+    {
+        final List<String> names = new ArrayList<String>();
+        final TarArchiveInputStream in = new TarArchiveInputStream( new FileInputStream( tar ) );
+        try
+        {
+            TarArchiveEntry entry;
+            while ( ( entry = in.getNextTarEntry() ) != null )
+            {
+                names.add( entry.getName() );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return names;
+    }
+
+    private static final class CountingResource
+        extends AbstractPlexusIoResource
+    {
+
+        private final String contents;
+
+        private int reads;
+
+        CountingResource( final String name, final String contents )
+        {
+            super( name, 0, contents.length(), true, false, true );
+            this.contents = contents;
+        }
+
+        @Override
+        public InputStream getContents()
+            throws IOException
+        {
+            reads++;
+            return new ByteArrayInputStream( contents.getBytes( "UTF-8" ) );
+        }
+
+        @Override
+        public URL getURL()
+        {
+            return null;
+        }
+    }
+}
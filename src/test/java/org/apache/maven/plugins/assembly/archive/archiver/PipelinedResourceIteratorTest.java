@@ -0,0 +1,129 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.components.io.resources.AbstractPlexusIoResource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Iterator;
+
+public class PipelinedResourceIteratorTest
+    extends TestCase
+{
+
+    public void testFilesTooLargeForAnArrayArePassedThrough()
+    {
+        final ArchiveEntry huge = fileEntry( "huge.bin", 3L * 1024 * 1024 * 1024, null );
+        final ArchiveEntry small = fileEntry( "small.txt", 5, null );
+
+        // a budget which would admit the huge file
+        final PipelinedResourceIterator it =
+            new PipelinedResourceIterator( iterator( huge, small ), 4L * 1024 * 1024 * 1024, 2 );
+        try
+        {
+            assertSame( huge, it.next() );
+            assertNotSame( small, it.next() );
+            assertFalse( it.hasNext() );
+            assertEquals( 1, it.getPrefetchedEntries() );
+        }
+        finally
+        {
+            it.close();
+        }
+    }
+
+    public void testReservationIsReleasedWhenReadingFails()
+    {
+        final ArchiveEntry failing = fileEntry( "failing.txt", 100, new IllegalStateException( "broken" ) );
+
+        final PipelinedResourceIterator it = new PipelinedResourceIterator( iterator( failing ), 100, 1 );
+        try
+        {
+            it.next();
+            fail( "The failure of the reader should reach the writer" );
+        }
+        catch ( final ArchiverException e )
+        {
+            assertEquals( "broken", e.getCause().getMessage() );
+            assertEquals( 100, it.getAvailableBuffer() );
+        }
+        finally
+        {
+            it.close();
+        }
+    }
+
+    private static ArchiveEntry fileEntry( final String name, final long size, final RuntimeException failure )
+    {
+        final AbstractPlexusIoResource resource = new AbstractPlexusIoResource( name, 0, size, true, false, true )
+        {
+            @Override
+            public InputStream getContents()
+                throws IOException
+            {
+                if ( failure != null )
+                {
+                    throw failure;
+                }
+                return new ByteArrayInputStream( "bytes".getBytes( "UTF-8" ) );
+            }
+
+            @Override
+            public URL getURL()
+            {
+                return null;
+            }
+        };
+        return ArchiveEntry.createFileEntry( name, resource, 0644, null, 0755 );
+    }
+
+    private static ResourceIterator iterator( final ArchiveEntry... entries )
+    {
+        final Iterator<ArchiveEntry> it = Arrays.asList( entries ).iterator();
+        return new ResourceIterator()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return it.hasNext();
+            }
+
+            @Override
+            public ArchiveEntry next()
+            {
+                return it.next();
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
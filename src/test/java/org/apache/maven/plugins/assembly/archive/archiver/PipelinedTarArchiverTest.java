@@ -0,0 +1,237 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.components.io.functions.InputStreamTransformer;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+public class PipelinedTarArchiverTest
+    extends TestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "pipelined-tar.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testEntriesKeepTheirOrderAndContents()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final List<String> expected = new ArrayList<String>();
+
+        final PipelinedTarArchiver archiver = new PipelinedTarArchiver();
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        archiver.setCompression( TarArchiver.TarCompressionMethod.gzip );
+        // a few files at a time, and one which does not fit at all
+        archiver.setPipelineBuffer( 64 );
+        archiver.setPipelineReaders( 3 );
+        for ( int i = 0; i < 300; i++ )
+        {
+            final String contents = i == 150 ? largeContents() : "contents of file " + i;
+            final File file = fileManager.createFile( dir, "file-" + i + ".txt", contents );
+            archiver.addFile( file, "files/file-" + i + ".txt" );
+            expected.add( "files/file-" + i + ".txt=" + contents );
+        }
+        final File destFile = new File( dir, "out.tar.gz" );
+        archiver.setDestFile( destFile );
+        archiver.createArchive();
+
+        assertEquals( expected, read( destFile, true ) );
+    }
+
+    public void testHardLinksAreWrittenFromTheBuffer()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File lib = fileManager.createFile( dir, "lib.jar", "the same contents" );
+        final File copy = fileManager.createFile( dir, "copy.jar", "the same contents" );
+        final File destFile = new File( dir, "out.tar" );
+
+        final HardLinkingTarArchiver archiver = new HardLinkingTarArchiver();
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        archiver.setPipelineBuffer( 1024 );
+        archiver.setDestFile( destFile );
+        archiver.addFile( lib, "module-a/lib.jar" );
+        archiver.addFile( copy, "module-b/lib.jar" );
+        archiver.createArchive();
+
+        final List<String> entries = read( destFile, false );
+        assertEquals( 2, entries.size() );
+        assertEquals( "module-a/lib.jar=the same contents", entries.get( 0 ) );
+        assertEquals( "module-b/lib.jar=", entries.get( 1 ) );
+    }
+
+    public void testContentsGrownByTheTransformersTopUpTheBudgetOrArePassedThrough()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File sources = new File( dir, "sources" );
+        final List<String> expected = new ArrayList<String>();
+        for ( int i = 0; i < 20; i++ )
+        {
+            fileManager.createFile( sources, "file-" + i + ".txt", "file " + i );
+            expected.add( "file-" + i + ".txt=" + repeat( "file " + i, 1000 ) );
+        }
+
+        // room for the grown contents of a few files at a time, and for none of them
+        for ( final long buffer : new long[] { 64 * 1024 * 1024, 64 } )
+        {
+            final PlexusIoFileResourceCollection collection = new PlexusIoFileResourceCollection();
+            collection.setBaseDir( sources );
+            collection.setStreamTransformer( new InputStreamTransformer()
+            {
+                @Override
+                public InputStream transform( final PlexusIoResource resource, final InputStream inputStream )
+                    throws IOException
+                {
+                    final String contents = repeat( IOUtil.toString( inputStream, "UTF-8" ), 1000 );
+                    return new ByteArrayInputStream( contents.getBytes( "UTF-8" ) );
+                }
+            } );
+
+            final File destFile = new File( dir, "out-" + buffer + ".tar" );
+            final PipelinedTarArchiver archiver = new PipelinedTarArchiver();
+            archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+            archiver.setPipelineBuffer( buffer );
+            archiver.setDestFile( destFile );
+            archiver.addResources( collection );
+            archiver.createArchive();
+
+            final List<String> entries = read( destFile, false );
+            Collections.sort( entries );
+            final List<String> sorted = new ArrayList<String>( expected );
+            Collections.sort( sorted );
+            assertEquals( sorted, entries );
+        }
+    }
+
+    public void testHardLinksOfManyFilesOfDistinctSizesKeepNoBufferedContents()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final List<String> expected = new ArrayList<String>();
+        final List<ArchiveEntry> kept = new ArrayList<ArchiveEntry>();
+
+        final HardLinkingTarArchiver archiver = new HardLinkingTarArchiver()
+        {
+            @Override
+            protected ArchiveEntry sourceOf( final ArchiveEntry entry )
+            {
+                final ArchiveEntry source = super.sourceOf( entry );
+                kept.add( source );
+                return source;
+            }
+        };
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        archiver.setPipelineBuffer( 16 * 1024 );
+        archiver.setPipelineReaders( 3 );
+        for ( int i = 0; i < 200; i++ )
+        {
+            final String contents = repeat( "x", i + 1 );
+            final File file = fileManager.createFile( dir, "file-" + i + ".txt", contents );
+            archiver.addFile( file, "a/file-" + i + ".txt" );
+            expected.add( "a/file-" + i + ".txt=" + contents );
+            if ( i % 10 == 0 )
+            {
+                archiver.addFile( file, "b/file-" + i + ".txt" );
+                expected.add( "b/file-" + i + ".txt=" );
+            }
+        }
+        final File destFile = new File( dir, "out.tar" );
+        archiver.setDestFile( destFile );
+        archiver.createArchive();
+
+        assertEquals( expected, read( destFile, false ) );
+        // only the first file of each size is kept to link to, and none of them holds its contents
+        assertEquals( 200, kept.size() );
+        for ( final ArchiveEntry entry : kept )
+        {
+            assertFalse( entry.getName(), Proxy.isProxyClass( entry.getResource().getClass() ) );
+        }
+    }
+
+    private static String repeat( final String s, final int times )
+    {
+        final StringBuilder contents = new StringBuilder();
+        for ( int i = 0; i < times; i++ )
+        {
+            contents.append( s );
+        }
+        return contents.toString();
+    }
+
+    private static String largeContents()
+    {
+        final StringBuilder contents = new StringBuilder();
+        for ( int i = 0; i < 100; i++ )
+        {
+            contents.append( "larger than the buffer " );
+        }
+        return contents.toString();
+    }
+
+    private static List<String> read( final File tar, final boolean gzip )
+        throws IOException
+    {
+        final List<String> entries = new ArrayList<String>();
+        TarArchiveInputStream in = null;
+        try
+        {
+            final InputStream file = new FileInputStream( tar );
+            in = new TarArchiveInputStream( gzip ? new GZIPInputStream( file ) : file );
+            TarArchiveEntry entry;
+            while ( ( entry = in.getNextTarEntry() ) != null )
+            {
+                entries.add( entry.getName() + "=" + IOUtil.toString( in, "UTF-8" ) );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,180 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class StoringZipArchiverTest
+    extends TestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "storing-zip.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testEntropy()
+    {
+        final byte[] text = new byte[StoredEntryPolicy.PROBE_SIZE];
+        Arrays.fill( text, (byte) 'a' );
+        assertEquals( 0.0, StoredEntryPolicy.entropy( text, text.length ) );
+
+        final byte[] random = new byte[StoredEntryPolicy.PROBE_SIZE];
+        new Random( 1 ).nextBytes( random );
+        assertTrue( StoredEntryPolicy.entropy( random, random.length ) > StoredEntryPolicy.ENTROPY_THRESHOLD );
+    }
+
+    public void testExtension()
+    {
+        assertEquals( "png", StoredEntryPolicy.extension( "img/Logo.PNG" ) );
+        assertEquals( "", StoredEntryPolicy.extension( "conf.d/.hidden" ) );
+        assertEquals( "", StoredEntryPolicy.extension( "bin/run" ) );
+    }
+
+    public void testCompressedContentsAreStored()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File image = fileManager.createFile( dir, "logo.png", "not really an image, but compressible text" );
+        final File text = new File( dir, "notes.txt" );
+        final StringBuilder notes = new StringBuilder();
+        for ( int i = 0; i < 200; i++ )
+        {
+            notes.append( "line " ).append( i ).append( '\n' );
+        }
+        FileUtils.fileWrite( text, "UTF-8", notes.toString() );
+        final File random = new File( dir, "random.bin" );
+        final byte[] bytes = new byte[4096];
+        new Random( 1 ).nextBytes( bytes );
+        FileUtils.fileWrite( random.getPath(), "ISO-8859-1", new String( bytes, "ISO-8859-1" ) );
+        final File destFile = new File( dir, "out.zip" );
+
+        final StoredEntryPolicy policy = new StoredEntryPolicy( Arrays.asList( ".PNG", "gz" ), true );
+        final StoringZipArchiver archiver = new StoringZipArchiver();
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        archiver.setStoredEntryPolicy( policy );
+        archiver.setDestFile( destFile );
+        archiver.addFile( image, "img/logo.png" );
+        archiver.addFile( text, "notes.txt" );
+        archiver.addFile( random, "lib/random.bin" );
+        archiver.createArchive();
+
+        final ZipFile zip = new ZipFile( destFile );
+        try
+        {
+            assertEquals( ZipEntry.STORED, zip.getEntry( "img/logo.png" ).getMethod() );
+            assertEquals( ZipEntry.DEFLATED, zip.getEntry( "notes.txt" ).getMethod() );
+            assertEquals( ZipEntry.STORED, zip.getEntry( "lib/random.bin" ).getMethod() );
+        }
+        finally
+        {
+            zip.close();
+        }
+
+        assertEquals( 1, policy.getStoredByExtension() );
+        assertEquals( 1, policy.getStoredByEntropy() );
+        assertEquals( image.length() + 4096, policy.getStoredBytes() );
+    }
+
+    public void testCompressionOfTheSetTakesPrecedence()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        final File conf = new File( dir, "conf" );
+        fileManager.createFile( conf, "app.properties", "key=value\nother.key=other value\n" );
+        final File image = fileManager.createFile( dir, "logo.png", "not really an image, but compressible text" );
+        final File destFile = new File( dir, "out.zip" );
+
+        final StoredEntryPolicy policy = new StoredEntryPolicy( Arrays.asList( "png" ), false );
+        final StoringZipArchiver archiver = new StoringZipArchiver();
+        archiver.enableLogging( new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        archiver.setStoredEntryPolicy( policy );
+        archiver.setDestFile( destFile );
+
+        final AssemblyProxyArchiver proxy =
+            new AssemblyProxyArchiver( "app", archiver, null, null, null, fileManager.createTempDir(),
+                                       new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+        proxy.setStoredEntryPolicy( policy );
+
+        final EntryCompression previous = AssemblyProxyArchiver.applyEntryCompression( proxy, EntryCompression.stored );
+        final DefaultFileSet fileSet = new DefaultFileSet( conf );
+        fileSet.setPrefix( "conf/" );
+        proxy.addFileSet( fileSet );
+        AssemblyProxyArchiver.restoreEntryCompression( proxy, previous );
+        assertNull( proxy.getEntryCompression() );
+
+        proxy.setEntryCompression( EntryCompression.deflate );
+        proxy.addFile( image, "img/logo.png" );
+        proxy.setEntryCompression( null );
+        proxy.addFile( image, "img/copy.png" );
+        proxy.createArchive();
+
+        final ZipFile zip = new ZipFile( destFile );
+        try
+        {
+            assertEquals( ZipEntry.STORED, zip.getEntry( "app/conf/app.properties" ).getMethod() );
+            assertEquals( ZipEntry.DEFLATED, zip.getEntry( "app/img/logo.png" ).getMethod() );
+            assertEquals( ZipEntry.STORED, zip.getEntry( "app/img/copy.png" ).getMethod() );
+        }
+        finally
+        {
+            zip.close();
+        }
+
+        assertEquals( 1, policy.getStoredByConfiguration() );
+        assertEquals( 1, policy.getStoredByExtension() );
+    }
+
+    public void testOnlySettingsOtherThanTheDefaultAreKept()
+    {
+        final StoredEntryPolicy policy = new StoredEntryPolicy( Arrays.asList( "png" ), false );
+        policy.configure( "img/logo.png", EntryCompression.stored );
+        policy.configure( "conf/app.properties", EntryCompression.deflate );
+        assertEquals( 0, policy.configuredPaths() );
+
+        policy.configure( "img/logo.png", EntryCompression.deflate );
+        policy.configure( "conf/app.properties", EntryCompression.stored );
+        assertEquals( 2, policy.configuredPaths() );
+
+        // a later set going back to the default drops the earlier setting
+        policy.configure( "img/logo.png", EntryCompression.stored );
+        assertEquals( 1, policy.configuredPaths() );
+
+        final StoredEntryPolicy probing = new StoredEntryPolicy( null, true );
+        probing.configure( "conf/app.properties", EntryCompression.deflate );
+        assertEquals( 1, probing.configuredPaths() );
+    }
+}
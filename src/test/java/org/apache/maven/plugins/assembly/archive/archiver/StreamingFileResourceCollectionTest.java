@@ -0,0 +1,279 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.tar.TarLongFileMode;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class StreamingFileResourceCollectionTest
+    extends TestCase
+{
+
+    private static final String PEAK_HEAP = "peak-heap=";
+
+    private final TestFileManager fileManager = new TestFileManager( "streaming-collection.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testIncludesAndExcludesMatchTheDirectoryScanner()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        fileManager.createFile( dir, "README.txt", "read me" );
+        fileManager.createFile( dir, "lib/a.jar", "a" );
+        fileManager.createFile( dir, "lib/ext/b.jar", "b" );
+        fileManager.createFile( dir, "lib/ext/b.txt", "b" );
+        fileManager.createFile( dir, "conf/app.properties", "name=app" );
+        fileManager.createFile( dir, "conf/.svn/entries", "svn" );
+        fileManager.createFile( dir, "target/app.jar", "app" );
+        new File( dir, "empty/nested" ).mkdirs();
+
+        final String[][] patterns = { {}, {}, { "**/*.jar", "conf/**" }, { "lib/ext/**" },
+            { "lib/**", "empty/**" }, { "**/b.*" }, { "conf/" }, {} };
+        for ( int i = 0; i < patterns.length; i += 2 )
+        {
+            for ( final boolean emptyDirectories : new boolean[] { true, false } )
+            {
+                final PlexusIoFileResourceCollection scanned = new PlexusIoFileResourceCollection();
+                final StreamingFileResourceCollection streamed = new StreamingFileResourceCollection();
+                for ( final PlexusIoFileResourceCollection collection : Arrays.asList( scanned, streamed ) )
+                {
+                    collection.setBaseDir( dir );
+                    collection.setFollowingSymLinks( false );
+                    collection.setIncludes( patterns[i] );
+                    collection.setExcludes( patterns[i + 1] );
+                    collection.setIncludingEmptyDirectories( emptyDirectories );
+                    collection.setPrefix( "app/" );
+                }
+
+                final String message = Arrays.asList( patterns[i] ) + " " + Arrays.asList( patterns[i + 1] );
+                assertEquals( message, names( scanned.getResources() ), names( streamed.getResources() ) );
+            }
+        }
+    }
+
+    public void testDirectoriesAreListedWhenTheyAreReached()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+        fileManager.createFile( dir, "a/first.txt", "first" );
+        new File( dir, "b" ).mkdirs();
+
+        final StreamingFileResourceCollection collection = new StreamingFileResourceCollection();
+        collection.setBaseDir( dir );
+        collection.setIncludingEmptyDirectories( false );
+        final Iterator<PlexusIoResource> resources = collection.getResources();
+
+        // a scanner would have listed the tree already
+        fileManager.createFile( dir, "b/late.txt", "late" );
+
+        assertEquals( new TreeSet<String>( Arrays.asList( "a/first.txt", "b/late.txt" ) ), names( resources ) );
+    }
+
+    public void testProxyStreamsFileSets()
+        throws Exception
+    {
+        final File dir = fileManager.createTempDir();
+        fileManager.createFile( dir, "data/0/part-0.bin", "0" );
+        fileManager.createFile( dir, "data/1/part-1.bin", "1" );
+        fileManager.createFile( dir, "data/1/part-1.tmp", "tmp" );
+
+        final List<Set<String>> entries = new ArrayList<Set<String>>();
+        for ( final boolean streamEntries : new boolean[] { false, true } )
+        {
+            final File destFile = new File( dir, "bundle-" + streamEntries + ".tar" );
+            build( dir, destFile, streamEntries );
+
+            final Set<String> names = new TreeSet<String>();
+            final TarArchiveInputStream in = new TarArchiveInputStream( new FileInputStream( destFile ) );
+            try
+            {
+                TarArchiveEntry entry;
+                while ( ( entry = in.getNextTarEntry() ) != null )
+                {
+                    names.add( entry.getName() );
+                }
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+            entries.add( names );
+        }
+
+        assertTrue( entries.get( 1 ).contains( "bundle/data/1/part-1.bin" ) );
+        assertFalse( entries.get( 1 ).contains( "bundle/data/1/part-1.tmp" ) );
+        assertEquals( entries.get( 0 ), entries.get( 1 ) );
+    }
+
+    /**
+     * Builds a tar archive of a file-set of two million empty files (or <code>-Dassembly.benchmark.entries</code>),
+     * with and without streaming the entries, each in a JVM with a heap of 256 MB (or
+     * <code>-Dassembly.benchmark.xmx</code>). The streamed build must complete and must not use more heap at its peak
+     * than the build which lists the file-set first. Only runs with
+     * <code>-Dassembly.benchmark=true</code>.
+     */
+    public void testBenchmarkHeapOfLargeFileSets()
+        throws Exception
+    {
+        if ( !Boolean.getBoolean( "assembly.benchmark" ) )
+        {
+            return;
+        }
+
+        final int count = Integer.getInteger( "assembly.benchmark.entries", 2000000 );
+        final String xmx = System.getProperty( "assembly.benchmark.xmx", "256m" );
+
+        final File dir = fileManager.createTempDir();
+        for ( int i = 0; i < count; i++ )
+        {
+            final File directory = new File( dir, "data/" + ( i / 1000 ) );
+            if ( i % 1000 == 0 )
+            {
+                directory.mkdirs();
+            }
+            new File( directory, "part-" + i + ".bin" ).createNewFile();
+        }
+        final long[] peaks = new long[2];
+        for ( final boolean streamEntries : new boolean[] { false, true } )
+        {
+            final File destFile = new File( dir, "bundle-" + streamEntries + ".tar" );
+            final String java = new File( System.getProperty( "java.home" ), "bin/java" ).getPath();
+            final ProcessBuilder builder =
+                new ProcessBuilder( java, "-Xmx" + xmx, "-cp", System.getProperty( "java.class.path" ),
+                                    getClass().getName(), dir.getPath(), destFile.getPath(),
+                                    String.valueOf( streamEntries ) );
+            builder.redirectErrorStream( true );
+
+            final Process process = builder.start();
+            String result = null;
+            final BufferedReader out = new BufferedReader( new InputStreamReader( process.getInputStream() ) );
+            try
+            {
+                String line;
+                while ( ( line = out.readLine() ) != null )
+                {
+                    if ( line.startsWith( PEAK_HEAP ) || line.contains( "OutOfMemoryError" ) )
+                    {
+                        result = line;
+                    }
+                }
+            }
+            finally
+            {
+                IOUtil.close( out );
+            }
+            final int exit = process.waitFor();
+
+            destFile.delete();
+
+            final int run = streamEntries ? 1 : 0;
+            peaks[run] = exit == 0 && result != null && result.startsWith( PEAK_HEAP )
+                ? Long.parseLong( result.substring( PEAK_HEAP.length() ) )
+                : Long.MAX_VALUE;
+        }
+
+        assertTrue( "streamed build of " + count + " entries failed with -Xmx" + xmx, peaks[1] < Long.MAX_VALUE );
+        assertTrue( "peak heap " + peaks[1] + " MB streamed, " + peaks[0] + " MB listed", peaks[1] <= peaks[0] );
+    }
+
+    /**
+     * The child of {@link #testBenchmarkHeapOfLargeFileSets()}: builds the archive and reports the peak heap use in
+     * megabytes to the parent on its standard output.
+     *
+     * @param args the base directory of the file-set, the archive, and whether to stream the entries.
+     * @throws Exception if the archive cannot be built.
+     */
+    public static void main( final String[] args )
+        throws Exception
+    {
+        build( new File( args[0] ), new File( args[1] ), Boolean.parseBoolean( args[2] ) );
+
+        long peak = 0;
+        for ( final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() )
+        {
+            if ( pool.getType() == MemoryType.HEAP )
+            {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.println( PEAK_HEAP + ( peak >> 20 ) );
+    }
+
+    private static void build( final File dir, final File destFile, final boolean streamEntries )
+        throws IOException
+    {
+        final TarArchiver tar = new TarArchiver();
+        tar.setDestFile( destFile );
+        tar.setLongfile( TarLongFileMode.gnu );
+
+        final AssemblyProxyArchiver archiver =
+            new AssemblyProxyArchiver( "bundle", tar, null, null, null, new File( dir, "work" ),
+                                       new ConsoleLogger( Logger.LEVEL_WARN, "test" ) );
+        archiver.setStreamEntries( streamEntries );
+        archiver.setForced( true );
+
+        final DefaultFileSet fileSet = DefaultFileSet.fileSet( new File( dir, "data" ) );
+        fileSet.setPrefix( "data/" );
+        fileSet.setExcludes( new String[] { "**/*.tmp" } );
+        archiver.addFileSet( fileSet );
+        archiver.createArchive();
+    }
+
+    private static Set<String> names( final Iterator<PlexusIoResource> resources )
+    {
+        final Set<String> names = new TreeSet<String>();
+        while ( resources.hasNext() )
+        {
+            names.add( resources.next().getName().replace( '\\', '/' ) );
+        }
+        return names;
+    }
+}
@@ -0,0 +1,66 @@
+package org.apache.maven.plugins.assembly.archive.archiver;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TargetPathIndexTest
+    extends TestCase
+{
+
+    public void testFirstAndLastAdditionsAreKept()
+    {
+        final TargetPathIndex index = new TargetPathIndex();
+        index.record( "lib/a.jar", 2 );
+        index.record( "lib/b.jar", 1 );
+        index.record( "lib/a.jar", 1 );
+        index.record( "/lib//a.jar", 3 );
+
+        assertEquals( 2, index.getPaths() );
+        assertEquals( 2, index.getShadowed() );
+
+        assertTrue( index.isKept( "lib/a.jar", 1, DuplicatePolicy.first ) );
+        assertFalse( index.isKept( "lib/a.jar", 2, DuplicatePolicy.first ) );
+        assertFalse( index.isKept( "lib/a.jar", 1, DuplicatePolicy.last ) );
+        assertTrue( index.isKept( "lib/a.jar", 3, DuplicatePolicy.last ) );
+
+        assertTrue( index.isKept( "lib/b.jar", 1, DuplicatePolicy.last ) );
+        assertTrue( index.isKept( "lib/unknown.jar", 5, DuplicatePolicy.first ) );
+    }
+
+    public void testDuplicatesAreListed()
+    {
+        final TargetPathIndex index = new TargetPathIndex();
+        index.record( "a/x.txt", 1 );
+        index.record( "a/x.txt", 2 );
+        index.record( "b/y.txt", 1 );
+        index.record( "b/y.txt", 2 );
+        index.record( "c", 1 );
+
+        final List<String> duplicates = index.getDuplicates( 10 );
+        Collections.sort( duplicates );
+        assertEquals( Arrays.asList( "a/x.txt", "b/y.txt" ), duplicates );
+        assertEquals( 1, index.getDuplicates( 1 ).size() );
+    }
+}
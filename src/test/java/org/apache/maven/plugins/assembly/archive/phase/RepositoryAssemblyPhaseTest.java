@@ -31,13 +31,16 @@ import org.apache.maven.plugins.assembly.model.Repository;
 import org.apache.maven.plugins.assembly.repository.RepositoryAssembler;
 import org.apache.maven.plugins.assembly.repository.RepositoryAssemblyException;
 import org.apache.maven.plugins.assembly.repository.RepositoryBuilderConfigSource;
+import org.apache.maven.plugins.assembly.repository.ResolvedRepository;
 import org.apache.maven.plugins.assembly.repository.model.RepositoryInfo;
+import org.apache.maven.plugins.assembly.testutils.PojoConfigSource;
 import org.apache.maven.plugins.assembly.testutils.TestFileManager;
 import org.apache.maven.plugins.assembly.utils.TypeConversionUtils;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.archiver.Archiver;
 import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.FileSet;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
 import org.codehaus.plexus.archiver.util.DefaultFileSet;
 import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
 import org.codehaus.plexus.logging.Logger;
@@ -47,9 +50,17 @@ import org.easymock.classextension.EasyMockSupport;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.same;
 
 public class RepositoryAssemblyPhaseTest
     extends TestCase
@@ -73,10 +84,6 @@ public class RepositoryAssemblyPhaseTest
         final MockAndControlForArchiver macArchiver = new MockAndControlForArchiver( mm );
         final MockAndControlForConfigSource macCS = new MockAndControlForConfigSource( mm );
 
-        final File tempRoot = fileManager.createTempDir();
-
-        macCS.expectGetTemporaryRootDirectory( tempRoot );
-
         final Assembly assembly = new Assembly();
 
         assembly.setId( "test" );
@@ -100,9 +107,6 @@ public class RepositoryAssemblyPhaseTest
         final MockAndControlForArchiver macArchiver = new MockAndControlForArchiver( mm );
         final MockAndControlForConfigSource macCS = new MockAndControlForConfigSource( mm );
 
-        final File tempRoot = fileManager.createTempDir();
-
-        macCS.expectGetTemporaryRootDirectory( tempRoot );
         macCS.expectGetProject( new MavenProject( new Model() ) );
         macCS.expectGetFinalName( "final-name" );
         macCS.expectInterpolators();
@@ -119,12 +123,9 @@ public class RepositoryAssemblyPhaseTest
 
         final int mode = TypeConversionUtils.modeToInt( "777", new ConsoleLogger( Logger.LEVEL_DEBUG, "test" ) );
 
-        final File outDir = new File( tempRoot, "out" );
-
         macArchiver.expectModeChange( -1, -1, mode, mode, true );
-        macArchiver.expectAddDirectory( outDir, "out/", null, null );
 
-        macRepo.expectAssemble();
+        macRepo.expectAssemble( macArchiver.archiver, "out/" );
 
         assembly.addRepository( repo );
 
@@ -138,6 +139,76 @@ public class RepositoryAssemblyPhaseTest
         mm.verifyAll();
     }
 
+    public void testExecute_RepositoriesResolvedConcurrentlyAreAddedInDescriptorOrder()
+        throws Exception
+    {
+        final Assembly assembly = new Assembly();
+        assembly.setId( "test" );
+        // the first repositories take the longest to resolve
+        for ( int i = 0; i < 4; i++ )
+        {
+            assembly.addRepository( repository( "repo" + i, ( 4 - i ) * 50 ) );
+        }
+
+        final RecordingRepositoryAssembler assembler = new RecordingRepositoryAssembler();
+        createPhase( assembler, new ConsoleLogger( Logger.LEVEL_WARN, "test" ) ).execute( assembly, new TarArchiver(),
+                                                                                          configSource() );
+
+        assertEquals( Arrays.asList( "repo0/", "repo1/", "repo2/", "repo3/" ), assembler.built );
+        for ( int i = 0; i < 4; i++ )
+        {
+            assertSame( assembler.resolved.get( "repo" + i ), assembler.builtFrom.get( i ) );
+        }
+    }
+
+    public void testExecute_FirstFailureInDescriptorOrderIsReported()
+        throws Exception
+    {
+        final Assembly assembly = new Assembly();
+        assembly.setId( "test" );
+        assembly.addRepository( repository( "repo0", 0 ) );
+        // fails after the third one
+        assembly.addRepository( repository( "fail1", 200 ) );
+        assembly.addRepository( repository( "fail2", 0 ) );
+
+        final RecordingRepositoryAssembler assembler = new RecordingRepositoryAssembler();
+        try
+        {
+            createPhase( assembler, new ConsoleLogger( Logger.LEVEL_WARN, "test" ) ).execute( assembly,
+                                                                                              new TarArchiver(),
+                                                                                              configSource() );
+            fail( "The resolution failure should be reported." );
+        }
+        catch ( final ArchiveCreationException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "fail1" ) );
+            assertTrue( e.getCause() instanceof RepositoryAssemblyException );
+        }
+        assertTrue( assembler.built.isEmpty() );
+    }
+
+    /**
+     * @param id the output directory of the repository, which also names it to the
+     *            {@link RecordingRepositoryAssembler}.
+     * @param delay how long resolving the repository takes, in milliseconds.
+     */
+    private static Repository repository( final String id, final long delay )
+    {
+        final Repository repository = new Repository();
+        repository.setOutputDirectory( id );
+        repository.setIncludes( Arrays.asList( id, String.valueOf( delay ) ) );
+        return repository;
+    }
+
+    private static PojoConfigSource configSource()
+    {
+        final PojoConfigSource configSource = new PojoConfigSource();
+        configSource.setMavenProject( new MavenProject( new Model() ) );
+        configSource.setFinalName( "final-name" );
+        configSource.setMainProjectInterpolator( FixedStringSearchInterpolator.empty() );
+        return configSource;
+    }
+
     private RepositoryAssemblyPhase createPhase( final RepositoryAssembler repositoryAssembler, final Logger logger )
     {
         final RepositoryAssemblyPhase phase = new RepositoryAssemblyPhase( repositoryAssembler );
@@ -146,6 +217,53 @@ public class RepositoryAssemblyPhaseTest
         return phase;
     }
 
+    /**
+     * Resolves the repositories named by {@link #repository(String, long)}, failing those whose name starts with
+     * <code>fail</code>, and records the repositories built.
+     */
+    private static final class RecordingRepositoryAssembler
+        implements RepositoryAssembler
+    {
+
+        private final Map<String, ResolvedRepository> resolved =
+            Collections.synchronizedMap( new HashMap<String, ResolvedRepository>() );
+
+        private final List<String> built = new ArrayList<String>();
+
+        private final List<ResolvedRepository> builtFrom = new ArrayList<ResolvedRepository>();
+
+        @Override
+        public ResolvedRepository resolveRepository( final RepositoryInfo repository,
+                                                     final RepositoryBuilderConfigSource configSource )
+            throws RepositoryAssemblyException
+        {
+            final String id = repository.getIncludes().get( 0 );
+            try
+            {
+                Thread.sleep( Long.parseLong( repository.getIncludes().get( 1 ) ) );
+            }
+            catch ( final InterruptedException e )
+            {
+                throw new RepositoryAssemblyException( "Interrupted: " + id, e );
+            }
+            if ( id.startsWith( "fail" ) )
+            {
+                throw new RepositoryAssemblyException( "Cannot resolve " + id );
+            }
+            final ResolvedRepository result = new ResolvedRepository();
+            resolved.put( id, result );
+            return result;
+        }
+
+        @Override
+        public void buildRemoteRepository( final Archiver archiver, final String outputDirectory,
+                                           final ResolvedRepository repository )
+        {
+            built.add( outputDirectory );
+            builtFrom.add( repository );
+        }
+    }
+
     private final class MockAndControlForArchiver
     {
         final Archiver archiver;
@@ -259,12 +377,17 @@ public class RepositoryAssemblyPhaseTest
             repositoryAssembler = mockManager.createMock( RepositoryAssembler.class );
         }
 
-        public void expectAssemble()
+        public void expectAssemble( final Archiver archiver, final String outputDirectory )
         {
             try
             {
-                repositoryAssembler.buildRemoteRepository( (File) anyObject(), (RepositoryInfo) anyObject(),
-                                                           (RepositoryBuilderConfigSource) anyObject() );
+                final ResolvedRepository resolved = new ResolvedRepository();
+
+                expect( repositoryAssembler.resolveRepository( (RepositoryInfo) anyObject(),
+                                                               (RepositoryBuilderConfigSource) anyObject() ) ).andReturn(
+                    resolved ).atLeastOnce();
+
+                repositoryAssembler.buildRemoteRepository( same( archiver ), eq( outputDirectory ), same( resolved ) );
                 EasyMock.expectLastCall().atLeastOnce();
             }
             catch ( final RepositoryAssemblyException e )
@@ -25,6 +25,7 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -48,6 +49,8 @@ import org.apache.maven.plugins.assembly.model.ModuleBinaries;
 import org.apache.maven.plugins.assembly.model.ModuleSet;
 import org.apache.maven.plugins.assembly.model.Repository;
 import org.apache.maven.plugins.assembly.resolved.AssemblyId;
+import org.apache.maven.plugins.assembly.testutils.PojoConfigSource;
+import org.apache.maven.plugins.assembly.utils.FilterUtils;
 import org.apache.maven.project.DefaultProjectBuildingRequest;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuildingRequest;
@@ -283,6 +286,43 @@ public class DefaultDependencyResolverTest
         assertFalse( info.getScopeFilter().getIncluded().contains( Artifact.SCOPE_TEST ) );
     }
 
+    public void test_isCoveredByProjectResolution()
+    {
+        final MavenProject project = createMavenProject( "group", "artifact", "1.0", null );
+
+        final PojoConfigSource configSource = new PojoConfigSource();
+        configSource.setMavenProject( project );
+        configSource.setDependencyResolutionScope( "compile" );
+
+        final ResolutionManagementInfo compileInfo = new ResolutionManagementInfo( project );
+        compileInfo.setScopeFilter( FilterUtils.newScopeFilter( Artifact.SCOPE_COMPILE ) );
+        assertTrue( resolver.isCoveredByProjectResolution( compileInfo, configSource ) );
+
+        final ResolutionManagementInfo runtimeInfo = new ResolutionManagementInfo( project );
+        runtimeInfo.setScopeFilter( FilterUtils.newScopeFilter( Artifact.SCOPE_RUNTIME ) );
+        assertFalse( resolver.isCoveredByProjectResolution( runtimeInfo, configSource ) );
+
+        configSource.setDependencyResolutionScope( "test" );
+        assertTrue( resolver.isCoveredByProjectResolution( runtimeInfo, configSource ) );
+
+        // dependencies of module-set projects are not part of the project's artifacts
+        runtimeInfo.enableProjectResolution( createMavenProject( "group", "module", "1.0", null ) );
+        assertFalse( resolver.isCoveredByProjectResolution( runtimeInfo, configSource ) );
+
+        configSource.setDependencyResolutionScope( null );
+        assertFalse( resolver.isCoveredByProjectResolution( compileInfo, configSource ) );
+    }
+
+    public void test_getResolvedScopes()
+    {
+        assertEquals( new HashSet<String>( Arrays.asList( "compile", "provided", "system" ) ),
+                      DefaultDependencyResolver.getResolvedScopes( "compile" ) );
+        assertEquals( new HashSet<String>( Arrays.asList( "compile", "runtime" ) ),
+                      DefaultDependencyResolver.getResolvedScopes( "runtime" ) );
+        assertTrue( DefaultDependencyResolver.getResolvedScopes( "none" ).isEmpty() );
+        assertTrue( DefaultDependencyResolver.getResolvedScopes( null ).isEmpty() );
+    }
+
     public void test_aggregateRemoteArtifactRepositories()
     {
         final List<ArtifactRepository> externalRepos = new ArrayList<ArtifactRepository>();
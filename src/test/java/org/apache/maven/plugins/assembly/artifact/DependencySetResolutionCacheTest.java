@@ -0,0 +1,198 @@
+package org.apache.maven.plugins.assembly.artifact;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.apache.maven.plugins.assembly.utils.FilterUtils;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.repository.RepositorySystem;
+import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+
+public class DependencySetResolutionCacheTest
+    extends PlexusTestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "resolution-cache.test.", "" );
+
+    private RepositorySystem repositorySystem;
+
+    @Override
+    public void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        repositorySystem = lookup( RepositorySystem.class );
+    }
+
+    @Override
+    public void tearDown()
+        throws Exception
+    {
+        fileManager.cleanUp();
+
+        super.tearDown();
+    }
+
+    public void testStoreAndLoad()
+        throws IOException
+    {
+        final File cacheDir = fileManager.createTempDir();
+        final DependencySetResolutionCache cache = newCache( cacheDir );
+
+        final Artifact artifact = newArtifact( "1.0", "compile", "content" );
+        artifact.setDependencyTrail( Arrays.asList( "group:main:jar:1", "group:dep:jar:1.0" ) );
+
+        final Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+        artifacts.add( artifact );
+
+        cache.store( "key", artifacts );
+
+        final Set<Artifact> loaded = newCache( cacheDir ).load( "key" );
+        assertNotNull( loaded );
+        assertEquals( 1, loaded.size() );
+
+        final Artifact result = loaded.iterator().next();
+        assertEquals( artifact.getId(), result.getId() );
+        assertEquals( "compile", result.getScope() );
+        assertEquals( artifact.getFile().getAbsoluteFile(), result.getFile() );
+        assertEquals( artifact.getDependencyTrail(), result.getDependencyTrail() );
+        assertTrue( result.isResolved() );
+    }
+
+    public void testLoad_InvalidatedWhenFileChanges()
+        throws IOException
+    {
+        final File cacheDir = fileManager.createTempDir();
+        final DependencySetResolutionCache cache = newCache( cacheDir );
+
+        final Artifact artifact = newArtifact( "1.0", "compile", "content" );
+        cache.store( "key", new LinkedHashSet<Artifact>( Arrays.asList( artifact ) ) );
+
+        fileManager.createFile( artifact.getFile().getParentFile(), artifact.getFile().getName(), "other content" );
+
+        assertNull( cache.load( "key" ) );
+        assertNull( cache.load( "missing" ) );
+    }
+
+    public void testStore_SkipsSnapshots()
+        throws IOException
+    {
+        final File cacheDir = fileManager.createTempDir();
+        final DependencySetResolutionCache cache = newCache( cacheDir );
+
+        cache.store( "key", new LinkedHashSet<Artifact>( Arrays.asList( newArtifact( "1.0-SNAPSHOT", "compile",
+                                                                                     "content" ) ) ) );
+
+        assertNull( cache.load( "key" ) );
+    }
+
+    public void testComputeKey()
+    {
+        final MavenProject project = new MavenProject( new Model() );
+        project.setGroupId( "group" );
+        project.setArtifactId( "main" );
+        project.setVersion( "1" );
+
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId( "group" );
+        dependency.setArtifactId( "dep" );
+        dependency.setVersion( "1.0" );
+        project.getModel().addDependency( dependency );
+
+        final ResolutionManagementInfo info = new ResolutionManagementInfo( project );
+        info.setScopeFilter( FilterUtils.newScopeFilter( Artifact.SCOPE_RUNTIME ) );
+
+        final String key = DependencySetResolutionCache.computeKey( info, "/repo" );
+        assertEquals( key, DependencySetResolutionCache.computeKey( info, "/repo" ) );
+        assertFalse( key.equals( DependencySetResolutionCache.computeKey( info, "/other-repo" ) ) );
+
+        info.setResolvedTransitively( true );
+        final String transitiveKey = DependencySetResolutionCache.computeKey( info, "/repo" );
+        assertFalse( key.equals( transitiveKey ) );
+
+        dependency.setVersion( "1.1" );
+        assertFalse( transitiveKey.equals( DependencySetResolutionCache.computeKey( info, "/repo" ) ) );
+    }
+
+    public void testIsCacheable_NotWithSnapshotOrRangedRoots()
+        throws InvalidVersionSpecificationException
+    {
+        final MavenProject project = new MavenProject( new Model() );
+        project.setGroupId( "group" );
+        project.setArtifactId( "main" );
+        project.setVersion( "1" );
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId( "group" );
+        dependency.setArtifactId( "dep" );
+        dependency.setVersion( "1.0" );
+        project.getModel().addDependency( dependency );
+
+        assertTrue( DependencySetResolutionCache.isCacheable( infoWithRoot( project, "1.0" ) ) );
+        assertFalse( DependencySetResolutionCache.isCacheable( infoWithRoot( project, "1.0-SNAPSHOT" ) ) );
+        assertFalse( DependencySetResolutionCache.isCacheable( infoWithRoot( project, "[1.0,2.0)" ) ) );
+
+        dependency.setVersion( "[1.0,)" );
+        final ResolutionManagementInfo info = new ResolutionManagementInfo( project );
+        assertFalse( DependencySetResolutionCache.isCacheable( info ) );
+    }
+
+    private static ResolutionManagementInfo infoWithRoot( final MavenProject project, final String version )
+        throws InvalidVersionSpecificationException
+    {
+        final ResolutionManagementInfo info = new ResolutionManagementInfo( project );
+        info.addArtifacts( Collections.<Artifact>singleton(
+            new DefaultArtifact( "group", "dep", VersionRange.createFromVersionSpec( version ), "compile", "jar", null,
+                                 new DefaultArtifactHandler( "jar" ) ) ) );
+        return info;
+    }
+
+    private DependencySetResolutionCache newCache( final File directory )
+    {
+        return new DependencySetResolutionCache( directory, repositorySystem,
+                                                 new ConsoleLogger( Logger.LEVEL_DEBUG, "test" ) );
+    }
+
+    private Artifact newArtifact( final String version, final String scope, final String content )
+        throws IOException
+    {
+        final Artifact artifact =
+            repositorySystem.createArtifactWithClassifier( "group", "dep", version, "jar", null );
+        artifact.setScope( scope );
+        artifact.setFile( fileManager.createFile( fileManager.createTempDir(), "dep.jar", content ) );
+        return artifact;
+    }
+}
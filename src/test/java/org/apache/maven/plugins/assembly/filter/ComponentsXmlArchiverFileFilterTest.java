@@ -33,9 +33,13 @@ import org.codehaus.plexus.archiver.diags.NoOpArchiver;
 import org.codehaus.plexus.archiver.zip.ZipArchiver;
 import org.codehaus.plexus.components.io.resources.PlexusIoResource;
 import org.codehaus.plexus.components.io.resources.PlexusIoResourceCollection;
+import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
 import org.codehaus.plexus.util.xml.PrettyPrintXMLWriter;
 import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.codehaus.plexus.util.xml.Xpp3DomBuilder;
+import org.codehaus.plexus.util.xml.Xpp3DomWriter;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.jdom.Document;
 import org.jdom.JDOMException;
@@ -53,7 +57,6 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -88,9 +91,9 @@ public class ComponentsXmlArchiverFileFilterTest
 
         filter.addComponentsXml( reader );
 
-        assertFalse( filter.components.isEmpty() );
+        assertEquals( Collections.singleton( "role" ), filter.componentKeys );
 
-        final Xpp3Dom componentDom = filter.components.get( "role" );
+        final Xpp3Dom componentDom = mergedComponents().getChild( 0 );
 
         assertEquals( "role", componentDom.getChild( "role" ).getValue() );
         assertNull( componentDom.getChild( "role-hint" ) );
@@ -105,9 +108,9 @@ public class ComponentsXmlArchiverFileFilterTest
 
         filter.addComponentsXml( reader );
 
-        assertFalse( filter.components.isEmpty() );
+        assertEquals( Collections.singleton( "rolehint" ), filter.componentKeys );
 
-        final Xpp3Dom componentDom = filter.components.get( "rolehint" );
+        final Xpp3Dom componentDom = mergedComponents().getChild( 0 );
 
         assertEquals( "role", componentDom.getChild( "role" ).getValue() );
         assertEquals( "hint", componentDom.getChild( "role-hint" ).getValue() );
@@ -126,15 +129,17 @@ public class ComponentsXmlArchiverFileFilterTest
 
         filter.addComponentsXml( reader );
 
-        assertFalse( filter.components.isEmpty() );
+        assertEquals( 2, filter.componentKeys.size() );
 
-        Xpp3Dom componentDom = filter.components.get( "rolehint" );
+        final Xpp3Dom merged = mergedComponents();
+
+        Xpp3Dom componentDom = merged.getChild( 0 );
 
         assertEquals( "role", componentDom.getChild( "role" ).getValue() );
         assertEquals( "hint", componentDom.getChild( "role-hint" ).getValue() );
         assertEquals( "org.apache.maven.Impl", componentDom.getChild( "implementation" ).getValue() );
 
-        componentDom = filter.components.get( "rolehint2" );
+        componentDom = merged.getChild( 1 );
 
         assertEquals( "role", componentDom.getChild( "role" ).getValue() );
         assertEquals( "hint2", componentDom.getChild( "role-hint" ).getValue() );
@@ -142,12 +147,10 @@ public class ComponentsXmlArchiverFileFilterTest
     }
 
     public void testAddToArchive_ShouldWriteComponentWithoutHintToFile()
-        throws IOException, ArchiverException, JDOMException
+        throws IOException, ArchiverException, JDOMException, XmlPullParserException
     {
-        final Xpp3Dom dom = createComponentDom( new ComponentDef( "role", null, "impl" ) );
-
-        filter.components = new LinkedHashMap<String, Xpp3Dom>();
-        filter.components.put( "role", dom );
+        filter.addComponentsXml(
+            writeComponentsXml( Collections.singletonList( new ComponentDef( "role", null, "impl" ) ) ) );
 
         final FileCatchingArchiver fca = new FileCatchingArchiver();
 
@@ -169,12 +172,10 @@ public class ComponentsXmlArchiverFileFilterTest
     }
 
     public void testAddToArchive_ShouldWriteComponentWithHintToFile()
-        throws IOException, ArchiverException, JDOMException
+        throws IOException, ArchiverException, JDOMException, XmlPullParserException
     {
-        final Xpp3Dom dom = createComponentDom( new ComponentDef( "role", "hint", "impl" ) );
-
-        filter.components = new LinkedHashMap<String, Xpp3Dom>();
-        filter.components.put( "rolehint", dom );
+        filter.addComponentsXml(
+            writeComponentsXml( Collections.singletonList( new ComponentDef( "role", "hint", "impl" ) ) ) );
 
         final FileCatchingArchiver fca = new FileCatchingArchiver();
 
@@ -196,17 +197,13 @@ public class ComponentsXmlArchiverFileFilterTest
     }
 
     public void testAddToArchive_ShouldWriteTwoComponentToFile()
-        throws IOException, ArchiverException, JDOMException
+        throws IOException, ArchiverException, JDOMException, XmlPullParserException
     {
-        filter.components = new LinkedHashMap<String, Xpp3Dom>();
-
-        final Xpp3Dom dom = createComponentDom( new ComponentDef( "role", "hint", "impl" ) );
-
-        filter.components.put( "rolehint", dom );
-
-        final Xpp3Dom dom2 = createComponentDom( new ComponentDef( "role", "hint2", "impl" ) );
+        final List<ComponentDef> defs = new ArrayList<ComponentDef>();
+        defs.add( new ComponentDef( "role", "hint", "impl" ) );
+        defs.add( new ComponentDef( "role", "hint2", "impl" ) );
 
-        filter.components.put( "rolehint2", dom2 );
+        filter.addComponentsXml( writeComponentsXml( defs ) );
 
         final FileCatchingArchiver fca = new FileCatchingArchiver();
 
@@ -237,17 +234,13 @@ public class ComponentsXmlArchiverFileFilterTest
     }
 
     public void testAddToArchive_ShouldWriteTwoComponentToArchivedFile()
-        throws IOException, ArchiverException, JDOMException
+        throws IOException, ArchiverException, JDOMException, XmlPullParserException
     {
-        filter.components = new LinkedHashMap<String, Xpp3Dom>();
-
-        final Xpp3Dom dom = createComponentDom( new ComponentDef( "role", "hint", "impl" ) );
-
-        filter.components.put( "rolehint", dom );
-
-        final Xpp3Dom dom2 = createComponentDom( new ComponentDef( "role", "hint2", "impl" ) );
+        final List<ComponentDef> defs = new ArrayList<ComponentDef>();
+        defs.add( new ComponentDef( "role", "hint", "impl" ) );
+        defs.add( new ComponentDef( "role", "hint2", "impl" ) );
 
-        filter.components.put( "rolehint2", dom2 );
+        filter.addComponentsXml( writeComponentsXml( defs ) );
 
         final ZipArchiver archiver = new ZipArchiver();
 
@@ -318,6 +311,95 @@ public class ComponentsXmlArchiverFileFilterTest
 
     }
 
+    public void testAddComponentsXml_ShouldKeepTheFirstComponentOfEachRoleAndHint()
+        throws IOException, XmlPullParserException
+    {
+        final List<ComponentDef> first = new ArrayList<ComponentDef>();
+        first.add( new ComponentDef( "role", "hint", "org.apache.maven.Impl" ) );
+        first.add( new ComponentDef( "role", null, "org.apache.maven.Default" ) );
+        filter.addComponentsXml( writeComponentsXml( first ) );
+
+        final List<ComponentDef> second = new ArrayList<ComponentDef>();
+        second.add( new ComponentDef( "role", "hint", "org.apache.maven.Shadowed" ) );
+        second.add( new ComponentDef( "role", "hint3", "org.apache.maven.Impl3" ) );
+        filter.addComponentsXml( writeComponentsXml( second ) );
+
+        final Xpp3Dom merged = mergedComponents();
+        assertEquals( 3, merged.getChildCount() );
+        assertEquals( "org.apache.maven.Impl", merged.getChild( 0 ).getChild( "implementation" ).getValue() );
+        assertEquals( "org.apache.maven.Default", merged.getChild( 1 ).getChild( "implementation" ).getValue() );
+        assertEquals( "org.apache.maven.Impl3", merged.getChild( 2 ).getChild( "implementation" ).getValue() );
+    }
+
+    public void testAddToArchive_ShouldWriteWhatTheMergedTreeWouldWrite()
+        throws IOException, XmlPullParserException
+    {
+        final List<ComponentDef> defs = new ArrayList<ComponentDef>();
+        final Xpp3Dom expected = new Xpp3Dom( "component-set" );
+        final Xpp3Dom expectedComponents = new Xpp3Dom( "components" );
+        expected.addChild( expectedComponents );
+        for ( int i = 0; i < 100; i++ )
+        {
+            final ComponentDef def = new ComponentDef( "role", "hint-" + i, "org.apache.maven.Impl<" + i + ">" );
+            defs.add( def );
+            expectedComponents.addChild( createComponentDom( def ) );
+        }
+
+        // spilled to disk after a few components
+        filter.bufferThreshold = 256;
+        filter.addComponentsXml( writeComponentsXml( defs.subList( 0, 50 ) ) );
+        filter.addComponentsXml( writeComponentsXml( defs.subList( 50, 100 ) ) );
+
+        final FileCatchingArchiver fca = new FileCatchingArchiver();
+        filter.finalizeArchiveCreation( fca );
+
+        final StringWriter writer = new StringWriter();
+        Xpp3DomWriter.write( writer, expected );
+        assertEquals( writer.toString(), FileUtils.fileRead( fca.getFile(), "UTF-8" ) );
+        assertEquals( 100, filter.componentKeys.size() );
+    }
+
+    public void testClose_ShouldDeleteTheMergedFile()
+        throws IOException, XmlPullParserException
+    {
+        final List<ComponentDef> defs = new ArrayList<ComponentDef>();
+        defs.add( new ComponentDef( "role", "hint", "impl" ) );
+        filter.addComponentsXml( writeComponentsXml( defs ) );
+
+        final FileCatchingArchiver inMemory = new FileCatchingArchiver();
+        filter.finalizeArchiveCreation( inMemory );
+        assertTrue( inMemory.getFile().isFile() );
+        filter.close();
+        assertFalse( inMemory.getFile().exists() );
+
+        // spilled to disk
+        filter = new ComponentsXmlArchiverFileFilter();
+        filter.bufferThreshold = 16;
+        filter.addComponentsXml( writeComponentsXml( defs ) );
+        final FileCatchingArchiver spilled = new FileCatchingArchiver();
+        filter.finalizeArchiveCreation( spilled );
+        assertTrue( spilled.getFile().isFile() );
+        filter.close();
+        assertFalse( spilled.getFile().exists() );
+    }
+
+    private Xpp3Dom mergedComponents()
+        throws IOException, XmlPullParserException
+    {
+        final FileCatchingArchiver fca = new FileCatchingArchiver();
+        filter.finalizeArchiveCreation( fca );
+
+        final Reader reader = ReaderFactory.newXmlReader( fca.getFile() );
+        try
+        {
+            return Xpp3DomBuilder.build( reader ).getChild( "components" );
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
     private Xpp3Dom createComponentDom( final ComponentDef def )
     {
         final Xpp3Dom dom = new Xpp3Dom( "component" );
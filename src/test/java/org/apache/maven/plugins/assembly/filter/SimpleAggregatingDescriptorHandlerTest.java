@@ -0,0 +1,184 @@
+package org.apache.maven.plugins.assembly.filter;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.diags.NoOpArchiver;
+import org.codehaus.plexus.components.io.fileselectors.FileInfo;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.util.IOUtil;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class SimpleAggregatingDescriptorHandlerTest
+    extends TestCase
+{
+
+    public void testPropertiesAreAggregatedInLatin1()
+        throws IOException
+    {
+        final SimpleAggregatingDescriptorHandler handler = new SimpleAggregatingDescriptorHandler();
+        handler.setFilePattern( ".*\\.properties" );
+        handler.setOutputPath( "/conf/all.properties" );
+
+        assertFalse( handler.isSelected( new TestFileInfo( "a/app.properties", latin1( "name=caf\u00e9" ) ) ) );
+        assertFalse( handler.isSelected( new TestFileInfo( "b/app.properties", latin1( "other=na\u00efve" ) ) ) );
+        assertTrue( handler.isSelected( new TestFileInfo( "README.txt", latin1( "read me" ) ) ) );
+
+        final ResourceCatchingArchiver archiver = new ResourceCatchingArchiver();
+        handler.finalizeArchiveCreation( archiver );
+
+        assertEquals( "conf/all.properties", archiver.destFileName );
+        final byte[] contents = contents( archiver.resource );
+        assertEquals( contents.length, archiver.resource.getSize() );
+        final String aggregate = new String( contents, "ISO-8859-1" );
+        assertTrue( aggregate, aggregate.startsWith( "# Aggregated on " ) );
+        assertTrue( aggregate, aggregate.endsWith( " from: \n# a/app.properties\n# b/app.properties\n\n"
+            + "\nname=caf\u00e9\nother=na\u00efve" ) );
+    }
+
+    public void testLargeAggregatesSpillToDisk()
+        throws IOException
+    {
+        final SimpleAggregatingDescriptorHandler handler = new SimpleAggregatingDescriptorHandler();
+        handler.setFilePattern( ".*\\.conf" );
+        handler.setOutputPath( "all.conf" );
+        handler.setEncoding( "UTF-8" );
+        handler.setBufferThreshold( 64 );
+
+        final StringBuilder expected = new StringBuilder();
+        for ( int i = 0; i < 100; i++ )
+        {
+            final String line = "setting." + i + " = \u00fcber \u20ac" + i;
+            handler.isSelected( new TestFileInfo( "conf/" + i + ".conf", line.getBytes( "UTF-8" ) ) );
+            expected.append( '\n' ).append( line );
+        }
+
+        final ResourceCatchingArchiver archiver = new ResourceCatchingArchiver();
+        handler.finalizeArchiveCreation( archiver );
+
+        final byte[] contents = contents( archiver.resource );
+        assertEquals( contents.length, archiver.resource.getSize() );
+        final String aggregate = new String( contents, "UTF-8" );
+        assertTrue( aggregate.endsWith( "# conf/99.conf\n\n" + expected ) );
+        // the resource can be read more than once
+        assertEquals( contents.length, contents( archiver.resource ).length );
+
+        // until the archive is written
+        handler.close();
+        try
+        {
+            contents( archiver.resource );
+            fail( "The file the aggregate spilled to should be deleted" );
+        }
+        catch ( final FileNotFoundException e )
+        {
+            // expected
+        }
+    }
+
+    private static byte[] latin1( final String text )
+        throws IOException
+    {
+        return text.getBytes( "ISO-8859-1" );
+    }
+
+    private static byte[] contents( final PlexusIoResource resource )
+        throws IOException
+    {
+        final InputStream in = resource.getContents();
+        try
+        {
+            return IOUtil.toByteArray( in );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    private static final class TestFileInfo
+        implements FileInfo
+    {
+
+        private final String name;
+
+        private final byte[] contents;
+
+        TestFileInfo( final String name, final byte[] contents )
+        {
+            this.name = name;
+            this.contents = contents;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        @Override
+        public InputStream getContents()
+        {
+            return new ByteArrayInputStream( contents );
+        }
+
+        @Override
+        public boolean isFile()
+        {
+            return true;
+        }
+
+        @Override
+        public boolean isDirectory()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isSymbolicLink()
+        {
+            return false;
+        }
+    }
+
+    private static final class ResourceCatchingArchiver
+        extends NoOpArchiver
+    {
+
+        private PlexusIoResource resource;
+
+        private String destFileName;
+
+        @Override
+        public void addResource( @Nonnull final PlexusIoResource resource, @Nonnull final String destFileName,
+                                 final int permissions )
+            throws ArchiverException
+        {
+            this.resource = resource;
+            this.destFileName = destFileName;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.apache.maven.plugins.assembly.interpolation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugins.assembly.io.DefaultAssemblyReader;
+import org.apache.maven.plugins.assembly.model.io.xpp3.AssemblyXpp3Reader;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+import org.codehaus.plexus.interpolation.fixed.InterpolationState;
+import org.codehaus.plexus.interpolation.fixed.PropertiesBasedValueSource;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+public class ExpressionIndexTest
+    extends TestCase
+{
+
+    private static FixedStringSearchInterpolator interpolator( String... keysAndValues )
+    {
+        final Properties properties = new Properties();
+        for ( int i = 0; i < keysAndValues.length; i += 2 )
+        {
+            properties.setProperty( keysAndValues[i], keysAndValues[i + 1] );
+        }
+        return FixedStringSearchInterpolator.create( new PropertiesBasedValueSource( properties ) );
+    }
+
+    public void testCollectExpressions()
+    {
+        final Set<String> expressions = new LinkedHashSet<String>();
+
+        ExpressionIndex.collectExpressions( "${a}/lib/${b}-${a}.jar", expressions );
+        ExpressionIndex.collectExpressions( "no expression", expressions );
+        ExpressionIndex.collectExpressions( "unterminated ${c", expressions );
+        ExpressionIndex.collectExpressions( null, expressions );
+
+        assertEquals( 2, expressions.size() );
+        assertTrue( expressions.contains( "${a}" ) );
+        assertTrue( expressions.contains( "${b}" ) );
+    }
+
+    public void testInterpolateFromIndex()
+    {
+        final FixedStringSearchInterpolator interpolator = interpolator( "a", "x", "b", "${a}y" );
+        final Set<String> expressions = new LinkedHashSet<String>();
+        ExpressionIndex.collectExpressions( "${a}/${b}/${unknown}", expressions );
+        final InterpolationState state = new InterpolationState();
+
+        final ExpressionIndex index = ExpressionIndex.resolve( expressions, interpolator, state );
+
+        assertEquals( 3, index.size() );
+        assertEquals( "x/xy/${unknown}", index.interpolate( "${a}/${b}/${unknown}", interpolator, state ) );
+        assertEquals( "plain", index.interpolate( "plain", interpolator, state ) );
+        assertEquals( "x-${a", index.interpolate( "${a}-${a", interpolator, state ) );
+    }
+
+    public void testExpressionsMissingFromIndexAreInterpolated()
+    {
+        final FixedStringSearchInterpolator interpolator = interpolator( "a", "x", "b", "a" );
+        final InterpolationState state = new InterpolationState();
+
+        assertEquals( "x", ExpressionIndex.EMPTY.interpolate( "${a}", interpolator, state ) );
+
+        final Set<String> expressions = new LinkedHashSet<String>();
+        ExpressionIndex.collectExpressions( "${${b}}", expressions );
+        final ExpressionIndex index = ExpressionIndex.resolve( expressions, interpolator, state );
+        assertEquals( interpolator.interpolate( "${${b}}", state ), index.interpolate( "${${b}}", interpolator,
+                                                                                      state ) );
+    }
+
+    public void testTransformerSkipsBlacklistedFields()
+    {
+        final FixedStringSearchInterpolator interpolator = interpolator( "a", "x" );
+        final InterpolationState state = new InterpolationState();
+        final Set<String> expressions = new LinkedHashSet<String>();
+        ExpressionIndex.collectExpressions( "${a}", expressions );
+
+        final AssemblyXpp3Reader.ContentTransformer transformer = AssemblyInterpolator.assemblyInterpolator(
+            ExpressionIndex.resolve( expressions, interpolator, state ), interpolator, state,
+            new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+
+        assertEquals( "x", transformer.transform( "${a}", "directory" ) );
+        assertEquals( "${a}", transformer.transform( "${a}", "outputDirectory" ) );
+        assertFalse( AssemblyInterpolator.isInterpolatedField( "outputFileNameMapping" ) );
+        assertTrue( AssemblyInterpolator.isInterpolatedField( "directory" ) );
+    }
+
+    public void testExtend_ResolvesOnlyNewExpressions()
+    {
+        final FixedStringSearchInterpolator interpolator = interpolator( "a", "1", "b", "2" );
+
+        final ExpressionIndex index =
+            ExpressionIndex.resolve( Collections.singleton( "${a}" ), interpolator, new InterpolationState() );
+        assertSame( index, index.extend( Collections.singleton( "${a}" ), interpolator, new InterpolationState() ) );
+
+        final ExpressionIndex extended =
+            index.extend( Arrays.asList( "${a}", "${b}" ), interpolator, new InterpolationState() );
+        assertEquals( 1, index.size() );
+        assertEquals( 2, extended.size() );
+        assertEquals( "1-2", extended.interpolate( "${a}-${b}", FixedStringSearchInterpolator.empty(),
+                                                   new InterpolationState() ) );
+    }
+
+    /**
+     * Compares the indexed interpolation with the plain interpolator on the fields of a large descriptor: 500
+     * components with a few file and dependency sets each. Only runs with <code>-Dassembly.benchmark=true</code>.
+     */
+    public void testBenchmarkLargeDescriptor()
+    {
+        final List<String> fields = new ArrayList<String>();
+        for ( int component = 0; component < 500; component++ )
+        {
+            for ( int set = 0; set < 4; set++ )
+            {
+                fields.add( "${project.build.directory}/component-" + component );
+                fields.add( "${project.artifactId}-${project.version}/lib" );
+                fields.add( "**/*.jar" );
+                fields.add( "${project.groupId}:${project.artifactId}" );
+                fields.add( "0644" );
+                fields.add( "${basedir}/src/main/${component.name}" );
+            }
+        }
+
+        final Model model = new Model();
+        model.setGroupId( "org.example" );
+        model.setArtifactId( "benchmark" );
+        model.setVersion( "1.0" );
+        model.setBuild( new Build() );
+        model.getBuild().setDirectory( "target" );
+        model.getProperties().setProperty( "component.name", "java" );
+        final MavenProject project = new MavenProject( model );
+        final FixedStringSearchInterpolator interpolator =
+            FixedStringSearchInterpolator.create( DefaultAssemblyReader.createProjectInterpolator( project ) );
+
+        final Set<String> expressions = new LinkedHashSet<String>();
+        for ( final String field : fields )
+        {
+            ExpressionIndex.collectExpressions( field, expressions );
+        }
+        final ExpressionIndex index = ExpressionIndex.resolve( expressions, interpolator, new InterpolationState() );
+        for ( final String field : fields )
+        {
+            assertEquals( interpolator.interpolate( field, new InterpolationState() ),
+                          index.interpolate( field, interpolator, new InterpolationState() ) );
+        }
+
+        if ( !Boolean.getBoolean( "assembly.benchmark" ) )
+        {
+            return;
+        }
+
+        final int rounds = 200;
+        long plain = 0;
+        long indexed = 0;
+        for ( int warmup = 0; warmup < 2; warmup++ )
+        {
+            plain = 0;
+            indexed = 0;
+            for ( int round = 0; round < rounds; round++ )
+            {
+                final InterpolationState state = new InterpolationState();
+                long start = System.nanoTime();
+                for ( final String field : fields )
+                {
+                    interpolator.interpolate( field, state );
+                }
+                plain += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                final ExpressionIndex roundIndex = ExpressionIndex.resolve( expressions, interpolator, state );
+                for ( final String field : fields )
+                {
+                    roundIndex.interpolate( field, interpolator, state );
+                }
+                indexed += System.nanoTime() - start;
+            }
+        }
+        assertTrue( "index " + ( indexed / rounds / 1000 ) + " us, interpolator " + ( plain / rounds / 1000 )
+            + " us per descriptor", indexed < plain );
+    }
+}
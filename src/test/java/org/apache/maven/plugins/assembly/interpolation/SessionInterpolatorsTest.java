@@ -0,0 +1,73 @@
+package org.apache.maven.plugins.assembly.interpolation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.sonatype.aether.RepositorySystemSession;
+
+import java.util.Properties;
+
+public class SessionInterpolatorsTest
+    extends TestCase
+{
+
+    private static MavenSession newSession( MavenExecutionRequest request )
+    {
+        return new MavenSession( null, (RepositorySystemSession) null, request, new DefaultMavenExecutionResult() );
+    }
+
+    public void testInterpolatorsAreSharedBySessionsOfOneRequest()
+    {
+        final MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+
+        final SessionInterpolators first = SessionInterpolators.forSession( newSession( request ), null );
+        final SessionInterpolators second = SessionInterpolators.forSession( newSession( request ), null );
+
+        assertSame( first, second );
+        assertSame( first.getEnvInterpolator(), second.getEnvInterpolator() );
+        assertNotSame( first, SessionInterpolators.forSession( newSession( new DefaultMavenExecutionRequest() ),
+                                                               null ) );
+    }
+
+    public void testUserPropertiesOverrideSystemProperties()
+    {
+        final Properties system = new Properties();
+        system.setProperty( "a", "system" );
+        system.setProperty( "b", "system" );
+        final Properties user = new Properties();
+        user.setProperty( "b", "user" );
+        final MavenExecutionRequest request = new DefaultMavenExecutionRequest();
+        request.setSystemProperties( system );
+        request.setUserProperties( user );
+
+        final SessionInterpolators interpolators = SessionInterpolators.forSession( newSession( request ), null );
+
+        assertEquals( "system-user", interpolators.getCommandLinePropertiesInterpolator().interpolate( "${a}-${b}" ) );
+    }
+
+    public void testNothingIsSharedWithoutSession()
+    {
+        assertNotSame( SessionInterpolators.forSession( null, null ), SessionInterpolators.forSession( null, null ) );
+    }
+}
@@ -0,0 +1,160 @@
+package org.apache.maven.plugins.assembly.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.plugins.assembly.interpolation.AssemblyInterpolator;
+import org.apache.maven.plugins.assembly.model.Assembly;
+import org.apache.maven.plugins.assembly.model.Component;
+import org.apache.maven.plugins.assembly.model.FileSet;
+import org.apache.maven.plugins.assembly.model.io.xpp3.AssemblyXpp3Reader;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.codehaus.plexus.interpolation.fixed.FixedStringSearchInterpolator;
+import org.codehaus.plexus.interpolation.fixed.InterpolationState;
+import org.codehaus.plexus.interpolation.fixed.PropertiesBasedValueSource;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+
+import java.io.File;
+import java.io.StringReader;
+import java.net.URL;
+import java.util.Properties;
+
+public class DescriptorTemplateTest
+    extends TestCase
+{
+
+    private static final String ASSEMBLY = "<assembly><id>${classifier}</id><formats><format>zip</format></formats>"
+        + "<fileSets><fileSet><directory>${dir}</directory><outputDirectory>${dir}</outputDirectory>"
+        + "<includes><include>${pattern}</include></includes></fileSet></fileSets></assembly>";
+
+    private final TestFileManager fileManager = new TestFileManager( "descriptor-template.test.", ".xml" );
+
+    @Override
+    protected void setUp()
+    {
+        DescriptorTemplate.clear();
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        fileManager.cleanUp();
+    }
+
+    private static AssemblyXpp3Reader.ContentTransformer transformer( String... keysAndValues )
+    {
+        final Properties properties = new Properties();
+        for ( int i = 0; i < keysAndValues.length; i += 2 )
+        {
+            properties.setProperty( keysAndValues[i], keysAndValues[i + 1] );
+        }
+        return AssemblyInterpolator.assemblyInterpolator(
+            FixedStringSearchInterpolator.create( new PropertiesBasedValueSource( properties ) ),
+            new InterpolationState(), new ConsoleLogger( Logger.LEVEL_INFO, "test" ) );
+    }
+
+    public void testNewAssemblyInterpolatesAnIndependentCopy()
+        throws Exception
+    {
+        final DescriptorTemplate template = DescriptorTemplate.readAssembly( null, new StringReader( ASSEMBLY ) );
+        assertTrue( template.isCopyable() );
+
+        final Assembly first =
+            template.newAssembly( transformer( "classifier", "bin", "dir", "target", "pattern", "*.jar" ) );
+        assertEquals( "bin", first.getId() );
+        final FileSet fileSet = first.getFileSets().get( 0 );
+        assertEquals( "target", fileSet.getDirectory() );
+        // blacklisted fields keep their expressions
+        assertEquals( "${dir}", fileSet.getOutputDirectory() );
+        assertEquals( "*.jar", fileSet.getIncludes().get( 0 ) );
+
+        first.addFileSet( new FileSet() );
+        fileSet.getIncludes().clear();
+
+        final Assembly second =
+            template.newAssembly( transformer( "classifier", "src", "dir", "src", "pattern", "**" ) );
+        assertEquals( "src", second.getId() );
+        assertEquals( 1, second.getFileSets().size() );
+        assertEquals( "src", second.getFileSets().get( 0 ).getDirectory() );
+        assertEquals( "**", second.getFileSets().get( 0 ).getIncludes().get( 0 ) );
+    }
+
+    public void testExpressionInBooleanFieldIsParsedAgain()
+        throws Exception
+    {
+        final DescriptorTemplate template = DescriptorTemplate.readAssembly( null, new StringReader(
+            "<assembly><id>bin</id><includeBaseDirectory>${base}</includeBaseDirectory></assembly>" ) );
+        assertFalse( template.isCopyable() );
+
+        assertTrue( template.newAssembly( transformer( "base", "true" ) ).isIncludeBaseDirectory() );
+        assertFalse( template.newAssembly( transformer( "base", "false" ) ).isIncludeBaseDirectory() );
+    }
+
+    public void testNewComponentInterpolatesCopy()
+        throws Exception
+    {
+        final DescriptorTemplate template = DescriptorTemplate.readComponent( null, new StringReader(
+            "<component><fileSets><fileSet><directory>${dir}</directory></fileSet></fileSets></component>" ) );
+        final Properties properties = new Properties();
+        properties.setProperty( "dir", "docs" );
+
+        final Component component = template.newComponent( AssemblyInterpolator.componentInterpolator(
+            FixedStringSearchInterpolator.create( new PropertiesBasedValueSource( properties ) ),
+            new InterpolationState(), new ConsoleLogger( Logger.LEVEL_INFO, "test" ) ) );
+
+        assertEquals( "docs", component.getFileSets().get( 0 ).getDirectory() );
+    }
+
+    public void testTemplatesAreCachedByKey()
+        throws Exception
+    {
+        final DescriptorTemplate template = DescriptorTemplate.readAssembly( "key", new StringReader( ASSEMBLY ) );
+
+        assertSame( template, DescriptorTemplate.get( "key" ) );
+        assertNull( DescriptorTemplate.get( "other" ) );
+        assertNull( DescriptorTemplate.get( null ) );
+    }
+
+    public void testFileKeyChangesWithContent()
+        throws Exception
+    {
+        final File dir = fileManager.createTempDir();
+        final File file = fileManager.createFile( dir, "descriptor.xml", ASSEMBLY );
+        final String key = DescriptorTemplate.keyOf( file );
+        assertEquals( key, DescriptorTemplate.keyOf( file ) );
+
+        fileManager.createFile( dir, "descriptor.xml", ASSEMBLY + "\n" );
+
+        assertFalse( key.equals( DescriptorTemplate.keyOf( file ) ) );
+    }
+
+    public void testJarResourceKeyIsStampedWithJarFile()
+        throws Exception
+    {
+        final File jar = fileManager.createFile( fileManager.createTempDir(), "components.jar", "not a jar" );
+
+        final String jarKey =
+            DescriptorTemplate.keyOf( new URL( "jar:" + jar.toURI().toURL() + "!/assemblies/c.xml" ) );
+
+        assertEquals( DescriptorTemplate.keyOf( jar ) + "/assemblies/c.xml", jarKey );
+    }
+}
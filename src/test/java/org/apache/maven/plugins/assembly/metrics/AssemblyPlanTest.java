@@ -0,0 +1,82 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Map;
+
+public class AssemblyPlanTest
+    extends TestCase
+{
+
+    public void testEntriesDuplicatesAndLargest()
+    {
+        final AssemblyPlan plan = new AssemblyPlan();
+        for ( int i = 0; i < 20; i++ )
+        {
+            plan.add( "lib/dep-" + i + ".jar", i * 1000 );
+        }
+        plan.add( "lib/dep-3.jar", 5 );
+        plan.add( "lib/dep-3.jar", 7 );
+        plan.add( "README.txt", -1 );
+
+        assertEquals( 23, plan.getEntries() );
+        assertEquals( 190000 + 12, plan.getInputBytes() );
+
+        final Map<String, Integer> duplicates = plan.getDuplicates();
+        assertEquals( 1, duplicates.size() );
+        assertEquals( Integer.valueOf( 3 ), duplicates.get( "lib/dep-3.jar" ) );
+
+        final List<AssemblyPlan.Entry> largest = plan.getLargestEntries();
+        assertEquals( AssemblyPlan.LARGEST_ENTRIES, largest.size() );
+        assertEquals( "lib/dep-19.jar", largest.get( 0 ).getTarget() );
+        assertEquals( 19000, largest.get( 0 ).getSize() );
+        assertEquals( "lib/dep-10.jar", largest.get( AssemblyPlan.LARGEST_ENTRIES - 1 ).getTarget() );
+    }
+
+    public void testEstimateSize()
+    {
+        final AssemblyPlan plan = new AssemblyPlan();
+        plan.add( "lib/app.jar", 10000 );
+        plan.add( "conf/app.properties", 4000 );
+
+        assertEquals( 14000, plan.estimateSize( "dir" ) );
+        assertEquals( 512 + 10240 + 512 + 4096 + 1024, plan.estimateSize( "tar" ) );
+        assertEquals( 10000 + 1000 + 2 * 64 + 1024, plan.estimateSize( "tar.gz" ) );
+        assertEquals( 10000 + 1000 + 2 * 76 + 2 * ( 11 + 19 ) + 22, plan.estimateSize( "zip" ) );
+    }
+
+    public void testCompressionRatio()
+    {
+        assertEquals( 1.0, AssemblyPlan.compressionRatio( "lib/a.JAR" ) );
+        assertEquals( 0.25, AssemblyPlan.compressionRatio( "a.xml" ) );
+        assertEquals( 0.5, AssemblyPlan.compressionRatio( "bin/app" ) );
+        assertEquals( 0.5, AssemblyPlan.compressionRatio( "conf.d/.hidden" ) );
+    }
+
+    public void testFormatSize()
+    {
+        assertEquals( "512 B", AssemblyPlan.formatSize( 512 ) );
+        assertEquals( "1.5 KiB", AssemblyPlan.formatSize( 1536 ) );
+        assertEquals( "2.0 GiB", AssemblyPlan.formatSize( 2L * 1024 * 1024 * 1024 ) );
+    }
+}
@@ -0,0 +1,125 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+public class AssemblyReportTest
+    extends TestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "assembly-report.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        AssemblyMetrics.stop();
+        fileManager.cleanUp();
+    }
+
+    public void testMetricsAreDisabledWithoutBinding()
+    {
+        final AssemblyMetrics disabled = AssemblyMetrics.current();
+        assertFalse( disabled.isEnabled() );
+
+        disabled.entryAdded( 10 );
+        assertEquals( 0, disabled.snapshot().getEntries() );
+        final InputStream contents = new ByteArrayInputStream( new byte[10] );
+        assertSame( contents, disabled.countReads( contents ) );
+
+        final AssemblyMetrics metrics = AssemblyMetrics.start();
+        assertSame( metrics, AssemblyMetrics.current() );
+        assertTrue( metrics.isEnabled() );
+
+        AssemblyMetrics.stop();
+        assertSame( disabled, AssemblyMetrics.current() );
+    }
+
+    public void testStepsRecordCounterDeltas()
+    {
+        final AssemblyMetrics metrics = AssemblyMetrics.start();
+        final AssemblyReport report = new AssemblyReport( "bin", "zip", metrics );
+
+        metrics.entryAdded( 100 );
+        final AssemblyReport.Step first = report.begin( "FileItemAssemblyPhase" );
+        metrics.entryAdded( 2048 );
+        metrics.entryAdded( -1 );
+        metrics.filterInvocation();
+        report.end( first );
+
+        final AssemblyReport.Step second = report.begin( "DependencySetAssemblyPhase" );
+        metrics.dependencyResolution();
+        metrics.projectBuild();
+        metrics.bytesWritten( 4096 );
+        report.end( second );
+
+        final List<AssemblyReport.Step> steps = report.getSteps();
+        assertEquals( 2, steps.size() );
+
+        final AssemblyMetrics.Counters firstCounters = steps.get( 0 ).getCounters();
+        assertEquals( "FileItemAssemblyPhase", steps.get( 0 ).getName() );
+        assertEquals( 2, firstCounters.getEntries() );
+        assertEquals( 2048, firstCounters.getEntryBytes() );
+        assertEquals( 1, firstCounters.getFilterInvocations() );
+        assertEquals( 0, firstCounters.getDependencyResolutions() );
+
+        final AssemblyMetrics.Counters secondCounters = steps.get( 1 ).getCounters();
+        assertEquals( 0, secondCounters.getEntries() );
+        assertEquals( 1, secondCounters.getDependencyResolutions() );
+        assertEquals( 1, secondCounters.getProjectBuilds() );
+        assertEquals( 4096, secondCounters.getBytesWritten() );
+        assertTrue( steps.get( 1 ).getWallNanos() >= 0 );
+    }
+
+    public void testWriteJson()
+        throws IOException
+    {
+        final AssemblyMetrics metrics = AssemblyMetrics.start();
+        final AssemblyReport report = new AssemblyReport( "my \"bin\"", "tar.gz", metrics );
+        final AssemblyReport.Step step = report.begin( "createArchive" );
+        metrics.entryAdded( 10 );
+        metrics.entryAdded( 20 );
+        IOUtil.copy( metrics.countReads( new ByteArrayInputStream( new byte[12] ) ), new ByteArrayOutputStream() );
+        report.end( step );
+
+        final File file = new File( fileManager.createTempDir(), "report/bin-tar.gz.json" );
+        report.write( file );
+
+        final String json = FileUtils.fileRead( file, "UTF-8" );
+        assertEquals( report.toJson(), json );
+        assertTrue( json, json.contains( "\"assemblyId\": \"my \\\"bin\\\"\"" ) );
+        assertTrue( json, json.contains( "\"format\": \"tar.gz\"" ) );
+        assertTrue( json, json.contains( "{ \"name\": \"createArchive\"" ) );
+        assertTrue( json, json.contains( "\"total\": { \"name\": \"Total\"" ) );
+        assertTrue( json, json.contains( "\"entries\": 2, \"entryBytes\": 30, \"bytesRead\": 12" ) );
+        assertTrue( json, json.contains( "\"threadCpuNanos\": " ) );
+    }
+}
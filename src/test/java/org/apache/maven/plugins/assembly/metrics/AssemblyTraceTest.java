@@ -0,0 +1,108 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+
+public class AssemblyTraceTest
+    extends TestCase
+{
+
+    @Override
+    public void tearDown()
+    {
+        AssemblyTrace.stop();
+    }
+
+    public void testDisabledTraceSharesOneSpan()
+        throws IOException
+    {
+        final AssemblyTrace trace = AssemblyTrace.current();
+        assertFalse( trace.isEnabled() );
+
+        final AssemblyTrace.Span span = trace.begin( "phase", "first" );
+        assertSame( span, trace.begin( "phase", "second", "assembly", "bin" ) );
+        span.end();
+        assertEquals( 0, trace.size() );
+
+        final InputStream stream = new ByteArrayInputStream( new byte[10] );
+        assertSame( stream, trace.traceFilteredFile( stream, "big.txt", Long.MAX_VALUE ) );
+    }
+
+    public void testSpansCarryThreadIds()
+        throws Exception
+    {
+        final AssemblyTrace trace = AssemblyTrace.start( AssemblyTrace.DEFAULT_FILTERED_FILE_THRESHOLD );
+        assertSame( trace, AssemblyTrace.current() );
+
+        final AssemblyTrace.Span outer = trace.begin( "phase", "FileSetAssemblyPhase", "assembly", "bin" );
+        final Thread worker = new Thread( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                AssemblyTrace.current().begin( "archive", "compress" ).end();
+            }
+        }, "compressor" );
+        worker.start();
+        worker.join();
+        outer.end();
+        outer.end();
+
+        assertEquals( 2, trace.size() );
+
+        final StringWriter json = new StringWriter();
+        trace.write( json );
+        final String text = json.toString();
+
+        assertTrue( text, text.startsWith( "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[" ) );
+        assertTrue( text, text.contains( "\"tid\":" + Thread.currentThread().getId() + ",\"cat\":\"phase\","
+                                             + "\"name\":\"FileSetAssemblyPhase\"" ) );
+        assertTrue( text, text.contains( "\"tid\":" + worker.getId() + ",\"cat\":\"archive\",\"name\":\"compress\"" ) );
+        assertTrue( text, text.contains( "\"args\":{\"assembly\":\"bin\"}" ) );
+        assertTrue( text, text.contains( "\"name\":\"thread_name\",\"args\":{\"name\":\"compressor\"}" ) );
+        assertTrue( text, text.endsWith( "\n]}\n" ) );
+    }
+
+    public void testLargeFilteredFilesGetASpan()
+        throws IOException
+    {
+        final AssemblyTrace trace = AssemblyTrace.start( 8 );
+
+        final InputStream small = new ByteArrayInputStream( new byte[4] );
+        assertSame( small, trace.traceFilteredFile( small, "small.txt", 4 ) );
+
+        final InputStream large = trace.traceFilteredFile( new ByteArrayInputStream( new byte[16] ), "large.txt", 16 );
+        assertEquals( 16, IOUtil.toByteArray( large ).length );
+        assertEquals( 0, trace.size() );
+        large.close();
+        assertEquals( 1, trace.size() );
+
+        final StringWriter json = new StringWriter();
+        trace.write( json );
+        assertTrue( json.toString(), json.toString().contains( "\"args\":{\"file\":\"large.txt\"}" ) );
+    }
+}
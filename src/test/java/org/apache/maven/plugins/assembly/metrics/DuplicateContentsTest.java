@@ -0,0 +1,80 @@
+package org.apache.maven.plugins.assembly.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class DuplicateContentsTest
+    extends TestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "duplicate-contents.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testEntriesWithSameSizeAndCrcAreCounted()
+        throws IOException
+    {
+        final File zip = new File( fileManager.createTempDir(), "out.zip" );
+        ZipOutputStream out = null;
+        try
+        {
+            out = new ZipOutputStream( new FileOutputStream( zip ) );
+            write( out, "a/lib.jar", "the same contents" );
+            write( out, "a/other.jar", "same size, others" );
+            write( out, "b/lib.jar", "the same contents" );
+            write( out, "c/lib.jar", "the same contents" );
+            out.putNextEntry( new ZipEntry( "empty/" ) );
+            out.closeEntry();
+            out.close();
+            out = null;
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+
+        final DuplicateContents contents = DuplicateContents.ofZip( zip );
+        assertEquals( 2, contents.getDuplicateEntries() );
+        assertEquals( 34, contents.getDuplicateBytes() );
+        assertTrue( contents.getCompressedDuplicateBytes() > 0 );
+    }
+
+    private static void write( ZipOutputStream out, String name, String contents )
+        throws IOException
+    {
+        out.putNextEntry( new ZipEntry( name ) );
+        out.write( contents.getBytes( "UTF-8" ) );
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,101 @@
+package org.apache.maven.plugins.assembly.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class ChecksummedFileTest
+    extends TestCase
+{
+
+    private static final String CONTENT = "Some repository artifact content";
+
+    private final TestFileManager fileManager = new TestFileManager( "checksummed-file.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testChecksumsRecordedWhileFileIsRead()
+        throws IOException
+    {
+        final File file = fileManager.createFile( fileManager.createTempDir(), "a.jar", CONTENT );
+        final ChecksummedFile checksummed = new ChecksummedFile( file );
+
+        final PlexusIoResource resource = checksummed.fileResource( "repo/a.jar" );
+        assertEquals( CONTENT, read( resource ) );
+
+        // the checksums must now be served without touching the file again
+        assertTrue( file.delete() );
+
+        assertEquals( DigestUtils.md5Hex( CONTENT ), read( checksummed.checksumResource( "repo/a.jar.md5",
+                                                                                         ChecksummedFile.MD5 ) ) );
+        assertEquals( DigestUtils.shaHex( CONTENT ), read( checksummed.checksumResource( "repo/a.jar.sha1",
+                                                                                         ChecksummedFile.SHA1 ) ) );
+    }
+
+    public void testChecksumReadBeforeFile()
+        throws IOException
+    {
+        final File file = fileManager.createFile( fileManager.createTempDir(), "a.jar", CONTENT );
+        final ChecksummedFile checksummed = new ChecksummedFile( file );
+
+        final PlexusIoResource sha1 = checksummed.checksumResource( "repo/a.jar.sha1", ChecksummedFile.SHA1 );
+        assertEquals( 40, sha1.getSize() );
+        assertEquals( DigestUtils.shaHex( CONTENT ), read( sha1 ) );
+        assertEquals( CONTENT, read( checksummed.fileResource( "repo/a.jar" ) ) );
+    }
+
+    public void testGeneratedContent()
+        throws IOException
+    {
+        final byte[] content = CONTENT.getBytes( "UTF-8" );
+        final ChecksummedFile checksummed = new ChecksummedFile( content, 0 );
+
+        final PlexusIoResource md5 = checksummed.checksumResource( "maven-metadata.xml.md5", ChecksummedFile.MD5 );
+        assertEquals( 32, md5.getSize() );
+        assertEquals( DigestUtils.md5Hex( content ), read( md5 ) );
+    }
+
+    private static String read( final PlexusIoResource resource )
+        throws IOException
+    {
+        final InputStream in = resource.getContents();
+        try
+        {
+            return IOUtil.toString( in, "UTF-8" );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package org.apache.maven.plugins.assembly.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.metadata.ArtifactMetadata;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.io.xpp3.MetadataXpp3Reader;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugins.assembly.repository.model.GroupVersionAlignment;
+import org.apache.maven.plugins.assembly.repository.model.RepositoryInfo;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+import org.apache.maven.project.DefaultProjectBuildingRequest;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectBuildingRequest;
+import org.apache.maven.shared.artifact.ArtifactCoordinate;
+import org.apache.maven.shared.artifact.filter.resolve.TransformableFilter;
+import org.apache.maven.shared.artifact.resolve.ArtifactResult;
+import org.apache.maven.shared.dependencies.DependableCoordinate;
+import org.apache.maven.shared.dependencies.resolve.DependencyResolver;
+import org.apache.maven.shared.repository.RepositoryManager;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class DefaultRepositoryAssemblerTest
+    extends TestCase
+{
+
+    private final TestFileManager fileManager = new TestFileManager( "repository-assembler.test.", "" );
+
+    @Override
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testArtifactsMetadataAndChecksums()
+        throws Exception
+    {
+        final File dir = fileManager.createTempDir();
+        final List<ArtifactResult> results = new ArrayList<ArtifactResult>();
+        for ( final String version : new String[] { "1.10", "1.0", "2.0-SNAPSHOT", "1.2" } )
+        {
+            results.add( result( dir, "lib", version ) );
+        }
+        results.add( result( dir, "other", "3.0" ) );
+
+        final DefaultRepositoryAssembler assembler =
+            new DefaultRepositoryAssembler( null, new FixedDependencyResolver( results ), new LayoutManager() );
+        assembler.enableLogging( new ConsoleLogger( Logger.LEVEL_WARN, "test" ) );
+
+        final ResolvedRepository resolved = assembler.resolveRepository( new Info( "org.example:lib" ), new Source() );
+        assertEquals( Arrays.asList( "org/example/lib/1.10/lib-1.10.jar", "org/example/lib/1.0/lib-1.0.jar",
+                                     "org/example/lib/2.0-SNAPSHOT/lib-2.0-SNAPSHOT.jar",
+                                     "org/example/lib/1.2/lib-1.2.jar" ),
+                      new ArrayList<String>( resolved.getFiles().keySet() ) );
+        assertEquals( Collections.singleton( "org/example/lib/maven-metadata.xml" ),
+                      resolved.getMetadata().keySet() );
+
+        final File destFile = new File( dir, "repo.tar" );
+        final TarArchiver archiver = new TarArchiver();
+        archiver.setDestFile( destFile );
+        assembler.buildRemoteRepository( archiver, "repo/", resolved );
+        archiver.createArchive();
+        final Map<String, byte[]> entries = read( destFile );
+
+        final String jar = "repo/org/example/lib/1.2/lib-1.2.jar";
+        assertEquals( "lib-1.2", new String( entries.get( jar ), "UTF-8" ) );
+        assertEquals( DigestUtils.md5Hex( "lib-1.2" ), new String( entries.get( jar + ".md5" ), "US-ASCII" ) );
+        assertEquals( DigestUtils.shaHex( "lib-1.2" ), new String( entries.get( jar + ".sha1" ), "US-ASCII" ) );
+
+        final String path = "repo/org/example/lib/maven-metadata.xml";
+        final byte[] content = entries.get( path );
+        assertEquals( DigestUtils.md5Hex( content ), new String( entries.get( path + ".md5" ), "US-ASCII" ) );
+        assertEquals( DigestUtils.shaHex( content ), new String( entries.get( path + ".sha1" ), "US-ASCII" ) );
+
+        final Metadata metadata = new MetadataXpp3Reader().read( new ByteArrayInputStream( content ) );
+        assertEquals( "org.example", metadata.getGroupId() );
+        assertEquals( "lib", metadata.getArtifactId() );
+        assertEquals( Arrays.asList( "1.0", "1.2", "1.10", "2.0-SNAPSHOT" ), metadata.getVersioning().getVersions() );
+        assertEquals( "2.0-SNAPSHOT", metadata.getVersioning().getLatest() );
+        assertEquals( "1.10", metadata.getVersioning().getRelease() );
+
+        assertEquals( 4 * 3 + 3, entries.size() );
+    }
+
+    public void testNoMetadataUnlessIncluded()
+        throws Exception
+    {
+        final File dir = fileManager.createTempDir();
+        final DefaultRepositoryAssembler assembler =
+            new DefaultRepositoryAssembler( null, new FixedDependencyResolver(
+                Collections.singletonList( result( dir, "lib", "1.0" ) ) ), new LayoutManager() );
+        assembler.enableLogging( new ConsoleLogger( Logger.LEVEL_WARN, "test" ) );
+
+        final Info info = new Info( "org.example:*" );
+        info.includeMetadata = false;
+        final ResolvedRepository resolved = assembler.resolveRepository( info, new Source() );
+
+        assertEquals( 1, resolved.getFiles().size() );
+        assertTrue( resolved.getMetadata().isEmpty() );
+    }
+
+    private ArtifactResult result( final File dir, final String artifactId, final String version )
+        throws IOException
+    {
+        final Artifact artifact =
+            new DefaultArtifact( "org.example", artifactId, version, Artifact.SCOPE_COMPILE, "jar", null,
+                                 new DefaultArtifactHandler( "jar" ) );
+        artifact.setFile( fileManager.createFile( dir, artifactId + "-" + version + ".jar",
+                                                  artifactId + "-" + version ) );
+        return new ArtifactResult()
+        {
+            @Override
+            public Artifact getArtifact()
+            {
+                return artifact;
+            }
+        };
+    }
+
+    private static Map<String, byte[]> read( final File tar )
+        throws IOException
+    {
+        final Map<String, byte[]> entries = new TreeMap<String, byte[]>();
+        final TarArchiveInputStream in = new TarArchiveInputStream( new FileInputStream( tar ) );
+        try
+        {
+            TarArchiveEntry entry;
+            while ( ( entry = in.getNextTarEntry() ) != null )
+            {
+                if ( entry.isFile() )
+                {
+                    entries.put( entry.getName(), IOUtil.toByteArray( in ) );
+                }
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return entries;
+    }
+
+    private static final class Info
+        implements RepositoryInfo
+    {
+
+        private final List<String> includes;
+
+        private boolean includeMetadata = true;
+
+        Info( final String include )
+        {
+            this.includes = Collections.singletonList( include );
+        }
+
+        @Override
+        public List<GroupVersionAlignment> getGroupVersionAlignments()
+        {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isIncludeMetadata()
+        {
+            return includeMetadata;
+        }
+
+        @Override
+        public String getScope()
+        {
+            return Artifact.SCOPE_RUNTIME;
+        }
+
+        @Override
+        public List<String> getIncludes()
+        {
+            return includes;
+        }
+
+        @Override
+        public List<String> getExcludes()
+        {
+            return null;
+        }
+    }
+
+    private static final class Source
+        implements RepositoryBuilderConfigSource
+    {
+
+        private final MavenProject project = new MavenProject( new Model() );
+
+        private final ProjectBuildingRequest request = new DefaultProjectBuildingRequest();
+
+        @Override
+        public MavenProject getProject()
+        {
+            return project;
+        }
+
+        @Override
+        public ProjectBuildingRequest getProjectBuildingRequest()
+        {
+            return request;
+        }
+    }
+
+    private static final class FixedDependencyResolver
+        implements DependencyResolver
+    {
+
+        private final List<ArtifactResult> results;
+
+        FixedDependencyResolver( final List<ArtifactResult> results )
+        {
+            this.results = results;
+        }
+
+        @Override
+        public Iterable<ArtifactResult> resolveDependencies( final ProjectBuildingRequest request,
+                                                             final DependableCoordinate coordinate,
+                                                             final TransformableFilter filter )
+        {
+            return results;
+        }
+
+        @Override
+        public Iterable<ArtifactResult> resolveDependencies( final ProjectBuildingRequest request, final Model model,
+                                                             final TransformableFilter filter )
+        {
+            return results;
+        }
+
+        @Override
+        public Iterable<ArtifactResult> resolveDependencies( final ProjectBuildingRequest request,
+                                                             final Collection<Dependency> dependencies,
+                                                             final Collection<Dependency> managedDependencies,
+                                                             final TransformableFilter filter )
+        {
+            return results;
+        }
+    }
+
+    /**
+     * Lays artifacts out as the default repository layout does.
+     */
+    private static final class LayoutManager
+        implements RepositoryManager
+    {
+
+        @Override
+        public String getPathForLocalArtifact( final ProjectBuildingRequest request, final Artifact artifact )
+        {
+            return artifact.getGroupId().replace( '.', '/' ) + "/" + artifact.getArtifactId() + "/"
+                + artifact.getBaseVersion() + "/" + artifact.getArtifactId() + "-" + artifact.getVersion() + "."
+                + artifact.getType();
+        }
+
+        @Override
+        public String getPathForLocalArtifact( final ProjectBuildingRequest request,
+                                               final ArtifactCoordinate coordinate )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getPathForLocalMetadata( final ProjectBuildingRequest request,
+                                               final ArtifactMetadata metadata )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ProjectBuildingRequest setLocalRepositoryBasedir( final ProjectBuildingRequest request,
+                                                                 final File basedir )
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public File getLocalRepositoryBasedir( final ProjectBuildingRequest request )
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
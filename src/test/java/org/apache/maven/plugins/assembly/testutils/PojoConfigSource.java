@@ -97,12 +97,36 @@ public class PojoConfigSource
 
     private boolean isDryRun;
 
+    private boolean report;
+
+    private boolean plan;
+
+    private String duplicatePolicy;
+
+    private boolean hardLinkDuplicates;
+
+    private List<String> storedExtensions;
+
+    private boolean probeEntropy;
+
+    private List<String> archiveDigests;
+
+    private boolean entryDigests;
+
+    private int pipelineBuffer;
+
+    private boolean streamEntries;
+
+    private boolean tarLayers;
+
     private boolean isIgnoreDirFormatExtensions;
 
     private boolean isIgnoreMissingDescriptor;
 
     private MavenSession mavenSession;
 
+    private String dependencyResolutionScope;
+
     private FixedStringSearchInterpolator rootInterpolator = FixedStringSearchInterpolator.empty();
 
     private FixedStringSearchInterpolator environmentInterpolator = FixedStringSearchInterpolator.empty();
@@ -321,6 +345,116 @@ public class PojoConfigSource
         this.isDryRun = isDryRun;
     }
 
+    public boolean isReport()
+    {
+        return report;
+    }
+
+    public void setReport( boolean report )
+    {
+        this.report = report;
+    }
+
+    public boolean isPlan()
+    {
+        return plan;
+    }
+
+    public void setPlan( boolean plan )
+    {
+        this.plan = plan;
+    }
+
+    public String getDuplicatePolicy()
+    {
+        return duplicatePolicy;
+    }
+
+    public void setDuplicatePolicy( String duplicatePolicy )
+    {
+        this.duplicatePolicy = duplicatePolicy;
+    }
+
+    public boolean isHardLinkDuplicates()
+    {
+        return hardLinkDuplicates;
+    }
+
+    public void setHardLinkDuplicates( boolean hardLinkDuplicates )
+    {
+        this.hardLinkDuplicates = hardLinkDuplicates;
+    }
+
+    public List<String> getStoredExtensions()
+    {
+        return storedExtensions;
+    }
+
+    public void setStoredExtensions( List<String> storedExtensions )
+    {
+        this.storedExtensions = storedExtensions;
+    }
+
+    public boolean isProbeEntropy()
+    {
+        return probeEntropy;
+    }
+
+    public void setProbeEntropy( boolean probeEntropy )
+    {
+        this.probeEntropy = probeEntropy;
+    }
+
+    public List<String> getArchiveDigests()
+    {
+        return archiveDigests;
+    }
+
+    public void setArchiveDigests( List<String> archiveDigests )
+    {
+        this.archiveDigests = archiveDigests;
+    }
+
+    public boolean isEntryDigests()
+    {
+        return entryDigests;
+    }
+
+    public void setEntryDigests( boolean entryDigests )
+    {
+        this.entryDigests = entryDigests;
+    }
+
+    public int getPipelineBuffer()
+    {
+        return pipelineBuffer;
+    }
+
+    public void setPipelineBuffer( int pipelineBuffer )
+    {
+        this.pipelineBuffer = pipelineBuffer;
+    }
+
+    public boolean isStreamEntries()
+    {
+        return streamEntries;
+    }
+
+    public void setStreamEntries( boolean streamEntries )
+    {
+        this.streamEntries = streamEntries;
+    }
+
+    public boolean isTarLayers()
+    {
+        return tarLayers;
+    }
+
+    public void setTarLayers( boolean tarLayers )
+    {
+        this.tarLayers = tarLayers;
+    }
+
     public boolean isIgnoreDirFormatExtensions()
     {
         return isIgnoreDirFormatExtensions;
@@ -346,6 +480,16 @@ public class PojoConfigSource
         return mavenSession;
     }
 
+    public String getDependencyResolutionScope()
+    {
+        return dependencyResolutionScope;
+    }
+
+    public void setDependencyResolutionScope( String dependencyResolutionScope )
+    {
+        this.dependencyResolutionScope = dependencyResolutionScope;
+    }
+
     public void setMavenSession( MavenSession mavenSession )
     {
         this.mavenSession = mavenSession;
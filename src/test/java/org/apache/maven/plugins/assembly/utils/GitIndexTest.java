@@ -0,0 +1,285 @@
+package org.apache.maven.plugins.assembly.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.plugins.assembly.testutils.TestFileManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class GitIndexTest
+    extends TestCase
+{
+
+    private static final int REGULAR = 0100644;
+
+    private static final int SYMLINK = 0120000;
+
+    private static final int GITLINK = 0160000;
+
+    private final TestFileManager fileManager = new TestFileManager( "git-index.test.", "" );
+
+    public void tearDown()
+        throws IOException
+    {
+        fileManager.cleanUp();
+    }
+
+    public void testRead_Version2()
+        throws IOException
+    {
+        final File index = writeIndex( 2, new Entry( "a.txt", REGULAR ), new Entry( "src/main/Foo.java", REGULAR ),
+                                       new Entry( "src/main/link", SYMLINK ) );
+
+        assertEquals( Arrays.asList( "a.txt", "src/main/Foo.java", "src/main/link" ), GitIndex.read( index ) );
+    }
+
+    public void testRead_Version3WithExtendedFlags()
+        throws IOException
+    {
+        final File index = writeIndex( 3, new Entry( "a.txt", REGULAR, true ), new Entry( "b.txt", REGULAR ) );
+
+        assertEquals( Arrays.asList( "a.txt", "b.txt" ), GitIndex.read( index ) );
+    }
+
+    public void testRead_Version4PrefixCompressed()
+        throws IOException
+    {
+        final File index =
+            writeIndex( 4, new Entry( "src/main/java/A.java", REGULAR ), new Entry( "src/main/java/B.java", REGULAR ),
+                        new Entry( "src/test/C.java", REGULAR ) );
+
+        assertEquals( Arrays.asList( "src/main/java/A.java", "src/main/java/B.java", "src/test/C.java" ),
+                      GitIndex.read( index ) );
+    }
+
+    public void testRead_SkipsSubmodulesAndDuplicateStages()
+        throws IOException
+    {
+        final File index = writeIndex( 2, new Entry( "conflict.txt", REGULAR ), new Entry( "conflict.txt", REGULAR ),
+                                       new Entry( "module", GITLINK ) );
+
+        assertEquals( Collections.singletonList( "conflict.txt" ), GitIndex.read( index ) );
+    }
+
+    public void testRead_SplitIndexIsUnsupported()
+        throws IOException
+    {
+        final File index = writeIndex( 2, "link".getBytes( "UTF-8" ), new Entry( "a.txt", REGULAR ) );
+
+        assertNull( GitIndex.read( index ) );
+    }
+
+    public void testRead_BadSignature()
+        throws IOException
+    {
+        final File index = fileManager.createFile( fileManager.createTempDir(), "index", "not an index" );
+
+        try
+        {
+            GitIndex.read( index );
+            fail( "Should fail on a file which is not a git index." );
+        }
+        catch ( final IOException e )
+        {
+            // expected
+        }
+    }
+
+    public void testForDirectory_NotInWorkTree()
+        throws IOException
+    {
+        final File dir = fileManager.createTempDir();
+
+        // the temp directory itself may happen to live inside a working tree
+        final GitIndex index = GitIndex.forDirectory( dir );
+        if ( index != null )
+        {
+            assertTrue( index.getPaths( dir ).isEmpty() );
+        }
+    }
+
+    public void testForDirectory_PathsRelativeToSubdirectory()
+        throws IOException
+    {
+        final File workTree = fileManager.createTempDir();
+        final File gitDir = new File( workTree, ".git" );
+        assertTrue( gitDir.mkdirs() );
+        writeIndex( new File( gitDir, "index" ), 2, null, new Entry( "pom.xml", REGULAR ),
+                    new Entry( "src/main/A.java", REGULAR ), new Entry( "src/test/B.java", REGULAR ) );
+
+        final File src = new File( workTree, "src" );
+        assertTrue( src.mkdirs() );
+
+        final GitIndex index = GitIndex.forDirectory( src );
+        assertNotNull( index );
+        assertEquals( workTree.getCanonicalFile(), index.getWorkTree() );
+        assertEquals( Arrays.asList( "main/A.java", "test/B.java" ), index.getPaths( src ) );
+        assertEquals( index.getPaths(), index.getPaths( workTree ) );
+    }
+
+    public void testForDirectory_GitFile()
+        throws IOException
+    {
+        final File workTree = fileManager.createTempDir();
+        final File gitDir = fileManager.createTempDir();
+        writeIndex( new File( gitDir, "index" ), 2, null, new Entry( "a.txt", REGULAR ) );
+        fileManager.createFile( workTree, ".git", "gitdir: " + gitDir.getAbsolutePath() + "\n" );
+
+        final GitIndex index = GitIndex.forDirectory( workTree );
+        assertNotNull( index );
+        assertEquals( Collections.singletonList( "a.txt" ), index.getPaths() );
+    }
+
+    public void testForDirectory_NoIndexYet()
+        throws IOException
+    {
+        final File workTree = fileManager.createTempDir();
+        assertTrue( new File( workTree, ".git" ).mkdirs() );
+
+        assertNull( GitIndex.forDirectory( workTree ) );
+    }
+
+    public void testForDirectory_CacheIsBounded()
+        throws IOException
+    {
+        for ( int i = 0; i < 20; i++ )
+        {
+            final File workTree = fileManager.createTempDir();
+            final File gitDir = new File( workTree, ".git" );
+            assertTrue( gitDir.mkdirs() );
+            writeIndex( new File( gitDir, "index" ), 2, null, new Entry( "a" + i + ".txt", REGULAR ) );
+
+            assertEquals( Collections.singletonList( "a" + i + ".txt" ), GitIndex.forDirectory( workTree ).getPaths() );
+            assertTrue( GitIndex.cachedIndexes() <= 8 );
+        }
+    }
+
+    private File writeIndex( final int version, final Entry... entries )
+        throws IOException
+    {
+        return writeIndex( version, null, entries );
+    }
+
+    private File writeIndex( final int version, final byte[] extension, final Entry... entries )
+        throws IOException
+    {
+        final File index = new File( fileManager.createTempDir(), "index" );
+        writeIndex( index, version, extension, entries );
+        return index;
+    }
+
+    private static void writeIndex( final File index, final int version, final byte[] extension,
+                                    final Entry... entries )
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream( bytes );
+
+        out.writeBytes( "DIRC" );
+        out.writeInt( version );
+        out.writeInt( entries.length );
+
+        byte[] previous = new byte[0];
+        for ( final Entry entry : entries )
+        {
+            final byte[] name = entry.path.getBytes( "UTF-8" );
+
+            out.write( new byte[24] );
+            out.writeInt( entry.mode );
+            out.write( new byte[32] );
+            out.writeShort( Math.min( name.length, 0xFFF ) | ( entry.extended ? 0x4000 : 0 ) );
+            int length = 62;
+            if ( entry.extended )
+            {
+                out.writeShort( 0 );
+                length += 2;
+            }
+
+            if ( version == 4 )
+            {
+                int common = 0;
+                while ( common < previous.length && common < name.length && previous[common] == name[common] )
+                {
+                    common++;
+                }
+                // offsets below 128 fit in one byte
+                out.write( previous.length - common );
+                out.write( name, common, name.length - common );
+                out.write( 0 );
+            }
+            else
+            {
+                out.write( name );
+                final int padded = ( length + name.length + 8 ) & ~7;
+                out.write( new byte[padded - length - name.length] );
+            }
+            previous = name;
+        }
+
+        if ( extension != null )
+        {
+            out.write( extension );
+            out.writeInt( 0 );
+        }
+
+        // the trailing checksum is not verified
+        out.write( new byte[20] );
+        out.close();
+
+        final FileOutputStream fos = new FileOutputStream( index );
+        try
+        {
+            fos.write( bytes.toByteArray() );
+        }
+        finally
+        {
+            fos.close();
+        }
+    }
+
+    private static final class Entry
+    {
+        private final String path;
+
+        private final int mode;
+
+        private final boolean extended;
+
+        Entry( final String path, final int mode )
+        {
+            this( path, mode, false );
+        }
+
+        Entry( final String path, final int mode, final boolean extended )
+        {
+            this.path = path;
+            this.mode = mode;
+            this.extended = extended;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.apache.maven.plugins.assembly.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+public class HashedPathIndexTest
+    extends TestCase
+{
+
+    public void testPathsGetIdsInTheOrderTheyAreAdded()
+    {
+        final HashedPathIndex index = new HashedPathIndex();
+        assertEquals( 0, index.add( "lib/a.jar" ) );
+        assertEquals( 1, index.add( "lib/b.jar" ) );
+        assertEquals( -1, index.add( "lib/a.jar" ) );
+        assertEquals( -2, index.add( new StringBuilder( "lib/b.jar" ) ) );
+        assertEquals( 2, index.add( "" ) );
+
+        assertEquals( 3, index.size() );
+        assertEquals( 1, index.indexOf( "lib/b.jar" ) );
+        assertEquals( -1, index.indexOf( "lib/c.jar" ) );
+        assertTrue( index.contains( "" ) );
+    }
+
+    public void testRedundantSlashesAreIgnored()
+    {
+        final HashedPathIndex index = new HashedPathIndex();
+        index.add( "lib/a.jar" );
+
+        assertTrue( index.contains( "/lib//a.jar" ) );
+        assertTrue( index.contains( "lib/a.jar/" ) );
+        assertFalse( index.contains( "liba.jar" ) );
+        assertFalse( index.contains( "li/ba.jar" ) );
+        assertFalse( index.contains( "lib/a.ja" ) );
+    }
+
+    public void testManyPaths()
+    {
+        final HashedPathIndex index = new HashedPathIndex( 10 );
+        for ( int i = 0; i < 200000; i++ )
+        {
+            assertEquals( i, index.add( "data/" + ( i / 1000 ) + "/part-" + i + ".bin" ) );
+        }
+        assertEquals( 200000, index.size() );
+        for ( int i = 0; i < 200000; i += 997 )
+        {
+            assertEquals( i, index.indexOf( "data/" + ( i / 1000 ) + "/part-" + i + ".bin" ) );
+            assertEquals( -1 - i, index.add( "data/" + ( i / 1000 ) + "//part-" + i + ".bin" ) );
+        }
+        assertEquals( -1, index.indexOf( "data/0/part-200000.bin" ) );
+    }
+
+    public void testCharactersBeyondLatin1()
+    {
+        assertFalse( HashedPathIndex.hash( "\u0100" ) == HashedPathIndex.hash( "\u0001\u0001" ) );
+        assertFalse( HashedPathIndex.hash( "docs/\u00e9t\u00e9.txt" ) == HashedPathIndex.hash( "docs/ete.txt" ) );
+    }
+
+    public void testPathsWithTheSameHashAreKeptApart()
+    {
+        final HashedPathIndex index = new HashedPathIndex();
+        assertEquals( 0, index.add( 42, 1 ) );
+        assertEquals( 1, index.add( 42, 2 ) );
+        assertEquals( -2, index.add( 42, 2 ) );
+
+        assertEquals( 0, index.indexOf( 42, 1 ) );
+        assertEquals( 1, index.indexOf( 42, 2 ) );
+        assertEquals( -1, index.indexOf( 42, 3 ) );
+    }
+
+    public void testSecondHashIgnoresRedundantSlashes()
+    {
+        assertEquals( HashedPathIndex.check( "lib/a.jar" ), HashedPathIndex.check( "/lib//a.jar/" ) );
+        assertFalse( HashedPathIndex.check( "lib/a.jar" ) == HashedPathIndex.check( "liba.jar" ) );
+        assertFalse( HashedPathIndex.check( "\u0100" ) == HashedPathIndex.check( "\u0001\u0001" ) );
+    }
+}